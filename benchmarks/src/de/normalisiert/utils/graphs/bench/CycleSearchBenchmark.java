@@ -0,0 +1,120 @@
+package de.normalisiert.utils.graphs.bench;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.normalisiert.utils.graphs.CycleCounter;
+import de.normalisiert.utils.graphs.CycleSet;
+import de.normalisiert.utils.graphs.ElementaryCyclesSearch;
+import de.normalisiert.utils.graphs.SearchOptions;
+import de.normalisiert.utils.graphs.SearchResult;
+
+
+/**
+ * Benchmarks of the variants of {@link ElementaryCyclesSearch}. The graphs
+ * have some ten thousand cycles. Every invocation builds a new search, so
+ * the components of the algorithm of Johnson are computed each time, as
+ * for a caller searching a graph once.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CycleSearchBenchmark {
+	/** Graph, see {@link GraphGenerators#generate(String)} */
+	@Param({"erdosRenyi-50", "complete-9", "cliques-6", "scaleFree-150", "boolean-30"})
+	public String graph;
+
+	/** Length bound of the bounded searches */
+	@Param({"10"})
+	public int maxLength;
+
+	/** Adjacency-matrix of the graph */
+	private boolean[][] matrix = null;
+
+	/** Graphnodes */
+	private Object[] nodes = null;
+
+	@Setup
+	public void setUp() {
+		this.matrix = GraphGenerators.generate(this.graph);
+		this.nodes = new Object[this.matrix.length];
+		for (int i = 0; i < this.nodes.length; i++) {
+			this.nodes[i] = "Node " + i;
+		}
+	}
+
+	private ElementaryCyclesSearch newSearch() {
+		return new ElementaryCyclesSearch(this.matrix, this.nodes);
+	}
+
+	@Benchmark
+	public ArrayList elementaryCycles() {
+		return this.newSearch().getElementaryCycles();
+	}
+
+	@Benchmark
+	public ArrayList elementaryCyclesBounded() {
+		return this.newSearch().getElementaryCycles(this.maxLength);
+	}
+
+	@Benchmark
+	public ArrayList elementaryCyclesNSL() {
+		return this.newSearch().getElementaryCyclesNSL();
+	}
+
+	@Benchmark
+	public ArrayList elementaryCyclesNSLBounded() {
+		return this.newSearch().getElementaryCyclesNSL(this.maxLength);
+	}
+
+	@Benchmark
+	public ArrayList elementaryCyclesParallel() {
+		return this.newSearch().getElementaryCyclesParallel(ForkJoinPool.commonPool());
+	}
+
+	@Benchmark
+	public ArrayList elementaryCyclesBitMatrix() {
+		ElementaryCyclesSearch search = this.newSearch();
+		search.setBitMatrixEngine(true);
+		return search.getElementaryCycles();
+	}
+
+	@Benchmark
+	public SearchResult elementaryCyclesWithOptions() {
+		SearchOptions options = new SearchOptions();
+		options.setTimeLimit(60000);
+		return this.newSearch().getElementaryCycles(options);
+	}
+
+	@Benchmark
+	public CycleSet elementaryCycleSet() {
+		return this.newSearch().getElementaryCycleSet();
+	}
+
+	@Benchmark
+	public CycleCounter countElementaryCycles() {
+		return this.newSearch().countElementaryCycles();
+	}
+
+	@Benchmark
+	public CycleCounter countElementaryCyclesBounded() {
+		return this.newSearch().countElementaryCycles(this.maxLength);
+	}
+}
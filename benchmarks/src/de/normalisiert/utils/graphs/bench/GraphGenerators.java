@@ -0,0 +1,251 @@
+package de.normalisiert.utils.graphs.bench;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+
+/**
+ * Generators for the graphs of the benchmarks. All generators are
+ * deterministic for a given seed, so every run measures the same graphs.
+ * A graph is described by a string "kind-size", for example "complete-8";
+ * see {@link #generate(String)}.
+ *
+ */
+public class GraphGenerators {
+	/** Seed of all random graphs */
+	public static final long SEED = 20090322L;
+
+	private GraphGenerators() {
+	}
+
+	/**
+	 * Builds a graph from its description. The kinds are:
+	 * <ul>
+	 * <li>erdosRenyi-n: n nodes, every edge with probability 2.5 / n,</li>
+	 * <li>complete-n: n nodes, all edges without self-loops,</li>
+	 * <li>cliques-n: a ring of n cliques of four nodes, each clique with an
+	 * edge to the next one,</li>
+	 * <li>scaleFree-n: n nodes grown by preferential attachment, see
+	 * {@link #scaleFree(int, int, long)},</li>
+	 * <li>boolean-n: the expanded network of a random Boolean network with
+	 * n variables, see {@link #booleanNetwork(int, long)}.</li>
+	 * </ul>
+	 *
+	 * @param spec description of the graph
+	 * @return adjacency-matrix of the graph
+	 */
+	public static boolean[][] generate(String spec) {
+		int dash = spec.lastIndexOf('-');
+		if (dash < 0) {
+			throw new IllegalArgumentException("no size in graph description " + spec);
+		}
+		String kind = spec.substring(0, dash);
+		int size = Integer.parseInt(spec.substring(dash + 1));
+
+		if (kind.equals("erdosRenyi")) {
+			return erdosRenyi(size, 2.5 / size, SEED);
+		} else if (kind.equals("complete")) {
+			return complete(size);
+		} else if (kind.equals("cliques")) {
+			return ringOfCliques(size, 4);
+		} else if (kind.equals("scaleFree")) {
+			return scaleFree(size, 2, SEED);
+		} else if (kind.equals("boolean")) {
+			return booleanNetwork(size, SEED).getMatrix();
+		}
+		throw new IllegalArgumentException("unknown kind of graph " + kind);
+	}
+
+	/**
+	 * @param n number of nodes
+	 * @param p probability of every edge
+	 * @param seed seed of the random numbers
+	 * @return adjacency-matrix of a random graph of Erdos and Renyi, without
+	 * self-loops
+	 */
+	public static boolean[][] erdosRenyi(int n, double p, long seed) {
+		Random random = new Random(seed);
+		boolean[][] matrix = new boolean[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				matrix[i][j] = i != j && random.nextDouble() < p;
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * @param n number of nodes
+	 * @return adjacency-matrix of the complete graph without self-loops
+	 */
+	public static boolean[][] complete(int n) {
+		boolean[][] matrix = new boolean[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				matrix[i][j] = i != j;
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * @param cliques number of cliques
+	 * @param size number of nodes of each clique
+	 * @return adjacency-matrix of a ring of complete graphs, where the last
+	 * node of every clique has an edge to the first node of the next one
+	 */
+	public static boolean[][] ringOfCliques(int cliques, int size) {
+		int n = cliques * size;
+		boolean[][] matrix = new boolean[n][n];
+		for (int c = 0; c < cliques; c++) {
+			int first = c * size;
+			for (int i = first; i < first + size; i++) {
+				for (int j = first; j < first + size; j++) {
+					matrix[i][j] = i != j;
+				}
+			}
+			matrix[first + size - 1][((c + 1) % cliques) * size] = true;
+		}
+		return matrix;
+	}
+
+	/**
+	 * Grows a graph by preferential attachment: every new node is linked to
+	 * m of the existing nodes, chosen with a probability proportional to
+	 * their degree, and every link gets a random direction. The degrees
+	 * follow a power law, with a few hubs on many cycles.
+	 *
+	 * @param n number of nodes
+	 * @param m number of links of every new node
+	 * @param seed seed of the random numbers
+	 * @return adjacency-matrix of the graph
+	 */
+	public static boolean[][] scaleFree(int n, int m, long seed) {
+		Random random = new Random(seed);
+		boolean[][] matrix = new boolean[n][n];
+		// every node appears once for every link it has
+		int[] ends = new int[2 * m * n];
+		int endCount = 0;
+		for (int v = 0; v < n; v++) {
+			for (int k = 0; k < m && k < v; k++) {
+				int w = endCount == 0 ? random.nextInt(v) : ends[random.nextInt(endCount)];
+				if (random.nextBoolean()) {
+					matrix[v][w] = true;
+				} else {
+					matrix[w][v] = true;
+				}
+				ends[endCount++] = v;
+				ends[endCount++] = w;
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * Builds the expanded network of a random Boolean network. Every
+	 * variable i has two nodes, "i" for the state on and "-i" for off. The
+	 * update function of every variable is an AND or an OR of two random
+	 * literals of different variables; an AND is represented by a composite
+	 * node "i.1" with edges from both literals, for the negation the OR
+	 * becomes an AND. These are the graphs searched by the class for stable
+	 * motifs.
+	 *
+	 * @param n number of variables
+	 * @param seed seed of the random numbers
+	 * @return the network
+	 */
+	public static BooleanNetwork booleanNetwork(int n, long seed) {
+		Random random = new Random(seed);
+		ArrayList names = new ArrayList();
+		for (int i = 1; i <= n; i++) {
+			names.add(String.valueOf(i));
+			names.add("-" + i);
+		}
+
+		ArrayList edges = new ArrayList();
+		for (int i = 1; i <= n; i++) {
+			int a = literal(random, n);
+			int b = literal(random, n);
+			while (b == a || b == -a) {
+				b = literal(random, n);
+			}
+			boolean and = random.nextBoolean();
+			// the AND is on the literal of the on state, or on the negation
+			int target = and ? node(i) : node(-i);
+			int other = and ? node(-i) : node(i);
+			int x = and ? a : -a;
+			int y = and ? b : -b;
+
+			int composite = names.size();
+			names.add(i + ".1");
+			edges.add(new int[] {node(x), composite});
+			edges.add(new int[] {node(y), composite});
+			edges.add(new int[] {composite, target});
+			edges.add(new int[] {node(-x), other});
+			edges.add(new int[] {node(-y), other});
+		}
+
+		int[][] adjList = new int[names.size()][];
+		int[] degree = new int[names.size()];
+		for (int e = 0; e < edges.size(); e++) {
+			degree[((int[]) edges.get(e))[0]]++;
+		}
+		for (int v = 0; v < adjList.length; v++) {
+			adjList[v] = new int[degree[v]];
+			degree[v] = 0;
+		}
+		for (int e = 0; e < edges.size(); e++) {
+			int[] edge = (int[]) edges.get(e);
+			adjList[edge[0]][degree[edge[0]]++] = edge[1];
+		}
+		return new BooleanNetwork(adjList, (String[]) names.toArray(new String[names.size()]));
+	}
+
+	/** Random literal: variable 1 ... n, negative for its negation */
+	private static int literal(Random random, int n) {
+		int variable = 1 + random.nextInt(n);
+		return random.nextBoolean() ? variable : -variable;
+	}
+
+	/** Node of a literal */
+	private static int node(int literal) {
+		return literal > 0 ? 2 * (literal - 1) : 2 * (-literal - 1) + 1;
+	}
+
+	/**
+	 * Expanded network of a Boolean network.
+	 */
+	public static class BooleanNetwork {
+		/** Successors of every node */
+		private int[][] adjList = null;
+
+		/** Names of the nodes */
+		private String[] names = null;
+
+		BooleanNetwork(int[][] adjList, String[] names) {
+			this.adjList = adjList;
+			this.names = names;
+		}
+
+		public int[][] getAdjList() {
+			return this.adjList;
+		}
+
+		public String[] getNames() {
+			return this.names;
+		}
+
+		/**
+		 * @return adjacency-matrix of the network
+		 */
+		public boolean[][] getMatrix() {
+			boolean[][] matrix = new boolean[this.adjList.length][this.adjList.length];
+			for (int v = 0; v < this.adjList.length; v++) {
+				for (int i = 0; i < this.adjList[v].length; i++) {
+					matrix[v][this.adjList[v][i]] = true;
+				}
+			}
+			return matrix;
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package de.normalisiert.utils.graphs.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.normalisiert.utils.graphs.AdjacencyList;
+import de.normalisiert.utils.graphs.SCCResult;
+import de.normalisiert.utils.graphs.StrongConnectedComponents;
+
+
+/**
+ * Benchmarks of building the adjacency-list and of the strong connected
+ * components, on graphs with thousands of nodes.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SCCBenchmark {
+	/** Graph, see {@link GraphGenerators#generate(String)} */
+	@Param({"erdosRenyi-2000", "complete-300", "cliques-500", "scaleFree-5000", "boolean-2000"})
+	public String graph;
+
+	/** Adjacency-matrix of the graph */
+	private boolean[][] matrix = null;
+
+	/** Adjacency-list of the graph */
+	private int[][] adjList = null;
+
+	@Setup
+	public void setUp() {
+		this.matrix = GraphGenerators.generate(this.graph);
+		this.adjList = AdjacencyList.getAdjacencyList(this.matrix);
+	}
+
+	@Benchmark
+	public int[][] adjacencyList() {
+		return AdjacencyList.getAdjacencyList(this.matrix);
+	}
+
+	/**
+	 * The component with the least node, as the first step of the
+	 * algorithm of Johnson asks for it.
+	 */
+	@Benchmark
+	public SCCResult leastComponent() {
+		return new StrongConnectedComponents(this.adjList).getAdjacencyList(0);
+	}
+
+	/**
+	 * The components of all steps of the algorithm of Johnson, one after
+	 * the other.
+	 */
+	@Benchmark
+	public void allSteps(Blackhole blackhole) {
+		StrongConnectedComponents sccs = new StrongConnectedComponents(this.adjList);
+		int s = 0;
+		while (s < this.adjList.length) {
+			SCCResult result = sccs.getAdjacencyList(s);
+			if (result == null) {
+				break;
+			}
+			blackhole.consume(result);
+			s = result.getLowestNodeId() + 1;
+		}
+	}
+}
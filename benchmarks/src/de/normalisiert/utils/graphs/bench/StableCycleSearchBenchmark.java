@@ -0,0 +1,62 @@
+package de.normalisiert.utils.graphs.bench;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.normalisiert.utils.graphs.ElementaryCyclesSearchforStableSCC;
+
+
+/**
+ * Benchmarks of {@link ElementaryCyclesSearchforStableSCC} on expanded
+ * networks of random Boolean networks with composite nodes.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StableCycleSearchBenchmark {
+	/** Number of variables of the Boolean network */
+	@Param({"20", "40"})
+	public int variables;
+
+	/** Length bound of the bounded search */
+	@Param({"8"})
+	public int maxLength;
+
+	/** Expanded network */
+	private GraphGenerators.BooleanNetwork network = null;
+
+	@Setup
+	public void setUp() {
+		this.network = GraphGenerators.booleanNetwork(this.variables, GraphGenerators.SEED);
+	}
+
+	private ElementaryCyclesSearchforStableSCC newSearch() {
+		return new ElementaryCyclesSearchforStableSCC(this.network.getAdjList(), this.network.getNames());
+	}
+
+	@Benchmark
+	public ArrayList elementaryCycles() {
+		return this.newSearch().getElementaryCycles();
+	}
+
+	@Benchmark
+	public ArrayList elementaryCyclesBounded() {
+		return this.newSearch().getElementaryCycles(this.maxLength);
+	}
+}
@@ -0,0 +1,539 @@
+package de.normalisiert.utils.graphs;
+
+import java.util.Arrays;
+
+
+/**
+ * Circuit search of Johnson on a graph stored as rows of bits, for dense
+ * graphs with not too many nodes. The successors of a node, the blocked
+ * nodes, the nodes of the current component and the B-lists are all kept
+ * as rows of bits, so the next candidate successor of a node is found with
+ * a few word operations and the B-lists are handled a word at a time. For
+ * graphs with at most 64 nodes every row is a single long.<br><br>
+ *
+ * The search works like the one of {@link CycleSearchEngine} and calls the
+ * hooks of its engine; on a graph without parallel edges it finds the same
+ * cycles in the same order. This includes the bounded search with the
+ * locks of Gupta and Suzumura, where the B-lists are rows of bits as well
+ * and the nodes on the path are a row of bits.
+ *
+ */
+class BitMatrixSearch {
+	/** Engine receiving the found cycles */
+	private CycleSearchEngine engine = null;
+
+	/** Number of longs in a row */
+	private int words = 0;
+
+	/** Successors of each node, one row of words longs per node */
+	private long[] rows = null;
+
+	/** Nodes of the current component */
+	private long[] component = null;
+
+	/** Blocked nodes */
+	private long[] blocked = null;
+
+	/** B-Lists, one row per node */
+	private long[] B = null;
+
+	/** Node of each frame; this is the current path */
+	private int[] stack = null;
+
+	/** Next successor to look at, for each frame */
+	private int[] cursor = null;
+
+	/** Cycle found below the node of the frame, for each frame */
+	private boolean[] found = null;
+
+	/** Number of frames on the stack */
+	private int depth = 0;
+
+	/** Worklist for unblocking */
+	private int[] unblockStack = null;
+
+	/** Lock of each node for the bounded search, allocated on first use */
+	private int[] lock = null;
+
+	/** Nodes on the path, for the bounded search */
+	private long[] onPath = null;
+
+	/** Worklist for relaxing locks, the nodes on it are marked in onList */
+	private int[] relaxStack = null;
+
+	private long[] onList = null;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param engine engine receiving the found cycles
+	 * @param nodeCount number of nodes of the graph
+	 * @param rows rows of the graph, as built by {@link #buildRows(CompactGraph)};
+	 * the array is not changed and can be shared
+	 */
+	BitMatrixSearch(CycleSearchEngine engine, int nodeCount, long[] rows) {
+		this.engine = engine;
+		this.words = (nodeCount + 63) >>> 6;
+		this.rows = rows;
+		this.component = new long[this.words];
+		this.blocked = new long[this.words];
+		this.B = new long[nodeCount * this.words];
+		this.stack = new int[nodeCount];
+		this.cursor = new int[nodeCount];
+		this.found = new boolean[nodeCount];
+		this.unblockStack = new int[nodeCount];
+	}
+
+	/**
+	 * Builds the rows of bits of a graph; parallel edges are merged.
+	 *
+	 * @param graph the graph
+	 * @return the successors of node v are the bits of the longs
+	 * <code>v * words ... (v + 1) * words - 1</code>, where words is the
+	 * number of longs needed for one bit per node
+	 */
+	static long[] buildRows(CompactGraph graph) {
+		int words = (graph.getNodeCount() + 63) >>> 6;
+		long[] rows = new long[graph.getNodeCount() * words];
+		for (int v = 0; v < graph.getNodeCount(); v++) {
+			for (int e = graph.getEdgeStart(v); e < graph.getEdgeEnd(v); e++) {
+				int w = graph.getTarget(e);
+				rows[v * words + (w >>> 6)] |= 1L << w;
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Searches all cycles through the start node of one step of the
+	 * algorithm of Johnson.
+	 *
+	 * @see CycleSearchEngine#search(SCCDecomposition, int, int)
+	 */
+	boolean search(SCCDecomposition sccs, int step, int maxLength) {
+		if (this.engine.excluded(sccs.getStartNode(step))) {
+			return true;
+		}
+		if (maxLength < sccs.getComponentSize(step)) {
+			return this.searchBounded(sccs, step, maxLength);
+		}
+		if (this.words == 1) {
+			return this.searchWord(sccs, step, maxLength);
+		}
+
+		int words = this.words;
+		Arrays.fill(this.component, 0);
+		Arrays.fill(this.blocked, 0);
+		for (int i = sccs.getComponentFrom(step); i < sccs.getComponentTo(step); i++) {
+			int j = sccs.getNode(i);
+			if (!this.engine.excluded(j)) {
+				this.component[j >>> 6] |= 1L << j;
+				Arrays.fill(this.B, j * words, (j + 1) * words, 0);
+			}
+		}
+
+		int s = sccs.getStartNode(step);
+		this.depth = 0;
+		if (!this.push(s, maxLength)) {
+			this.depth = 0;
+			return false;
+		}
+
+		while (this.depth > 0) {
+			int top = this.depth - 1;
+			int v = this.stack[top];
+			int w = this.nextSuccessor(v, this.cursor[top], s);
+			if (SearchStats.ENABLED && w >= 0) {
+				this.engine.edgesScanned++;
+			}
+
+			if (w >= 0) {
+				this.cursor[top] = w + 1;
+				// found cycle
+				if (w == s) {
+					this.found[top] = true;
+					if (!this.engine.reportCycle(this.stack, this.depth)) {
+						this.depth = 0;
+						return false;
+					}
+				} else if (!this.push(w, maxLength)) {
+					this.depth = 0;
+					return false;
+				}
+			} else {
+				if (this.found[top]) {
+					this.unblock(v);
+				} else {
+					int base = v * words;
+					for (int k = 0; k < words; k++) {
+						long successors = this.rows[base + k] & this.component[k];
+						while (successors != 0) {
+							int u = (k << 6) + Long.numberOfTrailingZeros(successors);
+							this.B[u * words + (v >>> 6)] |= 1L << v;
+							if (SearchStats.ENABLED) {
+								this.engine.bListInsertions++;
+							}
+							successors &= successors - 1;
+						}
+					}
+				}
+
+				this.depth--;
+				if (this.found[top] && this.depth > 0) {
+					this.found[this.depth - 1] = true;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the next successor of a node in the current component that is
+	 * not blocked or is the start node.
+	 *
+	 * @param v a node
+	 * @param from least successor to look at
+	 * @param s start node
+	 * @return the successor, -1 if there is none
+	 */
+	private int nextSuccessor(int v, int from, int s) {
+		int base = v * this.words;
+		long mask = -1L << from;
+		for (int k = from >>> 6; k < this.words; k++) {
+			long free = ~this.blocked[k];
+			if (k == s >>> 6) {
+				free |= 1L << s;
+			}
+			long candidates = this.rows[base + k] & this.component[k] & free & mask;
+			if (candidates != 0) {
+				return (k << 6) + Long.numberOfTrailingZeros(candidates);
+			}
+			mask = -1L;
+		}
+		return -1;
+	}
+
+	/**
+	 * Puts a node on the path and opens a frame for it.
+	 *
+	 * @return false, if the search has to stop
+	 */
+	private boolean push(int v, int maxLength) {
+		int top = this.depth++;
+		this.stack[top] = v;
+		this.cursor[top] = 0;
+		this.found[top] = false;
+		this.blocked[v >>> 6] |= 1L << v;
+
+		if (this.depth > maxLength || this.engine.cutoff(v, this.stack, this.depth)) {
+			this.found[top] = true;
+			this.cursor[top] = this.words << 6;
+		}
+		return this.engine.nodeVisited();
+	}
+
+	/**
+	 * Unblocks all blocked nodes, starting with a given node.
+	 *
+	 * @param node node to unblock
+	 */
+	private void unblock(int node) {
+		int words = this.words;
+		int size = 0;
+		this.blocked[node >>> 6] &= ~(1L << node);
+		this.unblockStack[size++] = node;
+
+		while (size > 0) {
+			int base = this.unblockStack[--size] * words;
+			if (SearchStats.ENABLED) {
+				this.engine.unblockCalls++;
+			}
+			for (int k = 0; k < words; k++) {
+				long nodes = this.B[base + k] & this.blocked[k];
+				this.B[base + k] = 0;
+				this.blocked[k] &= ~nodes;
+				while (nodes != 0) {
+					this.unblockStack[size++] = (k << 6) + Long.numberOfTrailingZeros(nodes);
+					nodes &= nodes - 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Searches all cycles through the start node up to a length, with the
+	 * locks of Gupta and Suzumura, like the bounded search of
+	 * {@link CycleSearchEngine}.
+	 */
+	private boolean searchBounded(SCCDecomposition sccs, int step, int maxLength) {
+		int words = this.words;
+		if (this.lock == null) {
+			this.lock = new int[this.stack.length];
+			this.onPath = new long[words];
+			this.relaxStack = new int[this.stack.length];
+			this.onList = new long[words];
+		}
+		Arrays.fill(this.component, 0);
+		// a visitor that has thrown may have left nodes on the path
+		Arrays.fill(this.onPath, 0);
+		for (int i = sccs.getComponentFrom(step); i < sccs.getComponentTo(step); i++) {
+			int j = sccs.getNode(i);
+			if (!this.engine.excluded(j)) {
+				this.component[j >>> 6] |= 1L << j;
+				Arrays.fill(this.B, j * words, (j + 1) * words, 0);
+				this.lock[j] = Integer.MAX_VALUE;
+			}
+		}
+
+		int s = sccs.getStartNode(step);
+		this.stack[0] = s;
+		if (maxLength < 1 || this.engine.cutoff(s, this.stack, 1)) {
+			return true;
+		}
+		this.depth = 0;
+		if (!this.pushBounded(s)) {
+			this.clearPath();
+			return false;
+		}
+
+		while (this.depth > 0) {
+			int top = this.depth - 1;
+			int v = this.stack[top];
+			int w = this.nextSuccessor(v, this.cursor[top]);
+
+			if (w >= 0) {
+				this.cursor[top] = w + 1;
+				if (SearchStats.ENABLED) {
+					this.engine.edgesScanned++;
+				}
+				// found cycle
+				if (w == s) {
+					if (!this.engine.reportCycle(this.stack, this.depth)) {
+						this.clearPath();
+						return false;
+					}
+				} else if (this.depth < this.lock[w] && this.depth < maxLength) {
+					this.stack[this.depth] = w;
+					if (!this.engine.cutoff(w, this.stack, this.depth + 1) && !this.pushBounded(w)) {
+						this.clearPath();
+						return false;
+					}
+				}
+			} else {
+				// least length of the way back to s, over the successors not on the path
+				int back = Integer.MAX_VALUE;
+				int base = v * words;
+				for (int k = 0; k < words; k++) {
+					long successors = this.rows[base + k] & this.component[k];
+					while (successors != 0) {
+						int u = (k << 6) + Long.numberOfTrailingZeros(successors);
+						successors &= successors - 1;
+						if (u == s) {
+							back = 0;
+						} else if ((this.onPath[u >>> 6] & (1L << u)) == 0) {
+							back = Math.min(back, this.lock[u] == Integer.MAX_VALUE ? 1 : maxLength + 1 - this.lock[u]);
+						}
+						if ((this.B[u * words + (v >>> 6)] & (1L << v)) == 0) {
+							this.B[u * words + (v >>> 6)] |= 1L << v;
+							if (SearchStats.ENABLED) {
+								this.engine.bListInsertions++;
+							}
+						}
+					}
+				}
+
+				this.onPath[v >>> 6] &= ~(1L << v);
+				this.depth--;
+				this.lock[v] = back == Integer.MAX_VALUE ? 0 : maxLength - back;
+				this.relax(v);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the next successor of a node in the current component,
+	 * blocked or not.
+	 *
+	 * @param v a node
+	 * @param from least successor to look at
+	 * @return the successor, -1 if there is none
+	 */
+	private int nextSuccessor(int v, int from) {
+		int base = v * this.words;
+		long mask = -1L << from;
+		for (int k = from >>> 6; k < this.words; k++) {
+			long candidates = this.rows[base + k] & this.component[k] & mask;
+			if (candidates != 0) {
+				return (k << 6) + Long.numberOfTrailingZeros(candidates);
+			}
+			mask = -1L;
+		}
+		return -1;
+	}
+
+	/**
+	 * Puts a node on the path of the bounded search; it is locked for all
+	 * paths that are not shorter than the current one.
+	 *
+	 * @return false, if the search has to stop
+	 */
+	private boolean pushBounded(int v) {
+		int top = this.depth++;
+		this.stack[top] = v;
+		this.cursor[top] = 0;
+		this.lock[v] = top;
+		this.onPath[v >>> 6] |= 1L << v;
+		return this.engine.nodeVisited();
+	}
+
+	/**
+	 * Passes the lock of a node on along the B-Lists to the nodes that are
+	 * not on the path, see {@link CycleSearchEngine}.
+	 *
+	 * @param node a node
+	 */
+	private void relax(int node) {
+		int words = this.words;
+		int size = 0;
+		this.relaxStack[size++] = node;
+		this.onList[node >>> 6] |= 1L << node;
+
+		while (size > 0) {
+			int u = this.relaxStack[--size];
+			this.onList[u >>> 6] &= ~(1L << u);
+			int next = this.lock[u] - 1;
+			int base = u * words;
+			for (int k = 0; k < words; k++) {
+				long nodes = this.B[base + k] & ~this.onPath[k];
+				while (nodes != 0) {
+					int w = (k << 6) + Long.numberOfTrailingZeros(nodes);
+					nodes &= nodes - 1;
+					if (this.lock[w] < next) {
+						this.lock[w] = next;
+						if (SearchStats.ENABLED) {
+							this.engine.unblockCalls++;
+						}
+						if ((this.onList[w >>> 6] & (1L << w)) == 0) {
+							this.onList[w >>> 6] |= 1L << w;
+							this.relaxStack[size++] = w;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Takes all nodes from the path of a stopped bounded search.
+	 */
+	private void clearPath() {
+		for (int i = 0; i < this.depth; i++) {
+			this.onPath[this.stack[i] >>> 6] &= ~(1L << this.stack[i]);
+		}
+		this.depth = 0;
+	}
+
+	/**
+	 * The search for graphs with at most 64 nodes, where every row is a
+	 * single long.
+	 */
+	private boolean searchWord(SCCDecomposition sccs, int step, int maxLength) {
+		long[] rows = this.rows;
+		long[] B = this.B;
+		int[] stack = this.stack;
+		int[] cursor = this.cursor;
+		boolean[] found = this.found;
+
+		long component = 0;
+		for (int i = sccs.getComponentFrom(step); i < sccs.getComponentTo(step); i++) {
+			int j = sccs.getNode(i);
+			if (!this.engine.excluded(j)) {
+				component |= 1L << j;
+				B[j] = 0;
+			}
+		}
+
+		int s = sccs.getStartNode(step);
+		long blocked = 1L << s;
+		int depth = 1;
+		stack[0] = s;
+		cursor[0] = 0;
+		found[0] = false;
+		if (maxLength < 1 || this.engine.cutoff(s, stack, 1)) {
+			return true;
+		}
+		if (!this.engine.nodeVisited()) {
+			return false;
+		}
+
+		while (depth > 0) {
+			int top = depth - 1;
+			int v = stack[top];
+			long candidates = 0;
+			if (cursor[top] < 64) {
+				candidates = rows[v] & component & (~blocked | (1L << s)) & (-1L << cursor[top]);
+			}
+
+			if (candidates != 0) {
+				int w = Long.numberOfTrailingZeros(candidates);
+				cursor[top] = w + 1;
+				if (SearchStats.ENABLED) {
+					this.engine.edgesScanned++;
+				}
+				// found cycle
+				if (w == s) {
+					found[top] = true;
+					if (!this.engine.reportCycle(stack, depth)) {
+						return false;
+					}
+				} else {
+					top = depth++;
+					stack[top] = w;
+					cursor[top] = 0;
+					found[top] = false;
+					blocked |= 1L << w;
+					if (depth > maxLength || this.engine.cutoff(w, stack, depth)) {
+						found[top] = true;
+						cursor[top] = 64;
+					}
+					if (!this.engine.nodeVisited()) {
+						return false;
+					}
+				}
+			} else {
+				if (found[top]) {
+					// unblock
+					long pending = 1L << v;
+					blocked &= ~pending;
+					while (pending != 0) {
+						int u = Long.numberOfTrailingZeros(pending);
+						pending &= pending - 1;
+						if (SearchStats.ENABLED) {
+							this.engine.unblockCalls++;
+						}
+						long nodes = B[u] & blocked;
+						B[u] = 0;
+						blocked &= ~nodes;
+						pending |= nodes;
+					}
+				} else {
+					long successors = rows[v] & component;
+					while (successors != 0) {
+						B[Long.numberOfTrailingZeros(successors)] |= 1L << v;
+						successors &= successors - 1;
+						if (SearchStats.ENABLED) {
+							this.engine.bListInsertions++;
+						}
+					}
+				}
+
+				depth--;
+				if (found[top] && depth > 0) {
+					found[depth - 1] = true;
+				}
+			}
+		}
+		return true;
+	}
+}
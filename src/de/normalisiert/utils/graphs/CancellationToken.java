@@ -0,0 +1,28 @@
+package de.normalisiert.utils.graphs;
+
+
+/**
+ * Token to cancel a running search from another thread. The search looks
+ * at the token every few thousand visited nodes and for every found cycle,
+ * and stops with the cycles found so far.
+ *
+ * @see SearchOptions#setCancellationToken(CancellationToken)
+ */
+public class CancellationToken {
+	/** Cancelled */
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Cancels all searches using this token.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	/**
+	 * @return true, if the token has been cancelled
+	 */
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+}
@@ -0,0 +1,427 @@
+package de.normalisiert.utils.graphs;
+
+import java.util.Arrays;
+
+
+/**
+ * Immutable directed graph stored in compressed-sparse-row form. The
+ * successors of node v are the entries
+ * <code>targets[offsets[v]] ... targets[offsets[v + 1] - 1]</code>, sorted in
+ * ascending order. Optionally the graph carries a reverse index with the
+ * predecessors of every node in the same layout.<br><br>
+ *
+ * All search classes of this package traverse this structure directly, so
+ * the graph is held in two flat int-arrays instead of one array or list per
+ * node.
+ *
+ */
+public class CompactGraph {
+	/** Start of the successors of each node; length is nodecount + 1 */
+	private final int[] offsets;
+
+	/** Successors of all nodes, row by row */
+	private final int[] targets;
+
+	/** Start of the predecessors of each node, null without reverse index */
+	private final int[] reverseOffsets;
+
+	/** Predecessors of all nodes, null without reverse index */
+	private final int[] reverseTargets;
+
+	/**
+	 * Constructor. The arrays are used as they are and must not be changed
+	 * afterwards.
+	 *
+	 * @param offsets start of the successors of each node, with
+	 * offsets[nodecount] = number of edges
+	 * @param targets successors of all nodes, each row sorted ascending
+	 */
+	public CompactGraph(int[] offsets, int[] targets) {
+		this(offsets, targets, null, null);
+	}
+
+	/**
+	 * Constructor for subclasses that keep the graph elsewhere; they have to
+	 * override all methods reading the graph.
+	 */
+	protected CompactGraph() {
+		this(null, null, null, null);
+	}
+
+	private CompactGraph(int[] offsets, int[] targets, int[] reverseOffsets, int[] reverseTargets) {
+		this.offsets = offsets;
+		this.targets = targets;
+		this.reverseOffsets = reverseOffsets;
+		this.reverseTargets = reverseTargets;
+	}
+
+	/**
+	 * Builds the graph for a given adjacency-list. The adjacency-list is not
+	 * changed; the rows of the graph are sorted copies of the given rows.
+	 *
+	 * @param adjList adjacency-list, adjList[v] holds the successors of v
+	 * @return the graph
+	 */
+	public static CompactGraph fromAdjacencyList(int[][] adjList) {
+		int[] offsets = new int[adjList.length + 1];
+		for (int i = 0; i < adjList.length; i++) {
+			offsets[i + 1] = offsets[i] + adjList[i].length;
+		}
+
+		int[] targets = new int[offsets[adjList.length]];
+		for (int i = 0; i < adjList.length; i++) {
+			System.arraycopy(adjList[i], 0, targets, offsets[i], adjList[i].length);
+			Arrays.sort(targets, offsets[i], offsets[i + 1]);
+		}
+
+		return new CompactGraph(offsets, targets);
+	}
+
+	/**
+	 * Builds the graph for a given adjacency-matrix.
+	 *
+	 * @param adjacencyMatrix adjacency-matrix, adjacencyMatrix[v][w] is true
+	 * for an edge from v to w
+	 * @return the graph
+	 */
+	public static CompactGraph fromMatrix(boolean[][] adjacencyMatrix) {
+		int[] offsets = new int[adjacencyMatrix.length + 1];
+		for (int i = 0; i < adjacencyMatrix.length; i++) {
+			int degree = 0;
+			for (int j = 0; j < adjacencyMatrix[i].length; j++) {
+				if (adjacencyMatrix[i][j]) {
+					degree++;
+				}
+			}
+			offsets[i + 1] = offsets[i] + degree;
+		}
+
+		int[] targets = new int[offsets[adjacencyMatrix.length]];
+		for (int i = 0; i < adjacencyMatrix.length; i++) {
+			int e = offsets[i];
+			for (int j = 0; j < adjacencyMatrix[i].length; j++) {
+				if (adjacencyMatrix[i][j]) {
+					targets[e++] = j;
+				}
+			}
+		}
+
+		return new CompactGraph(offsets, targets);
+	}
+
+	/**
+	 * Builds the graph for the edges given by two parallel arrays; the edge
+	 * i leads from src[i] to dst[i]. Parallel edges are merged.
+	 *
+	 * @param nodeCount number of nodes
+	 * @param src sources of the edges
+	 * @param dst targets of the edges
+	 * @return the graph
+	 * @see Builder
+	 */
+	public static CompactGraph fromEdges(int nodeCount, int[] src, int[] dst) {
+		return new Builder(nodeCount).addEdges(src, dst).build();
+	}
+
+	/**
+	 * @return number of nodes
+	 */
+	public int getNodeCount() {
+		return this.offsets.length - 1;
+	}
+
+	/**
+	 * @return number of edges
+	 */
+	public int getEdgeCount() {
+		return this.offsets[this.offsets.length - 1];
+	}
+
+	/**
+	 * @param v node
+	 * @return index of the first successor of v in the target-array
+	 */
+	public int getEdgeStart(int v) {
+		return this.offsets[v];
+	}
+
+	/**
+	 * @param v node
+	 * @return index behind the last successor of v in the target-array
+	 */
+	public int getEdgeEnd(int v) {
+		return this.offsets[v + 1];
+	}
+
+	/**
+	 * @param e index in the target-array
+	 * @return the successor stored at this index
+	 */
+	public int getTarget(int e) {
+		return this.targets[e];
+	}
+
+	/**
+	 * @param v node
+	 * @return number of successors of v
+	 */
+	public int getOutDegree(int v) {
+		return this.offsets[v + 1] - this.offsets[v];
+	}
+
+	/**
+	 * @param v node
+	 * @param w node
+	 * @return true, if there is an edge from v to w
+	 */
+	public boolean hasEdge(int v, int w) {
+		return Arrays.binarySearch(this.targets, this.offsets[v], this.offsets[v + 1], w) > -1;
+	}
+
+	/**
+	 * @return true, if the graph carries a reverse index
+	 */
+	public boolean hasReverseIndex() {
+		return this.reverseOffsets != null;
+	}
+
+	/**
+	 * Returns this graph together with the reverse index. The successor
+	 * arrays are shared with this graph.
+	 *
+	 * @return graph with reverse index
+	 */
+	public CompactGraph withReverseIndex() {
+		if (this.hasReverseIndex()) {
+			return this;
+		}
+
+		int n = this.getNodeCount();
+		int[] revOffsets = new int[n + 1];
+		for (int e = 0; e < this.targets.length; e++) {
+			revOffsets[this.targets[e] + 1]++;
+		}
+		for (int i = 0; i < n; i++) {
+			revOffsets[i + 1] += revOffsets[i];
+		}
+
+		// sources are visited in ascending order, so every row stays sorted
+		int[] fill = new int[n];
+		int[] revTargets = new int[this.targets.length];
+		for (int v = 0; v < n; v++) {
+			for (int e = this.offsets[v]; e < this.offsets[v + 1]; e++) {
+				int w = this.targets[e];
+				revTargets[revOffsets[w] + fill[w]++] = v;
+			}
+		}
+
+		return new CompactGraph(this.offsets, this.targets, revOffsets, revTargets);
+	}
+
+	/**
+	 * @param v node
+	 * @return index of the first predecessor of v in the reverse index
+	 */
+	public int getInEdgeStart(int v) {
+		return this.reverseOffsets[v];
+	}
+
+	/**
+	 * @param v node
+	 * @return index behind the last predecessor of v in the reverse index
+	 */
+	public int getInEdgeEnd(int v) {
+		return this.reverseOffsets[v + 1];
+	}
+
+	/**
+	 * @param e index in the reverse index
+	 * @return the predecessor stored at this index
+	 */
+	public int getSource(int e) {
+		return this.reverseTargets[e];
+	}
+
+	/**
+	 * @param v node
+	 * @return number of predecessors of v
+	 */
+	public int getInDegree(int v) {
+		return this.reverseOffsets[v + 1] - this.reverseOffsets[v];
+	}
+
+	/**
+	 * @return precomputed strong connected component of every node, as
+	 * numbered by {@link SCCPartition}; null if not known
+	 */
+	int[] getComponentIds() {
+		return null;
+	}
+
+	/**
+	 * @return int[][]-array of the adjacency-list of this graph
+	 */
+	public int[][] toAdjacencyList() {
+		int n = this.getNodeCount();
+		int[][] list = new int[n][];
+		for (int i = 0; i < n; i++) {
+			list[i] = Arrays.copyOfRange(this.targets, this.offsets[i], this.offsets[i + 1]);
+		}
+		return list;
+	}
+
+	/**
+	 * Collects the edges of a graph one after the other and builds the
+	 * graph with a counting sort, in time and memory linear in the number
+	 * of nodes and edges. Parallel edges are merged and the nodes with
+	 * self-loops are recorded in the same pass.
+	 */
+	public static class Builder {
+		/** Number of nodes */
+		private int nodeCount = 0;
+
+		/** Sources of the edges */
+		private int[] src = null;
+
+		/** Targets of the edges */
+		private int[] dst = null;
+
+		/** Number of edges */
+		private int edgeCount = 0;
+
+		/** Nodes with self-loops, set by build */
+		private int[] selfLoops = null;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param nodeCount number of nodes; the nodes are 0 ... nodeCount - 1
+		 */
+		public Builder(int nodeCount) {
+			this.nodeCount = nodeCount;
+			this.src = new int[16];
+			this.dst = new int[16];
+		}
+
+		/**
+		 * Adds an edge.
+		 *
+		 * @param v source of the edge
+		 * @param w target of the edge
+		 * @return this builder
+		 */
+		public Builder addEdge(int v, int w) {
+			if (v < 0 || v >= this.nodeCount || w < 0 || w >= this.nodeCount) {
+				throw new IllegalArgumentException("edge (" + v + ", " + w + ") outside of the " + this.nodeCount + " nodes");
+			}
+			if (this.edgeCount == this.src.length) {
+				this.src = Arrays.copyOf(this.src, 2 * this.edgeCount);
+				this.dst = Arrays.copyOf(this.dst, 2 * this.edgeCount);
+			}
+			this.src[this.edgeCount] = v;
+			this.dst[this.edgeCount] = w;
+			this.edgeCount++;
+			return this;
+		}
+
+		/**
+		 * Adds the edges given by two parallel arrays; the edge i leads from
+		 * src[i] to dst[i].
+		 *
+		 * @param src sources of the edges
+		 * @param dst targets of the edges
+		 * @return this builder
+		 */
+		public Builder addEdges(int[] src, int[] dst) {
+			if (src.length != dst.length) {
+				throw new IllegalArgumentException("src and dst differ in length");
+			}
+			int size = Math.max(this.src.length, this.edgeCount + src.length);
+			this.src = Arrays.copyOf(this.src, size);
+			this.dst = Arrays.copyOf(this.dst, size);
+			for (int i = 0; i < src.length; i++) {
+				this.addEdge(src[i], dst[i]);
+			}
+			return this;
+		}
+
+		/**
+		 * Builds the graph of the edges added so far.
+		 *
+		 * @return the graph
+		 */
+		public CompactGraph build() {
+			int n = this.nodeCount;
+			int m = this.edgeCount;
+
+			// sort the sources by target
+			int[] start = new int[n + 1];
+			for (int i = 0; i < m; i++) {
+				start[this.dst[i] + 1]++;
+			}
+			for (int w = 0; w < n; w++) {
+				start[w + 1] += start[w];
+			}
+			int[] fill = Arrays.copyOf(start, n);
+			int[] sources = new int[m];
+			for (int i = 0; i < m; i++) {
+				sources[fill[this.dst[i]]++] = this.src[i];
+			}
+
+			// distribute by source; targets arrive in ascending order, so
+			// parallel edges are neighbours in their row
+			int[] offsets = new int[n + 1];
+			for (int i = 0; i < m; i++) {
+				offsets[this.src[i] + 1]++;
+			}
+			for (int v = 0; v < n; v++) {
+				offsets[v + 1] += offsets[v];
+			}
+			fill = Arrays.copyOf(offsets, n);
+			int[] targets = new int[m];
+			int selfLoopCount = 0;
+			boolean[] selfLoop = new boolean[n];
+			for (int w = 0; w < n; w++) {
+				for (int i = start[w]; i < start[w + 1]; i++) {
+					int v = sources[i];
+					if (fill[v] > offsets[v] && targets[fill[v] - 1] == w) {
+						continue;
+					}
+					targets[fill[v]++] = w;
+					if (v == w) {
+						selfLoop[v] = true;
+						selfLoopCount++;
+					}
+				}
+			}
+
+			// close the gaps of the merged edges
+			int e = 0;
+			for (int v = 0; v < n; v++) {
+				int from = offsets[v];
+				offsets[v] = e;
+				for (int i = from; i < fill[v]; i++) {
+					targets[e++] = targets[i];
+				}
+			}
+			offsets[n] = e;
+
+			this.selfLoops = new int[selfLoopCount];
+			for (int v = 0, k = 0; v < n; v++) {
+				if (selfLoop[v]) {
+					this.selfLoops[k++] = v;
+				}
+			}
+
+			return new CompactGraph(offsets, e < m ? Arrays.copyOf(targets, e) : targets);
+		}
+
+		/**
+		 * @return nodes with self-loops in ascending order, found by the last
+		 * call of {@link #build()}
+		 */
+		public int[] getSelfLoops() {
+			return this.selfLoops;
+		}
+	}
+}
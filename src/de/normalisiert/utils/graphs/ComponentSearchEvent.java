@@ -0,0 +1,45 @@
+package de.normalisiert.utils.graphs;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+/**
+ * Event of the JDK Flight Recorder for the search of the cycles through one
+ * start node, with the counters of the work. It is only committed if
+ * {@link SearchStats#isEnabled()}; otherwise the search commits a
+ * {@link ComponentTimingEvent}.
+ *
+ */
+@Name("de.normalisiert.utils.graphs.ComponentSearch")
+@Label("Component Search")
+@Category({"Johnson Cycle Algorithm"})
+@Description("Search of the elementary cycles through the start node of a component")
+class ComponentSearchEvent extends Event {
+	@Label("Start Node")
+	int startNode;
+
+	@Label("Component Size")
+	int componentSize;
+
+	@Label("Maximal Length")
+	int maxLength;
+
+	@Label("Cycles")
+	long cycles;
+
+	@Label("Vertices Pushed")
+	long verticesPushed;
+
+	@Label("Edges Scanned")
+	long edgesScanned;
+
+	@Label("Unblock Calls")
+	long unblockCalls;
+
+	@Label("B-List Insertions")
+	long bListInsertions;
+}
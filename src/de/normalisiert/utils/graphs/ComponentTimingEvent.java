@@ -0,0 +1,34 @@
+package de.normalisiert.utils.graphs;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+/**
+ * Event of the JDK Flight Recorder for the search of the cycles through one
+ * start node, committed instead of {@link ComponentSearchEvent} if the
+ * counters of {@link SearchStats} are not collected. It holds only what the
+ * search counts anyway, so a recording shows no counters of 0 that were
+ * never counted.
+ *
+ */
+@Name("de.normalisiert.utils.graphs.ComponentTiming")
+@Label("Component Timing")
+@Category({"Johnson Cycle Algorithm"})
+@Description("Search of the elementary cycles through the start node of a component, without counters")
+class ComponentTimingEvent extends Event {
+	@Label("Start Node")
+	int startNode;
+
+	@Label("Component Size")
+	int componentSize;
+
+	@Label("Maximal Length")
+	int maxLength;
+
+	@Label("Vertices Pushed")
+	long verticesPushed;
+}
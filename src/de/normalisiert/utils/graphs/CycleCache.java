@@ -0,0 +1,566 @@
+package de.normalisiert.utils.graphs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Cache of the cycles of strong connected components, shared by searches
+ * that meet the same component again, for example the same sub-model in
+ * several networks. The cycles of every strong connected component of the
+ * graph are kept under a 128 bit fingerprint of
+ * <ul>
+ * <li>the edges of the component, with its nodes numbered in ascending
+ * order,</li>
+ * <li>the names of its nodes in this order, and the nodes left out of the
+ * search,</li>
+ * <li>the kind of the search: the length limit, whether it leaves out
+ * self-loops and whether it is the search of
+ * {@link ElementaryCyclesSearchforStableSCC}.</li>
+ * </ul>
+ * A component found in the cache is not searched; its cycles are merged
+ * with those of the other components by their start nodes, so a search
+ * returns the same cycles in the same order with or without the cache.
+ * The names are compared by their toString().<br><br>
+ *
+ * The cycles of a component that is not in the cache are passed on while
+ * the component is searched, as without the cache, and recorded at the
+ * same time. A component is cached only if it has been searched to its
+ * end, and only if its cycles have no more nodes than the cache holds in
+ * memory; beyond that its recording is given up.<br><br>
+ *
+ * The cache holds components up to a number of nodes of all their cycles
+ * in memory and drops the least recently used ones beyond it. With a
+ * directory, dropped components are written to it and read again when
+ * they are asked for, and {@link #flush()} writes all components, so the
+ * directory can be used by later runs. If the directory cannot be written,
+ * dropped components are lost.<br><br>
+ *
+ * Searches with {@link SearchOptions} and the parallel searches do not use
+ * the cache, since their limits can stop a component half-way.
+ *
+ */
+public class CycleCache {
+	/** First int of a file of the cache */
+	private static final int MAGIC = 0x4A435943;
+
+	/** Kind of search: self-loops left out */
+	static final int NO_SELF_LOOPS = 1;
+
+	/** Kind of search: search of ElementaryCyclesSearchforStableSCC */
+	static final int STABLE = 2;
+
+	/** Maximal number of nodes of all cycles in memory */
+	private long maxNodes = 0;
+
+	/** Directory the dropped components are written to; null for none */
+	private File directory = null;
+
+	/** Cycles of the components by fingerprint, least recently used first */
+	private LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+
+	/** Number of nodes of all cycles in memory */
+	private long nodeCount = 0;
+
+	/** Number of components found in the cache */
+	private long hits = 0;
+
+	/** Number of components searched */
+	private long misses = 0;
+
+	/** Number of components read from the directory */
+	private long reads = 0;
+
+	/** Number of components written to the directory */
+	private long writes = 0;
+
+	/**
+	 * Constructor for a cache in memory only.
+	 *
+	 * @param maxNodes maximal number of nodes of all cached cycles
+	 */
+	public CycleCache(long maxNodes) {
+		this(maxNodes, null);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxNodes maximal number of nodes of all cycles held in memory
+	 * @param directory directory for the components dropped from memory,
+	 * created if needed; null for none
+	 */
+	public CycleCache(long maxNodes, File directory) {
+		this.maxNodes = maxNodes;
+		this.directory = directory;
+		if (directory != null) {
+			directory.mkdirs();
+		}
+	}
+
+	/**
+	 * @return number of components in memory
+	 */
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * @return number of components found in the cache
+	 */
+	public synchronized long getHitCount() {
+		return this.hits;
+	}
+
+	/**
+	 * @return number of components that had to be searched
+	 */
+	public synchronized long getMissCount() {
+		return this.misses;
+	}
+
+	/**
+	 * @return number of components read from the directory
+	 */
+	public synchronized long getReadCount() {
+		return this.reads;
+	}
+
+	/**
+	 * @return number of components written to the directory
+	 */
+	public synchronized long getWriteCount() {
+		return this.writes;
+	}
+
+	/**
+	 * Removes all components from memory; the files in the directory are
+	 * kept.
+	 */
+	public synchronized void clear() {
+		this.entries.clear();
+		this.nodeCount = 0;
+	}
+
+	/**
+	 * Writes all components in memory to the directory, which are not there
+	 * yet.
+	 *
+	 * @throws IOException if a file cannot be written
+	 */
+	public synchronized void flush() throws IOException {
+		if (this.directory == null) {
+			return;
+		}
+		for (Iterator it = this.entries.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry entry = (Map.Entry) it.next();
+			this.write((Fingerprint) entry.getKey(), (CycleSet) entry.getValue());
+		}
+	}
+
+	/**
+	 * Runs the steps of the algorithm of Johnson with an engine, taking the
+	 * cycles of every strong connected component of the graph from the
+	 * cache or searching and caching them. The cycles are passed to the
+	 * engine in the order of the steps, as if the engine had searched them;
+	 * the cycles of a searched step are passed while they are found.
+	 *
+	 * @param engine the engine, without limits of the search
+	 * @param graph graph of the engine
+	 * @param sccs components of the algorithm of Johnson for the graph
+	 * @param maxLength cycles longer than this are not searched
+	 * @param labels names of the nodes of the graph
+	 * @param kind kind of the search, of NO_SELF_LOOPS and STABLE
+	 * @param complementOf node the search is cut off at for each node, if it
+	 * is on the path; null for none
+	 * @return true, if the engine did not stop the search
+	 */
+	boolean visit(CycleSearchEngine engine, CompactGraph graph, SCCDecomposition sccs, int maxLength,
+			Object[] labels, int kind, int[] complementOf) {
+		int n = graph.getNodeCount();
+		int steps = sccs.getStepCount();
+
+		// the strong connected components of the graph are the components of
+		// the first step of each of their nodes
+		int[] componentOf = new int[n];
+		Arrays.fill(componentOf, -1);
+		int[] componentOfStep = new int[steps];
+		int components = 0;
+		for (int step = 0; step < steps; step++) {
+			int s = sccs.getStartNode(step);
+			if (componentOf[s] < 0) {
+				for (int i = sccs.getComponentFrom(step); i < sccs.getComponentTo(step); i++) {
+					componentOf[sccs.getNode(i)] = components;
+				}
+				components++;
+			}
+			componentOfStep[step] = componentOf[s];
+		}
+
+		// nodes of each component in ascending order, numbered in this order
+		int[][] componentNodes = new int[components][];
+		Fingerprint[] keys = new Fingerprint[components];
+		CycleSet[] cycles = new CycleSet[components];
+		CycleSet[] recorded = new CycleSet[components];
+		int[] stepsLeft = new int[components];
+		int[] cursor = new int[components];
+		int[] localOf = new int[n];
+		int[] path = new int[Math.max(1, n)];
+		for (int step = 0; step < steps; step++) {
+			stepsLeft[componentOfStep[step]]++;
+		}
+		Recorder recorder = new Recorder(localOf);
+		for (int step = 0; step < steps; step++) {
+			int c = componentOfStep[step];
+			if (componentNodes[c] == null) {
+				int[] nodes = sccs.getComponentNodes(step);
+				Arrays.sort(nodes);
+				componentNodes[c] = nodes;
+				for (int i = 0; i < nodes.length; i++) {
+					localOf[nodes[i]] = i;
+				}
+				keys[c] = fingerprint(engine, graph, nodes, componentOf, localOf, maxLength, labels, kind, complementOf);
+				cycles[c] = this.get(keys[c], nodes.length);
+				if (cycles[c] == null) {
+					recorded[c] = new CycleSet(null);
+				}
+			}
+			stepsLeft[c]--;
+
+			// the cycles of a searched component are passed on while they are recorded
+			if (cycles[c] == null) {
+				recorder.cycles = recorded[c];
+				engine.recorder = recorder;
+				boolean goOn = false;
+				try {
+					goOn = engine.search(sccs, step, maxLength);
+				} finally {
+					engine.recorder = null;
+				}
+				recorded[c] = recorder.cycles;
+				if (!goOn) {
+					return false;
+				}
+				if (stepsLeft[c] == 0 && recorded[c] != null) {
+					recorded[c].trimToSize();
+					this.put(keys[c], recorded[c]);
+				}
+				continue;
+			}
+
+			// the cached cycles of this step start with its start node
+			CycleSet found = cycles[c];
+			int[] nodes = componentNodes[c];
+			int start = localOf[sccs.getStartNode(step)];
+			int[] foundNodes = found.getNodes();
+			int[] offsets = found.getOffsets();
+			for (; cursor[c] < found.size() && foundNodes[offsets[cursor[c]]] == start; cursor[c]++) {
+				int length = offsets[cursor[c] + 1] - offsets[cursor[c]];
+				for (int j = 0; j < length; j++) {
+					path[j] = nodes[foundNodes[offsets[cursor[c]] + j]];
+				}
+				if (!engine.reportCycle(path, length)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Records the cycles of a searched component with the numbers of the
+	 * nodes in the component. A component whose cycles have more nodes than
+	 * the cache holds in memory would be dropped at once, so its recording
+	 * is given up and only the search goes on.
+	 */
+	private class Recorder implements CycleVisitor {
+		/** Cycles recorded so far; null, if the recording is given up */
+		CycleSet cycles = null;
+
+		/** Number of each node in its component */
+		private int[] localOf = null;
+
+		private int[] local = new int[16];
+
+		Recorder(int[] localOf) {
+			this.localOf = localOf;
+		}
+
+		public boolean visitCycle(int[] path, int length) {
+			if (this.cycles == null) {
+				return true;
+			}
+			if (length > this.local.length) {
+				this.local = new int[Math.max(2 * this.local.length, length)];
+			}
+			for (int j = 0; j < length; j++) {
+				this.local[j] = this.localOf[path[j]];
+			}
+			this.cycles.visitCycle(this.local, length);
+			if (weight(this.cycles) > maxNodes) {
+				this.cycles = null;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * @return the fingerprint of a strong connected component and the kind
+	 * of the search
+	 */
+	private static Fingerprint fingerprint(CycleSearchEngine engine, CompactGraph graph, int[] nodes, int[] componentOf,
+			int[] localOf, int maxLength, Object[] labels, int kind, int[] complementOf) {
+		Fingerprint key = new Fingerprint();
+		int c = componentOf[nodes[0]];
+		key.add(kind);
+		key.add(maxLength);
+		key.add(nodes.length);
+		for (int i = 0; i < nodes.length; i++) {
+			int v = nodes[i];
+			key.add(engine.excluded(v) ? -1 : -2);
+			for (int e = graph.getEdgeStart(v); e < graph.getEdgeEnd(v); e++) {
+				int w = graph.getTarget(e);
+				if (componentOf[w] == c) {
+					key.add(localOf[w]);
+				}
+			}
+			if (complementOf != null) {
+				int w = complementOf[v];
+				key.add(-3);
+				key.add(w >= 0 && componentOf[w] == c ? localOf[w] : -1);
+			}
+			String label = String.valueOf(labels[v]);
+			key.add(-4);
+			key.add(label.length());
+			for (int j = 0; j < label.length(); j++) {
+				key.add(label.charAt(j));
+			}
+		}
+		key.finish();
+		return key;
+	}
+
+	/**
+	 * @param componentSize number of nodes of the component
+	 * @return the cycles of a fingerprint, from memory or from the
+	 * directory; null if they are in neither
+	 */
+	private synchronized CycleSet get(Fingerprint key, int componentSize) {
+		CycleSet cycles = (CycleSet) this.entries.get(key);
+		if (cycles == null && this.directory != null) {
+			cycles = this.read(key, componentSize);
+			if (cycles != null) {
+				this.reads++;
+				this.entries.put(key, cycles);
+				this.nodeCount += weight(cycles);
+				this.evict();
+			}
+		}
+		if (cycles != null) {
+			this.hits++;
+		} else {
+			this.misses++;
+		}
+		return cycles;
+	}
+
+	private synchronized void put(Fingerprint key, CycleSet cycles) {
+		CycleSet replaced = (CycleSet) this.entries.put(key, cycles);
+		if (replaced != null) {
+			this.nodeCount -= weight(replaced);
+		}
+		this.nodeCount += weight(cycles);
+		this.evict();
+	}
+
+	/**
+	 * Drops the least recently used components, until the rest fits into
+	 * memory; they are written to the directory.
+	 */
+	private void evict() {
+		Iterator it = this.entries.entrySet().iterator();
+		while (this.nodeCount > this.maxNodes && it.hasNext()) {
+			Map.Entry entry = (Map.Entry) it.next();
+			CycleSet cycles = (CycleSet) entry.getValue();
+			if (this.directory != null) {
+				try {
+					this.write((Fingerprint) entry.getKey(), cycles);
+				} catch (IOException e) {
+					// the component is searched again, when it is asked for
+				}
+			}
+			this.nodeCount -= weight(cycles);
+			it.remove();
+		}
+	}
+
+	/**
+	 * @return number of ints of the cycles
+	 */
+	private static long weight(CycleSet cycles) {
+		return cycles.getOffsets()[cycles.size()] + cycles.size() + 1;
+	}
+
+	/**
+	 * Writes the cycles of a fingerprint to the directory, if they are not
+	 * there yet. The file is written under another name and renamed when it
+	 * is complete.
+	 */
+	private void write(Fingerprint key, CycleSet cycles) throws IOException {
+		File file = new File(this.directory, key + ".cycles");
+		if (file.exists()) {
+			return;
+		}
+		File part = File.createTempFile(key.toString(), ".part", this.directory);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(part)));
+		try {
+			int[] offsets = cycles.getOffsets();
+			int[] nodes = cycles.getNodes();
+			out.writeInt(MAGIC);
+			out.writeInt(cycles.size());
+			out.writeInt(offsets[cycles.size()]);
+			for (int i = 1; i <= cycles.size(); i++) {
+				out.writeInt(offsets[i]);
+			}
+			for (int i = 0; i < offsets[cycles.size()]; i++) {
+				out.writeInt(nodes[i]);
+			}
+		} finally {
+			out.close();
+		}
+		if (!part.renameTo(file)) {
+			part.delete();
+			if (!file.exists()) {
+				throw new IOException("cannot rename " + part + " to " + file);
+			}
+		}
+		this.writes++;
+	}
+
+	/**
+	 * Reads the cycles of a fingerprint from the directory. A file that is
+	 * cut off, or whose cycles do not fit into the component, is deleted,
+	 * so the component is searched again.
+	 *
+	 * @param componentSize number of nodes of the component
+	 * @return the cycles of a fingerprint in the directory; null, if there
+	 * is no readable file of it
+	 */
+	private CycleSet read(Fingerprint key, int componentSize) {
+		File file = new File(this.directory, key + ".cycles");
+		if (!file.exists()) {
+			return null;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				if (in.readInt() != MAGIC) {
+					throw new IOException("not a file of the cache: " + file);
+				}
+				int size = in.readInt();
+				int nodeCount = in.readInt();
+				if (size < 0 || nodeCount < 0 || file.length() != 12 + 4L * size + 4L * nodeCount) {
+					throw new IOException("wrong length of " + file);
+				}
+				int[] offsets = new int[size + 1];
+				int[] nodes = new int[nodeCount];
+				for (int i = 1; i <= size; i++) {
+					offsets[i] = in.readInt();
+					int length = offsets[i] - offsets[i - 1];
+					if (length < 1 || length > componentSize || offsets[i] > nodeCount) {
+						throw new IOException("wrong cycle " + (i - 1) + " in " + file);
+					}
+				}
+				if (offsets[size] != nodeCount) {
+					throw new IOException("wrong number of nodes in " + file);
+				}
+				for (int i = 0; i < nodes.length; i++) {
+					nodes[i] = in.readInt();
+					if (nodes[i] < 0 || nodes[i] >= componentSize) {
+						throw new IOException("wrong node " + nodes[i] + " in " + file);
+					}
+				}
+				CycleSet cycles = new CycleSet(null);
+				int[] path = new int[16];
+				for (int i = 0; i < size; i++) {
+					int length = offsets[i + 1] - offsets[i];
+					if (length > path.length) {
+						path = new int[Math.max(2 * path.length, length)];
+					}
+					System.arraycopy(nodes, offsets[i], path, 0, length);
+					cycles.visitCycle(path, length);
+				}
+				cycles.trimToSize();
+				return cycles;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			// the component is searched again and the file written anew
+			file.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * 128 bit fingerprint, computed from a sequence of numbers with two
+	 * lanes of multiply-rotate steps and the finalizer of MurmurHash3.
+	 */
+	private static class Fingerprint {
+		private long h1 = 0x243F6A8885A308D3L;
+
+		private long h2 = 0x13198A2E03707344L;
+
+		private long count = 0;
+
+		void add(long x) {
+			this.h1 = Long.rotateLeft(this.h1 ^ (x * 0x87C37B91114253D5L), 31) * 0x4CF5AD432745937FL;
+			this.h2 = Long.rotateLeft(this.h2 + (x * 0x4CF5AD432745937FL), 33) * 0x87C37B91114253D5L + this.h1;
+			this.count++;
+		}
+
+		void finish() {
+			this.h1 ^= this.count;
+			this.h2 ^= this.count;
+			this.h1 += this.h2;
+			this.h2 += this.h1;
+			this.h1 = mix(this.h1);
+			this.h2 = mix(this.h2);
+			this.h1 += this.h2;
+			this.h2 += this.h1;
+		}
+
+		private static long mix(long h) {
+			h ^= h >>> 33;
+			h *= 0xFF51AFD7ED558CCDL;
+			h ^= h >>> 33;
+			h *= 0xC4CEB9FE1A85EC53L;
+			h ^= h >>> 33;
+			return h;
+		}
+
+		public boolean equals(Object o) {
+			return o instanceof Fingerprint && ((Fingerprint) o).h1 == this.h1 && ((Fingerprint) o).h2 == this.h2;
+		}
+
+		public int hashCode() {
+			return (int) this.h1;
+		}
+
+		public String toString() {
+			String low = Long.toHexString(this.h2);
+			String high = Long.toHexString(this.h1);
+			return "0000000000000000".substring(high.length()) + high + "0000000000000000".substring(low.length()) + low;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package de.normalisiert.utils.graphs;
+
+import java.util.Arrays;
+
+
+/**
+ * Visitor counting the found cycles by their length, without keeping them.
+ *
+ */
+public class CycleCounter implements CycleVisitor {
+	/** Number of cycles of each length */
+	private long[] counts = new long[16];
+
+	/** Number of all cycles */
+	private long total = 0;
+
+	/** Greatest length of a counted cycle */
+	private int maxLength = 0;
+
+	/**
+	 * Counts a cycle.
+	 *
+	 * @param path nodes of the cycle in the first length entries
+	 * @param length number of nodes of the cycle
+	 * @return true
+	 */
+	public boolean visitCycle(int[] path, int length) {
+		if (length >= this.counts.length) {
+			this.counts = Arrays.copyOf(this.counts, Math.max(2 * this.counts.length, length + 1));
+		}
+		this.counts[length]++;
+		this.total++;
+		this.maxLength = Math.max(this.maxLength, length);
+		return true;
+	}
+
+	/**
+	 * @return number of all cycles
+	 */
+	public long getTotal() {
+		return this.total;
+	}
+
+	/**
+	 * @param length a length
+	 * @return number of cycles with this number of nodes
+	 */
+	public long getCount(int length) {
+		return length < this.counts.length ? this.counts[length] : 0;
+	}
+
+	/**
+	 * @return number of cycles of each length; entry i holds the number of
+	 * cycles with i nodes, up to the longest cycle
+	 */
+	public long[] getCountsByLength() {
+		return Arrays.copyOf(this.counts, this.maxLength + 1);
+	}
+}
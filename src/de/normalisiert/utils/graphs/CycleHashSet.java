@@ -0,0 +1,304 @@
+package de.normalisiert.utils.graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * Set of cycles without duplicates, for example to merge the cycles of many
+ * searches. Every cycle is stored in a canonical form together with a 64 bit
+ * hash of it, in an open-addressing hash table of cycle numbers, so adding
+ * or looking up a cycle takes time linear in its length, independent of the
+ * number of cycles in the set.<br><br>
+ *
+ * The canonical form is either
+ * <ul>
+ * <li>the rotation of the cycle starting at its least node, so two cycles
+ * are equal if they pass the same nodes in the same order, or</li>
+ * <li>the sorted nodes of the cycle, so two cycles are equal if they have
+ * the same set of nodes, like the lists of sorted node names returned by
+ * {@link ElementaryCyclesSearchforStableSCC#getElementaryCycles()}.</li>
+ * </ul>
+ *
+ * As a {@link CycleVisitor}, a CycleHashSet adds the visited cycles and
+ * passes each cycle that was not yet in the set on to another visitor:
+ * <pre>
+ * CycleHashSet distinct = new CycleHashSet(graphNodes, true, cycleWriter);
+ * search.visitElementaryCycles(distinct);
+ * </pre>
+ *
+ */
+public class CycleHashSet implements CycleVisitor {
+	/** Canonical forms of the cycles, in the order they were added */
+	private CycleSet cycles = null;
+
+	/** Hash of the canonical form of each cycle */
+	private long[] hashes = null;
+
+	/** Number + 1 of the cycle in each slot of the table, 0 for empty slots */
+	private int[] table = null;
+
+	/** Cycles are equal if they have the same nodes */
+	private boolean nodeSets = false;
+
+	/** Visitor receiving the new cycles; null for none */
+	private CycleVisitor visitor = null;
+
+	/** Buffer for the canonical form of a cycle */
+	private int[] key = new int[16];
+
+	/**
+	 * Constructor.
+	 *
+	 * @param graphNodes array of the graphnodes of the graph; null, if only
+	 * the node numbers are used
+	 * @param nodeSets true, if cycles with the same nodes are equal; false,
+	 * if the nodes must be passed in the same order
+	 */
+	public CycleHashSet(Object[] graphNodes, boolean nodeSets) {
+		this(graphNodes, nodeSets, null);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param graphNodes array of the graphnodes of the graph; null, if only
+	 * the node numbers are used
+	 * @param nodeSets true, if cycles with the same nodes are equal; false,
+	 * if the nodes must be passed in the same order
+	 * @param visitor receives every visited cycle that is not yet in the
+	 * set, in the order it was passed; null for none
+	 */
+	public CycleHashSet(Object[] graphNodes, boolean nodeSets, CycleVisitor visitor) {
+		this.cycles = new CycleSet(graphNodes);
+		this.hashes = new long[16];
+		this.table = new int[32];
+		this.nodeSets = nodeSets;
+		this.visitor = visitor;
+	}
+
+	/**
+	 * Adds a cycle and passes it on to the visitor, if it was not yet in the
+	 * set.
+	 *
+	 * @param path nodes of the cycle in the first length entries
+	 * @param length number of nodes of the cycle
+	 * @return false, if the visitor stopped
+	 */
+	public boolean visitCycle(int[] path, int length) {
+		if (!this.add(path, length) || this.visitor == null) {
+			return true;
+		}
+		return this.visitor.visitCycle(path, length);
+	}
+
+	/**
+	 * Adds a cycle.
+	 *
+	 * @param path nodes of the cycle in the first length entries
+	 * @param length number of nodes of the cycle
+	 * @return true, if the cycle was not yet in the set
+	 */
+	public boolean add(int[] path, int length) {
+		long hash = this.canonicalize(path, length);
+		int slot = this.find(this.key, length, hash);
+		if (this.table[slot] != 0) {
+			return false;
+		}
+		this.insert(slot, this.key, length, hash);
+		return true;
+	}
+
+	/**
+	 * @param path nodes of the cycle in the first length entries
+	 * @param length number of nodes of the cycle
+	 * @return true, if the cycle is in the set
+	 */
+	public boolean contains(int[] path, int length) {
+		long hash = this.canonicalize(path, length);
+		return this.table[this.find(this.key, length, hash)] != 0;
+	}
+
+	/**
+	 * Adds all cycles of a CycleSet.
+	 *
+	 * @param cycleSet the cycles
+	 * @return number of cycles that were not yet in the set
+	 */
+	public int addAll(CycleSet cycleSet) {
+		int added = 0;
+		int[] path = new int[16];
+		for (int i = 0; i < cycleSet.size(); i++) {
+			int length = cycleSet.getLength(i);
+			if (length > path.length) {
+				path = new int[Math.max(2 * path.length, length)];
+			}
+			System.arraycopy(cycleSet.getNodes(), cycleSet.getOffsets()[i], path, 0, length);
+			if (this.add(path, length)) {
+				added++;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Adds all cycles of another CycleHashSet. If both sets compare cycles
+	 * the same way, the stored canonical forms and hashes are taken over
+	 * without computing them again.
+	 *
+	 * @param other the other set
+	 * @return number of cycles that were not yet in the set
+	 */
+	public int addAll(CycleHashSet other) {
+		if (other.nodeSets != this.nodeSets) {
+			return this.addAll(other.cycles);
+		}
+		int added = 0;
+		int[] nodes = other.cycles.getNodes();
+		int[] offsets = other.cycles.getOffsets();
+		for (int i = 0; i < other.size(); i++) {
+			int length = offsets[i + 1] - offsets[i];
+			if (length > this.key.length) {
+				this.key = new int[Math.max(2 * this.key.length, length)];
+			}
+			System.arraycopy(nodes, offsets[i], this.key, 0, length);
+			int slot = this.find(this.key, length, other.hashes[i]);
+			if (this.table[slot] == 0) {
+				this.insert(slot, this.key, length, other.hashes[i]);
+				added++;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * @return number of cycles
+	 */
+	public int size() {
+		return this.cycles.size();
+	}
+
+	/**
+	 * @param i number of the cycle, in the order the cycles were added
+	 * @return canonical form of the cycle
+	 */
+	public int[] getCycle(int i) {
+		return this.cycles.getCycle(i);
+	}
+
+	/**
+	 * @param i number of the cycle
+	 * @return 64 bit hash of the canonical form of the cycle
+	 */
+	public long getHash(int i) {
+		return this.hashes[i];
+	}
+
+	/**
+	 * @return copy of the canonical forms of all cycles
+	 */
+	public CycleSet toCycleSet() {
+		CycleSet copy = new CycleSet(null);
+		this.cycles.visit(copy);
+		return copy;
+	}
+
+	/**
+	 * @return List::List::Object with the Lists of the graphnodes of the
+	 * canonical forms of all cycles
+	 */
+	public ArrayList toList() {
+		return this.cycles.toList();
+	}
+
+	/**
+	 * Computes the canonical form of a cycle into the key buffer.
+	 *
+	 * @return hash of the canonical form
+	 */
+	private long canonicalize(int[] path, int length) {
+		if (length > this.key.length) {
+			this.key = new int[Math.max(2 * this.key.length, length)];
+		}
+		if (this.nodeSets) {
+			System.arraycopy(path, 0, this.key, 0, length);
+			Arrays.sort(this.key, 0, length);
+		} else {
+			int least = 0;
+			for (int i = 1; i < length; i++) {
+				if (path[i] < path[least]) {
+					least = i;
+				}
+			}
+			System.arraycopy(path, least, this.key, 0, length - least);
+			System.arraycopy(path, 0, this.key, length - least, least);
+		}
+		return hash(this.key, length);
+	}
+
+	/**
+	 * @return 64 bit hash of the first length entries of the array
+	 */
+	private static long hash(int[] nodes, int length) {
+		long h = length;
+		for (int i = 0; i < length; i++) {
+			h = h * 0x9E3779B97F4A7C15L + nodes[i];
+		}
+		// finalizer of MurmurHash3
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * @return slot of the cycle in the table, or the empty slot where it
+	 * belongs
+	 */
+	private int find(int[] cycle, int length, long hash) {
+		int[] nodes = this.cycles.getNodes();
+		int[] offsets = this.cycles.getOffsets();
+		int mask = this.table.length - 1;
+		int slot = (int) hash & mask;
+		while (this.table[slot] != 0) {
+			int i = this.table[slot] - 1;
+			if (this.hashes[i] == hash && offsets[i + 1] - offsets[i] == length) {
+				int from = offsets[i];
+				int j = 0;
+				while (j < length && nodes[from + j] == cycle[j]) {
+					j++;
+				}
+				if (j == length) {
+					return slot;
+				}
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void insert(int slot, int[] cycle, int length, long hash) {
+		int i = this.cycles.size();
+		this.cycles.visitCycle(cycle, length);
+		if (i == this.hashes.length) {
+			this.hashes = Arrays.copyOf(this.hashes, 2 * i);
+		}
+		this.hashes[i] = hash;
+		this.table[slot] = i + 1;
+
+		// at most half of the slots are used
+		if (2 * (i + 1) > this.table.length) {
+			this.table = new int[2 * this.table.length];
+			int mask = this.table.length - 1;
+			for (int k = 0; k <= i; k++) {
+				int s = (int) this.hashes[k] & mask;
+				while (this.table[s] != 0) {
+					s = (s + 1) & mask;
+				}
+				this.table[s] = k + 1;
+			}
+		}
+	}
+}
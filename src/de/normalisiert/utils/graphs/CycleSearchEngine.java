@@ -0,0 +1,734 @@
+package de.normalisiert.utils.graphs;
+
+import java.util.Arrays;
+
+
+/**
+ * Non-recursive implementation of the circuit search of Johnson, used by
+ * the classes searching elementary cycles. Instead of one method call per
+ * node on the current path, the search keeps an explicit stack of frames,
+ * each holding the node, the position of the next successor to look at and
+ * the flag telling whether a cycle has been found below this node. The
+ * unblocking of nodes works with an explicit stack as well, so the depth of
+ * the search is only limited by the heap and not by the thread stack.<br><br>
+ *
+ * The B-lists are linked lists of entries in shared arrays: the entry "v
+ * is in B(w)" belongs to the edge from v to w, and a bitset over the edges
+ * tells whether the entry is present. Entries of emptied lists are reused,
+ * and the arrays of the entries only grow with the number of entries
+ * present at the same time, not with the number of edges. The search
+ * allocates no objects per visited node.<br><br>
+ *
+ * Subclasses decide what happens with a found cycle, may stop the whole
+ * search, may leave out nodes and may cut off the search at a node. A node
+ * where the search is cut off is treated like a node below which a cycle
+ * has been found, so it is unblocked again and no cycle is lost by the
+ * blocking.<br><br>
+ *
+ * If the length of the cycles is bounded by less than the size of the
+ * component, the blocking of Johnson is replaced by locks in the manner of
+ * Gupta and Suzumura: the lock of a node is the length of the path from the
+ * start node from which on it must not be entered, so that the shortest way
+ * back to the start node avoiding the path still fits the bound. When a
+ * node leaves the path, its lock is computed from the locks of its
+ * successors and passed on along the B-lists, which now hold every
+ * predecessor whose lock depends on the node. Unlike cutting off the search
+ * of Johnson at the maximal length, this keeps the pruning of the blocking.
+ * A node where the search is cut off is not locked.<br><br>
+ *
+ * For a description of the algorithms see:<br>
+ * Donald B. Johnson: Finding All the Elementary Circuits of a Directed Graph.
+ * SIAM Journal on Computing. Volumne 4, Nr. 1 (1975), pp. 77-84.<br>
+ * Anshul Gupta, Toyotaro Suzumura: Finding All Bounded-Length Simple Cycles
+ * in a Directed Graph. arXiv:2105.10094 (2021).<br>
+ *
+ */
+abstract class CycleSearchEngine {
+	/** Graph */
+	private CompactGraph graph = null;
+
+	/** Blocked nodes */
+	private boolean[] blocked = null;
+
+	/** First entry of the B-List of each node, -1 for an empty list */
+	private int[] BHead = null;
+
+	/** Next entry in the same B-List, or in the list of free entries */
+	private int[] BNext = null;
+
+	/** Source of the edge of each entry */
+	private int[] BSource = null;
+
+	/** Edge of each entry */
+	private int[] BEdge = null;
+
+	/** First free entry below BUsed, -1 if there is none */
+	private int BFree = -1;
+
+	/** Entries from here on have never been used since the workspace was bound */
+	private int BUsed = 0;
+
+	/** Component whose B-Lists are emptied before the next step; null for none */
+	private SCCDecomposition lastSccs = null;
+
+	private int lastStep = 0;
+
+	/** Edges whose source is in the B-List of their target */
+	private long[] inB = null;
+
+	/** Node of each frame; this is the current path */
+	private int[] stack = null;
+
+	/** Position of the next successor to look at, for each frame */
+	private int[] cursor = null;
+
+	/** Cycle found below the node of the frame, for each frame */
+	private boolean[] found = null;
+
+	/** Number of frames on the stack */
+	private int depth = 0;
+
+	/** Worklist for unblocking */
+	private int[] unblockStack = null;
+
+	/** Nodes of the current component are marked with the current step */
+	private int[] component = null;
+
+	/** Mark of the current component */
+	private int currentStep = 0;
+
+	/** Receives the found cycles before cycleFound while they are recorded; else null */
+	CycleVisitor recorder = null;
+
+	/** Work arrays; null for the search on rows of bits */
+	private SearchWorkspace workspace = null;
+
+	/** Search on rows of bits; null for the search on the edge lists */
+	private BitMatrixSearch bitMatrix = null;
+
+	/** Lock of each node for the bounded search */
+	private int[] lock = null;
+
+	/** Nodes on the path, for the bounded search */
+	private boolean[] onPath = null;
+
+	/** Worklist for relaxing locks, the nodes on it are marked in onList */
+	private int[] relaxStack = null;
+
+	private boolean[] onList = null;
+
+	/** Number of nodes put on the path so far */
+	private long visitedNodes = 0;
+
+	/** Number of visited nodes at which {@link #checkpoint(long)} is called */
+	private long nextCheckpoint = Long.MAX_VALUE;
+
+	/** Counters of the search, only if {@link SearchStats#ENABLED} */
+	private SearchStats stats = null;
+
+	/** Edges looked at, only counted if {@link SearchStats#ENABLED} */
+	long edgesScanned = 0;
+
+	/** Unblocked nodes and relaxed locks, only counted if {@link SearchStats#ENABLED} */
+	long unblockCalls = 0;
+
+	/** Entries put into the B-lists, only counted if {@link SearchStats#ENABLED} */
+	long bListInsertions = 0;
+
+	/** Found cycles, only counted if {@link SearchStats#ENABLED} */
+	private long cycleCount = 0;
+
+	/** Time in {@link #cycleFound(int[], int)}, only if {@link SearchStats#ENABLED} */
+	private long visitorNanos = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param graph the graph
+	 */
+	protected CycleSearchEngine(CompactGraph graph) {
+		this(graph, (long[]) null);
+	}
+
+	/**
+	 * Constructor for an engine searching on rows of bits, for dense graphs
+	 * with a few thousand nodes at most.
+	 *
+	 * @param graph the graph
+	 * @param rows rows of bits of the graph, built by
+	 * {@link BitMatrixSearch#buildRows(CompactGraph)}; null to search on the
+	 * edge lists
+	 */
+	protected CycleSearchEngine(CompactGraph graph, long[] rows) {
+		this.graph = graph;
+		if (rows != null) {
+			this.bitMatrix = new BitMatrixSearch(this, graph.getNodeCount(), rows);
+			return;
+		}
+		this.bind(new SearchWorkspace(graph.getNodeCount(), graph.getEdgeCount()));
+	}
+
+	/**
+	 * Constructor for an engine using the arrays of a workspace, which must
+	 * not be used by another engine at the same time.
+	 *
+	 * @param graph the graph
+	 * @param workspace workspace the graph fits into
+	 */
+	protected CycleSearchEngine(CompactGraph graph, SearchWorkspace workspace) {
+		this.graph = graph;
+		workspace.bind(graph.getNodeCount(), graph.getEdgeCount());
+		this.bind(workspace);
+	}
+
+	private void bind(SearchWorkspace workspace) {
+		this.workspace = workspace;
+		this.blocked = workspace.blocked;
+		this.BHead = workspace.BHead;
+		this.BNext = workspace.BNext;
+		this.BSource = workspace.BSource;
+		this.BEdge = workspace.BEdge;
+		this.inB = workspace.inB;
+		this.stack = workspace.stack;
+		this.cursor = workspace.cursor;
+		this.found = workspace.found;
+		this.unblockStack = workspace.unblockStack;
+		this.component = workspace.component;
+	}
+
+	/**
+	 * @return the workspace of the engine; null for the search on rows of
+	 * bits
+	 */
+	SearchWorkspace getWorkspace() {
+		return this.workspace;
+	}
+
+	/**
+	 * Called for every found cycle.
+	 *
+	 * @param path nodes of the cycle, starting with the start node
+	 * @param length number of nodes of the cycle
+	 * @return true to go on with the search, false to stop it
+	 */
+	protected abstract boolean cycleFound(int[] path, int length);
+
+	/**
+	 * Decides whether the search stops at a node that has just been put on
+	 * the path.
+	 *
+	 * @param v node on top of the path
+	 * @param path current path, including v
+	 * @param length number of nodes on the path
+	 * @return true, if the successors of v should not be searched
+	 */
+	protected boolean cutoff(int v, int[] path, int length) {
+		return false;
+	}
+
+	/**
+	 * Decides whether a node is left out of the search; no cycle through
+	 * this node is searched. Unlike {@link #cutoff(int, int[], int)} this
+	 * must not depend on the path.
+	 *
+	 * @param v a node
+	 * @return true, if v is left out
+	 */
+	protected boolean excluded(int v) {
+		return false;
+	}
+
+	/**
+	 * Called when the number of visited nodes reaches the value given to
+	 * {@link #setNextCheckpoint(long)}, so that a subclass can stop a long
+	 * search.
+	 *
+	 * @param visitedNodes number of nodes put on the path so far
+	 * @return true to go on with the search, false to stop it
+	 */
+	protected boolean checkpoint(long visitedNodes) {
+		return true;
+	}
+
+	/**
+	 * @param visitedNodes number of visited nodes at which
+	 * {@link #checkpoint(long)} is called next
+	 */
+	protected void setNextCheckpoint(long visitedNodes) {
+		this.nextCheckpoint = visitedNodes;
+	}
+
+	/**
+	 * @return snapshot of the counters of all steps so far; all counters are
+	 * 0 unless {@link SearchStats#isEnabled()}
+	 */
+	SearchStats getStats() {
+		SearchStats snapshot = this.stats != null ? this.stats.snapshot() : new SearchStats();
+		snapshot.verticesPushed = this.visitedNodes;
+		if (SearchStats.ENABLED) {
+			snapshot.edgesScanned = this.edgesScanned;
+			snapshot.unblockCalls = this.unblockCalls;
+			snapshot.bListInsertions = this.bListInsertions;
+			snapshot.cycleCount = this.cycleCount;
+			snapshot.visitorNanos = this.visitorNanos;
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Prepares the engine for another search with the same work arrays: the
+	 * number of visited nodes, the checkpoint and the counters start again.
+	 */
+	void reset() {
+		this.visitedNodes = 0;
+		this.nextCheckpoint = Long.MAX_VALUE;
+		this.stats = null;
+		this.edgesScanned = 0;
+		this.unblockCalls = 0;
+		this.bListInsertions = 0;
+		this.cycleCount = 0;
+		this.visitorNanos = 0;
+	}
+
+	/**
+	 * Passes a found cycle to {@link #cycleFound(int[], int)}.
+	 *
+	 * @return false, if the search has to stop
+	 */
+	final boolean reportCycle(int[] path, int length) {
+		if (this.recorder != null) {
+			this.recorder.visitCycle(path, length);
+		}
+		if (!SearchStats.ENABLED) {
+			return this.cycleFound(path, length);
+		}
+		this.cycleCount++;
+		long start = System.nanoTime();
+		boolean goOn = this.cycleFound(path, length);
+		this.visitorNanos += System.nanoTime() - start;
+		return goOn;
+	}
+
+	/**
+	 * Counts a node put on the path.
+	 *
+	 * @return false, if the search has to stop
+	 */
+	final boolean nodeVisited() {
+		return ++this.visitedNodes < this.nextCheckpoint || this.checkpoint(this.visitedNodes);
+	}
+
+	/**
+	 * Searches all cycles through the start node of one step of the
+	 * algorithm of Johnson, inside the strong connected component of this
+	 * step.
+	 *
+	 * @param sccs components of the algorithm of Johnson for this graph
+	 * @param step number of the component
+	 * @param maxLength cycles longer than this are not searched
+	 * @return true, if the search has not been stopped by
+	 * {@link #cycleFound(int[], int)} or {@link #checkpoint(long)}
+	 */
+	public boolean search(SCCDecomposition sccs, int step, int maxLength) {
+		if (!SearchStats.ENABLED) {
+			return this.searchTimed(sccs, step, maxLength);
+		}
+
+		ComponentSearchEvent event = new ComponentSearchEvent();
+
+		long visitedNodes = this.visitedNodes;
+		long edgesScanned = this.edgesScanned;
+		long unblockCalls = this.unblockCalls;
+		long bListInsertions = this.bListInsertions;
+		long cycleCount = this.cycleCount;
+		long start = System.nanoTime();
+		event.begin();
+		boolean goOn = this.searchComponent(sccs, step, maxLength);
+		event.end();
+
+		if (this.stats == null) {
+			this.stats = new SearchStats();
+		}
+		this.stats.addComponent(sccs.getStartNode(step), sccs.getComponentSize(step), System.nanoTime() - start,
+				this.cycleCount - cycleCount);
+		if (event.shouldCommit()) {
+			event.startNode = sccs.getStartNode(step);
+			event.componentSize = sccs.getComponentSize(step);
+			event.maxLength = maxLength;
+			event.cycles = this.cycleCount - cycleCount;
+			event.verticesPushed = this.visitedNodes - visitedNodes;
+			event.edgesScanned = this.edgesScanned - edgesScanned;
+			event.unblockCalls = this.unblockCalls - unblockCalls;
+			event.bListInsertions = this.bListInsertions - bListInsertions;
+			event.commit();
+		}
+		return goOn;
+	}
+
+	/**
+	 * The search of one step without the counters of {@link SearchStats},
+	 * reported as {@link ComponentTimingEvent} if the event is enabled.
+	 */
+	private boolean searchTimed(SCCDecomposition sccs, int step, int maxLength) {
+		ComponentTimingEvent event = new ComponentTimingEvent();
+		if (!event.isEnabled()) {
+			return this.searchComponent(sccs, step, maxLength);
+		}
+
+		long visitedNodes = this.visitedNodes;
+		event.begin();
+		boolean goOn = this.searchComponent(sccs, step, maxLength);
+		event.end();
+		if (event.shouldCommit()) {
+			event.startNode = sccs.getStartNode(step);
+			event.componentSize = sccs.getComponentSize(step);
+			event.maxLength = maxLength;
+			event.verticesPushed = this.visitedNodes - visitedNodes;
+			event.commit();
+		}
+		return goOn;
+	}
+
+	/**
+	 * The search of one step, see {@link #search(SCCDecomposition, int, int)}.
+	 */
+	private boolean searchComponent(SCCDecomposition sccs, int step, int maxLength) {
+		if (this.bitMatrix != null) {
+			return this.bitMatrix.search(sccs, step, maxLength);
+		}
+
+		CompactGraph graph = this.graph;
+		int s = sccs.getStartNode(step);
+		if (this.excluded(s)) {
+			return true;
+		}
+		boolean bounded = maxLength < sccs.getComponentSize(step);
+		if (bounded && this.lock == null) {
+			this.workspace.allocateLocks();
+			this.lock = this.workspace.lock;
+			this.onPath = this.workspace.onPath;
+			this.relaxStack = this.workspace.relaxStack;
+			this.onList = this.workspace.onList;
+		}
+
+		if (this.currentStep == Integer.MAX_VALUE) {
+			// the marks of old steps must not come round again
+			Arrays.fill(this.component, 0);
+			this.currentStep = 0;
+		}
+		this.currentStep++;
+		if (this.lastSccs != null) {
+			// the B-Lists of the last step are not read again, their entries are reused
+			for (int i = this.lastSccs.getComponentFrom(this.lastStep); i < this.lastSccs.getComponentTo(this.lastStep); i++) {
+				this.clearB(this.lastSccs.getNode(i));
+			}
+		}
+		this.lastSccs = sccs;
+		this.lastStep = step;
+		for (int i = sccs.getComponentFrom(step); i < sccs.getComponentTo(step); i++) {
+			int j = sccs.getNode(i);
+			if (!this.excluded(j)) {
+				this.component[j] = this.currentStep;
+				this.blocked[j] = false;
+				this.clearB(j);
+				if (bounded) {
+					// a visitor that has thrown may have left nodes on the path
+					this.lock[j] = Integer.MAX_VALUE;
+					this.onPath[j] = false;
+				}
+			}
+		}
+
+		if (bounded) {
+			return this.searchBounded(s, maxLength);
+		}
+
+		this.depth = 0;
+		if (!this.push(s, maxLength)) {
+			this.depth = 0;
+			return false;
+		}
+
+		while (this.depth > 0) {
+			int top = this.depth - 1;
+			int v = this.stack[top];
+
+			if (this.cursor[top] < graph.getEdgeEnd(v)) {
+				int w = graph.getTarget(this.cursor[top]++);
+				if (SearchStats.ENABLED) {
+					this.edgesScanned++;
+				}
+				if (this.component[w] != this.currentStep) {
+					continue;
+				}
+				// found cycle
+				if (w == s) {
+					this.found[top] = true;
+					if (!this.reportCycle(this.stack, this.depth)) {
+						this.depth = 0;
+						return false;
+					}
+				} else if (!this.blocked[w] && !this.push(w, maxLength)) {
+					this.depth = 0;
+					return false;
+				}
+			} else {
+				if (this.found[top]) {
+					this.unblock(v);
+				} else {
+					for (int i = graph.getEdgeStart(v); i < graph.getEdgeEnd(v); i++) {
+						int w = graph.getTarget(i);
+						if (this.component[w] == this.currentStep && (this.inB[i >>> 6] & (1L << i)) == 0) {
+							this.addToB(v, w, i);
+						}
+					}
+				}
+
+				this.depth--;
+				if (this.found[top] && this.depth > 0) {
+					this.found[this.depth - 1] = true;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Searches all cycles through the start node up to a length, with the
+	 * locks of Gupta and Suzumura. The nodes of the component have been
+	 * marked, they are not locked and their B-Lists are empty.
+	 *
+	 * @param s start node
+	 * @param maxLength cycles longer than this are not searched
+	 * @return true, if the search has not been stopped
+	 */
+	private boolean searchBounded(int s, int maxLength) {
+		CompactGraph graph = this.graph;
+		this.stack[0] = s;
+		if (maxLength < 1 || this.cutoff(s, this.stack, 1)) {
+			return true;
+		}
+		this.depth = 0;
+		if (!this.pushBounded(s)) {
+			this.clearPath();
+			return false;
+		}
+
+		while (this.depth > 0) {
+			int top = this.depth - 1;
+			int v = this.stack[top];
+
+			if (this.cursor[top] < graph.getEdgeEnd(v)) {
+				int w = graph.getTarget(this.cursor[top]++);
+				if (SearchStats.ENABLED) {
+					this.edgesScanned++;
+				}
+				if (this.component[w] != this.currentStep) {
+					continue;
+				}
+				// found cycle
+				if (w == s) {
+					if (!this.reportCycle(this.stack, this.depth)) {
+						this.clearPath();
+						return false;
+					}
+				} else if (this.depth < this.lock[w] && this.depth < maxLength) {
+					this.stack[this.depth] = w;
+					if (!this.cutoff(w, this.stack, this.depth + 1) && !this.pushBounded(w)) {
+						this.clearPath();
+						return false;
+					}
+				}
+			} else {
+				// least length of the way back to s, over the successors not on the path
+				int back = Integer.MAX_VALUE;
+				for (int i = graph.getEdgeStart(v); i < graph.getEdgeEnd(v); i++) {
+					int w = graph.getTarget(i);
+					if (this.component[w] != this.currentStep) {
+						continue;
+					}
+					if (w == s) {
+						back = 0;
+					} else if (!this.onPath[w]) {
+						back = Math.min(back, this.lock[w] == Integer.MAX_VALUE ? 1 : maxLength + 1 - this.lock[w]);
+					}
+					if ((this.inB[i >>> 6] & (1L << i)) == 0) {
+						this.addToB(v, w, i);
+					}
+				}
+
+				this.onPath[v] = false;
+				this.depth--;
+				this.lock[v] = back == Integer.MAX_VALUE ? 0 : maxLength - back;
+				this.relax(v);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Puts a node on the path of the bounded search; it is locked for all
+	 * paths that are not shorter than the current one.
+	 *
+	 * @return false, if the search has to stop
+	 */
+	private boolean pushBounded(int v) {
+		int top = this.depth++;
+		this.stack[top] = v;
+		this.cursor[top] = this.graph.getEdgeStart(v);
+		this.lock[v] = top;
+		this.onPath[v] = true;
+		return this.nodeVisited();
+	}
+
+	/**
+	 * Passes the lock of a node on along the B-Lists to the nodes that are
+	 * not on the path: a node with an edge to a node with lock l may be
+	 * entered on paths shorter than l - 1.
+	 *
+	 * @param node a node
+	 */
+	private void relax(int node) {
+		int size = 0;
+		this.relaxStack[size++] = node;
+		this.onList[node] = true;
+
+		while (size > 0) {
+			int u = this.relaxStack[--size];
+			this.onList[u] = false;
+			int next = this.lock[u] - 1;
+			for (int k = this.BHead[u]; k >= 0; k = this.BNext[k]) {
+				int w = this.BSource[k];
+				if (!this.onPath[w] && this.lock[w] < next) {
+					this.lock[w] = next;
+					if (SearchStats.ENABLED) {
+						this.unblockCalls++;
+					}
+					if (!this.onList[w]) {
+						this.onList[w] = true;
+						this.relaxStack[size++] = w;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Takes all nodes from the path of a stopped bounded search.
+	 */
+	private void clearPath() {
+		for (int i = 0; i < this.depth; i++) {
+			this.onPath[this.stack[i]] = false;
+		}
+		this.depth = 0;
+	}
+
+	/**
+	 * Puts a node on the path and opens a frame for it.
+	 *
+	 * @return false, if the search has to stop
+	 */
+	private boolean push(int v, int maxLength) {
+		int top = this.depth++;
+		this.stack[top] = v;
+		this.cursor[top] = this.graph.getEdgeStart(v);
+		this.found[top] = false;
+		this.blocked[v] = true;
+
+		if (this.depth > maxLength || this.cutoff(v, this.stack, this.depth)) {
+			this.found[top] = true;
+			this.cursor[top] = this.graph.getEdgeEnd(v);
+		}
+		return this.nodeVisited();
+	}
+
+	/**
+	 * Unblocks all blocked nodes, starting with a given node.
+	 *
+	 * @param node node to unblock
+	 */
+	private void unblock(int node) {
+		int size = 0;
+		this.blocked[node] = false;
+		this.unblockStack[size++] = node;
+
+		while (size > 0) {
+			int v = this.unblockStack[--size];
+			if (SearchStats.ENABLED) {
+				this.unblockCalls++;
+			}
+			int last = -1;
+			for (int k = this.BHead[v]; k >= 0; k = this.BNext[k]) {
+				int e = this.BEdge[k];
+				this.inB[e >>> 6] &= ~(1L << e);
+				int w = this.BSource[k];
+				if (this.blocked[w]) {
+					this.blocked[w] = false;
+					this.unblockStack[size++] = w;
+				}
+				last = k;
+			}
+			this.freeB(v, last);
+		}
+	}
+
+	/**
+	 * Empties the B-List of a node.
+	 *
+	 * @param node a node
+	 */
+	private void clearB(int node) {
+		int last = -1;
+		for (int k = this.BHead[node]; k >= 0; k = this.BNext[k]) {
+			int e = this.BEdge[k];
+			this.inB[e >>> 6] &= ~(1L << e);
+			last = k;
+		}
+		this.freeB(node, last);
+	}
+
+	/**
+	 * Puts v into the B-List of w.
+	 *
+	 * @param v source of the edge
+	 * @param w target of the edge
+	 * @param i the edge from v to w
+	 */
+	private void addToB(int v, int w, int i) {
+		this.inB[i >>> 6] |= 1L << i;
+		if (SearchStats.ENABLED) {
+			this.bListInsertions++;
+		}
+		int k = this.BFree;
+		if (k >= 0) {
+			this.BFree = this.BNext[k];
+		} else {
+			k = this.BUsed++;
+			if (k == this.BNext.length) {
+				this.workspace.growEntries();
+				this.BNext = this.workspace.BNext;
+				this.BSource = this.workspace.BSource;
+				this.BEdge = this.workspace.BEdge;
+			}
+		}
+		this.BEdge[k] = i;
+		this.BSource[k] = v;
+		this.BNext[k] = this.BHead[w];
+		this.BHead[w] = k;
+	}
+
+	/**
+	 * Gives the entries of the B-List of a node to the free entries and
+	 * empties the list.
+	 *
+	 * @param node a node
+	 * @param last last entry of its B-List, -1 if it is empty
+	 */
+	private void freeB(int node, int last) {
+		if (last >= 0) {
+			this.BNext[last] = this.BFree;
+			this.BFree = this.BHead[node];
+			this.BHead[node] = -1;
+		}
+	}
+}
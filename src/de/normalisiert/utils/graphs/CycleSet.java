@@ -0,0 +1,203 @@
+package de.normalisiert.utils.graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * Compact storage for a large number of cycles. All cycles are kept one
+ * after the other in a single array of node numbers; a second array holds
+ * the start of every cycle in the first one. The objects of the graphnodes
+ * are looked up only when they are asked for.<br><br>
+ *
+ * A CycleSet is a {@link CycleVisitor}, so it can be filled by any of the
+ * visit-methods of the search classes:
+ * <pre>
+ * CycleSet cycles = new CycleSet(graphNodes);
+ * search.visitElementaryCycles(cycles);
+ * </pre>
+ *
+ * Both arrays are Java arrays, so a set holds at most about 2^31 nodes of
+ * cycles and as many cycles; beyond that, adding a cycle throws an
+ * IllegalStateException.
+ *
+ */
+public class CycleSet implements CycleVisitor {
+	/** Largest length of an array the VM is sure to allocate */
+	static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+	/** Nodes of all cycles */
+	private int[] nodes = null;
+
+	/** Start of each cycle in the node array; one more entry for the end */
+	private int[] offsets = null;
+
+	/** Number of cycles */
+	private int size = 0;
+
+	/** Graphnodes */
+	private Object[] graphNodes = null;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param graphNodes array of the graphnodes of the graph; null, if only
+	 * the node numbers are used
+	 */
+	public CycleSet(Object[] graphNodes) {
+		this.graphNodes = graphNodes;
+		this.nodes = new int[64];
+		this.offsets = new int[17];
+	}
+
+	/**
+	 * Adds a cycle.
+	 *
+	 * @param path nodes of the cycle in the first length entries
+	 * @param length number of nodes of the cycle
+	 * @return true
+	 * @throws IllegalStateException if the set cannot hold the cycle
+	 */
+	public boolean visitCycle(int[] path, int length) {
+		int end = this.offsets[this.size];
+		if ((long) end + length > this.nodes.length) {
+			this.nodes = Arrays.copyOf(this.nodes, grownLength(this.nodes.length, (long) end + length));
+		}
+		if (this.size + 2L > this.offsets.length) {
+			this.offsets = Arrays.copyOf(this.offsets, grownLength(this.offsets.length, this.size + 2L));
+		}
+		System.arraycopy(path, 0, this.nodes, end, length);
+		this.size++;
+		this.offsets[this.size] = end + length;
+		return true;
+	}
+
+	/**
+	 * @param length current length of an array
+	 * @param needed length the array needs at least
+	 * @return the new length: twice the current one, but at least the needed
+	 * and at most MAX_ARRAY_LENGTH
+	 * @throws IllegalStateException if more than MAX_ARRAY_LENGTH entries are
+	 * needed
+	 */
+	static int grownLength(int length, long needed) {
+		if (needed > MAX_ARRAY_LENGTH) {
+			throw new IllegalStateException("CycleSet is full: " + needed + " entries needed, at most "
+					+ MAX_ARRAY_LENGTH + " fit into an array");
+		}
+		return (int) Math.min(MAX_ARRAY_LENGTH, Math.max(2L * length, needed));
+	}
+
+	/**
+	 * @return number of cycles
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @param i number of the cycle
+	 * @return number of nodes of the cycle
+	 */
+	public int getLength(int i) {
+		return this.offsets[i + 1] - this.offsets[i];
+	}
+
+	/**
+	 * @param i number of the cycle
+	 * @param j position in the cycle
+	 * @return number of the j-th node of the cycle
+	 */
+	public int getNode(int i, int j) {
+		return this.nodes[this.offsets[i] + j];
+	}
+
+	/**
+	 * @param i number of the cycle
+	 * @param j position in the cycle
+	 * @return graphnode of the j-th node of the cycle
+	 */
+	public Object getGraphNode(int i, int j) {
+		return this.graphNodes[this.nodes[this.offsets[i] + j]];
+	}
+
+	/**
+	 * @param i number of the cycle
+	 * @return node numbers of the cycle
+	 */
+	public int[] getCycle(int i) {
+		return Arrays.copyOfRange(this.nodes, this.offsets[i], this.offsets[i + 1]);
+	}
+
+	/**
+	 * @param i number of the cycle
+	 * @return List::Object with the graphnodes of the cycle
+	 */
+	public ArrayList getGraphNodes(int i) {
+		ArrayList cycle = new ArrayList();
+		for (int k = this.offsets[i]; k < this.offsets[i + 1]; k++) {
+			cycle.add(this.graphNodes[this.nodes[k]]);
+		}
+		return cycle;
+	}
+
+	/**
+	 * @return nodes of all cycles, one after the other; only the first
+	 * <code>getOffsets()[size()]</code> entries are used. The array must not
+	 * be changed.
+	 */
+	public int[] getNodes() {
+		return this.nodes;
+	}
+
+	/**
+	 * @return start of each cycle in {@link #getNodes()}, followed by the end
+	 * of the last cycle; only the first <code>size() + 1</code> entries are
+	 * used. The array must not be changed.
+	 */
+	public int[] getOffsets() {
+		return this.offsets;
+	}
+
+	/**
+	 * Passes all cycles to a visitor, using one buffer for all of them.
+	 *
+	 * @param visitor receives the cycles
+	 * @return true, if all cycles have been visited; false, if the visitor
+	 * stopped
+	 */
+	public boolean visit(CycleVisitor visitor) {
+		int[] path = new int[16];
+		for (int i = 0; i < this.size; i++) {
+			int length = this.getLength(i);
+			if (length > path.length) {
+				path = new int[Math.max(2 * path.length, length)];
+			}
+			System.arraycopy(this.nodes, this.offsets[i], path, 0, length);
+			if (!visitor.visitCycle(path, length)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return List::List::Object with the Lists of the graphnodes of all
+	 * cycles, as returned by the search classes
+	 */
+	public ArrayList toList() {
+		ArrayList cycles = new ArrayList(this.size);
+		for (int i = 0; i < this.size; i++) {
+			cycles.add(this.getGraphNodes(i));
+		}
+		return cycles;
+	}
+
+	/**
+	 * Frees the unused space of the arrays.
+	 */
+	public void trimToSize() {
+		this.nodes = Arrays.copyOf(this.nodes, this.offsets[this.size]);
+		this.offsets = Arrays.copyOf(this.offsets, this.size + 1);
+	}
+}
@@ -0,0 +1,284 @@
+package de.normalisiert.utils.graphs;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Spreads the search of the elementary cycles of one graph over several
+ * processes: the start nodes are split into ranges of {@link CycleWorkUnit}s,
+ * the units run in worker processes on this machine, each writing a shard,
+ * and the shards are merged into one file of cycles.
+ * <pre>
+ * MappedGraph.write(graphFile, graph, null, null);
+ * CycleWorkUnit[] units = CycleShards.plan(graphFile, 32, Integer.MAX_VALUE, false, directory);
+ * CycleShards.runProcesses(units, 8, directory);
+ * CycleCounter counts = CycleShards.merge(units, new File(directory, "cycles.bin"));
+ * </pre>
+ * The merged file holds the cycles of
+ * {@link ElementaryCyclesSearch#getElementaryCycles(int)} in the same
+ * order, in the binary form of {@link CycleWriter}.<br><br>
+ *
+ * The plan stores the strong connected components in the graph file, so
+ * the workers do not compute them again, and every worker splits up only
+ * the components of the start nodes up to the end of its range. A worker
+ * maps the graph file and keeps the work arrays of the search on its heap,
+ * as described for {@link MappedGraph}; every worker needs this heap for
+ * itself.
+ *
+ */
+public class CycleShards {
+	private CycleShards() {
+	}
+
+	/**
+	 * Splits the start nodes of a graph into ranges of about the same work.
+	 * The work of a step is estimated by the size of its component; as the
+	 * number of cycles of a component cannot be known beforehand, more units
+	 * than processes even out the differences.<br><br>
+	 *
+	 * If the graph file holds no strong connected components, it is written
+	 * anew with them; if it cannot be replaced, the workers compute them.
+	 *
+	 * @param graphFile graph file
+	 * @param units number of units, at least 1
+	 * @param maxLength cycles longer than this are not searched
+	 * @param noSelfLoops true for the cycles of getElementaryCyclesNSL, false
+	 * for those of getElementaryCycles
+	 * @param directory directory of the shard files
+	 * @return the units, in the order of their ranges; ranges without steps
+	 * are left out
+	 * @throws IOException if the graph cannot be read
+	 */
+	public static CycleWorkUnit[] plan(File graphFile, int units, int maxLength, boolean noSelfLoops, File directory)
+			throws IOException {
+		MappedGraph graph = MappedGraph.open(graphFile);
+		if (!graph.hasComponentIds()) {
+			int[] componentIds = new StrongConnectedComponents(graph).getComponents().getComponentIds();
+			File part = File.createTempFile(graphFile.getName(), ".part", graphFile.getAbsoluteFile().getParentFile());
+			MappedGraph.write(part, graph, graph.hasLabels() ? graph.getLabels() : null, componentIds);
+			if (part.renameTo(graphFile)) {
+				graph = MappedGraph.open(graphFile);
+			} else {
+				part.delete();
+			}
+		}
+		SCCDecomposition sccs = new SCCDecomposition(graph);
+		long total = 0;
+		for (int step = 0; step < sccs.getStepCount(); step++) {
+			total += sccs.getComponentSize(step);
+		}
+
+		ArrayList ranges = new ArrayList();
+		int from = 0;
+		long work = 0;
+		for (int step = 0; step < sccs.getStepCount(); step++) {
+			work += sccs.getComponentSize(step);
+			if (work * units >= total * (ranges.size() + 1) && step + 1 < sccs.getStepCount()) {
+				int to = sccs.getStartNode(step) + 1;
+				ranges.add(new int[] {from, to});
+				from = to;
+			}
+		}
+		ranges.add(new int[] {from, graph.getNodeCount()});
+
+		CycleWorkUnit[] plan = new CycleWorkUnit[ranges.size()];
+		for (int i = 0; i < plan.length; i++) {
+			int[] range = (int[]) ranges.get(i);
+			plan[i] = new CycleWorkUnit(graphFile, range[0], range[1], maxLength, noSelfLoops, i == plan.length - 1,
+					new File(directory, "shard-" + i + ".bin"));
+		}
+		return plan;
+	}
+
+	/**
+	 * Runs the units in worker processes, started with the java command and
+	 * the class path of this process. The output of each worker is written
+	 * to a log file next to its unit file.
+	 *
+	 * @param units the units
+	 * @param processes maximal number of workers running at the same time
+	 * @param directory directory of the unit and log files
+	 * @throws IOException if a worker cannot be started or fails
+	 * @throws InterruptedException if the thread is interrupted while
+	 * waiting for the workers; the running workers are stopped
+	 */
+	public static void runProcesses(CycleWorkUnit[] units, int processes, File directory)
+			throws IOException, InterruptedException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		String classPath = System.getProperty("java.class.path");
+		ArrayList workers = new ArrayList();
+		for (int i = 0; i < units.length; i++) {
+			File unitFile = new File(directory, "unit-" + i + ".ser");
+			ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(unitFile));
+			try {
+				out.writeObject(units[i]);
+			} finally {
+				out.close();
+			}
+			ProcessBuilder builder = new ProcessBuilder(java, "-cp", classPath, CycleWorkUnit.class.getName(), unitFile.getPath());
+			builder.redirectErrorStream(true);
+			builder.redirectOutput(new File(directory, "unit-" + i + ".log"));
+			workers.add(new Worker(units[i], builder));
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(processes, units.length)));
+		try {
+			ArrayList results = new ArrayList();
+			for (int i = 0; i < workers.size(); i++) {
+				results.add(pool.submit((Worker) workers.get(i)));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				try {
+					((Future) results.get(i)).get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					throw new IOException("unit " + i + " failed", e.getCause());
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Merges the shards of units into one file, in the order of the units.
+	 *
+	 * @param units the units, which have run
+	 * @param output file receiving the cycles of all shards
+	 * @return number of the cycles by their length
+	 * @throws IOException if a shard is missing or cannot be read, or the
+	 * output cannot be written
+	 */
+	public static CycleCounter merge(CycleWorkUnit[] units, File output) throws IOException {
+		CycleCounter counter = new CycleCounter();
+		FileOutputStream out = new FileOutputStream(output);
+		try {
+			FileChannel target = out.getChannel();
+			for (int i = 0; i < units.length; i++) {
+				File shard = units[i].getShardFile();
+				visit(shard, counter);
+				FileInputStream in = new FileInputStream(shard);
+				try {
+					FileChannel source = in.getChannel();
+					long size = source.size();
+					for (long position = 0; position < size; ) {
+						position += source.transferTo(position, size - position, target);
+					}
+				} finally {
+					in.close();
+				}
+			}
+		} finally {
+			out.close();
+		}
+		return counter;
+	}
+
+	/**
+	 * Passes the cycles of a file in the binary form of {@link CycleWriter},
+	 * like a shard or a merged file, to a visitor.
+	 *
+	 * @param file the file
+	 * @param visitor receives the cycles
+	 * @return true, if all cycles have been visited; false, if the visitor
+	 * stopped
+	 * @throws IOException if the file cannot be read or ends inside a cycle
+	 */
+	public static boolean visit(File file, CycleVisitor visitor) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.flip();
+			int[] path = new int[16];
+			while (fill(channel, buffer, 4)) {
+				int length = buffer.getInt();
+				if (length > path.length) {
+					path = new int[Math.max(2 * path.length, length)];
+				}
+				for (int j = 0; j < length; j++) {
+					if (!fill(channel, buffer, 4)) {
+						throw new EOFException(file + " ends inside a cycle");
+					}
+					path[j] = buffer.getInt();
+				}
+				if (!visitor.visitCycle(path, length)) {
+					return false;
+				}
+			}
+			if (buffer.hasRemaining()) {
+				throw new EOFException(file + " ends inside a cycle");
+			}
+			return true;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads from the channel until the buffer has the given number of bytes
+	 * remaining.
+	 *
+	 * @return false, if the channel ends before
+	 */
+	private static boolean fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+		if (buffer.remaining() >= bytes) {
+			return true;
+		}
+		buffer.compact();
+		while (buffer.position() < bytes) {
+			if (channel.read(buffer) < 0) {
+				buffer.flip();
+				return false;
+			}
+		}
+		buffer.flip();
+		return true;
+	}
+
+	/**
+	 * Runs a unit in a worker process.
+	 */
+	private static class Worker implements Callable {
+		/** The unit */
+		private CycleWorkUnit unit = null;
+
+		/** Builder of the process */
+		private ProcessBuilder builder = null;
+
+		Worker(CycleWorkUnit unit, ProcessBuilder builder) {
+			this.unit = unit;
+			this.builder = builder;
+		}
+
+		public Object call() throws IOException, InterruptedException {
+			Process process = this.builder.start();
+			try {
+				int exitCode = process.waitFor();
+				if (exitCode != 0) {
+					throw new IOException(this.unit + " failed with exit code " + exitCode + ", see "
+							+ this.builder.redirectOutput().file());
+				}
+				return null;
+			} finally {
+				process.destroy();
+			}
+		}
+	}
+}
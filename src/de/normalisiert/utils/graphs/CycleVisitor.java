@@ -0,0 +1,23 @@
+package de.normalisiert.utils.graphs;
+
+
+/**
+ * Receives the elementary cycles of a graph one after the other, as soon as
+ * the search finds them. A cycle is passed as the numbers of its nodes,
+ * starting with the least node; these are the positions of the nodes in the
+ * array of graphnodes given to the search. The array is the path of the
+ * search itself and is changed as soon as the search goes on, so a visitor
+ * keeping a cycle has to copy it.
+ *
+ */
+public interface CycleVisitor {
+	/**
+	 * Called for every found cycle.
+	 *
+	 * @param path nodes of the cycle in the first length entries; the array
+	 * must not be changed
+	 * @param length number of nodes of the cycle
+	 * @return true to go on with the search, false to stop it
+	 */
+	public boolean visitCycle(int[] path, int length);
+}
@@ -0,0 +1,174 @@
+package de.normalisiert.utils.graphs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * Part of a search of elementary cycles, which can run in another process:
+ * the steps of the algorithm of Johnson whose start nodes lie in a range.
+ * A work unit refers to a graph file written by
+ * {@link MappedGraph#write(java.io.File, CompactGraph, String[], int[])}
+ * and writes the found cycles to a shard file, in the binary form of
+ * {@link CycleWriter}.<br><br>
+ *
+ * The steps of different start nodes are independent of each other, so
+ * the units of a graph can run at the same time. The shards of the units of
+ * consecutive ranges, one after the other, hold the cycles of
+ * {@link ElementaryCyclesSearch#getElementaryCycles(int)}, or of
+ * getElementaryCyclesNSL, in the same order; {@link CycleShards} plans,
+ * runs and merges them.<br><br>
+ *
+ * Run as a program, a work unit reads itself from the file given as the
+ * only argument, as written by an ObjectOutputStream, and runs.
+ *
+ */
+public class CycleWorkUnit implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/** Graph file */
+	private final File graphFile;
+
+	/** First start node of the range */
+	private final int fromNode;
+
+	/** Start node behind the range */
+	private final int toNode;
+
+	/** Cycles longer than this are not searched */
+	private final int maxLength;
+
+	/** Search the cycles of getElementaryCyclesNSL */
+	private final boolean noSelfLoops;
+
+	/** Add the cycles of length one outside of the components */
+	private final boolean outsideSelfLoops;
+
+	/** File receiving the found cycles */
+	private final File shardFile;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param graphFile graph file
+	 * @param fromNode first start node of the range
+	 * @param toNode start node behind the range
+	 * @param maxLength cycles longer than this are not searched
+	 * @param noSelfLoops true for the cycles of getElementaryCyclesNSL, false
+	 * for those of getElementaryCycles
+	 * @param outsideSelfLoops true, if the unit adds the cycles of length one
+	 * outside of the components after its cycles; this must be true for
+	 * exactly one unit of a search, usually the last one
+	 * @param shardFile file receiving the found cycles
+	 */
+	public CycleWorkUnit(File graphFile, int fromNode, int toNode, int maxLength, boolean noSelfLoops,
+			boolean outsideSelfLoops, File shardFile) {
+		this.graphFile = graphFile;
+		this.fromNode = fromNode;
+		this.toNode = toNode;
+		this.maxLength = maxLength;
+		this.noSelfLoops = noSelfLoops;
+		this.outsideSelfLoops = outsideSelfLoops;
+		this.shardFile = shardFile;
+	}
+
+	public File getGraphFile() {
+		return this.graphFile;
+	}
+
+	public int getFromNode() {
+		return this.fromNode;
+	}
+
+	public int getToNode() {
+		return this.toNode;
+	}
+
+	public int getMaxLength() {
+		return this.maxLength;
+	}
+
+	public boolean isNoSelfLoops() {
+		return this.noSelfLoops;
+	}
+
+	public boolean isOutsideSelfLoops() {
+		return this.outsideSelfLoops;
+	}
+
+	public File getShardFile() {
+		return this.shardFile;
+	}
+
+	/**
+	 * Searches the cycles of the range and writes them to the shard file.
+	 * The file is written under another name and renamed when it is
+	 * complete, so a shard file is never incomplete.
+	 *
+	 * @return number of found cycles
+	 * @throws IOException if the graph cannot be read or the shard cannot be
+	 * written
+	 */
+	public long run() throws IOException {
+		MappedGraph graph = MappedGraph.open(this.graphFile);
+		ElementaryCyclesSearch search = new ElementaryCyclesSearch(graph, null);
+
+		File part = new File(this.shardFile.getPath() + ".part");
+		FileOutputStream out = new FileOutputStream(part);
+		long count = 0;
+		try {
+			FileChannel channel = out.getChannel();
+			CycleWriter writer = new CycleWriter(channel);
+			try {
+				search.visitStartNodes(writer, this.maxLength, this.noSelfLoops, this.fromNode, this.toNode,
+						this.outsideSelfLoops);
+			} finally {
+				// stops the writer thread also if the search has thrown
+				writer.close();
+			}
+			count = writer.getCycleCount();
+		} finally {
+			out.close();
+		}
+		this.shardFile.delete();
+		if (!part.renameTo(this.shardFile)) {
+			throw new IOException("cannot rename " + part + " to " + this.shardFile);
+		}
+		return count;
+	}
+
+	public String toString() {
+		return "start nodes " + this.fromNode + " to " + (this.toNode - 1) + " of " + this.graphFile;
+	}
+
+	/**
+	 * Runs the work unit in a file.
+	 *
+	 * @param args file of the work unit
+	 */
+	public static void main(String[] args) {
+		if (args.length != 1) {
+			System.err.println("usage: CycleWorkUnit <unit file>");
+			System.exit(2);
+		}
+		try {
+			ObjectInputStream in = new ObjectInputStream(new FileInputStream(args[0]));
+			CycleWorkUnit unit = null;
+			try {
+				unit = (CycleWorkUnit) in.readObject();
+			} finally {
+				in.close();
+			}
+			long count = unit.run();
+			System.out.println(unit + ": " + count + " cycles");
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+}
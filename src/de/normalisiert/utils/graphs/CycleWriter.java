@@ -0,0 +1,254 @@
+package de.normalisiert.utils.graphs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+/**
+ * Visitor writing the found cycles to a file, while the search goes on. The
+ * cycles are written either as text, one cycle per line with the graphnodes
+ * separated by " -> ", or binary, as the number of nodes of the cycle
+ * followed by the node numbers, all as little-endian ints.<br><br>
+ *
+ * The writer has two buffers: while the search fills one of them, a
+ * background thread writes the other one to the channel. The search only
+ * waits if it has filled its buffer before the other one is written.<br><br>
+ *
+ * If writing fails, the visitor stops the search and {@link #close()}
+ * throws the exception. A closed writer takes no more cycles.
+ *
+ */
+public class CycleWriter implements CycleVisitor, Closeable {
+	/** Default size of a buffer in bytes */
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+	/** Separator of the nodes of a cycle in text form */
+	private static final byte[] ARROW = " -> ".getBytes(Charset.forName("UTF-8"));
+
+	/** Marks the end of the buffers for the writer thread */
+	private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+	/** Channel receiving the cycles */
+	private FileChannel channel = null;
+
+	/** Graphnodes; null for binary output */
+	private Object[] graphNodes = null;
+
+	/** Graphnodes in UTF-8, encoded on first use */
+	private byte[][] labels = null;
+
+	/** Buffer filled by the search */
+	private ByteBuffer buffer = null;
+
+	/** Filled buffers for the writer thread */
+	private BlockingQueue full = new ArrayBlockingQueue(2);
+
+	/** Written buffers for the search */
+	private BlockingQueue empty = new ArrayBlockingQueue(2);
+
+	/** Writer thread */
+	private Thread writer = null;
+
+	/** First error of writing */
+	private volatile IOException error = null;
+
+	/** Number of written cycles */
+	private long cycleCount = 0;
+
+	/**
+	 * Constructor for binary output.
+	 *
+	 * @param channel channel receiving the cycles
+	 */
+	public CycleWriter(FileChannel channel) {
+		this(channel, null, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Constructor for text output.
+	 *
+	 * @param channel channel receiving the cycles
+	 * @param graphNodes array of the graphnodes of the graph; the cycles are
+	 * written with the strings of these objects
+	 */
+	public CycleWriter(FileChannel channel, Object[] graphNodes) {
+		this(channel, graphNodes, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param channel channel receiving the cycles
+	 * @param graphNodes array of the graphnodes of the graph for text output;
+	 * null for binary output
+	 * @param bufferSize size of each of the two buffers in bytes
+	 */
+	public CycleWriter(FileChannel channel, Object[] graphNodes, int bufferSize) {
+		this.channel = channel;
+		this.graphNodes = graphNodes;
+		if (graphNodes != null) {
+			this.labels = new byte[graphNodes.length][];
+		}
+		this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 16)).order(ByteOrder.LITTLE_ENDIAN);
+		this.empty.add(ByteBuffer.allocateDirect(this.buffer.capacity()).order(ByteOrder.LITTLE_ENDIAN));
+
+		this.writer = new Thread(new Runnable() {
+			public void run() {
+				writeBuffers();
+			}
+		}, "CycleWriter");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Writes a cycle into the buffer.
+	 *
+	 * @param path nodes of the cycle in the first length entries
+	 * @param length number of nodes of the cycle
+	 * @return false, if writing has failed
+	 * @throws IllegalStateException if the writer has been closed
+	 */
+	public boolean visitCycle(int[] path, int length) {
+		if (this.writer == null) {
+			// no thread would take the filled buffer any more
+			throw new IllegalStateException("the CycleWriter is closed");
+		}
+		if (this.error != null) {
+			return false;
+		}
+
+		if (this.graphNodes == null) {
+			this.putInt(length);
+			for (int i = 0; i < length; i++) {
+				this.putInt(path[i]);
+			}
+		} else {
+			for (int i = 0; i < length; i++) {
+				if (i > 0) {
+					this.put(ARROW);
+				}
+				this.put(this.getLabel(path[i]));
+			}
+			this.putByte((byte) '\n');
+		}
+
+		this.cycleCount++;
+		return this.error == null;
+	}
+
+	/**
+	 * @return number of cycles given to the writer
+	 */
+	public long getCycleCount() {
+		return this.cycleCount;
+	}
+
+	/**
+	 * Writes all buffered cycles and stops the writer thread. The channel
+	 * is not closed.
+	 *
+	 * @throws IOException if writing a cycle has failed
+	 */
+	public void close() throws IOException {
+		if (this.writer == null) {
+			return;
+		}
+		try {
+			if (this.buffer.position() > 0) {
+				this.full.put(this.buffer);
+			}
+			this.full.put(END);
+			this.writer.join();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("interrupted while writing cycles");
+		} finally {
+			this.writer = null;
+		}
+		if (this.error != null) {
+			throw this.error;
+		}
+	}
+
+	private byte[] getLabel(int v) {
+		if (this.labels[v] == null) {
+			this.labels[v] = String.valueOf(this.graphNodes[v]).getBytes(Charset.forName("UTF-8"));
+		}
+		return this.labels[v];
+	}
+
+	private void putInt(int value) {
+		if (this.buffer.remaining() < 4) {
+			this.swap();
+		}
+		this.buffer.putInt(value);
+	}
+
+	private void putByte(byte value) {
+		if (!this.buffer.hasRemaining()) {
+			this.swap();
+		}
+		this.buffer.put(value);
+	}
+
+	private void put(byte[] bytes) {
+		int offset = 0;
+		while (offset < bytes.length) {
+			if (!this.buffer.hasRemaining()) {
+				this.swap();
+			}
+			int length = Math.min(bytes.length - offset, this.buffer.remaining());
+			this.buffer.put(bytes, offset, length);
+			offset += length;
+		}
+	}
+
+	/**
+	 * Hands the filled buffer to the writer thread and takes the other one.
+	 */
+	private void swap() {
+		try {
+			this.full.put(this.buffer);
+			this.buffer = (ByteBuffer) this.empty.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.error = new InterruptedIOException("interrupted while writing cycles");
+			this.buffer = ByteBuffer.allocate(this.buffer.capacity()).order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+
+	/**
+	 * Loop of the writer thread.
+	 */
+	private void writeBuffers() {
+		try {
+			while (true) {
+				ByteBuffer filled = (ByteBuffer) this.full.take();
+				if (filled == END) {
+					return;
+				}
+				if (this.error == null) {
+					try {
+						filled.flip();
+						while (filled.hasRemaining()) {
+							this.channel.write(filled);
+						}
+					} catch (IOException e) {
+						this.error = e;
+					}
+				}
+				filled.clear();
+				this.empty.put(filled);
+			}
+		} catch (InterruptedException e) {
+			this.error = new InterruptedIOException("interrupted while writing cycles");
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package de.normalisiert.utils.graphs;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+/**
+ * Event of the JDK Flight Recorder for the computation of the components of
+ * the algorithm of Johnson by {@link SCCDecomposition}.
+ *
+ */
+@Name("de.normalisiert.utils.graphs.Decomposition")
+@Label("SCC Decomposition")
+@Category({"Johnson Cycle Algorithm"})
+@Description("Computation of the strong connected components for all start nodes")
+class DecompositionEvent extends Event {
+	@Label("Nodes")
+	int nodeCount;
+
+	@Label("Components")
+	int componentCount;
+
+	@Label("Cyclic Nodes")
+	int cyclicNodeCount;
+
+	@Label("Largest Component")
+	int largestComponent;
+}
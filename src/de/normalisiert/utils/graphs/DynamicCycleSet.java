@@ -0,0 +1,738 @@
+package de.normalisiert.utils.graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * The elementary cycles of a graph, kept up to date while edges are added
+ * and removed one at a time, without searching the whole graph again.
+ * <ul>
+ * <li>The new cycles of an added edge (u, v) are the paths from v back to
+ * u. They are searched with the algorithm of Johnson, started at u, on the
+ * nodes reachable from v that reach u; these nodes are the part of the
+ * strong connected component of the edge that the new cycles can pass.
+ * To find them, the nodes reachable from v and the nodes reaching u are
+ * searched in turns, edge by edge, until one of the two searches is
+ * complete; the other one is then only continued on the nodes the complete
+ * one has found.</li>
+ * <li>The cycles lost with a removed edge are looked up in an index, which
+ * holds the cycles through every edge, so no search is needed.</li>
+ * </ul>
+ * So adding an edge costs time linear in the smaller of the part of the
+ * graph reachable from v and the part reaching u, plus the search of
+ * Johnson on the component, which is linear in its edges for every new
+ * cycle. The two parts are larger than the component if both reach far
+ * beyond it. Removing an edge costs time linear in the number of removed
+ * cycles. Neither depends on the other cycles of the graph.<br><br>
+ *
+ * Every cycle starts with its least node, like the cycles found by
+ * {@link ElementaryCyclesSearch}. Unlike the search, the set holds a
+ * cycle of length one for every self-loop of the graph.
+ *
+ */
+public class DynamicCycleSet {
+	/** Number of nodes */
+	private int nodeCount = 0;
+
+	/** Graphnodes */
+	private Object[] graphNodes = null;
+
+	/** Cycles longer than this are not kept */
+	private int maxLength = Integer.MAX_VALUE;
+
+	/** Successors of each node, in the first outDegree entries */
+	private int[][] successors = null;
+
+	/** Number of successors of each node */
+	private int[] outDegree = null;
+
+	/** Predecessors of each node, in the first inDegree entries */
+	private int[][] predecessors = null;
+
+	/** Number of predecessors of each node */
+	private int[] inDegree = null;
+
+	/** Number of edges */
+	private int edgeCount = 0;
+
+	/** Edge (v, w) of each slot of the edge table, as v * 2^32 + w */
+	private long[] edgeKeys = null;
+
+	/** Number + 1 of the edge in each slot of the edge table, 0 for empty slots */
+	private int[] edgeSlots = null;
+
+	/** Cycles through each edge, by number of the edge; may hold removed cycles */
+	private int[][] edgeCycles = null;
+
+	/** Number of entries in the list of cycles of each edge */
+	private int[] edgeCycleCount = null;
+
+	/** Numbers of removed edges, free for new edges */
+	private int[] freeEdges = new int[16];
+
+	/** Number of free edge numbers */
+	private int freeCount = 0;
+
+	/** Number of edge numbers handed out */
+	private int edgeNumbers = 0;
+
+	/** Nodes of all cycles, one after the other */
+	private int[] cycleNodes = new int[64];
+
+	/** Start of each cycle in cycleNodes, with cycleOffsets[slots] = end */
+	private int[] cycleOffsets = new int[17];
+
+	/** Removed cycles, which are still in cycleNodes */
+	private long[] removed = new long[1];
+
+	/** Number of cycles in cycleNodes, including the removed ones */
+	private int slots = 0;
+
+	/** Number of cycles not removed */
+	private int cycleCount = 0;
+
+	/** Nodes of the current search are marked with the current stamp */
+	private int[] mark = null;
+
+	/** Nodes of the current backward search are marked with its stamp */
+	private int[] back = null;
+
+	/** Current stamp of the marks */
+	private int stamp = 0;
+
+	/** Number of each marked node in the graph of the current search */
+	private int[] localOf = null;
+
+	/** Worklist of the reachability searches */
+	private int[] queue = null;
+
+	/** Worklist of the backward searches */
+	private int[] backQueue = null;
+
+	/** Work arrays of the searches of new cycles */
+	private SearchWorkspace workspace = null;
+
+	/** Buffer for a cycle */
+	private int[] cycle = null;
+
+	/**
+	 * Constructor, searches all cycles of the graph.
+	 *
+	 * @param graph the graph
+	 * @param graphNodes array of the graphnodes of the graph; this is used to
+	 * build sets of the elementary cycles containing the objects of the original
+	 * graph-representation
+	 */
+	public DynamicCycleSet(CompactGraph graph, Object[] graphNodes) {
+		this(graph, graphNodes, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Constructor, searches all cycles of the graph up to a length.
+	 *
+	 * @param graph the graph
+	 * @param graphNodes array of the graphnodes of the graph
+	 * @param maxLength cycles longer than this are not kept, also after the
+	 * edits
+	 */
+	public DynamicCycleSet(CompactGraph graph, Object[] graphNodes, int maxLength) {
+		int n = graph.getNodeCount();
+		this.nodeCount = n;
+		this.graphNodes = graphNodes;
+		this.maxLength = maxLength;
+		this.successors = new int[n][];
+		this.outDegree = new int[n];
+		this.predecessors = new int[n][];
+		this.inDegree = new int[n];
+		for (int v = 0; v < n; v++) {
+			this.successors[v] = new int[Math.max(2, graph.getOutDegree(v))];
+			this.predecessors[v] = new int[2];
+		}
+		this.edgeKeys = new long[Math.max(16, Integer.highestOneBit(Math.max(1, graph.getEdgeCount())) << 2)];
+		this.edgeSlots = new int[this.edgeKeys.length];
+		this.edgeCycles = new int[Math.max(16, graph.getEdgeCount())][];
+		this.edgeCycleCount = new int[this.edgeCycles.length];
+		for (int v = 0; v < n; v++) {
+			for (int e = graph.getEdgeStart(v); e < graph.getEdgeEnd(v); e++) {
+				this.insertEdge(v, graph.getTarget(e));
+			}
+		}
+		this.mark = new int[n];
+		this.back = new int[n];
+		this.localOf = new int[n];
+		this.queue = new int[n];
+		this.backQueue = new int[n];
+		this.cycle = new int[Math.max(1, n)];
+
+		// the search finds the self-loops of the start nodes only, so all
+		// self-loops are added here
+		SCCDecomposition sccs = new SCCDecomposition(graph);
+		Engine engine = new Engine(graph, null, null);
+		for (int step = 0; step < sccs.getStepCount(); step++) {
+			engine.search(sccs, step, maxLength);
+		}
+		for (int v = 0; v < n && maxLength > 0; v++) {
+			if (graph.hasEdge(v, v)) {
+				this.cycle[0] = v;
+				this.addCycle(this.cycle, 1);
+			}
+		}
+	}
+
+	/**
+	 * @return number of nodes
+	 */
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	/**
+	 * @return number of edges
+	 */
+	public int getEdgeCount() {
+		return this.edgeCount;
+	}
+
+	/**
+	 * @return number of cycles
+	 */
+	public int getCycleCount() {
+		return this.cycleCount;
+	}
+
+	/**
+	 * @param v source of the edge
+	 * @param w target of the edge
+	 * @return true, if the graph has the edge
+	 */
+	public boolean hasEdge(int v, int w) {
+		return this.edgeSlots[this.findEdge(v, w)] != 0;
+	}
+
+	/**
+	 * @return the current graph
+	 */
+	public CompactGraph getGraph() {
+		int[] offsets = new int[this.nodeCount + 1];
+		for (int v = 0; v < this.nodeCount; v++) {
+			offsets[v + 1] = offsets[v] + this.outDegree[v];
+		}
+		int[] targets = new int[this.edgeCount];
+		for (int v = 0; v < this.nodeCount; v++) {
+			System.arraycopy(this.successors[v], 0, targets, offsets[v], this.outDegree[v]);
+			Arrays.sort(targets, offsets[v], offsets[v + 1]);
+		}
+		return new CompactGraph(offsets, targets);
+	}
+
+	/**
+	 * Adds an edge and the cycles through it.
+	 *
+	 * @param v source of the edge
+	 * @param w target of the edge
+	 * @return number of new cycles; 0, if the graph has the edge already
+	 */
+	public int addEdge(int v, int w) {
+		return this.addEdge(v, w, null);
+	}
+
+	/**
+	 * Adds an edge and the cycles through it, and passes the new cycles to a
+	 * visitor. If the visitor stops, the remaining new cycles are added
+	 * without passing them.
+	 *
+	 * @param v source of the edge
+	 * @param w target of the edge
+	 * @param visitor receives the new cycles; null for none
+	 * @return number of new cycles; 0, if the graph has the edge already
+	 */
+	public int addEdge(int v, int w, CycleVisitor visitor) {
+		if (v < 0 || v >= this.nodeCount || w < 0 || w >= this.nodeCount) {
+			throw new IllegalArgumentException("edge (" + v + ", " + w + ") outside of the " + this.nodeCount + " nodes");
+		}
+		if (this.hasEdge(v, w)) {
+			return 0;
+		}
+		this.insertEdge(v, w);
+		int before = this.slots;
+		if (v == w) {
+			if (this.maxLength > 0) {
+				this.cycle[0] = v;
+				this.addCycle(this.cycle, 1);
+			}
+		} else if (this.maxLength > 1) {
+			this.searchNewCycles(v, w);
+		}
+		if (visitor != null) {
+			this.visit(visitor, before);
+		}
+		return this.slots - before;
+	}
+
+	/**
+	 * Removes an edge and the cycles through it.
+	 *
+	 * @param v source of the edge
+	 * @param w target of the edge
+	 * @return number of removed cycles; 0, if the graph has not the edge
+	 */
+	public int removeEdge(int v, int w) {
+		return this.removeEdge(v, w, null);
+	}
+
+	/**
+	 * Removes an edge and the cycles through it, and passes the removed
+	 * cycles to a visitor.
+	 *
+	 * @param v source of the edge
+	 * @param w target of the edge
+	 * @param visitor receives the removed cycles; null for none
+	 * @return number of removed cycles; 0, if the graph has not the edge
+	 */
+	public int removeEdge(int v, int w, CycleVisitor visitor) {
+		int slot = this.findEdge(v, w);
+		if (this.edgeSlots[slot] == 0) {
+			return 0;
+		}
+		int edge = this.edgeSlots[slot] - 1;
+		this.deleteSlot(slot);
+		removeEntry(this.successors[v], this.outDegree[v]--, w);
+		removeEntry(this.predecessors[w], this.inDegree[w]--, v);
+		this.edgeCount--;
+
+		int count = 0;
+		boolean goOn = visitor != null;
+		int[] list = this.edgeCycles[edge];
+		for (int i = 0; i < this.edgeCycleCount[edge]; i++) {
+			int c = list[i];
+			if ((this.removed[c >>> 6] & (1L << c)) == 0) {
+				this.removed[c >>> 6] |= 1L << c;
+				this.cycleCount--;
+				count++;
+				if (goOn) {
+					int from = this.cycleOffsets[c];
+					int length = this.cycleOffsets[c + 1] - from;
+					System.arraycopy(this.cycleNodes, from, this.cycle, 0, length);
+					goOn = visitor.visitCycle(this.cycle, length);
+				}
+			}
+		}
+		this.edgeCycles[edge] = null;
+		this.edgeCycleCount[edge] = 0;
+		if (this.freeCount == this.freeEdges.length) {
+			this.freeEdges = Arrays.copyOf(this.freeEdges, 2 * this.freeCount);
+		}
+		this.freeEdges[this.freeCount++] = edge;
+
+		// the removed cycles are dropped, when they are more than the others
+		if (this.slots - this.cycleCount > Math.max(64, this.cycleCount)) {
+			this.compact();
+		}
+		return count;
+	}
+
+	/**
+	 * Passes all cycles to a visitor, in the order they were added.
+	 *
+	 * @param visitor receives the cycles
+	 * @return true, if all cycles have been visited; false, if the visitor
+	 * stopped
+	 */
+	public boolean visitElementaryCycles(CycleVisitor visitor) {
+		return this.visit(visitor, 0);
+	}
+
+	/**
+	 * Returns List::List::Object with the Lists of nodes of all cycles.
+	 *
+	 * @return List::List::Object with the Lists of the elementary cycles.
+	 */
+	public ArrayList getElementaryCycles() {
+		final ArrayList cycles = new ArrayList(this.cycleCount);
+		this.visit(new CycleVisitor() {
+			public boolean visitCycle(int[] path, int length) {
+				ArrayList cycle = new ArrayList(length);
+				for (int j = 0; j < length; j++) {
+					cycle.add(graphNodes[path[j]]);
+				}
+				cycles.add(cycle);
+				return true;
+			}
+		}, 0);
+		return cycles;
+	}
+
+	/**
+	 * Passes the cycles from a number on to a visitor.
+	 */
+	private boolean visit(CycleVisitor visitor, int first) {
+		for (int c = first; c < this.slots; c++) {
+			if ((this.removed[c >>> 6] & (1L << c)) == 0) {
+				int from = this.cycleOffsets[c];
+				int length = this.cycleOffsets[c + 1] - from;
+				System.arraycopy(this.cycleNodes, from, this.cycle, 0, length);
+				if (!visitor.visitCycle(this.cycle, length)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Searches the cycles through the new edge (u, v): the paths from v to u
+	 * on the nodes that reach u and are reachable from v without passing u.
+	 */
+	private void searchNewCycles(int u, int v) {
+		if (this.stamp >= Integer.MAX_VALUE - 3) {
+			Arrays.fill(this.mark, 0);
+			Arrays.fill(this.back, 0);
+			this.stamp = 0;
+		}
+
+		// nodes reachable from v without passing u, and nodes reaching u
+		// without passing v, in turns until one of them is complete
+		int reaching = ++this.stamp;
+		int head = 0;
+		int tail = 0;
+		int backHead = 0;
+		int backTail = 0;
+		long edges = 0;
+		long backEdges = 0;
+		this.mark[v] = reaching;
+		this.queue[tail++] = v;
+		this.back[u] = reaching;
+		this.backQueue[backTail++] = u;
+		while (head < tail && backHead < backTail) {
+			if (edges <= backEdges) {
+				int x = this.queue[head++];
+				if (x != u) {
+					edges += 1 + this.outDegree[x];
+					for (int i = 0; i < this.outDegree[x]; i++) {
+						int y = this.successors[x][i];
+						if (this.mark[y] != reaching) {
+							this.mark[y] = reaching;
+							this.queue[tail++] = y;
+						}
+					}
+				}
+			} else {
+				int x = this.backQueue[backHead++];
+				if (x != v) {
+					backEdges += 1 + this.inDegree[x];
+					for (int i = 0; i < this.inDegree[x]; i++) {
+						int y = this.predecessors[x][i];
+						if (this.back[y] != reaching) {
+							this.back[y] = reaching;
+							this.backQueue[backTail++] = y;
+						}
+					}
+				}
+			}
+		}
+
+		if (head == tail) {
+			// all nodes reachable from v are marked; of these the nodes reaching u
+			if (this.mark[u] != reaching) {
+				return;
+			}
+			int reachable = reaching;
+			reaching = ++this.stamp;
+			backTail = 0;
+			this.back[u] = reaching;
+			this.backQueue[backTail++] = u;
+			for (backHead = 0; backHead < backTail; backHead++) {
+				int x = this.backQueue[backHead];
+				if (x == v) {
+					continue;
+				}
+				for (int i = 0; i < this.inDegree[x]; i++) {
+					int y = this.predecessors[x][i];
+					if (this.mark[y] == reachable && this.back[y] != reaching) {
+						this.back[y] = reaching;
+						this.backQueue[backTail++] = y;
+					}
+				}
+			}
+		}
+		if (this.back[v] != reaching) {
+			return;
+		}
+
+		// of these the nodes reachable from v; u is node 0 of the search
+		int inside = ++this.stamp;
+		this.mark[u] = inside;
+		this.localOf[u] = 0;
+		this.queue[0] = u;
+		this.mark[v] = inside;
+		this.localOf[v] = 1;
+		this.queue[1] = v;
+		tail = 2;
+		for (head = 1; head < tail; head++) {
+			int x = this.queue[head];
+			for (int i = 0; i < this.outDegree[x]; i++) {
+				int y = this.successors[x][i];
+				if (this.back[y] == reaching && this.mark[y] != inside) {
+					this.mark[y] = inside;
+					this.localOf[y] = tail;
+					this.queue[tail++] = y;
+				}
+			}
+		}
+
+		// graph of these nodes, where u leads to v only
+		int k = tail;
+		int[] offsets = new int[k + 1];
+		offsets[1] = 1;
+		for (int i = 1; i < k; i++) {
+			int x = this.queue[i];
+			int degree = 0;
+			for (int j = 0; j < this.outDegree[x]; j++) {
+				int y = this.successors[x][j];
+				if (this.mark[y] == inside && y != x) {
+					degree++;
+				}
+			}
+			offsets[i + 1] = offsets[i] + degree;
+		}
+		int[] targets = new int[offsets[k]];
+		targets[0] = 1;
+		for (int i = 1; i < k; i++) {
+			int x = this.queue[i];
+			int e = offsets[i];
+			for (int j = 0; j < this.outDegree[x]; j++) {
+				int y = this.successors[x][j];
+				if (this.mark[y] == inside && y != x) {
+					targets[e++] = this.localOf[y];
+				}
+			}
+			Arrays.sort(targets, offsets[i], e);
+		}
+		CompactGraph local = new CompactGraph(offsets, targets);
+
+		if (this.workspace == null || !this.workspace.fits(k, targets.length)) {
+			int nodeCapacity = this.workspace == null ? k : Math.max(k, this.workspace.getNodeCapacity());
+			int edgeCapacity = this.workspace == null ? targets.length : Math.max(targets.length, this.workspace.getEdgeCapacity());
+			this.workspace = new SearchWorkspace(nodeCapacity, edgeCapacity);
+		}
+		int[] globalOf = Arrays.copyOf(this.queue, k);
+		Engine engine = new Engine(local, this.workspace, globalOf);
+		engine.search(SCCDecomposition.ofComponent(k), 0, this.maxLength);
+	}
+
+	/**
+	 * Adds a found cycle, starting with its least node, and puts it into the
+	 * lists of cycles of its edges.
+	 */
+	private void addCycle(int[] path, int length) {
+		int least = 0;
+		for (int i = 1; i < length; i++) {
+			if (path[i] < path[least]) {
+				least = i;
+			}
+		}
+		int c = this.slots;
+		int from = this.cycleOffsets[c];
+		if (from + length > this.cycleNodes.length) {
+			this.cycleNodes = Arrays.copyOf(this.cycleNodes, Math.max(2 * this.cycleNodes.length, from + length));
+		}
+		System.arraycopy(path, least, this.cycleNodes, from, length - least);
+		System.arraycopy(path, 0, this.cycleNodes, from + length - least, least);
+		if (c + 2 > this.cycleOffsets.length) {
+			this.cycleOffsets = Arrays.copyOf(this.cycleOffsets, 2 * this.cycleOffsets.length);
+		}
+		this.cycleOffsets[c + 1] = from + length;
+		if ((c >>> 6) == this.removed.length) {
+			this.removed = Arrays.copyOf(this.removed, 2 * this.removed.length);
+		}
+		this.slots++;
+		this.cycleCount++;
+
+		for (int i = 0; i < length; i++) {
+			int v = this.cycleNodes[from + i];
+			int w = this.cycleNodes[from + (i + 1 < length ? i + 1 : 0)];
+			int edge = this.edgeSlots[this.findEdge(v, w)] - 1;
+			int count = this.edgeCycleCount[edge];
+			int[] list = this.edgeCycles[edge];
+			if (list == null) {
+				list = this.edgeCycles[edge] = new int[4];
+			} else if (count == list.length) {
+				list = this.edgeCycles[edge] = Arrays.copyOf(list, 2 * count);
+			}
+			list[count] = c;
+			this.edgeCycleCount[edge] = count + 1;
+		}
+	}
+
+	/**
+	 * Drops the removed cycles; the other cycles keep their order.
+	 */
+	private void compact() {
+		int[] newNumber = new int[this.slots];
+		int k = 0;
+		int length = 0;
+		int from = this.cycleOffsets[0];
+		for (int c = 0; c < this.slots; c++) {
+			int to = this.cycleOffsets[c + 1];
+			if ((this.removed[c >>> 6] & (1L << c)) == 0) {
+				System.arraycopy(this.cycleNodes, from, this.cycleNodes, length, to - from);
+				length += to - from;
+				newNumber[c] = k++;
+				this.cycleOffsets[k] = length;
+			} else {
+				newNumber[c] = -1;
+			}
+			from = to;
+		}
+		this.slots = k;
+		Arrays.fill(this.removed, 0L);
+
+		for (int edge = 0; edge < this.edgeNumbers; edge++) {
+			int[] list = this.edgeCycles[edge];
+			int count = 0;
+			for (int i = 0; i < this.edgeCycleCount[edge]; i++) {
+				if (newNumber[list[i]] >= 0) {
+					list[count++] = newNumber[list[i]];
+				}
+			}
+			this.edgeCycleCount[edge] = count;
+		}
+	}
+
+	/**
+	 * Puts a new edge into the lists of successors and predecessors and into
+	 * the edge table.
+	 */
+	private void insertEdge(int v, int w) {
+		int slot = this.findEdge(v, w);
+		if (this.edgeSlots[slot] != 0) {
+			return;
+		}
+		int edge;
+		if (this.freeCount > 0) {
+			edge = this.freeEdges[--this.freeCount];
+		} else {
+			edge = this.edgeNumbers++;
+			if (edge == this.edgeCycles.length) {
+				this.edgeCycles = Arrays.copyOf(this.edgeCycles, 2 * edge);
+				this.edgeCycleCount = Arrays.copyOf(this.edgeCycleCount, 2 * edge);
+			}
+		}
+		this.edgeKeys[slot] = key(v, w);
+		this.edgeSlots[slot] = edge + 1;
+		this.edgeCount++;
+
+		if (this.outDegree[v] == this.successors[v].length) {
+			this.successors[v] = Arrays.copyOf(this.successors[v], 2 * this.outDegree[v]);
+		}
+		this.successors[v][this.outDegree[v]++] = w;
+		if (this.inDegree[w] == this.predecessors[w].length) {
+			this.predecessors[w] = Arrays.copyOf(this.predecessors[w], 2 * this.inDegree[w]);
+		}
+		this.predecessors[w][this.inDegree[w]++] = v;
+
+		// at most half of the slots are used
+		if (2 * this.edgeCount > this.edgeKeys.length) {
+			long[] keys = this.edgeKeys;
+			int[] edges = this.edgeSlots;
+			this.edgeKeys = new long[2 * keys.length];
+			this.edgeSlots = new int[2 * keys.length];
+			int mask = this.edgeKeys.length - 1;
+			for (int i = 0; i < keys.length; i++) {
+				if (edges[i] != 0) {
+					int s = hash(keys[i]) & mask;
+					while (this.edgeSlots[s] != 0) {
+						s = (s + 1) & mask;
+					}
+					this.edgeKeys[s] = keys[i];
+					this.edgeSlots[s] = edges[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return slot of the edge in the edge table, or the empty slot where it
+	 * belongs
+	 */
+	private int findEdge(int v, int w) {
+		long key = key(v, w);
+		int mask = this.edgeKeys.length - 1;
+		int slot = hash(key) & mask;
+		while (this.edgeSlots[slot] != 0 && this.edgeKeys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Empties a slot of the edge table and moves the following edges of its
+	 * run up, so that every edge can still be found from its home slot.
+	 */
+	private void deleteSlot(int slot) {
+		int mask = this.edgeKeys.length - 1;
+		int hole = slot;
+		for (int s = (slot + 1) & mask; this.edgeSlots[s] != 0; s = (s + 1) & mask) {
+			int home = hash(this.edgeKeys[s]) & mask;
+			// the edge may move to the hole, if its home is not between the hole and its slot
+			if (((s - home) & mask) >= ((s - hole) & mask)) {
+				this.edgeKeys[hole] = this.edgeKeys[s];
+				this.edgeSlots[hole] = this.edgeSlots[s];
+				hole = s;
+			}
+		}
+		this.edgeSlots[hole] = 0;
+	}
+
+	private static long key(int v, int w) {
+		return ((long) v << 32) | (w & 0xFFFFFFFFL);
+	}
+
+	private static int hash(long key) {
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key ^ (key >>> 32));
+	}
+
+	/**
+	 * Removes the first entry with a value from the first count entries of an
+	 * array, by moving the last of them into its place.
+	 */
+	private static void removeEntry(int[] array, int count, int value) {
+		for (int i = 0; i < count; i++) {
+			if (array[i] == value) {
+				array[i] = array[count - 1];
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Search engine adding the found cycles to the set.
+	 */
+	private class Engine extends CycleSearchEngine {
+		/** Node of the graph for each node of the searched graph; null if they are the same */
+		private int[] globalOf = null;
+
+		Engine(CompactGraph graph, SearchWorkspace workspace, int[] globalOf) {
+			super(graph, workspace != null ? workspace : new SearchWorkspace(graph.getNodeCount(), graph.getEdgeCount()));
+			this.globalOf = globalOf;
+		}
+
+		protected boolean cycleFound(int[] path, int length) {
+			if (length == 1) {
+				// all self-loops are added apart from the search
+				return true;
+			}
+			if (this.globalOf == null) {
+				addCycle(path, length);
+				return true;
+			}
+			for (int i = 0; i < length; i++) {
+				cycle[i] = this.globalOf[path[i]];
+			}
+			addCycle(cycle, length);
+			return true;
+		}
+	}
+}
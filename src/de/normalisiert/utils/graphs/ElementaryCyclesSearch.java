@@ -2,8 +2,13 @@ package de.normalisiert.utils.graphs;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 
@@ -25,7 +30,11 @@ import java.util.Vector;
  * The algorithm of Johnson is based on the search for strong connected
  * components in a graph. For a description of this part see:<br>
  * Robert Tarjan: Depth-first search and linear graph algorithms. In: SIAM
- * Journal on Computing. Volume 1, Nr. 2 (1972), pp. 146-160.<br>
+ * Journal on Computing. Volume 1, Nr. 2 (1972), pp. 146-160.<br><br>
+ *
+ * An instance keeps the result of the last search and must not be used by
+ * several threads at once; for many searches on the same graph in several
+ * threads see {@link PreparedGraph}.<br>
  * 
  * @author Frank Meyer, web_at_normalisiert_dot_de
  * @version 1.2, 22.03.2009
@@ -35,8 +44,11 @@ public class ElementaryCyclesSearch {
 	/** List of cycles */
 	private ArrayList cycles = null;
 
-	/** Adjacency-list of graph */
-	private int[][] adjList = null;
+	/** Graph */
+	private CompactGraph graph = null;
+
+	/** Components of the algorithm of Johnson, computed on first use */
+	private SCCDecomposition decomposition = null;
         
 	/** self-loops in the graph */
 	private ArrayList selfLoopsSCC = new ArrayList();
@@ -46,14 +58,26 @@ public class ElementaryCyclesSearch {
 	/** Graphnodes */
 	private Object[] graphNodes = null;
 
-	/** Blocked nodes, used by the algorithm of Johnson */
-	private boolean[] blocked = null;
+	/** Search on rows of bits instead of edge lists */
+	private boolean bitMatrix = false;
+
+	/** Rows of bits of the graph, built on first use */
+	private long[] bitRows = null;
+
+	/** Search on the reduced graph */
+	private boolean graphReduction = false;
+
+	/** Search on the graph with contracted chains, built on first use */
+	private ElementaryCyclesSearch contractedSearch = null;
 
-	/** B-Lists, used by the algorithm of Johnson */
-	private ArrayList[] B = null;
+	/** Search on the graph without contracted chains, built on first use */
+	private ElementaryCyclesSearch peeledSearch = null;
 
-	/** Stack for nodes, used by the algorithm of Johnson */
-	private ArrayList stack = null;
+	/** Reduction of the graph of a search on a reduced graph; else null */
+	private GraphReduction reduction = null;
+
+	/** Cache of the cycles of the components; null for none */
+	private CycleCache cache = null;
 
 	/**
 	 * Constructor.
@@ -65,22 +89,213 @@ public class ElementaryCyclesSearch {
 	 */
 	public ElementaryCyclesSearch(boolean[][] matrix, Object[] graphNodes) {
 		this.graphNodes = graphNodes;
-		this.adjList = AdjacencyList.getAdjacencyList(matrix);
+		this.graph = CompactGraph.fromMatrix(matrix);
 	}
         
         public ElementaryCyclesSearch(int[][] adjList, Object[] graphNodes) {
 		this.graphNodes = graphNodes;
-		this.adjList = adjList;
+		// the rows of the graph are sorted copies, adjList is not changed
+		this.graph = CompactGraph.fromAdjacencyList(adjList);
                 for(int i=0;i<adjList.length;i++){
-                    Arrays.sort(adjList[i]);
-                    if(Arrays.binarySearch(adjList[i], i)>-1){
+                    if(this.graph.hasEdge(i, i)){
                         selfLoopsSCC.add(i);
                         allSelfLoopsSCC.add(i);
                     }
                 }
                                                             }
+
+	/**
+	 * Constructor.
+	 *
+	 * @param graph the graph
+	 * @param graphNodes array of the graphnodes of the graph; this is used to
+	 * build sets of the elementary cycles containing the objects of the original
+	 * graph-representation
+	 */
+	public ElementaryCyclesSearch(CompactGraph graph, Object[] graphNodes) {
+		this.graphNodes = graphNodes;
+		this.graph = graph;
+		for (int i = 0; i < graph.getNodeCount(); i++) {
+			if (graph.hasEdge(i, i)) {
+				selfLoopsSCC.add(i);
+				allSelfLoopsSCC.add(i);
+			}
+		}
+	}
 	
 
+	/**
+	 * Constructor for a graph given by its edges; the edge i leads from
+	 * src[i] to dst[i]. Parallel edges are merged.
+	 *
+	 * @param src sources of the edges
+	 * @param dst targets of the edges
+	 * @param graphNodes array of the graphnodes of the graph; this is used to
+	 * build sets of the elementary cycles containing the objects of the original
+	 * graph-representation
+	 */
+	public ElementaryCyclesSearch(int[] src, int[] dst, Object[] graphNodes) {
+		this(new CompactGraph.Builder(graphNodes.length).addEdges(src, dst), graphNodes);
+	}
+
+	/**
+	 * Constructor for a graph whose edges have been collected by a builder.
+	 *
+	 * @param builder builder holding the edges of the graph
+	 * @param graphNodes array of the graphnodes of the graph; this is used to
+	 * build sets of the elementary cycles containing the objects of the original
+	 * graph-representation
+	 */
+	public ElementaryCyclesSearch(CompactGraph.Builder builder, Object[] graphNodes) {
+		this.graphNodes = graphNodes;
+		this.graph = builder.build();
+		int[] selfLoops = builder.getSelfLoops();
+		for (int i = 0; i < selfLoops.length; i++) {
+			selfLoopsSCC.add(selfLoops[i]);
+			allSelfLoopsSCC.add(selfLoops[i]);
+		}
+	}
+
+	/**
+	 * Constructor for the search on a reduced graph, which passes the
+	 * cycles with the nodes of the graph. The self-loops are taken over from
+	 * the search on the graph; nodes with self-loops are never removed.
+	 */
+	private ElementaryCyclesSearch(GraphReduction reduction, ElementaryCyclesSearch search) {
+		this.graphNodes = search.graphNodes;
+		this.graph = reduction.getReducedGraph();
+		this.reduction = reduction;
+		for (int i = 0; i < search.allSelfLoopsSCC.size(); i++) {
+			allSelfLoopsSCC.add(reduction.getReducedNode(((Integer) search.allSelfLoopsSCC.get(i)).intValue()));
+		}
+		selfLoopsSCC.addAll(allSelfLoopsSCC);
+	}
+
+	/**
+	 * Selects the engine of the search. The engine on rows of bits is faster
+	 * for dense graphs with up to a few thousand nodes, but needs memory
+	 * quadratic in the number of nodes. Both engines find the same cycles in
+	 * the same order, as long as the graph has no parallel edges.
+	 *
+	 * @param bitMatrix true to search on rows of bits, false (the default)
+	 * to search on the edge lists
+	 */
+	public void setBitMatrixEngine(boolean bitMatrix) {
+		this.bitMatrix = bitMatrix;
+	}
+
+	/**
+	 * Lets the searches run on a reduced graph, see {@link GraphReduction}:
+	 * nodes that lie on no cycle are removed, and for searches without a
+	 * length limit chains of nodes with one predecessor and one successor
+	 * are contracted into single edges. The reduction is computed on the
+	 * first search and takes linear time. The searches find the same
+	 * cycles, each starting with its least node, but not in the same order;
+	 * the limit of visited nodes counts the nodes of the reduced graph.
+	 * Only self-loops may differ: a self-loop of a node inside a component
+	 * is found if the node is the start node of a component, and the
+	 * components of the reduced graph can have other start nodes.
+	 *
+	 * @param graphReduction true to search on the reduced graph, false (the
+	 * default) to search on the graph
+	 */
+	public void setGraphReduction(boolean graphReduction) {
+		this.graphReduction = graphReduction;
+	}
+
+	/**
+	 * Lets the searches take the cycles of the strong connected components
+	 * from a cache, which can be shared by many searches, and put the cycles
+	 * of the components they search into it. The searches return the same
+	 * cycles in the same order; the names of the graphnodes are compared by
+	 * their toString(). The cycles of a component that is not in the cache
+	 * are passed on while they are found, so a visitor can stop the search
+	 * early; the component is cached only if it is searched to its end and
+	 * its cycles fit into the memory of the cache. Searches with
+	 * {@link SearchOptions} and the parallel searches do not use the cache.
+	 *
+	 * @param cache the cache; null (the default) for none
+	 */
+	public void setCycleCache(CycleCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * @return the search on the reduced graph, for searches with the given
+	 * length limit
+	 */
+	private synchronized ElementaryCyclesSearch getReducedSearch(int maxLength) {
+		ElementaryCyclesSearch search = null;
+		if (maxLength == Integer.MAX_VALUE) {
+			if (this.contractedSearch == null) {
+				this.contractedSearch = new ElementaryCyclesSearch(new GraphReduction(this.graph, true), this);
+			}
+			search = this.contractedSearch;
+		} else {
+			if (this.peeledSearch == null) {
+				this.peeledSearch = new ElementaryCyclesSearch(new GraphReduction(this.graph, false), this);
+			}
+			search = this.peeledSearch;
+		}
+		search.bitMatrix = this.bitMatrix;
+		search.cache = this.cache;
+		return search;
+	}
+
+	/**
+	 * @return rows of bits of the graph for the engine on rows of bits
+	 */
+	private synchronized long[] getBitRows() {
+		if (this.bitRows == null) {
+			this.bitRows = BitMatrixSearch.buildRows(this.graph);
+		}
+		return this.bitRows;
+	}
+
+	/**
+	 * Returns the components of the algorithm of Johnson for the graph. They
+	 * are computed on the first call and shared by all searches of this
+	 * instance.
+	 *
+	 * @return the components
+	 */
+	public SCCDecomposition getDecomposition() {
+		if (this.decomposition == null) {
+			this.decomposition = new SCCDecomposition(this.graph);
+		}
+		return this.decomposition;
+	}
+
+	/**
+	 * Removes all nodes that are part of a strong connected component with
+	 * more than one node from the self-loops; the search finds the cycles of
+	 * length one of these nodes.
+	 */
+	private void removeComponentSelfLoops(SCCDecomposition sccs) {
+		this.selfLoopsSCC = withoutComponentNodes(this.selfLoopsSCC, sccs, this.graph.getNodeCount());
+	}
+
+	/**
+	 * Filters a list of nodes in one pass, with the nodes of the components
+	 * marked in an array.
+	 *
+	 * @return the nodes of the list outside of the components, in the order
+	 * of the list
+	 */
+	static ArrayList withoutComponentNodes(ArrayList nodes, SCCDecomposition sccs, int nodeCount) {
+		boolean[] cyclic = new boolean[nodeCount];
+		for (int i = 0; i < sccs.getCyclicNodeCount(); i++) {
+			cyclic[sccs.getNode(i)] = true;
+		}
+		ArrayList outside = new ArrayList(nodes.size());
+		for (int i = 0; i < nodes.size(); i++) {
+			if (!cyclic[((Integer) nodes.get(i)).intValue()]) {
+				outside.add(nodes.get(i));
+			}
+		}
+		return outside;
+	}
+
 	/**
 	 * Returns List::List::Object with the Lists of nodes of all elementary
 	 * cycles in the graph.
@@ -88,347 +303,501 @@ public class ElementaryCyclesSearch {
 	 * @return List::List::Object with the Lists of the elementary cycles.
 	 */
 	public ArrayList getElementaryCycles() {
+		return this.search(Integer.MAX_VALUE, false, null);
+	}
+
+	public ArrayList getElementaryCycles(int maxLength) {
+		return this.search(maxLength, false, null);
+	}
+        
+        public ArrayList getElementaryCyclesNSL() {
+		return this.search(Integer.MAX_VALUE, true, null);
+	}
+        
+        public ArrayList getElementaryCyclesNSL(int maxLength) {
+		return this.search(maxLength, true, null);
+	}
+
+	/**
+	 * Returns the elementary cycles of the graph like
+	 * {@link #getElementaryCycles(int)}, with the length, limits and
+	 * callbacks of the options. If a limit is reached or the search is
+	 * cancelled, the result holds the cycles found up to then and is marked
+	 * as truncated.
+	 *
+	 * @param options options of the search
+	 * @return the found cycles
+	 */
+	public SearchResult getElementaryCycles(SearchOptions options) {
+		return this.search(options, false);
+	}
+
+	/**
+	 * Returns the cycles of {@link #getElementaryCyclesNSL(int)} with the
+	 * options of the search.
+	 *
+	 * @param options options of the search
+	 * @return the found cycles
+	 * @see #getElementaryCycles(SearchOptions)
+	 */
+	public SearchResult getElementaryCyclesNSL(SearchOptions options) {
+		return this.search(options, true);
+	}
+
+	/**
+	 * Returns the same cycles in the same order as
+	 * {@link #getElementaryCycles()}, searching the components of the
+	 * algorithm of Johnson in parallel. Each worker of the pool takes the
+	 * next component, largest components first, and searches it with its
+	 * own blocked-set, B-lists and stack.
+	 *
+	 * @param pool pool running the search
+	 * @return List::List::Object with the Lists of the elementary cycles.
+	 */
+	public ArrayList getElementaryCyclesParallel(ForkJoinPool pool) {
+		return this.search(Integer.MAX_VALUE, false, pool);
+	}
+
+	/**
+	 * Parallel form of {@link #getElementaryCycles(int)}.
+	 *
+	 * @param pool pool running the search
+	 * @param maxLength cycles longer than this are not searched
+	 * @return List::List::Object with the Lists of the elementary cycles.
+	 * @see #getElementaryCyclesParallel(ForkJoinPool)
+	 */
+	public ArrayList getElementaryCyclesParallel(ForkJoinPool pool, int maxLength) {
+		return this.search(maxLength, false, pool);
+	}
+
+	/**
+	 * Parallel form of {@link #getElementaryCyclesNSL()}.
+	 *
+	 * @param pool pool running the search
+	 * @return List::List::Object with the Lists of the elementary cycles.
+	 * @see #getElementaryCyclesParallel(ForkJoinPool)
+	 */
+	public ArrayList getElementaryCyclesNSLParallel(ForkJoinPool pool) {
+		return this.search(Integer.MAX_VALUE, true, pool);
+	}
+
+	/**
+	 * Parallel form of {@link #getElementaryCyclesNSL(int)}.
+	 *
+	 * @param pool pool running the search
+	 * @param maxLength cycles longer than this are not searched
+	 * @return List::List::Object with the Lists of the elementary cycles.
+	 * @see #getElementaryCyclesParallel(ForkJoinPool)
+	 */
+	public ArrayList getElementaryCyclesNSLParallel(ForkJoinPool pool, int maxLength) {
+		return this.search(maxLength, true, pool);
+	}
+
+	/**
+	 * Returns all elementary cycles of the graph in the compact form of a
+	 * {@link CycleSet}, in the order of {@link #getElementaryCycles()}.
+	 *
+	 * @return the elementary cycles
+	 */
+	public CycleSet getElementaryCycleSet() {
+		CycleSet cycleSet = new CycleSet(this.graphNodes);
+		this.visit(cycleSet, Integer.MAX_VALUE, false);
+		cycleSet.trimToSize();
+		return cycleSet;
+	}
+
+	/**
+	 * Returns all elementary cycles of the graph up to a length in the
+	 * compact form of a {@link CycleSet}.
+	 *
+	 * @param maxLength cycles longer than this are not searched
+	 * @return the elementary cycles
+	 */
+	public CycleSet getElementaryCycleSet(int maxLength) {
+		CycleSet cycleSet = new CycleSet(this.graphNodes);
+		this.visit(cycleSet, maxLength, false);
+		cycleSet.trimToSize();
+		return cycleSet;
+	}
+
+	/**
+	 * Counts the elementary cycles of the graph by their length, without
+	 * building them. The cycles of length one are counted like
+	 * {@link #getElementaryCycles()} returns them.
+	 *
+	 * @return number of cycles of each length
+	 */
+	public CycleCounter countElementaryCycles() {
+		CycleCounter counter = new CycleCounter();
+		this.visit(counter, Integer.MAX_VALUE, false);
+		return counter;
+	}
+
+	/**
+	 * Counts the elementary cycles of the graph up to a length.
+	 *
+	 * @param maxLength cycles longer than this are not counted
+	 * @return number of cycles of each length
+	 * @see #countElementaryCycles()
+	 */
+	public CycleCounter countElementaryCycles(int maxLength) {
+		CycleCounter counter = new CycleCounter();
+		this.visit(counter, maxLength, false);
+		return counter;
+	}
+
+	/**
+	 * Counts the cycles of {@link #getElementaryCyclesNSL()} by their length.
+	 *
+	 * @return number of cycles of each length
+	 * @see #countElementaryCycles()
+	 */
+	public CycleCounter countElementaryCyclesNSL() {
+		CycleCounter counter = new CycleCounter();
+		this.visit(counter, Integer.MAX_VALUE, true);
+		return counter;
+	}
+
+	/**
+	 * Counts the cycles of {@link #getElementaryCyclesNSL(int)} by their
+	 * length.
+	 *
+	 * @param maxLength cycles longer than this are not counted
+	 * @return number of cycles of each length
+	 * @see #countElementaryCycles()
+	 */
+	public CycleCounter countElementaryCyclesNSL(int maxLength) {
+		CycleCounter counter = new CycleCounter();
+		this.visit(counter, maxLength, true);
+		return counter;
+	}
+
+	/**
+	 * Passes all elementary cycles of the graph to a visitor, in the order of
+	 * {@link #getElementaryCycles()}, without keeping them.
+	 *
+	 * @param visitor receives the cycles
+	 * @return true, if all cycles have been visited; false, if the visitor
+	 * stopped the search
+	 */
+	public boolean visitElementaryCycles(CycleVisitor visitor) {
+		return this.visit(visitor, Integer.MAX_VALUE, false);
+	}
+
+	/**
+	 * Passes all elementary cycles of the graph up to a length to a visitor.
+	 *
+	 * @param visitor receives the cycles
+	 * @param maxLength cycles longer than this are not searched
+	 * @return true, if all cycles have been visited; false, if the visitor
+	 * stopped the search
+	 * @see #visitElementaryCycles(CycleVisitor)
+	 */
+	public boolean visitElementaryCycles(CycleVisitor visitor, int maxLength) {
+		return this.visit(visitor, maxLength, false);
+	}
+
+	/**
+	 * Passes the cycles of {@link #getElementaryCyclesNSL()} to a visitor.
+	 *
+	 * @param visitor receives the cycles
+	 * @return true, if all cycles have been visited; false, if the visitor
+	 * stopped the search
+	 * @see #visitElementaryCycles(CycleVisitor)
+	 */
+	public boolean visitElementaryCyclesNSL(CycleVisitor visitor) {
+		return this.visit(visitor, Integer.MAX_VALUE, true);
+	}
+
+	/**
+	 * Passes the cycles of {@link #getElementaryCyclesNSL(int)} to a visitor.
+	 *
+	 * @param visitor receives the cycles
+	 * @param maxLength cycles longer than this are not searched
+	 * @return true, if all cycles have been visited; false, if the visitor
+	 * stopped the search
+	 * @see #visitElementaryCycles(CycleVisitor)
+	 */
+	public boolean visitElementaryCyclesNSL(CycleVisitor visitor, int maxLength) {
+		return this.visit(visitor, maxLength, true);
+	}
+
+	/**
+	 * Searches the cycles of all components of the algorithm of Johnson.
+	 *
+	 * @param maxLength cycles longer than this are not searched
+	 * @param noSelfLoops true, if the search is cut off at nodes with
+	 * self-loops and no cycles of length one are added
+	 * @param pool pool for a parallel search; null to search in this thread
+	 * @return List::List::Object with the Lists of the elementary cycles.
+	 */
+	private ArrayList search(int maxLength, boolean noSelfLoops, ForkJoinPool pool) {
+		if (this.graphReduction) {
+			this.cycles = this.getReducedSearch(maxLength).search(maxLength, noSelfLoops, pool);
+			return this.cycles;
+		}
 		this.cycles = new ArrayList();
-		this.blocked = new boolean[this.adjList.length];
-		this.B = new ArrayList[this.adjList.length];
-		this.stack = new ArrayList();
-		StrongConnectedComponents sccs = new StrongConnectedComponents(this.adjList);
-		int s = 0;
-
-		while (true) {
-			SCCResult sccResult = sccs.getAdjacencyList(s);
-			if (sccResult != null && sccResult.getAdjList() != null) {
-				ArrayList[] scc = sccResult.getAdjList();
-				s = sccResult.getLowestNodeId();
-				for (int j = 0; j < scc.length; j++) {
-					if ((scc[j] != null) && (scc[j].size() > 0)) {
-						this.blocked[j] = false;
-						this.B[j] = new ArrayList();
-                                                if(selfLoopsSCC.contains(j)){
-                                                    selfLoopsSCC.remove(selfLoopsSCC.indexOf(j));
-                                                }
-					}
-				}
 
-				this.findCycles(s, s, scc);
-                                
-				s++;
-			} else {
-				break;
+		if (pool == null) {
+			this.visit(new CycleCollector(this.cycles), maxLength, noSelfLoops);
+		} else {
+			SCCDecomposition sccs = this.getDecomposition();
+			this.removeComponentSelfLoops(sccs);
+			ArrayList[] results = this.searchParallel(pool, sccs, maxLength, noSelfLoops);
+			for (int step = 0; step < results.length; step++) {
+				this.cycles.addAll(results[step]);
+			}
+			if (!noSelfLoops) {
+				this.visitSelfLoops(new CycleCollector(this.cycles));
 			}
 		}
-                if (selfLoopsSCC!=null){
-                    for(int i=0;i<selfLoopsSCC.size();i++){
-                        ArrayList cycle = new ArrayList();
-                        cycle.add(this.graphNodes[((Integer) selfLoopsSCC.get(i))]);
-                        this.cycles.add(cycle);
-                    }
-                }
 		return this.cycles;
 	}
 
-	public ArrayList getElementaryCycles(int maxLength) {
+	/**
+	 * Searches the cycles of all components of the algorithm of Johnson with
+	 * the options of the search.
+	 */
+	private SearchResult search(SearchOptions options, boolean noSelfLoops) {
+		if (this.graphReduction) {
+			return this.getReducedSearch(options.getMaxLength()).search(options, noSelfLoops);
+		}
 		this.cycles = new ArrayList();
-		this.blocked = new boolean[this.adjList.length];
-		this.B = new ArrayList[this.adjList.length];
-		this.stack = new ArrayList();
-		StrongConnectedComponents sccs = new StrongConnectedComponents(this.adjList);
-		int s = 0;
-
-		while (true) {
-			SCCResult sccResult = sccs.getAdjacencyList(s);
-			if (sccResult != null && sccResult.getAdjList() != null) {
-				ArrayList[] scc = sccResult.getAdjList();
-				s = sccResult.getLowestNodeId();
-				for (int j = 0; j < scc.length; j++) {
-					if ((scc[j] != null) && (scc[j].size() > 0)) {
-						this.blocked[j] = false;
-						this.B[j] = new ArrayList();
-                                                if(selfLoopsSCC.contains(j)){
-                                                    selfLoopsSCC.remove(selfLoopsSCC.indexOf(j));
-                                                }
-					}
-				}
+		SearchControl control = new SearchControl(options, new CycleCollector(this.cycles));
+		Engine engine = new Engine(noSelfLoops, control);
+		engine.control = control;
+		engine.setNextCheckpoint(control.getNextCheckpoint(0));
+		this.visit(engine, options.getMaxLength(), noSelfLoops);
+		SearchStats stats = engine.getStats();
+		stats.decompositionNanos = this.getDecomposition().getNanos();
+		return control.getResult(this.cycles, stats);
+	}
 
-				this.findCycles(s, s, scc,maxLength);
-                                
-				s++;
-			} else {
-				break;
-			}
+	/**
+	 * Searches the cycles of all components of the algorithm of Johnson and
+	 * passes them to a visitor, followed by the cycles of length one outside
+	 * of the components.
+	 *
+	 * @param visitor receives the cycles
+	 * @param maxLength cycles longer than this are not searched
+	 * @param noSelfLoops true, if the search is cut off at nodes with
+	 * self-loops and no cycles of length one are added
+	 * @return true, if the visitor did not stop the search
+	 */
+	private boolean visit(CycleVisitor visitor, int maxLength, boolean noSelfLoops) {
+		if (this.graphReduction) {
+			return this.getReducedSearch(maxLength).visit(visitor, maxLength, noSelfLoops);
 		}
-                if (selfLoopsSCC!=null){
-                    for(int i=0;i<selfLoopsSCC.size();i++){
-                        ArrayList cycle = new ArrayList();
-                        cycle.add(this.graphNodes[((Integer) selfLoopsSCC.get(i))]);
-                        this.cycles.add(cycle);
-                    }
-                }
-		return this.cycles;
+		return this.visit(new Engine(noSelfLoops, visitor), maxLength, noSelfLoops);
 	}
-        
-        public ArrayList getElementaryCyclesNSL() {
-		this.cycles = new ArrayList();
-		this.blocked = new boolean[this.adjList.length];
-		this.B = new ArrayList[this.adjList.length];
-		this.stack = new ArrayList();
-		StrongConnectedComponents sccs = new StrongConnectedComponents(this.adjList);
-		int s = 0;
-
-		while (true) {
-			SCCResult sccResult = sccs.getAdjacencyList(s);
-			if (sccResult != null && sccResult.getAdjList() != null) {
-				ArrayList[] scc = sccResult.getAdjList();
-				s = sccResult.getLowestNodeId();
-				for (int j = 0; j < scc.length; j++) {
-					if ((scc[j] != null) && (scc[j].size() > 0)) {
-						this.blocked[j] = false;
-						this.B[j] = new ArrayList();
-                                                if(selfLoopsSCC.contains(j)){
-                                                    selfLoopsSCC.remove(selfLoopsSCC.indexOf(j));
-                                                }
-					}
-				}
 
-				this.findCyclesNSL(s, s, scc);
-                                
-				s++;
-			} else {
-				break;
+	/**
+	 * Runs the search with an engine; if the engine has a control, the
+	 * progress is reported to it after every component.
+	 */
+	private boolean visit(Engine engine, int maxLength, boolean noSelfLoops) {
+		SCCDecomposition sccs = this.getDecomposition();
+		this.removeComponentSelfLoops(sccs);
+
+		if (this.cache != null && engine.control == null) {
+			if (!this.cache.visit(engine, this.graph, sccs, maxLength, this.getLabels(),
+					noSelfLoops ? CycleCache.NO_SELF_LOOPS : 0, null)) {
+				return false;
 			}
+			return noSelfLoops || this.visitSelfLoops(engine.visitor);
 		}
 
-		return this.cycles;
+		for (int step = 0; step < sccs.getStepCount(); step++) {
+			if (!engine.search(sccs, step, maxLength)) {
+				return false;
+			}
+			if (engine.control != null) {
+				engine.control.componentDone(sccs.getStartNode(step), step + 1, sccs.getStepCount());
+			}
+		}
+
+		return noSelfLoops || this.visitSelfLoops(engine.visitor);
 	}
-        
-        public ArrayList getElementaryCyclesNSL(int maxLength) {
-		this.cycles = new ArrayList();
-		this.blocked = new boolean[this.adjList.length];
-		this.B = new ArrayList[this.adjList.length];
-		this.stack = new ArrayList();
-		StrongConnectedComponents sccs = new StrongConnectedComponents(this.adjList);
-		int s = 0;
-
-		while (true) {
-			SCCResult sccResult = sccs.getAdjacencyList(s);
-			if (sccResult != null && sccResult.getAdjList() != null) {
-				ArrayList[] scc = sccResult.getAdjList();
-				s = sccResult.getLowestNodeId();
-				for (int j = 0; j < scc.length; j++) {
-					if ((scc[j] != null) && (scc[j].size() > 0)) {
-						this.blocked[j] = false;
-						this.B[j] = new ArrayList();
-                                                if(selfLoopsSCC.contains(j)){
-                                                    selfLoopsSCC.remove(selfLoopsSCC.indexOf(j));
-                                                }
-					}
-				}
 
-				this.findCyclesNSL(s, s, scc,maxLength);
-                                
-				s++;
-			} else {
-				break;
+	/**
+	 * Passes the cycles of the steps of the algorithm of Johnson whose start
+	 * nodes lie in a range to a visitor, in the order of
+	 * {@link #getElementaryCycles()}. The cycles of consecutive ranges
+	 * together are the cycles of the whole search, if the cycles of length
+	 * one outside of the components are added with one of them.
+	 *
+	 * @param visitor receives the cycles
+	 * @param maxLength cycles longer than this are not searched
+	 * @param noSelfLoops true, if the search is cut off at nodes with
+	 * self-loops and no cycles of length one are added
+	 * @param fromNode first start node of the range
+	 * @param toNode start node behind the range
+	 * @param outsideSelfLoops true to add the cycles of length one outside of
+	 * the components after the cycles of the range
+	 * @return true, if the visitor did not stop the search
+	 */
+	boolean visitStartNodes(CycleVisitor visitor, int maxLength, boolean noSelfLoops, int fromNode, int toNode,
+			boolean outsideSelfLoops) {
+		Engine engine = new Engine(noSelfLoops, visitor);
+		// the components of the start nodes behind the range are not split up
+		SCCDecomposition sccs = this.decomposition != null ? this.decomposition : new SCCDecomposition(this.graph, toNode);
+		this.removeComponentSelfLoops(sccs);
+		for (int step = 0; step < sccs.getStepCount(); step++) {
+			int s = sccs.getStartNode(step);
+			if (s >= fromNode && s < toNode && !engine.search(sccs, step, maxLength)) {
+				return false;
 			}
 		}
+		return noSelfLoops || !outsideSelfLoops || this.visitSelfLoops(visitor);
+	}
 
-		return this.cycles;
+	/**
+	 * @return the graphnodes of the nodes of the graph; on a reduced graph
+	 * the graphnodes of the nodes they stand for
+	 */
+	private Object[] getLabels() {
+		if (this.reduction == null) {
+			return this.graphNodes;
+		}
+		Object[] labels = new Object[this.graph.getNodeCount()];
+		for (int v = 0; v < labels.length; v++) {
+			labels[v] = this.graphNodes[this.reduction.getOriginalNode(v)];
+		}
+		return labels;
 	}
-	
-        
-        /**
-	 * Calculates the cycles containing a given node in a strongly connected
-	 * component. The method calls itself recursively.
+
+	/**
+	 * Passes the cycles of length one outside of the components to a
+	 * visitor.
 	 *
-	 * @param v
-	 * @param s
-	 * @param adjList adjacency-list with the subgraph of the strongly
-	 * connected component s is part of.
-	 * @return true, if cycle found; false otherwise
-	 */
-	private boolean findCycles(int v, int s, ArrayList[] adjList) {
-		boolean f = false;
-		this.stack.add(new Integer(v));
-		this.blocked[v] = true;
-
-		for (int i = 0; i < adjList[v].size(); i++) {
-			int w = ((Integer) adjList[v].get(i)).intValue();
-			// found cycle
-			if (w == s) {
-				ArrayList cycle = new ArrayList();
-				for (int j = 0; j < this.stack.size(); j++) {
-					int index = ((Integer) this.stack.get(j)).intValue();
-					cycle.add(this.graphNodes[index]);
-				}
-				this.cycles.add(cycle);
-				f = true;
-			} else if (!this.blocked[w]) {
-				if (this.findCycles(w, s, adjList)) {
-					f = true;
-				}
+	 * @return true, if the visitor did not stop
+	 */
+	private boolean visitSelfLoops(CycleVisitor visitor) {
+		int[] path = new int[1];
+		for (int i = 0; i < selfLoopsSCC.size(); i++) {
+			path[0] = ((Integer) selfLoopsSCC.get(i)).intValue();
+			if (this.reduction != null) {
+				path[0] = this.reduction.getOriginalNode(path[0]);
+			}
+			if (!visitor.visitCycle(path, 1)) {
+				return false;
 			}
 		}
+		return true;
+	}
 
-		if (f) {
-			this.unblock(v);
-		} else {
-			for (int i = 0; i < adjList[v].size(); i++) {
-				int w = ((Integer) adjList[v].get(i)).intValue();
-				if (!this.B[w].contains(new Integer(v))) {
-					this.B[w].add(new Integer(v));
-				}
+	/**
+	 * Searches the components of the algorithm of Johnson in a pool. The
+	 * workers take the components from a shared list, ordered by size with
+	 * the largest first; every worker has its own engine.
+	 *
+	 * @return for every component the list of its cycles
+	 */
+	private ArrayList[] searchParallel(ForkJoinPool pool, final SCCDecomposition sccs, final int maxLength, final boolean noSelfLoops) {
+		final ArrayList[] results = new ArrayList[sccs.getStepCount()];
+		final Integer[] order = new Integer[sccs.getStepCount()];
+		for (int step = 0; step < order.length; step++) {
+			order[step] = step;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer step1, Integer step2) {
+				int size1 = sccs.getComponentSize(step1);
+				int size2 = sccs.getComponentSize(step2);
+				return size1 != size2 ? (size2 < size1 ? -1 : 1) : step1.compareTo(step2);
 			}
+		});
+
+		final AtomicInteger next = new AtomicInteger();
+		ForkJoinTask[] workers = new ForkJoinTask[Math.min(pool.getParallelism(), order.length)];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = pool.submit(new RecursiveAction() {
+				protected void compute() {
+					Engine engine = new Engine(noSelfLoops, null);
+					for (int k = next.getAndIncrement(); k < order.length; k = next.getAndIncrement()) {
+						int step = order[k];
+						results[step] = new ArrayList();
+						engine.visitor = new CycleCollector(results[step]);
+						engine.search(sccs, step, maxLength);
+					}
+				}
+			});
+		}
+		for (int i = 0; i < workers.length; i++) {
+			workers[i].join();
 		}
 
-		this.stack.remove(new Integer(v));
-		return f;
+		return results;
 	}
 
-       	private boolean findCycles(int v, int s, ArrayList[] adjList,int maxLength) {
-		boolean f = false;
-		this.stack.add(new Integer(v));
-		this.blocked[v] = true;
-                //This is th cutoff of the max stack size, so that we do not run out of memory
-                if(stack.size()>maxLength){
-                    f=true;
-                }
-                if (!f) {
-                    for (int i = 0; i < adjList[v].size(); i++) {
-                            int w = ((Integer) adjList[v].get(i)).intValue();
-                            // found cycle
-                            if (w == s) {
-                                    ArrayList cycle = new ArrayList();
-                                    for (int j = 0; j < this.stack.size(); j++) {
-                                            int index = ((Integer) this.stack.get(j)).intValue();
-                                            cycle.add(this.graphNodes[index]);
-                                    }
-                                    this.cycles.add(cycle);
-                                    f = true;
-                            } else if (!this.blocked[w]) {
-                                    if (this.findCycles(w, s, adjList,maxLength)) {
-                                            f = true;
-                                    }
-                            }
-                    }
-                }
-                
-		if (f) {
-			this.unblock(v);
-		} else {
-			for (int i = 0; i < adjList[v].size(); i++) {
-				int w = ((Integer) adjList[v].get(i)).intValue();
-				if (!this.B[w].contains(new Integer(v))) {
-					this.B[w].add(new Integer(v));
-				}
-			}
+	/**
+	 * Visitor adding the found cycles as lists of graphnodes to a list.
+	 */
+	private class CycleCollector implements CycleVisitor {
+		/** List receiving the found cycles */
+		private ArrayList cycleList = null;
+
+		CycleCollector(ArrayList cycleList) {
+			this.cycleList = cycleList;
 		}
 
-		this.stack.remove(new Integer(v));
-		return f;
+		public boolean visitCycle(int[] path, int length) {
+			ArrayList cycle = new ArrayList();
+			for (int j = 0; j < length; j++) {
+				cycle.add(graphNodes[path[j]]);
+			}
+			this.cycleList.add(cycle);
+			return true;
+		}
 	}
 
-       	private boolean findCyclesNSL(int v, int s, ArrayList[] adjList) {
-		boolean f = false;
-		this.stack.add(new Integer(v));
-		this.blocked[v] = true;
-                //This is th cutoff of the max stack size, so that we do not run out of memory
-                if(allSelfLoopsSCC.contains(v)){
-                    f=true;
-                }
-                if (!f) {
-                    for (int i = 0; i < adjList[v].size(); i++) {
-                            int w = ((Integer) adjList[v].get(i)).intValue();
-                            // found cycle
-                            if (w == s) {
-                                    ArrayList cycle = new ArrayList();
-                                    for (int j = 0; j < this.stack.size(); j++) {
-                                            int index = ((Integer) this.stack.get(j)).intValue();
-                                            cycle.add(this.graphNodes[index]);
-                                    }
-                                    this.cycles.add(cycle);
-                                    f = true;
-                            } else if (!this.blocked[w]) {
-                                    if (this.findCyclesNSL(w, s, adjList)) {
-                                            f = true;
-                                    }
-                            }
-                    }
-                }
-                
-		if (f) {
-			this.unblock(v);
-		} else {
-			for (int i = 0; i < adjList[v].size(); i++) {
-				int w = ((Integer) adjList[v].get(i)).intValue();
-				if (!this.B[w].contains(new Integer(v))) {
-					this.B[w].add(new Integer(v));
+	/**
+	 * Search engine passing the found cycles to a visitor.
+	 */
+	private class Engine extends CycleSearchEngine {
+		/** Nodes with self-loops, left out of the search; null to search them */
+		private long[] selfLoops = null;
+
+		/** Visitor receiving the found cycles */
+		private CycleVisitor visitor = null;
+
+		/** Limits of the search; null for none */
+		private SearchControl control = null;
+
+		/** Buffer for the cycles of the graph, on a reduced graph; else null */
+		private int[] expanded = null;
+
+		Engine(boolean noSelfLoops, CycleVisitor visitor) {
+			super(graph, bitMatrix ? getBitRows() : null);
+			this.visitor = visitor;
+			if (reduction != null) {
+				this.expanded = new int[reduction.getOriginalNodeCount()];
+			}
+			if (noSelfLoops) {
+				this.selfLoops = new long[(graph.getNodeCount() + 63) >>> 6];
+				for (int i = 0; i < allSelfLoopsSCC.size(); i++) {
+					int v = ((Integer) allSelfLoopsSCC.get(i)).intValue();
+					this.selfLoops[v >>> 6] |= 1L << v;
 				}
 			}
 		}
 
-		this.stack.remove(new Integer(v));
-		return f;
-	}
- 
-       	private boolean findCyclesNSL(int v, int s, ArrayList[] adjList,int maxLength) {
-		boolean f = false;
-		this.stack.add(new Integer(v));
-		this.blocked[v] = true;
-                //This is th cutoff of the max stack size, so that we do not run out of memory
-                if(allSelfLoopsSCC.contains(v) || this.stack.size()>maxLength){
-                    f=true;
-                }
-                if (!f) {
-                    for (int i = 0; i < adjList[v].size(); i++) {
-                            int w = ((Integer) adjList[v].get(i)).intValue();
-                            // found cycle
-                            if (w == s) {
-                                    ArrayList cycle = new ArrayList();
-                                    for (int j = 0; j < this.stack.size(); j++) {
-                                            int index = ((Integer) this.stack.get(j)).intValue();
-                                            cycle.add(this.graphNodes[index]);
-                                    }
-                                    this.cycles.add(cycle);
-                                    f = true;
-                            } else if (!this.blocked[w]) {
-                                    if (this.findCyclesNSL(w, s, adjList,maxLength)) {
-                                            f = true;
-                                    }
-                            }
-                    }
-                }
-                
-		if (f) {
-			this.unblock(v);
-		} else {
-			for (int i = 0; i < adjList[v].size(); i++) {
-				int w = ((Integer) adjList[v].get(i)).intValue();
-				if (!this.B[w].contains(new Integer(v))) {
-					this.B[w].add(new Integer(v));
-				}
+		protected boolean cycleFound(int[] path, int length) {
+			if (this.expanded != null) {
+				return this.visitor.visitCycle(this.expanded, reduction.expand(path, length, this.expanded));
 			}
+			return this.visitor.visitCycle(path, length);
 		}
 
-		this.stack.remove(new Integer(v));
-		return f;
-	}
- 
-               
-	/**
-	 * Unblocks recursively all blocked nodes, starting with a given node.
-	 *
-	 * @param node node to unblock
-	 */
-	private void unblock(int node) {
-		this.blocked[node] = false;
-		ArrayList Bnode = this.B[node];
-		while (Bnode.size() > 0) {
-			Integer w = (Integer) Bnode.get(0);
-			Bnode.remove(0);
-			if (this.blocked[w.intValue()]) {
-				this.unblock(w.intValue());
+		protected boolean excluded(int v) {
+			return this.selfLoops != null && (this.selfLoops[v >>> 6] & (1L << v)) != 0;
+		}
+
+		protected boolean checkpoint(long visitedNodes) {
+			if (this.control == null || !this.control.checkpoint(visitedNodes)) {
+				return false;
 			}
+			this.setNextCheckpoint(this.control.getNextCheckpoint(visitedNodes));
+			return true;
 		}
 	}
 }
-
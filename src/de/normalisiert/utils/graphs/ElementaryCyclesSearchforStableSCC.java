@@ -2,6 +2,8 @@ package de.normalisiert.utils.graphs;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Vector;
 
@@ -45,8 +47,11 @@ public class ElementaryCyclesSearchforStableSCC {
 	/** List of cycles */
 	private ArrayList<ArrayList<String>> cycles = null;
 
-	/** Adjacency-list of graph */
-	private int[][] adjList = null;
+	/** Graph */
+	private CompactGraph graph = null;
+
+	/** Components of the algorithm of Johnson, computed on first use */
+	private SCCDecomposition decomposition = null;
         
 	/** self-loops in the graph */
 	private ArrayList selfLoopsSCC = new ArrayList();  
@@ -54,23 +59,38 @@ public class ElementaryCyclesSearchforStableSCC {
 	/** Graphnodes */
 	private String[] graphNodes = null;
         
-        /** Graphnodes */
-	private ArrayList<String> graphNodesList;
-
-	/** Blocked nodes, used by the algorithm of Johnson */
-	private boolean[] blocked = null;
-
-	/** B-Lists, used by the algorithm of Johnson */
-	private ArrayList[] B = null;
-
-	/** Stack for nodes, used by the algorithm of Johnson */
-	private ArrayList stack = null;
+	/** Index of the first graphnode of each name */
+	private HashMap nodeIndex = null;
 
         private ArrayList allSelfLoopsSCC = new ArrayList();
         
         private ArrayList<Integer> allSelfLoopsSCCComple = new ArrayList();
         
         private ArrayList<Integer> allSelfLoopsSCCCompos = new ArrayList();
+
+	/** Kind of a node named by an integer, like "3" */
+	private static final byte POSITIVE = 0;
+
+	/** Kind of a node named by a negated integer, like "-3" */
+	private static final byte NEGATED = 1;
+
+	/** Kind of a composite node, named by a number that is no integer */
+	private static final byte COMPOSITE = 2;
+
+	/** Kind of a node whose name cannot be read */
+	private static final byte UNREADABLE = 3;
+
+	/** Kind of each node */
+	private byte[] nodeKind = null;
+
+	/** Complement of each node, -1 if it has none */
+	private int[] complementOf = null;
+
+	/** Work arrays of the searches; null for new arrays in every search */
+	private SearchWorkspace workspace = null;
+
+	/** Cache of the cycles of the components; null for none */
+	private CycleCache cache = null;
         
         
         
@@ -84,27 +104,53 @@ public class ElementaryCyclesSearchforStableSCC {
 	 */
 	public ElementaryCyclesSearchforStableSCC(boolean[][] matrix, String[] graphNodes) {
 		this.graphNodes = graphNodes;
-                this.graphNodesList=new ArrayList(Arrays.asList(graphNodes));
-		this.adjList = AdjacencyList.getAdjacencyList(matrix);
+		this.nodeIndex = indexNames(graphNodes);
+		this.graph = CompactGraph.fromMatrix(matrix);
+		this.buildNodeTables();
 	}
         
         public ElementaryCyclesSearchforStableSCC(int[][] adjList, String[] graphNodes) {
+		this(CompactGraph.fromAdjacencyList(adjList), graphNodes);
+        }
+
+	/**
+	 * Constructor for a graph given by its edges; the edge i leads from
+	 * src[i] to dst[i]. Parallel edges are merged.
+	 *
+	 * @param src sources of the edges
+	 * @param dst targets of the edges
+	 * @param graphNodes array of the graphnodes of the graph; this is used to
+	 * build sets of the elementary cycles containing the objects of the original
+	 * graph-representation
+	 */
+	public ElementaryCyclesSearchforStableSCC(int[] src, int[] dst, String[] graphNodes) {
+		this(CompactGraph.fromEdges(graphNodes.length, src, dst), graphNodes);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param graph the graph
+	 * @param graphNodes array of the graphnodes of the graph; this is used to
+	 * build sets of the elementary cycles containing the objects of the original
+	 * graph-representation
+	 */
+        public ElementaryCyclesSearchforStableSCC(CompactGraph graph, String[] graphNodes) {
 		this.graphNodes = graphNodes;
-                this.graphNodesList=new ArrayList(Arrays.asList(graphNodes));
-		this.adjList = adjList;
+		this.nodeIndex = indexNames(graphNodes);
+		this.graph = graph;
                 int index,index2;
                 Integer Index;
                 String dummy;
-                for(int i=0;i<adjList.length;i++){
-                    Arrays.sort(adjList[i]);
-                    if(Arrays.binarySearch(adjList[i], i)>-1){
+                for(int i=0;i<graph.getNodeCount();i++){
+                    if(graph.hasEdge(i, i)){
                         selfLoopsSCC.add(i);                       
                         allSelfLoopsSCC.add(i);
                         if (graphNodes[i].startsWith("-")){
-                            Index=new Integer(graphNodesList.indexOf(graphNodes[i].split("-")[1]));
+                            Index=new Integer(this.indexOf(graphNodes[i].split("-")[1]));
                         }
                         else{
-                            Index=new Integer(graphNodesList.indexOf("-"+Integer.valueOf(graphNodes[i])));
+                            Index=new Integer(this.indexOf("-"+Integer.valueOf(graphNodes[i])));
                         }
                         allSelfLoopsSCCComple.add(Index); //this is the index of the complement of the nodes with selfloops
                         
@@ -130,31 +176,22 @@ public class ElementaryCyclesSearchforStableSCC {
 //                        }
                     }
                 }
-                for(int i1=0;i1<allSelfLoopsSCCComple.size();i1++){
-                    for(int i=0;i<adjList[allSelfLoopsSCCComple.get(i1)].length;i++){                    
-                        dummy=graphNodes[adjList[allSelfLoopsSCCComple.get(i1)][i]];
-                        if(Math.rint(Double.parseDouble(dummy))!=Double.parseDouble(dummy)){
-                            if(!allSelfLoopsSCCCompos.contains(new Integer(adjList[allSelfLoopsSCCComple.get(i1)][i]))){
-                                allSelfLoopsSCCCompos.add(new Integer(adjList[allSelfLoopsSCCComple.get(i1)][i]));
-                            }                            
-                        }
-                    }
-                }
-
+		this.addComplementComposites();
+                this.buildNodeTables();
         
         }
 
         public ElementaryCyclesSearchforStableSCC(int[][] adjList, String[] graphNodes, int attractor) {
 		
             this.graphNodes = graphNodes;
-                this.graphNodesList=new ArrayList(Arrays.asList(graphNodes));
-		this.adjList = adjList;
+		this.nodeIndex = indexNames(graphNodes);
                 int index,index2;
                 Integer Index;
                 String dummy;
+		// the graph holds sorted copies of the rows, the caller's rows stay as they are
+		this.graph = CompactGraph.fromAdjacencyList(adjList);
                 for(int i=0;i<adjList.length;i++){
-                    Arrays.sort(adjList[i]);
-                    if(Arrays.binarySearch(adjList[i], i)>-1){
+                    if(this.graph.hasEdge(i, i)){
                         selfLoopsSCC.add(i);                       
                         allSelfLoopsSCC.add(i);
 
@@ -180,41 +217,32 @@ public class ElementaryCyclesSearchforStableSCC {
 //                        }
                     }
                 }
-                for(int i1=0;i1<allSelfLoopsSCCComple.size();i1++){
-                    for(int i=0;i<adjList[allSelfLoopsSCCComple.get(i1)].length;i++){                    
-                        dummy=graphNodes[adjList[allSelfLoopsSCCComple.get(i1)][i]];
-                        if(Math.rint(Double.parseDouble(dummy))!=Double.parseDouble(dummy)){
-                            if(!allSelfLoopsSCCCompos.contains(new Integer(adjList[allSelfLoopsSCCComple.get(i1)][i]))){
-                                allSelfLoopsSCCCompos.add(new Integer(adjList[allSelfLoopsSCCComple.get(i1)][i]));
-                            }                            
-                        }
-                    }
-                }
-
+		this.addComplementComposites();
+                this.buildNodeTables();
         
         }
               
  
         public ElementaryCyclesSearchforStableSCC(int[][] adjList, String[] graphNodes, ArrayList<String> sources) {
 		this.graphNodes = graphNodes;
-                this.graphNodesList=new ArrayList(Arrays.asList(graphNodes));
-		this.adjList = adjList;
+		this.nodeIndex = indexNames(graphNodes);
                 int index,index2;
                 Integer Index;
                 String dummy;
+                HashSet sourceNames = new HashSet(sources);
+		this.graph = CompactGraph.fromAdjacencyList(adjList);
                 for(int i=0;i<adjList.length;i++){
-                    Arrays.sort(adjList[i]);
-                    if(Arrays.binarySearch(adjList[i], i)>-1){
+                    if(this.graph.hasEdge(i, i)){
                         selfLoopsSCC.add(i);
                         dummy=graphNodes[i];
                         if(dummy.startsWith("-")){dummy=dummy.split("-")[1];}
-                        if(!sources.contains(dummy)){
+                        if(!sourceNames.contains(dummy)){
                             allSelfLoopsSCC.add(i);
                             if (graphNodes[i].startsWith("-")){
-                                Index=new Integer(graphNodesList.indexOf(graphNodes[i].split("-")[1]));
+                                Index=new Integer(this.indexOf(graphNodes[i].split("-")[1]));
                             }
                             else{
-                                Index=new Integer(graphNodesList.indexOf("-"+Integer.valueOf(graphNodes[i])));
+                                Index=new Integer(this.indexOf("-"+Integer.valueOf(graphNodes[i])));
                             }
                             allSelfLoopsSCCComple.add(Index); //this is the index of the complement of the nodes with selfloops
                         }
@@ -240,154 +268,167 @@ public class ElementaryCyclesSearchforStableSCC {
 //                        }
                     }
                 }
-                for(int i1=0;i1<allSelfLoopsSCCComple.size();i1++){
-                    for(int i=0;i<adjList[allSelfLoopsSCCComple.get(i1)].length;i++){                    
-                        dummy=graphNodes[adjList[allSelfLoopsSCCComple.get(i1)][i]];
-                        if(Math.rint(Double.parseDouble(dummy))!=Double.parseDouble(dummy)){
-                            if(!allSelfLoopsSCCCompos.contains(new Integer(adjList[allSelfLoopsSCCComple.get(i1)][i]))){
-                                allSelfLoopsSCCCompos.add(new Integer(adjList[allSelfLoopsSCCComple.get(i1)][i]));
-                            }                            
-                        }
-                    }
-                }
-
+		this.addComplementComposites();
+                this.buildNodeTables();
         
         }        
         
-        public ArrayList<ArrayList<String>> getSelfLoops() {		
-		return this.allSelfLoopsSCC;
+	/**
+	 * Reads the kind and the complement of every node from its name once, so
+	 * the search does not look at the names. The complement of "3" is "-3"
+	 * and vice versa; composite nodes have no complement.
+	 */
+	private void buildNodeTables() {
+		int n = this.graph.getNodeCount();
+		this.nodeKind = new byte[n];
+		this.complementOf = new int[n];
+		for (int v = 0; v < n; v++) {
+			try {
+				String complement;
+				if (this.graphNodes[v].startsWith("-")) {
+					this.nodeKind[v] = NEGATED;
+					complement = this.graphNodes[v].split("-")[1];
+				} else if (Math.rint(Double.parseDouble(this.graphNodes[v])) == Double.parseDouble(this.graphNodes[v])) {
+					this.nodeKind[v] = POSITIVE;
+					complement = "-" + Integer.valueOf(this.graphNodes[v]);
+				} else {
+					this.nodeKind[v] = COMPOSITE;
+					this.complementOf[v] = -1;
+					continue;
+				}
+				this.complementOf[v] = this.indexOf(complement);
+			} catch (RuntimeException e) {
+				// the search fails at this node, as soon as it gets there
+				this.nodeKind[v] = UNREADABLE;
+				this.complementOf[v] = -1;
+			}
+		}
 	}
 
-        
 	/**
-	 * Returns List::List::Object with the Lists of nodes of all elementary
-	 * cycles in the graph.
-	 *
-	 * @return List::List::Object with the Lists of the elementary cycles.
+	 * @return map from every name to the index of its first graphnode
 	 */
-	public ArrayList<ArrayList<String>> getElementaryCycles() {
-		this.cycles = new ArrayList();
-		this.blocked = new boolean[this.adjList.length];
-		this.B = new ArrayList[this.adjList.length];
-		this.stack = new ArrayList();
-		StrongConnectedComponents sccs = new StrongConnectedComponents(this.adjList);
-		int s = 0;
-
-		while (true) {
-			SCCResult sccResult = sccs.getAdjacencyList(s);
-			if (sccResult != null && sccResult.getAdjList() != null) {
-				ArrayList[] scc = sccResult.getAdjList();
-				s = sccResult.getLowestNodeId();
-				for (int j = 0; j < scc.length; j++) {
-					if ((scc[j] != null) && (scc[j].size() > 0)) {
-						this.blocked[j] = false;
-						this.B[j] = new ArrayList();
-					}
-				}
+	private static HashMap indexNames(String[] graphNodes) {
+		HashMap nodeIndex = new HashMap();
+		for (int i = graphNodes.length - 1; i >= 0; i--) {
+			nodeIndex.put(graphNodes[i], i);
+		}
+		return nodeIndex;
+	}
+
+	/**
+	 * @return index of the first graphnode with a name, -1 if there is none
+	 */
+	private int indexOf(String name) {
+		Integer index = (Integer) this.nodeIndex.get(name);
+		return index != null ? index.intValue() : -1;
+	}
 
-				this.findCycles(s, s, scc);
-                                
-				s++;
-			} else {
-				break;
+	/**
+	 * Adds the composite successors of the complements of the nodes with
+	 * self-loops to allSelfLoopsSCCCompos, each once, in the order they are
+	 * found.
+	 */
+	private void addComplementComposites() {
+		boolean[] added = new boolean[this.graph.getNodeCount()];
+		for (int i1 = 0; i1 < allSelfLoopsSCCComple.size(); i1++) {
+			int comple = allSelfLoopsSCCComple.get(i1);
+			for (int i = this.graph.getEdgeStart(comple); i < this.graph.getEdgeEnd(comple); i++) {
+				int target = this.graph.getTarget(i);
+				String dummy = graphNodes[target];
+				if (Math.rint(Double.parseDouble(dummy)) != Double.parseDouble(dummy) && !added[target]) {
+					added[target] = true;
+					allSelfLoopsSCCCompos.add(new Integer(target));
+				}
 			}
 		}
-                    for(int i=0;i<selfLoopsSCC.size();i++){
-                        ArrayList cycle = new ArrayList();
-                        cycle.add(this.graphNodes[((Integer) selfLoopsSCC.get(i))]);
-                        if(!cycles.contains(cycle)){this.cycles.add(cycle);}
-                    }
-                
-		return this.cycles;
 	}
 
 	/**
-	 * Calculates the cycles containing a given node in a strongly connected
-	 * component. The method calls itself recursively.
+	 * Finds the complement of a node by its name.
 	 *
-	 * @param v
-	 * @param s
-	 * @param adjList adjacency-list with the subgraph of the strongly
-	 * connected component s is part of.
-	 * @return true, if cycle found; false otherwise
+	 * @return index of the complement, -1 if there is none
 	 */
-	private boolean findCycles(int v, int s, ArrayList[] adjList) {
-		boolean f = false;
-                Integer Index;
-                String[] cycleNames;
-		this.stack.add(new Integer(v));
-		this.blocked[v] = true;
-                if (graphNodes[v].startsWith("-")){
-                    Index=new Integer(graphNodesList.indexOf(graphNodes[v].split("-")[1]));
-                    if (stack.contains(Index)){
-                        f=true;
-                    }
-                }
-                else if (Math.rint(Double.parseDouble(graphNodes[v]))==Double.parseDouble(graphNodes[v])){
-                    Index=new Integer(graphNodesList.indexOf("-"+Integer.valueOf(graphNodes[v])));
-                    if (stack.contains(Index)){
-                        f=true;
-                    }
-                }
-                                
-                
-                if(!f){
-                    for (int i = 0; i < adjList[v].size(); i++) {
-                            int w = ((Integer) adjList[v].get(i)).intValue();
-                            // found cycle
-                            if (w == s) {
-                                    ArrayList<String> cycle = new ArrayList<String>();
-                                    for (int j = 0; j < this.stack.size(); j++) {
-                                            int index = ((Integer) this.stack.get(j)).intValue();
-                                            cycle.add(this.graphNodes[index]);
-                                    }
-                                    cycleNames=new String[cycle.size()];
-                                    cycleNames=cycle.toArray(cycleNames);
-                                    Arrays.sort(cycleNames);
-                                    cycle = new ArrayList(Arrays.asList(cycleNames));                                   
-                                    this.cycles.add(cycle);
-                                    f = true;
-                                                                     
-                            } else if (!this.blocked[w]) {
-                                    if (this.findCycles(w, s, adjList)) {
-                                            f = true;
-                                    }
-                            }
-                    }
-                }
-		if (f) {
-			this.unblock(v);
-		} else {
-			for (int i = 0; i < adjList[v].size(); i++) {
-				int w = ((Integer) adjList[v].get(i)).intValue();
-				if (!this.B[w].contains(new Integer(v))) {
-					this.B[w].add(new Integer(v));
-				}
-			}
+	private int complementByName(int v) {
+		if (graphNodes[v].startsWith("-")) {
+			return this.indexOf(graphNodes[v].split("-")[1]);
+		} else if (Math.rint(Double.parseDouble(graphNodes[v])) == Double.parseDouble(graphNodes[v])) {
+			return this.indexOf("-" + Integer.valueOf(graphNodes[v]));
 		}
+		return -1;
+	}
 
-		this.stack.remove(new Integer(v));
-		return f;
+	/**
+	 * @return the graph
+	 */
+	public CompactGraph getGraph() {
+		return this.graph;
 	}
 
 	/**
-	 * Unblocks recursively all blocked nodes, starting with a given node.
+	 * Lets the searches take the cycles of the strong connected components
+	 * from a cache, like {@link ElementaryCyclesSearch#setCycleCache(CycleCache)}:
+	 * the cycles of components that are not in the cache are passed on while
+	 * they are found, and cached only if they fit into its memory.
 	 *
-	 * @param node node to unblock
+	 * @param cache the cache; null (the default) for none
 	 */
-	private void unblock(int node) {
-		this.blocked[node] = false;
-		ArrayList Bnode = this.B[node];
-		while (Bnode.size() > 0) {
-			Integer w = (Integer) Bnode.get(0);
-			Bnode.remove(0);
-			if (this.blocked[w.intValue()]) {
-				this.unblock(w.intValue());
-			}
+	public void setCycleCache(CycleCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Lets the searches of this instance use the arrays of a workspace
+	 * instead of allocating their own, for example to search many small
+	 * graphs one after the other. The workspace must have room for the graph
+	 * and must not be used by another search at the same time.
+	 *
+	 * @param workspace the workspace; null for new arrays in every search
+	 */
+	void setWorkspace(SearchWorkspace workspace) {
+		this.workspace = workspace;
+	}
+
+        public ArrayList<ArrayList<String>> getSelfLoops() {		
+		return this.allSelfLoopsSCC;
+	}
+
+        
+	/**
+	 * Returns the components of the algorithm of Johnson for the graph. They
+	 * are computed on the first call and shared by all searches of this
+	 * instance.
+	 *
+	 * @return the components
+	 */
+	public SCCDecomposition getDecomposition() {
+		if (this.decomposition == null) {
+			this.decomposition = new SCCDecomposition(this.graph);
 		}
+		return this.decomposition;
+	}
+
+	/**
+	 * Removes all nodes that are part of a strong connected component with
+	 * more than one node from the self-loops; the search finds the cycles of
+	 * length one of these nodes.
+	 */
+	private void removeComponentSelfLoops(SCCDecomposition sccs) {
+		this.selfLoopsSCC = ElementaryCyclesSearch.withoutComponentNodes(this.selfLoopsSCC, sccs, this.graph.getNodeCount());
 	}
-                                       
-	
+
+	/**
+	 * Returns List::List::Object with the Lists of nodes of all elementary
+	 * cycles in the graph.
+	 *
+	 * @return List::List::Object with the Lists of the elementary cycles.
+	 */
+	public ArrayList<ArrayList<String>> getElementaryCycles() {
+		this.cycles = new ArrayList();
+		this.visit(new CycleCollector(true), Integer.MAX_VALUE, false);
+		return this.cycles;
+	}
+
 	/**
 	 * Returns List::List::Object with the Lists of nodes of all elementary
 	 * cycles in the graph.
@@ -398,191 +439,15 @@ public class ElementaryCyclesSearchforStableSCC {
 	 */
 	public ArrayList<ArrayList<String>> getElementaryCycles(int maxCycleLength) {
 		this.cycles = new ArrayList();
-		this.blocked = new boolean[this.adjList.length];
-		this.B = new ArrayList[this.adjList.length];
-		this.stack = new ArrayList();
-		StrongConnectedComponents sccs = new StrongConnectedComponents(this.adjList);
-		int s = 0;
-
-		while (true) {
-			SCCResult sccResult = sccs.getAdjacencyList(s);
-			if (sccResult != null && sccResult.getAdjList() != null) {
-				ArrayList[] scc = sccResult.getAdjList();
-				s = sccResult.getLowestNodeId();
-				for (int j = 0; j < scc.length; j++) {
-					if ((scc[j] != null) && (scc[j].size() > 0)) {
-						this.blocked[j] = false;
-						this.B[j] = new ArrayList();
-					}
-				}
-
-				this.findCycles(s, s, scc,maxCycleLength);
-                                
-				s++;
-			} else {
-				break;
-			}
-		}
-                    for(int i=0;i<selfLoopsSCC.size();i++){
-                        ArrayList cycle = new ArrayList();
-                        cycle.add(this.graphNodes[((Integer) selfLoopsSCC.get(i))]);
-                        if(!cycles.contains(cycle)){this.cycles.add(cycle);}
-                    }
-                
+		this.visit(new CycleCollector(true), maxCycleLength, false);
 		return this.cycles;
 	}
 
         
-       	private boolean findCyclesNSL(int v, int s, ArrayList[] adjList) {
-		Integer Index;
-                boolean f = false;
-		this.stack.add(new Integer(v));
-		this.blocked[v] = true;
-                //This is th cutoff of the max stack size, so that we do not run out of memory
-                if(allSelfLoopsSCCComple.contains(v) || allSelfLoopsSCCCompos.contains(v)){
-                    f=true;
-                }
-                else{
-                    if (graphNodes[v].startsWith("-")){
-                        Index=new Integer(graphNodesList.indexOf(graphNodes[v].split("-")[1]));
-                        if (stack.contains(Index)){
-                            f=true;
-                        }
-                    }
-                    else if (Math.rint(Double.parseDouble(graphNodes[v]))==Double.parseDouble(graphNodes[v])){
-                        Index=new Integer(graphNodesList.indexOf("-"+Integer.valueOf(graphNodes[v])));
-                        if (stack.contains(Index)){
-                            f=true;
-                        }
-                    }
-                }
-                if (!f) {
-                    for (int i = 0; i < adjList[v].size(); i++) {
-                            int w = ((Integer) adjList[v].get(i)).intValue();
-                            // found cycle
-                            if (w == s) {
-                                    ArrayList cycle = new ArrayList();
-                                    for (int j = 0; j < this.stack.size(); j++) {
-                                            int index = ((Integer) this.stack.get(j)).intValue();
-                                            cycle.add(this.graphNodes[index]);
-                                    }
-                                    this.cycles.add(cycle);
-                                    f = true;
-                            } else if (!this.blocked[w]) {
-                                    if (this.findCyclesNSL(w, s, adjList)) {
-                                            f = true;
-                                    }
-                            }
-                    }
-                }
-                
-		if (f) {
-			this.unblock(v);
-		} else {
-			for (int i = 0; i < adjList[v].size(); i++) {
-				int w = ((Integer) adjList[v].get(i)).intValue();
-				if (!this.B[w].contains(new Integer(v))) {
-					this.B[w].add(new Integer(v));
-				}
-			}
-		}
-
-		this.stack.remove(new Integer(v));
-		return f;
-	}
- 
-       	private boolean findCyclesNSL(int v, int s, ArrayList[] adjList,int maxLength) {
-		boolean f = false;
-		this.stack.add(new Integer(v));
-		this.blocked[v] = true;
-                Integer Index;
-                //This is th cutoff of the max stack size, so that we do not run out of memory
-                if(allSelfLoopsSCC.contains(v) || this.stack.size()>maxLength){
-                    f=true;
-                }
-                else{
-                    if (graphNodes[v].startsWith("-")){
-                        Index=new Integer(graphNodesList.indexOf(graphNodes[v].split("-")[1]));
-                        if (stack.contains(Index)){
-                            f=true;
-                        }
-                    }
-                    else if (Math.rint(Double.parseDouble(graphNodes[v]))==Double.parseDouble(graphNodes[v])){
-                        Index=new Integer(graphNodesList.indexOf("-"+Integer.valueOf(graphNodes[v])));
-                        if (stack.contains(Index)){
-                            f=true;
-                        }
-                    }
-                }
-                if (!f) {
-                    for (int i = 0; i < adjList[v].size(); i++) {
-                            int w = ((Integer) adjList[v].get(i)).intValue();
-                            // found cycle
-                            if (w == s) {
-                                    ArrayList cycle = new ArrayList();
-                                    for (int j = 0; j < this.stack.size(); j++) {
-                                            int index = ((Integer) this.stack.get(j)).intValue();
-                                            cycle.add(this.graphNodes[index]);
-                                    }
-                                    this.cycles.add(cycle);
-                                    f = true;
-                            } else if (!this.blocked[w]) {
-                                    if (this.findCyclesNSL(w, s, adjList,maxLength)) {
-                                            f = true;
-                                    }
-                            }
-                    }
-                }
-                
-		if (f) {
-			this.unblock(v);
-		} else {
-			for (int i = 0; i < adjList[v].size(); i++) {
-				int w = ((Integer) adjList[v].get(i)).intValue();
-				if (!this.B[w].contains(new Integer(v))) {
-					this.B[w].add(new Integer(v));
-				}
-			}
-		}
-
-		this.stack.remove(new Integer(v));
-		return f;
-	}
- 
-    
-        
         
         public ArrayList getElementaryCyclesNSL() {
 		this.cycles = new ArrayList();
-		this.blocked = new boolean[this.adjList.length];
-		this.B = new ArrayList[this.adjList.length];
-		this.stack = new ArrayList();
-		StrongConnectedComponents sccs = new StrongConnectedComponents(this.adjList);
-		int s = 0;
-
-		while (true) {
-			SCCResult sccResult = sccs.getAdjacencyList(s);
-			if (sccResult != null && sccResult.getAdjList() != null) {
-				ArrayList[] scc = sccResult.getAdjList();
-				s = sccResult.getLowestNodeId();
-				for (int j = 0; j < scc.length; j++) {
-					if ((scc[j] != null) && (scc[j].size() > 0)) {
-						this.blocked[j] = false;
-						this.B[j] = new ArrayList();
-                                                if(selfLoopsSCC.contains(j)){
-                                                    selfLoopsSCC.remove(selfLoopsSCC.indexOf(j));
-                                                }
-					}
-				}
-
-				this.findCyclesNSL(s, s, scc);
-                                
-				s++;
-			} else {
-				break;
-			}
-		}
-
+		this.visit(new CycleCollector(false), Integer.MAX_VALUE, true, allSelfLoopsSCCComple, allSelfLoopsSCCCompos);
 		return this.cycles;
 	}
         
@@ -590,118 +455,301 @@ public class ElementaryCyclesSearchforStableSCC {
         
         public ArrayList getElementaryCyclesNSL(int maxLength) {
 		this.cycles = new ArrayList();
-		this.blocked = new boolean[this.adjList.length];
-		this.B = new ArrayList[this.adjList.length];
-		this.stack = new ArrayList();
-		StrongConnectedComponents sccs = new StrongConnectedComponents(this.adjList);
-		int s = 0;
-
-		while (true) {
-			SCCResult sccResult = sccs.getAdjacencyList(s);
-			if (sccResult != null && sccResult.getAdjList() != null) {
-				ArrayList[] scc = sccResult.getAdjList();
-				s = sccResult.getLowestNodeId();
-				for (int j = 0; j < scc.length; j++) {
-					if ((scc[j] != null) && (scc[j].size() > 0)) {
-						this.blocked[j] = false;
-						this.B[j] = new ArrayList();
-                                                if(selfLoopsSCC.contains(j)){
-                                                    selfLoopsSCC.remove(selfLoopsSCC.indexOf(j));
-                                                }
-					}
-				}
+		this.visit(new CycleCollector(false), maxLength, true, allSelfLoopsSCC);
+		return this.cycles;
+	}
 
-				this.findCyclesNSL(s, s, scc,maxLength);
-                                
-				s++;
-			} else {
-				break;
-			}
+	/**
+	 * Returns the elementary cycles of the graph like
+	 * {@link #getElementaryCycles(int)}, with the length, limits and
+	 * callbacks of the options. If a limit is reached or the search is
+	 * cancelled, the result holds the cycles found up to then and is marked
+	 * as truncated.
+	 *
+	 * @param options options of the search
+	 * @return the found cycles
+	 */
+	public SearchResult getElementaryCycles(SearchOptions options) {
+		return this.search(options, new CycleCollector(true), false);
+	}
+
+	/**
+	 * Returns the cycles of {@link #getElementaryCyclesNSL()}, or of
+	 * {@link #getElementaryCyclesNSL(int)} if the options limit the length,
+	 * with the options of the search.
+	 *
+	 * @param options options of the search
+	 * @return the found cycles
+	 * @see #getElementaryCycles(SearchOptions)
+	 */
+	public SearchResult getElementaryCyclesNSL(SearchOptions options) {
+		if (options.getMaxLength() == Integer.MAX_VALUE) {
+			return this.search(options, new CycleCollector(false), true, allSelfLoopsSCCComple, allSelfLoopsSCCCompos);
 		}
+		return this.search(options, new CycleCollector(false), true, allSelfLoopsSCC);
+	}
 
-		return this.cycles;
+	/**
+	 * Counts the elementary cycles of the graph by their length, without
+	 * building them. The cycles of length one are counted like
+	 * {@link #getElementaryCycles()} returns them.
+	 *
+	 * @return number of cycles of each length
+	 */
+	public CycleCounter countElementaryCycles() {
+		CycleCounter counter = new CycleCounter();
+		this.visit(counter, Integer.MAX_VALUE, false);
+		return counter;
 	}
-	
-        
-        
+
 	/**
-	 * Calculates the cycles containing a given node in a strongly connected
-	 * component. The method calls itself recursively.
+	 * Counts the elementary cycles of the graph up to a length.
 	 *
-	 * @param v
-	 * @param s
-	 * @param adjList adjacency-list with the subgraph of the strongly
-	 * connected component s is part of.
-         * @param maxCycleLength The method will only look for cycles of less 
-         * or equal than this length
-	 * @return true, if cycle found; false otherwise
+	 * @param maxCycleLength cycles longer than this are not counted
+	 * @return number of cycles of each length
+	 * @see #countElementaryCycles()
 	 */
-	private boolean findCycles(int v, int s, ArrayList[] adjList, int maxCycleLength) {
-		boolean f = false;
-                Integer Index;
-                String[] cycleNames;
-		this.stack.add(new Integer(v));
-		this.blocked[v] = true;
-                //This is th cutoff of the max stack size, so that we do not run out of memory
-                if(stack.size()>maxCycleLength){
-                    f=true;
-                }
-                else{
-                    if (graphNodes[v].startsWith("-")){
-                        Index=new Integer(graphNodesList.indexOf(graphNodes[v].split("-")[1]));
-                        if (stack.contains(Index)){
-                            f=true;
-                        }
-                    }
-                    else if (Math.rint(Double.parseDouble(graphNodes[v]))==Double.parseDouble(graphNodes[v])){
-                        Index=new Integer(graphNodesList.indexOf("-"+Integer.valueOf(graphNodes[v])));
-                        if (stack.contains(Index)){
-                            f=true;
-                        }
-                    }
-                }
-                
-                
-                if(!f){
-                    for (int i = 0; i < adjList[v].size(); i++) {
-                            int w = ((Integer) adjList[v].get(i)).intValue();
-                            // found cycle
-                            if (w == s) {
-                                    ArrayList<String> cycle = new ArrayList<String>();
-                                    for (int j = 0; j < this.stack.size(); j++) {
-                                            int index = ((Integer) this.stack.get(j)).intValue();
-                                            cycle.add(this.graphNodes[index]);
-                                    }
-                                    cycleNames=new String[cycle.size()];
-                                    cycleNames=cycle.toArray(cycleNames);
-                                    Arrays.sort(cycleNames);
-                                    cycle = new ArrayList(Arrays.asList(cycleNames));                                   
-                                    this.cycles.add(cycle);
-                                    f = true;
-                                                                     
-                            } else if (!this.blocked[w]) {
-                                    if (this.findCycles(w, s, adjList,maxCycleLength)) {
-                                            f = true;
-                                    }
-                            }
-                    }
-                }
-		if (f) {
-			this.unblock(v);
-		} else {
-			for (int i = 0; i < adjList[v].size(); i++) {
-				int w = ((Integer) adjList[v].get(i)).intValue();
-				if (!this.B[w].contains(new Integer(v))) {
-					this.B[w].add(new Integer(v));
+	public CycleCounter countElementaryCycles(int maxCycleLength) {
+		CycleCounter counter = new CycleCounter();
+		this.visit(counter, maxCycleLength, false);
+		return counter;
+	}
+
+	/**
+	 * Counts the cycles of {@link #getElementaryCyclesNSL()} by their length.
+	 *
+	 * @return number of cycles of each length
+	 * @see #countElementaryCycles()
+	 */
+	public CycleCounter countElementaryCyclesNSL() {
+		CycleCounter counter = new CycleCounter();
+		this.visit(counter, Integer.MAX_VALUE, true, allSelfLoopsSCCComple, allSelfLoopsSCCCompos);
+		return counter;
+	}
+
+	/**
+	 * Counts the cycles of {@link #getElementaryCyclesNSL(int)} by their
+	 * length.
+	 *
+	 * @param maxLength cycles longer than this are not counted
+	 * @return number of cycles of each length
+	 * @see #countElementaryCycles()
+	 */
+	public CycleCounter countElementaryCyclesNSL(int maxLength) {
+		CycleCounter counter = new CycleCounter();
+		this.visit(counter, maxLength, true, allSelfLoopsSCC);
+		return counter;
+	}
+
+	/**
+	 * Passes all elementary cycles of the graph to a visitor, in the order of
+	 * {@link #getElementaryCycles()}, without keeping them. The nodes of a
+	 * cycle are passed in the order of the cycle, not sorted by name.
+	 *
+	 * @param visitor receives the cycles
+	 * @return true, if all cycles have been visited; false, if the visitor
+	 * stopped the search
+	 */
+	public boolean visitElementaryCycles(CycleVisitor visitor) {
+		return this.visit(visitor, Integer.MAX_VALUE, false);
+	}
+
+	/**
+	 * Passes all elementary cycles of the graph up to a length to a visitor.
+	 *
+	 * @param visitor receives the cycles
+	 * @param maxCycleLength cycles longer than this are not searched
+	 * @return true, if all cycles have been visited; false, if the visitor
+	 * stopped the search
+	 * @see #visitElementaryCycles(CycleVisitor)
+	 */
+	public boolean visitElementaryCycles(CycleVisitor visitor, int maxCycleLength) {
+		return this.visit(visitor, maxCycleLength, false);
+	}
+
+	/**
+	 * Passes the cycles of {@link #getElementaryCyclesNSL()} to a visitor.
+	 *
+	 * @param visitor receives the cycles
+	 * @return true, if all cycles have been visited; false, if the visitor
+	 * stopped the search
+	 * @see #visitElementaryCycles(CycleVisitor)
+	 */
+	public boolean visitElementaryCyclesNSL(CycleVisitor visitor) {
+		return this.visit(visitor, Integer.MAX_VALUE, true, allSelfLoopsSCCComple, allSelfLoopsSCCCompos);
+	}
+
+	/**
+	 * Passes the cycles of {@link #getElementaryCyclesNSL(int)} to a visitor.
+	 *
+	 * @param visitor receives the cycles
+	 * @param maxLength cycles longer than this are not searched
+	 * @return true, if all cycles have been visited; false, if the visitor
+	 * stopped the search
+	 * @see #visitElementaryCycles(CycleVisitor)
+	 */
+	public boolean visitElementaryCyclesNSL(CycleVisitor visitor, int maxLength) {
+		return this.visit(visitor, maxLength, true, allSelfLoopsSCC);
+	}
+
+	/**
+	 * Searches the cycles of all components of the algorithm of Johnson and
+	 * passes them to a visitor, followed by the cycles of length one outside
+	 * of the components.
+	 *
+	 * @param visitor receives the cycles
+	 * @param maxLength cycles longer than this are not searched
+	 * @param noSelfLoops true, if no cycles of length one are added
+	 * @param cutoffNodes nodes at which the search is cut off
+	 * @return true, if the visitor did not stop the search
+	 */
+	private boolean visit(CycleVisitor visitor, int maxLength, boolean noSelfLoops, ArrayList... cutoffNodes) {
+		return this.visit(new Engine(visitor, cutoffNodes), maxLength, noSelfLoops);
+	}
+
+	/**
+	 * Searches the cycles with the options of the search.
+	 */
+	private SearchResult search(SearchOptions options, CycleCollector collector, boolean noSelfLoops, ArrayList... cutoffNodes) {
+		this.cycles = new ArrayList();
+		SearchControl control = new SearchControl(options, collector);
+		Engine engine = new Engine(control, cutoffNodes);
+		engine.control = control;
+		engine.setNextCheckpoint(control.getNextCheckpoint(0));
+		this.visit(engine, options.getMaxLength(), noSelfLoops);
+		SearchStats stats = engine.getStats();
+		stats.decompositionNanos = this.getDecomposition().getNanos();
+		return control.getResult(this.cycles, stats);
+	}
+
+	/**
+	 * Runs the search with an engine; if the engine has a control, the
+	 * progress is reported to it after every component.
+	 */
+	private boolean visit(Engine engine, int maxLength, boolean noSelfLoops) {
+		SCCDecomposition sccs = this.getDecomposition();
+		if (noSelfLoops) {
+			this.removeComponentSelfLoops(sccs);
+		}
+
+		// the search finds the self-loops of the start nodes
+		boolean[] startNode = new boolean[this.graph.getNodeCount()];
+		boolean cached = this.cache != null && engine.control == null;
+		for (int step = 0; step < sccs.getStepCount(); step++) {
+			startNode[sccs.getStartNode(step)] = maxLength > 0;
+		}
+		if (cached && !this.cache.visit(engine, this.graph, sccs, maxLength, this.graphNodes,
+				CycleCache.STABLE | (noSelfLoops ? CycleCache.NO_SELF_LOOPS : 0), this.complementOf)) {
+			return false;
+		}
+		for (int step = 0; step < sccs.getStepCount() && !cached; step++) {
+			if (!engine.search(sccs, step, maxLength)) {
+				return false;
+			}
+			if (engine.control != null) {
+				engine.control.componentDone(sccs.getStartNode(step), step + 1, sccs.getStepCount());
+			}
+		}
+
+		if (!noSelfLoops) {
+			int[] path = new int[1];
+			for (int i = 0; i < selfLoopsSCC.size(); i++) {
+				path[0] = ((Integer) selfLoopsSCC.get(i)).intValue();
+				if (!startNode[path[0]] && !engine.visitor.visitCycle(path, 1)) {
+					return false;
 				}
 			}
 		}
+		return true;
+	}
+
+	/**
+	 * Visitor adding the found cycles as lists of node names to the list of
+	 * cycles.
+	 */
+	private class CycleCollector implements CycleVisitor {
+		/** Sort the names of each found cycle */
+		private boolean sortNames = false;
+
+		CycleCollector(boolean sortNames) {
+			this.sortNames = sortNames;
+		}
 
-		this.stack.remove(new Integer(v));
-		return f;
+		public boolean visitCycle(int[] path, int length) {
+			ArrayList<String> cycle = new ArrayList<String>();
+			for (int j = 0; j < length; j++) {
+				cycle.add(graphNodes[path[j]]);
+			}
+			if (this.sortNames) {
+				String[] cycleNames = new String[cycle.size()];
+				cycleNames = cycle.toArray(cycleNames);
+				Arrays.sort(cycleNames);
+				cycle = new ArrayList(Arrays.asList(cycleNames));
+			}
+			cycles.add(cycle);
+			return true;
+		}
 	}
 
+	/**
+	 * Search engine passing the found cycles to a visitor. The search is cut
+	 * off at every node whose complement is already on the current path.
+	 */
+	private class Engine extends CycleSearchEngine {
+		/** Visitor receiving the found cycles */
+		private CycleVisitor visitor = null;
+
+		/** Nodes left out of the search */
+		private long[] excludedNodes = null;
+
+		/** Position on the path, for every node that has been put on it */
+		private int[] position = null;
+
+		/** Limits of the search; null for none */
+		private SearchControl control = null;
+
+		Engine(CycleVisitor visitor, ArrayList... cutoffNodes) {
+			super(graph, workspace != null ? workspace : new SearchWorkspace(graph.getNodeCount(), graph.getEdgeCount()));
+			this.visitor = visitor;
+			this.getWorkspace().allocateNodeArrays();
+			this.position = this.getWorkspace().position;
+			this.excludedNodes = this.getWorkspace().nodeBits;
+			for (int i = 0; i < cutoffNodes.length; i++) {
+				for (int j = 0; j < cutoffNodes[i].size(); j++) {
+					int v = ((Integer) cutoffNodes[i].get(j)).intValue();
+					this.excludedNodes[v >>> 6] |= 1L << v;
+				}
+			}
+		}
 
+		protected boolean cycleFound(int[] path, int length) {
+			return this.visitor.visitCycle(path, length);
+		}
 
-}
+		protected boolean excluded(int v) {
+			return (this.excludedNodes[v >>> 6] & (1L << v)) != 0;
+		}
 
+		protected boolean checkpoint(long visitedNodes) {
+			if (this.control == null || !this.control.checkpoint(visitedNodes)) {
+				return false;
+			}
+			this.setNextCheckpoint(this.control.getNextCheckpoint(visitedNodes));
+			return true;
+		}
+
+		protected boolean cutoff(int v, int[] path, int length) {
+			this.position[v] = length - 1;
+			int complement = complementOf[v];
+			if (nodeKind[v] == UNREADABLE) {
+				complement = complementByName(v);
+			}
+			if (complement < 0) {
+				return false;
+			}
+			// the complement is on the path, if it is still at the position it was put on
+			int p = this.position[complement];
+			return p < length && path[p] == complement;
+		}
+	}
+}
@@ -0,0 +1,360 @@
+package de.normalisiert.utils.graphs;
+
+import java.util.Arrays;
+
+
+/**
+ * Reduction of a graph to a smaller graph with the same elementary cycles.
+ * Two steps are applied:
+ * <ul>
+ * <li>Nodes without predecessors or without successors lie on no cycle and
+ * are removed, repeatedly, until every remaining node has both; this
+ * removes sources, sinks and the trees hanging off the cycles.</li>
+ * <li>Optionally, chains of nodes with exactly one predecessor and one
+ * successor are contracted into single edges, which remember the nodes
+ * they stand for. A chain is not contracted completely, if its edge would
+ * be a self-loop or parallel to another edge; then its first node is
+ * kept.</li>
+ * </ul>
+ * Every elementary cycle of the reduced graph stands for exactly one
+ * elementary cycle of the graph, which {@link #expand(int[], int, int[])}
+ * returns. With contracted chains the cycles of the reduced graph are
+ * shorter, so a search for cycles up to a length needs the graph without
+ * contracted chains.<br><br>
+ *
+ * The remaining nodes keep their order: node i of the reduced graph is the
+ * i-th remaining node of the graph.
+ *
+ */
+public class GraphReduction {
+	/** Number of nodes of the graph */
+	private int nodeCount = 0;
+
+	/** Reduced graph */
+	private CompactGraph reducedGraph = null;
+
+	/** Node of the graph for each node of the reduced graph */
+	private int[] originalOf = null;
+
+	/** Node of the reduced graph for each node of the graph, -1 if removed */
+	private int[] reducedOf = null;
+
+	/** Start of the hidden nodes of each edge of the reduced graph */
+	private int[] hiddenOffsets = null;
+
+	/** Nodes of the contracted chains, edge by edge */
+	private int[] hiddenNodes = null;
+
+	/** Number of nodes removed because they lie on no cycle */
+	private int removedCount = 0;
+
+	/**
+	 * Constructor, reduces the graph.
+	 *
+	 * @param graph the graph
+	 * @param contractChains true to contract chains into single edges;
+	 * false to remove only the nodes that lie on no cycle
+	 */
+	public GraphReduction(CompactGraph graph, boolean contractChains) {
+		CompactGraph g = graph.withReverseIndex();
+		int n = g.getNodeCount();
+		this.nodeCount = n;
+
+		// remove nodes without predecessors or successors
+		int[] inDegree = new int[n];
+		int[] outDegree = new int[n];
+		boolean[] removed = new boolean[n];
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		for (int v = 0; v < n; v++) {
+			inDegree[v] = g.getInDegree(v);
+			outDegree[v] = g.getOutDegree(v);
+			if (inDegree[v] == 0 || outDegree[v] == 0) {
+				removed[v] = true;
+				queue[tail++] = v;
+			}
+		}
+		while (head < tail) {
+			int v = queue[head++];
+			for (int e = g.getEdgeStart(v); e < g.getEdgeEnd(v); e++) {
+				int w = g.getTarget(e);
+				if (!removed[w] && --inDegree[w] == 0) {
+					removed[w] = true;
+					queue[tail++] = w;
+				}
+			}
+			for (int e = g.getInEdgeStart(v); e < g.getInEdgeEnd(v); e++) {
+				int u = g.getSource(e);
+				if (!removed[u] && --outDegree[u] == 0) {
+					removed[u] = true;
+					queue[tail++] = u;
+				}
+			}
+		}
+		this.removedCount = tail;
+
+		// kept nodes; without contraction every remaining node is kept
+		boolean[] kept = new boolean[n];
+		for (int v = 0; v < n; v++) {
+			kept[v] = !removed[v];
+			if (contractChains && kept[v] && inDegree[v] == 1 && outDegree[v] == 1 && !g.hasEdge(v, v)) {
+				kept[v] = false;
+			}
+		}
+
+		// the nodes of a chain closed in itself are reached from no kept node,
+		// two of them are kept
+		if (contractChains) {
+			boolean[] reached = new boolean[n];
+			for (int v = 0; v < n; v++) {
+				if (kept[v]) {
+					for (int e = g.getEdgeStart(v); e < g.getEdgeEnd(v); e++) {
+						for (int w = g.getTarget(e); !removed[w] && !kept[w] && !reached[w]; w = this.successor(g, w, removed)) {
+							reached[w] = true;
+						}
+					}
+				}
+			}
+			for (int v = 0; v < n; v++) {
+				if (!removed[v] && !kept[v] && !reached[v]) {
+					kept[v] = true;
+					kept[this.successor(g, v, removed)] = true;
+					for (int w = v; !reached[w]; w = this.successor(g, w, removed)) {
+						reached[w] = true;
+					}
+				}
+			}
+		}
+
+		// a contracted edge must be no self-loop and not parallel to another
+		// edge; otherwise the first node of its chain is kept
+		if (contractChains) {
+			int[] edgeTo = new int[n];
+			Arrays.fill(edgeTo, -1);
+			for (int v = 0; v < n; v++) {
+				if (!kept[v]) {
+					continue;
+				}
+				for (int e = g.getEdgeStart(v); e < g.getEdgeEnd(v); e++) {
+					if (kept[g.getTarget(e)]) {
+						edgeTo[g.getTarget(e)] = v;
+					}
+				}
+				for (int e = g.getEdgeStart(v); e < g.getEdgeEnd(v); e++) {
+					int w = g.getTarget(e);
+					if (removed[w] || kept[w]) {
+						continue;
+					}
+					int end = w;
+					while (!kept[end]) {
+						end = this.successor(g, end, removed);
+					}
+					if (end == v || edgeTo[end] == v) {
+						kept[w] = true;
+					} else {
+						edgeTo[end] = v;
+					}
+				}
+			}
+		}
+
+		// edges between kept nodes, with the nodes of the chains between them
+		int m = 0;
+		int[] src = new int[16];
+		int[] dst = new int[16];
+		int[] hiddenFrom = new int[17];
+		int[] hidden = new int[16];
+		int hiddenCount = 0;
+		for (int v = 0; v < n; v++) {
+			if (!kept[v]) {
+				continue;
+			}
+			for (int e = g.getEdgeStart(v); e < g.getEdgeEnd(v); e++) {
+				int w = g.getTarget(e);
+				if (removed[w]) {
+					continue;
+				}
+				while (!kept[w]) {
+					if (hiddenCount == hidden.length) {
+						hidden = Arrays.copyOf(hidden, 2 * hiddenCount);
+					}
+					hidden[hiddenCount++] = w;
+					w = this.successor(g, w, removed);
+				}
+				if (m + 1 == src.length) {
+					src = Arrays.copyOf(src, 2 * m);
+					dst = Arrays.copyOf(dst, 2 * m);
+					hiddenFrom = Arrays.copyOf(hiddenFrom, 2 * m + 1);
+				}
+				src[m] = v;
+				dst[m] = w;
+				hiddenFrom[++m] = hiddenCount;
+			}
+		}
+
+		// numbering of the kept nodes
+		this.reducedOf = new int[n];
+		int count = 0;
+		for (int v = 0; v < n; v++) {
+			this.reducedOf[v] = kept[v] ? count++ : -1;
+		}
+		this.originalOf = new int[count];
+		for (int v = 0; v < n; v++) {
+			if (kept[v]) {
+				this.originalOf[this.reducedOf[v]] = v;
+			}
+		}
+
+		// rows of the reduced graph, sorted by target
+		int[] offsets = new int[count + 1];
+		for (int i = 0; i < m; i++) {
+			offsets[this.reducedOf[src[i]] + 1]++;
+		}
+		for (int v = 0; v < count; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+		long[] order = new long[m];
+		int[] fill = Arrays.copyOf(offsets, count);
+		for (int i = 0; i < m; i++) {
+			order[fill[this.reducedOf[src[i]]]++] = ((long) this.reducedOf[dst[i]] << 32) | i;
+		}
+		int[] targets = new int[m];
+		this.hiddenOffsets = new int[m + 1];
+		this.hiddenNodes = new int[hiddenCount];
+		for (int v = 0; v < count; v++) {
+			Arrays.sort(order, offsets[v], offsets[v + 1]);
+		}
+		for (int e = 0; e < m; e++) {
+			int i = (int) order[e];
+			targets[e] = (int) (order[e] >>> 32);
+			int length = hiddenFrom[i + 1] - hiddenFrom[i];
+			System.arraycopy(hidden, hiddenFrom[i], this.hiddenNodes, this.hiddenOffsets[e], length);
+			this.hiddenOffsets[e + 1] = this.hiddenOffsets[e] + length;
+		}
+		this.reducedGraph = new CompactGraph(offsets, targets);
+	}
+
+	/**
+	 * @return the only successor of a node in a chain, which is not removed
+	 */
+	private int successor(CompactGraph g, int v, boolean[] removed) {
+		for (int e = g.getEdgeStart(v); ; e++) {
+			if (!removed[g.getTarget(e)]) {
+				return g.getTarget(e);
+			}
+		}
+	}
+
+	/**
+	 * @return the reduced graph
+	 */
+	public CompactGraph getReducedGraph() {
+		return this.reducedGraph;
+	}
+
+	/**
+	 * @return number of nodes of the graph
+	 */
+	public int getOriginalNodeCount() {
+		return this.nodeCount;
+	}
+
+	/**
+	 * @param v node of the reduced graph
+	 * @return the node of the graph
+	 */
+	public int getOriginalNode(int v) {
+		return this.originalOf[v];
+	}
+
+	/**
+	 * @param v node of the graph
+	 * @return the node of the reduced graph; -1, if the node is removed or
+	 * part of a contracted chain
+	 */
+	public int getReducedNode(int v) {
+		return this.reducedOf[v];
+	}
+
+	/**
+	 * @return number of nodes removed because they lie on no cycle
+	 */
+	public int getRemovedNodeCount() {
+		return this.removedCount;
+	}
+
+	/**
+	 * @return number of nodes hidden in contracted chains
+	 */
+	public int getContractedNodeCount() {
+		return this.hiddenNodes.length;
+	}
+
+	/**
+	 * Returns the cycle of the graph a cycle of the reduced graph stands
+	 * for, starting with its least node.
+	 *
+	 * @param path nodes of the cycle of the reduced graph in the first length
+	 * entries
+	 * @param length number of nodes of the cycle
+	 * @param cycle receives the nodes of the cycle of the graph; needs room
+	 * for all nodes of the graph in the worst case
+	 * @return number of nodes of the cycle of the graph
+	 */
+	public int expand(int[] path, int length, int[] cycle) {
+		int k = 0;
+		int least = 0;
+		for (int i = 0; i < length; i++) {
+			int v = path[i];
+			int w = path[i + 1 < length ? i + 1 : 0];
+			if (this.originalOf[v] < this.originalOf[path[least]]) {
+				least = i;
+			}
+			cycle[k++] = this.originalOf[v];
+			int e = this.findEdge(v, w);
+			for (int h = this.hiddenOffsets[e]; h < this.hiddenOffsets[e + 1]; h++) {
+				cycle[k++] = this.hiddenNodes[h];
+			}
+		}
+
+		// the least node to the front; the hidden nodes may be less
+		int first = 0;
+		for (int i = 1; i < k; i++) {
+			if (cycle[i] < cycle[first]) {
+				first = i;
+			}
+		}
+		if (first > 0) {
+			reverse(cycle, 0, first);
+			reverse(cycle, first, k);
+			reverse(cycle, 0, k);
+		}
+		return k;
+	}
+
+	/**
+	 * @return index of the edge from v to w in the reduced graph
+	 */
+	private int findEdge(int v, int w) {
+		int low = this.reducedGraph.getEdgeStart(v);
+		int high = this.reducedGraph.getEdgeEnd(v) - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (this.reducedGraph.getTarget(mid) < w) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static void reverse(int[] a, int from, int to) {
+		for (int i = from, j = to - 1; i < j; i++, j--) {
+			int t = a[i];
+			a[i] = a[j];
+			a[j] = t;
+		}
+	}
+}
@@ -0,0 +1,368 @@
+package de.normalisiert.utils.graphs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+
+/**
+ * Graph read directly from a memory-mapped file. Opening the file maps it
+ * into memory and does not copy it, so it takes only milliseconds; the
+ * operating system loads the pages when the search reads them.<br><br>
+ *
+ * The edges stay in the file, but the search keeps its work arrays on the
+ * heap: about 50 bytes per node, one bit per edge, and 12 bytes for every
+ * entry of the B-lists present at the same time, at most one per edge. So
+ * a graph with far more edges than nodes can be searched in a heap smaller
+ * than the file, as long as its nodes fit; a file of 84 MB with 1 million
+ * nodes and 20 million edges is searched in 80 MB of heap.<br><br>
+ *
+ * The file holds, in little-endian byte order:
+ * <ul>
+ * <li>a header of five ints: the magic number {@link #MAGIC}, the version,
+ * flags telling which optional parts follow, the number n of nodes and the
+ * number m of edges,</li>
+ * <li>the n + 1 offsets and the m targets of the graph, as described for
+ * {@link CompactGraph},</li>
+ * <li>optionally the strong connected component of every node, n ints,</li>
+ * <li>optionally the labels of the nodes: n + 1 ints with the start of
+ * every label, followed by the labels in UTF-8.</li>
+ * </ul>
+ * Files are written by {@link #write(File, CompactGraph, String[], int[])}.
+ *
+ */
+public class MappedGraph extends CompactGraph {
+	/** Magic number at the start of every graph file */
+	public static final int MAGIC = 0x4A434731;
+
+	/** Version of the file format */
+	public static final int VERSION = 1;
+
+	/** Flag for the component of every node */
+	private static final int HAS_COMPONENTS = 1;
+
+	/** Flag for the labels of the nodes */
+	private static final int HAS_LABELS = 2;
+
+	/** Size of the header in bytes */
+	private static final int HEADER_SIZE = 20;
+
+	/** Number of nodes */
+	private int nodeCount = 0;
+
+	/** Number of edges */
+	private int edgeCount = 0;
+
+	/** Start of the successors of each node */
+	private IntArea offsets = null;
+
+	/** Successors of all nodes, row by row */
+	private IntArea targets = null;
+
+	/** Component of each node, null if not stored */
+	private IntArea components = null;
+
+	/** Start of the label of each node, null if not stored */
+	private IntArea labelOffsets = null;
+
+	/** Labels of all nodes in UTF-8 */
+	private ByteBuffer labels = null;
+
+	private MappedGraph() {
+	}
+
+	/**
+	 * Opens a graph file.
+	 *
+	 * @param file the file
+	 * @return the graph
+	 * @throws IOException if the file cannot be read or is not a graph file
+	 */
+	public static MappedGraph open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException(file + " is not a graph file");
+			}
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt(0) != MAGIC) {
+				throw new IOException(file + " is not a graph file");
+			}
+			if (header.getInt(4) != VERSION) {
+				throw new IOException(file + " has version " + header.getInt(4) + ", expected " + VERSION);
+			}
+
+			MappedGraph graph = new MappedGraph();
+			int flags = header.getInt(8);
+			graph.nodeCount = header.getInt(12);
+			graph.edgeCount = header.getInt(16);
+
+			long position = HEADER_SIZE;
+			long size = HEADER_SIZE + 4L * (graph.nodeCount + 1) + 4L * graph.edgeCount;
+			if ((flags & HAS_COMPONENTS) != 0) {
+				size += 4L * graph.nodeCount;
+			}
+			if ((flags & HAS_LABELS) != 0) {
+				size += 4L * (graph.nodeCount + 1);
+			}
+			if (channel.size() < size) {
+				throw new IOException(file + " is truncated");
+			}
+
+			graph.offsets = new IntArea(channel, position, graph.nodeCount + 1);
+			position += 4L * (graph.nodeCount + 1);
+			graph.targets = new IntArea(channel, position, graph.edgeCount);
+			position += 4L * graph.edgeCount;
+			if ((flags & HAS_COMPONENTS) != 0) {
+				graph.components = new IntArea(channel, position, graph.nodeCount);
+				position += 4L * graph.nodeCount;
+			}
+			if ((flags & HAS_LABELS) != 0) {
+				graph.labelOffsets = new IntArea(channel, position, graph.nodeCount + 1);
+				position += 4L * (graph.nodeCount + 1);
+				graph.labels = channel.map(FileChannel.MapMode.READ_ONLY, position, graph.labelOffsets.get(graph.nodeCount));
+			}
+			return graph;
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Writes a graph file.
+	 *
+	 * @param file the file
+	 * @param graph the graph
+	 * @param labels labels of the nodes; null to write no labels
+	 * @param componentIds strong connected component of every node, for
+	 * example from {@link SCCPartition#getComponentIds()}; null to write no
+	 * components
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(File file, CompactGraph graph, String[] labels, int[] componentIds) throws IOException {
+		Charset utf8 = Charset.forName("UTF-8");
+		int n = graph.getNodeCount();
+		int flags = (componentIds != null ? HAS_COMPONENTS : 0) | (labels != null ? HAS_LABELS : 0);
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			FileChannel channel = raf.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(n).putInt(graph.getEdgeCount());
+			for (int v = 0; v <= n; v++) {
+				putInt(channel, buffer, v < n ? graph.getEdgeStart(v) : graph.getEdgeCount());
+			}
+			for (int e = 0; e < graph.getEdgeCount(); e++) {
+				putInt(channel, buffer, graph.getTarget(e));
+			}
+			if (componentIds != null) {
+				for (int v = 0; v < n; v++) {
+					putInt(channel, buffer, componentIds[v]);
+				}
+			}
+			if (labels != null) {
+				byte[][] bytes = new byte[n][];
+				int start = 0;
+				for (int v = 0; v < n; v++) {
+					bytes[v] = labels[v].getBytes(utf8);
+					putInt(channel, buffer, start);
+					start += bytes[v].length;
+				}
+				putInt(channel, buffer, start);
+				for (int v = 0; v < n; v++) {
+					for (int i = 0; i < bytes[v].length; i++) {
+						if (!buffer.hasRemaining()) {
+							flush(channel, buffer);
+						}
+						buffer.put(bytes[v][i]);
+					}
+				}
+			}
+			flush(channel, buffer);
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static void putInt(FileChannel channel, ByteBuffer buffer, int value) throws IOException {
+		if (buffer.remaining() < 4) {
+			flush(channel, buffer);
+		}
+		buffer.putInt(value);
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	public int getEdgeCount() {
+		return this.edgeCount;
+	}
+
+	public int getEdgeStart(int v) {
+		return this.offsets.get(v);
+	}
+
+	public int getEdgeEnd(int v) {
+		return this.offsets.get(v + 1);
+	}
+
+	public int getTarget(int e) {
+		return this.targets.get(e);
+	}
+
+	public int getOutDegree(int v) {
+		return this.offsets.get(v + 1) - this.offsets.get(v);
+	}
+
+	public boolean hasEdge(int v, int w) {
+		int low = this.offsets.get(v);
+		int high = this.offsets.get(v + 1) - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int target = this.targets.get(mid);
+			if (target < w) {
+				low = mid + 1;
+			} else if (target > w) {
+				high = mid - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the graph with reverse index. The reverse index is built on
+	 * the heap, together with a copy of the graph.
+	 *
+	 * @return graph with reverse index
+	 */
+	public CompactGraph withReverseIndex() {
+		return this.toCompactGraph().withReverseIndex();
+	}
+
+	/**
+	 * @return copy of the graph on the heap
+	 */
+	public CompactGraph toCompactGraph() {
+		int[] offsets = new int[this.nodeCount + 1];
+		for (int v = 0; v <= this.nodeCount; v++) {
+			offsets[v] = this.offsets.get(v);
+		}
+		int[] targets = new int[this.edgeCount];
+		for (int e = 0; e < this.edgeCount; e++) {
+			targets[e] = this.targets.get(e);
+		}
+		return new CompactGraph(offsets, targets);
+	}
+
+	public int[][] toAdjacencyList() {
+		int[][] list = new int[this.nodeCount][];
+		for (int v = 0; v < this.nodeCount; v++) {
+			list[v] = new int[this.getOutDegree(v)];
+			for (int i = 0; i < list[v].length; i++) {
+				list[v][i] = this.targets.get(this.offsets.get(v) + i);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * @return true, if the file holds the strong connected component of
+	 * every node
+	 */
+	public boolean hasComponentIds() {
+		return this.components != null;
+	}
+
+	/**
+	 * @return stored strong connected component of every node; null, if the
+	 * file holds no components
+	 */
+	public int[] getComponentIds() {
+		if (this.components == null) {
+			return null;
+		}
+		int[] componentIds = new int[this.nodeCount];
+		for (int v = 0; v < this.nodeCount; v++) {
+			componentIds[v] = this.components.get(v);
+		}
+		return componentIds;
+	}
+
+	/**
+	 * @return true, if the file holds the labels of the nodes
+	 */
+	public boolean hasLabels() {
+		return this.labels != null;
+	}
+
+	/**
+	 * @param v node
+	 * @return label of the node
+	 */
+	public String getLabel(int v) {
+		int start = this.labelOffsets.get(v);
+		byte[] bytes = new byte[this.labelOffsets.get(v + 1) - start];
+		ByteBuffer label = this.labels.duplicate();
+		label.position(start);
+		label.get(bytes);
+		return new String(bytes, Charset.forName("UTF-8"));
+	}
+
+	/**
+	 * @return labels of all nodes, for example as graphnodes of a search
+	 */
+	public String[] getLabels() {
+		String[] labels = new String[this.nodeCount];
+		for (int v = 0; v < this.nodeCount; v++) {
+			labels[v] = this.getLabel(v);
+		}
+		return labels;
+	}
+
+	/**
+	 * Array of ints in a file, mapped in segments, since a single mapping is
+	 * limited to 2 GB.
+	 */
+	private static class IntArea {
+		/** Number of ints of a segment is 2^SHIFT */
+		private static final int SHIFT = 28;
+
+		private static final int MASK = (1 << SHIFT) - 1;
+
+		/** Segments */
+		private IntBuffer[] segments = null;
+
+		IntArea(FileChannel channel, long position, int length) throws IOException {
+			this.segments = new IntBuffer[(int) (((long) length + MASK) >>> SHIFT)];
+			for (int i = 0; i < this.segments.length; i++) {
+				long start = (long) i << SHIFT;
+				long size = Math.min(1L << SHIFT, length - start);
+				this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + 4 * start, 4 * size)
+						.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			}
+		}
+
+		int get(int i) {
+			return this.segments[i >>> SHIFT].get(i & MASK);
+		}
+	}
+}
@@ -0,0 +1,365 @@
+package de.normalisiert.utils.graphs;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+
+/**
+ * Graph prepared for many searches of elementary cycles, which may run
+ * concurrently in several threads. The graph, the components of the
+ * algorithm of Johnson and the self-loops are computed once by the
+ * constructor and never changed afterwards, so one instance can serve all
+ * threads.<br><br>
+ *
+ * Every search borrows a workspace with the work arrays of the search, the
+ * blocked nodes, the B-lists and the path, from a pool and gives it back
+ * when it is done. A workspace is not cleared between searches: the nodes
+ * of a component are marked with a counter of the steps and reset when
+ * their component is searched, so a search only touches the nodes it
+ * searches. The pool holds as many workspaces as searches have run at the
+ * same time.<br><br>
+ *
+ * The searches return the same cycles in the same order as the searches of
+ * {@link ElementaryCyclesSearch} on a graph given by an adjacency-list.
+ *
+ */
+public class PreparedGraph {
+	/** Graph */
+	private final CompactGraph graph;
+
+	/** Graphnodes */
+	private final Object[] graphNodes;
+
+	/** Components of the algorithm of Johnson */
+	private final SCCDecomposition decomposition;
+
+	/** Nodes with self-loops */
+	private final long[] selfLoops;
+
+	/** Nodes with self-loops outside of the components, ascending */
+	private final int[] outsideSelfLoops;
+
+	/** Idle workspaces */
+	private final ConcurrentLinkedQueue pool = new ConcurrentLinkedQueue();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param graph the graph
+	 * @param graphNodes array of the graphnodes of the graph; this is used to
+	 * build sets of the elementary cycles containing the objects of the original
+	 * graph-representation
+	 */
+	public PreparedGraph(CompactGraph graph, Object[] graphNodes) {
+		int n = graph.getNodeCount();
+		this.graph = graph;
+		this.graphNodes = graphNodes;
+		this.decomposition = new SCCDecomposition(graph);
+
+		boolean[] cyclic = new boolean[n];
+		for (int i = 0; i < this.decomposition.getCyclicNodeCount(); i++) {
+			cyclic[this.decomposition.getNode(i)] = true;
+		}
+		this.selfLoops = new long[(n + 63) >>> 6];
+		int count = 0;
+		int[] outside = new int[n];
+		for (int v = 0; v < n; v++) {
+			if (graph.hasEdge(v, v)) {
+				this.selfLoops[v >>> 6] |= 1L << v;
+				if (!cyclic[v]) {
+					outside[count++] = v;
+				}
+			}
+		}
+		this.outsideSelfLoops = new int[count];
+		System.arraycopy(outside, 0, this.outsideSelfLoops, 0, count);
+	}
+
+	/**
+	 * Prepares the graph for a given adjacency-list, which is not changed.
+	 *
+	 * @param adjList adjacency-list of the graph
+	 * @param graphNodes array of the graphnodes of the graph
+	 * @return the prepared graph
+	 */
+	public static PreparedGraph fromAdjacencyList(int[][] adjList, Object[] graphNodes) {
+		return new PreparedGraph(CompactGraph.fromAdjacencyList(adjList), graphNodes);
+	}
+
+	/**
+	 * Prepares the graph for a given adjacency-matrix.
+	 *
+	 * @param matrix adjacency-matrix of the graph
+	 * @param graphNodes array of the graphnodes of the graph
+	 * @return the prepared graph
+	 */
+	public static PreparedGraph fromMatrix(boolean[][] matrix, Object[] graphNodes) {
+		return new PreparedGraph(CompactGraph.fromMatrix(matrix), graphNodes);
+	}
+
+	/**
+	 * @return the graph
+	 */
+	public CompactGraph getGraph() {
+		return this.graph;
+	}
+
+	/**
+	 * @return the components of the algorithm of Johnson for the graph
+	 */
+	public SCCDecomposition getDecomposition() {
+		return this.decomposition;
+	}
+
+	/**
+	 * @return number of idle workspaces in the pool
+	 */
+	public int getPooledWorkspaceCount() {
+		return this.pool.size();
+	}
+
+	/**
+	 * Returns List::List::Object with the Lists of nodes of all elementary
+	 * cycles in the graph.
+	 *
+	 * @return List::List::Object with the Lists of the elementary cycles.
+	 * @see ElementaryCyclesSearch#getElementaryCycles()
+	 */
+	public ArrayList getElementaryCycles() {
+		return this.collect(Integer.MAX_VALUE, false);
+	}
+
+	/**
+	 * Returns List::List::Object with the Lists of nodes of all elementary
+	 * cycles in the graph up to a length.
+	 *
+	 * @param maxLength cycles longer than this are not searched
+	 * @return List::List::Object with the Lists of the elementary cycles.
+	 * @see ElementaryCyclesSearch#getElementaryCycles(int)
+	 */
+	public ArrayList getElementaryCycles(int maxLength) {
+		return this.collect(maxLength, false);
+	}
+
+	/**
+	 * @return List::List::Object with the Lists of the elementary cycles
+	 * @see ElementaryCyclesSearch#getElementaryCyclesNSL()
+	 */
+	public ArrayList getElementaryCyclesNSL() {
+		return this.collect(Integer.MAX_VALUE, true);
+	}
+
+	/**
+	 * @param maxLength cycles longer than this are not searched
+	 * @return List::List::Object with the Lists of the elementary cycles
+	 * @see ElementaryCyclesSearch#getElementaryCyclesNSL(int)
+	 */
+	public ArrayList getElementaryCyclesNSL(int maxLength) {
+		return this.collect(maxLength, true);
+	}
+
+	/**
+	 * Returns the elementary cycles of the graph with the length, limits and
+	 * callbacks of the options.
+	 *
+	 * @param options options of the search
+	 * @return the found cycles
+	 * @see ElementaryCyclesSearch#getElementaryCycles(SearchOptions)
+	 */
+	public SearchResult getElementaryCycles(SearchOptions options) {
+		return this.search(options, false);
+	}
+
+	/**
+	 * @param options options of the search
+	 * @return the found cycles
+	 * @see ElementaryCyclesSearch#getElementaryCyclesNSL(SearchOptions)
+	 */
+	public SearchResult getElementaryCyclesNSL(SearchOptions options) {
+		return this.search(options, true);
+	}
+
+	/**
+	 * Passes all elementary cycles of the graph to a visitor.
+	 *
+	 * @param visitor receives the cycles
+	 * @return true, if all cycles have been visited; false, if the visitor
+	 * stopped the search
+	 * @see ElementaryCyclesSearch#visitElementaryCycles(CycleVisitor)
+	 */
+	public boolean visitElementaryCycles(CycleVisitor visitor) {
+		return this.visit(visitor, null, Integer.MAX_VALUE, false);
+	}
+
+	/**
+	 * Passes all elementary cycles of the graph up to a length to a visitor.
+	 *
+	 * @param visitor receives the cycles
+	 * @param maxLength cycles longer than this are not searched
+	 * @return true, if all cycles have been visited; false, if the visitor
+	 * stopped the search
+	 */
+	public boolean visitElementaryCycles(CycleVisitor visitor, int maxLength) {
+		return this.visit(visitor, null, maxLength, false);
+	}
+
+	/**
+	 * @param visitor receives the cycles
+	 * @param maxLength cycles longer than this are not searched
+	 * @return true, if all cycles have been visited; false, if the visitor
+	 * stopped the search
+	 * @see ElementaryCyclesSearch#visitElementaryCyclesNSL(CycleVisitor, int)
+	 */
+	public boolean visitElementaryCyclesNSL(CycleVisitor visitor, int maxLength) {
+		return this.visit(visitor, null, maxLength, true);
+	}
+
+	/**
+	 * Counts the elementary cycles of the graph by their length.
+	 *
+	 * @param maxLength cycles longer than this are not counted
+	 * @return number of cycles of each length
+	 * @see ElementaryCyclesSearch#countElementaryCycles(int)
+	 */
+	public CycleCounter countElementaryCycles(int maxLength) {
+		CycleCounter counter = new CycleCounter();
+		this.visit(counter, null, maxLength, false);
+		return counter;
+	}
+
+	private ArrayList collect(int maxLength, boolean noSelfLoops) {
+		ArrayList cycles = new ArrayList();
+		this.visit(new CycleCollector(cycles), null, maxLength, noSelfLoops);
+		return cycles;
+	}
+
+	private SearchResult search(SearchOptions options, boolean noSelfLoops) {
+		ArrayList cycles = new ArrayList();
+		SearchControl control = new SearchControl(options, new CycleCollector(cycles));
+		Workspace workspace = this.borrow(control, control, noSelfLoops);
+		try {
+			this.visit(workspace, options.getMaxLength(), noSelfLoops);
+			SearchStats stats = workspace.getStats();
+			stats.decompositionNanos = this.decomposition.getNanos();
+			return control.getResult(cycles, stats);
+		} finally {
+			this.release(workspace);
+		}
+	}
+
+	private boolean visit(CycleVisitor visitor, SearchControl control, int maxLength, boolean noSelfLoops) {
+		Workspace workspace = this.borrow(visitor, control, noSelfLoops);
+		try {
+			return this.visit(workspace, maxLength, noSelfLoops);
+		} finally {
+			this.release(workspace);
+		}
+	}
+
+	/**
+	 * Takes a workspace from the pool, or a new one if the pool is empty.
+	 */
+	private Workspace borrow(CycleVisitor visitor, SearchControl control, boolean noSelfLoops) {
+		Workspace workspace = (Workspace) this.pool.poll();
+		if (workspace == null) {
+			workspace = new Workspace(this.graph, this.selfLoops);
+		}
+		workspace.visitor = visitor;
+		workspace.control = control;
+		workspace.noSelfLoops = noSelfLoops;
+		workspace.setNextCheckpoint(control != null ? control.getNextCheckpoint(0) : Long.MAX_VALUE);
+		return workspace;
+	}
+
+	/**
+	 * Gives a workspace back to the pool.
+	 */
+	private void release(Workspace workspace) {
+		workspace.visitor = null;
+		workspace.control = null;
+		workspace.reset();
+		this.pool.offer(workspace);
+	}
+
+	private boolean visit(Workspace workspace, int maxLength, boolean noSelfLoops) {
+		SCCDecomposition sccs = this.decomposition;
+		for (int step = 0; step < sccs.getStepCount(); step++) {
+			if (!workspace.search(sccs, step, maxLength)) {
+				return false;
+			}
+			if (workspace.control != null) {
+				workspace.control.componentDone(sccs.getStartNode(step), step + 1, sccs.getStepCount());
+			}
+		}
+
+		if (!noSelfLoops) {
+			int[] path = new int[1];
+			for (int i = 0; i < this.outsideSelfLoops.length; i++) {
+				path[0] = this.outsideSelfLoops[i];
+				if (!workspace.visitor.visitCycle(path, 1)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Visitor adding the found cycles as lists of graphnodes to a list.
+	 */
+	private class CycleCollector implements CycleVisitor {
+		/** List receiving the found cycles */
+		private ArrayList cycleList = null;
+
+		CycleCollector(ArrayList cycleList) {
+			this.cycleList = cycleList;
+		}
+
+		public boolean visitCycle(int[] path, int length) {
+			ArrayList cycle = new ArrayList(length);
+			for (int j = 0; j < length; j++) {
+				cycle.add(graphNodes[path[j]]);
+			}
+			this.cycleList.add(cycle);
+			return true;
+		}
+	}
+
+	/**
+	 * Work arrays of one search, kept in the pool between the searches.
+	 */
+	private static class Workspace extends CycleSearchEngine {
+		/** Nodes with self-loops of the graph */
+		private long[] selfLoops = null;
+
+		/** Leave out the nodes with self-loops in the current search */
+		private boolean noSelfLoops = false;
+
+		/** Visitor of the current search */
+		private CycleVisitor visitor = null;
+
+		/** Limits of the current search; null for none */
+		private SearchControl control = null;
+
+		Workspace(CompactGraph graph, long[] selfLoops) {
+			super(graph);
+			this.selfLoops = selfLoops;
+		}
+
+		protected boolean cycleFound(int[] path, int length) {
+			return this.visitor.visitCycle(path, length);
+		}
+
+		protected boolean excluded(int v) {
+			return this.noSelfLoops && (this.selfLoops[v >>> 6] & (1L << v)) != 0;
+		}
+
+		protected boolean checkpoint(long visitedNodes) {
+			if (this.control == null || !this.control.checkpoint(visitedNodes)) {
+				return false;
+			}
+			this.setNextCheckpoint(this.control.getNextCheckpoint(visitedNodes));
+			return true;
+		}
+	}
+}
@@ -0,0 +1,316 @@
+package de.normalisiert.utils.graphs;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+
+/**
+ * The sequence of strong connected components the algorithm of Johnson
+ * works on. For every start node s it holds the strong connected component
+ * with least vertex in the subgraph induced by the nodes {s, s + 1, ..., n},
+ * for all s where this component is not trivial. These are the components
+ * returned by {@link StrongConnectedComponents#getAdjacencyList(int)} one
+ * after the other.<br><br>
+ *
+ * The components are computed in one pass: the strong connected components
+ * of the whole graph are computed once, and after a component has been
+ * handed out, only the nodes of this component without its least vertex
+ * are split up again. All components are stored in a single node array,
+ * where every component is a contiguous range; the least vertex of a
+ * component is the first node of its range, followed by the ranges of the
+ * components it splits into.
+ *
+ */
+public class SCCDecomposition {
+	/** Nodes of all components */
+	private int[] nodes = null;
+
+	/** Start of the component of each step in the node array */
+	private int[] componentFrom = null;
+
+	/** End of the component of each step in the node array */
+	private int[] componentTo = null;
+
+	/** Number of steps */
+	private int stepCount = 0;
+
+	/** Number of nodes in any component */
+	private int cyclicNodeCount = 0;
+
+	/** Helpattribute for finding scc's */
+	private TarjanSearch tarjan = null;
+
+	/** Helpattribute for finding scc's, nodes of the viewed range are marked */
+	private int[] mark = null;
+
+	/** Helpattribute for finding scc's */
+	private int currentMark = 0;
+
+	/** Helpattribute for finding scc's, component of each node */
+	private int[] componentOf = null;
+
+	/** Time of computing the components, in nanoseconds */
+	private long nanos = 0;
+
+	/**
+	 * Constructor, computes all components.
+	 *
+	 * @param graph the graph
+	 */
+	public SCCDecomposition(CompactGraph graph) {
+		this(graph, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Constructor, computes the components of the start nodes below a bound.
+	 * The components are handed out in the order of their start nodes, so
+	 * the components of greater start nodes are not split up at all; a
+	 * search of the start nodes in a range saves the work for the nodes
+	 * behind it.
+	 *
+	 * @param graph the graph
+	 * @param toNode start node behind the last component
+	 */
+	SCCDecomposition(CompactGraph graph, int toNode) {
+		DecompositionEvent event = new DecompositionEvent();
+		event.begin();
+		long start = System.nanoTime();
+		int n = graph.getNodeCount();
+		this.nodes = new int[n];
+		this.componentFrom = new int[16];
+		this.componentTo = new int[16];
+		this.tarjan = new TarjanSearch(graph);
+		this.mark = new int[n];
+		this.componentOf = new int[n];
+
+		// queue of components ordered by their least vertex: {least, from, to}
+		PriorityQueue queue = new PriorityQueue(16, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				return ((int[]) o1)[0] - ((int[]) o2)[0];
+			}
+		});
+
+		for (int i = 0; i < n; i++) {
+			this.nodes[i] = i;
+		}
+		int[] componentIds = graph.getComponentIds();
+		if (componentIds != null) {
+			// components stored with the graph
+			int componentCount = 0;
+			for (int i = 0; i < n; i++) {
+				this.componentOf[i] = componentIds[i];
+				componentCount = Math.max(componentCount, componentIds[i] + 1);
+			}
+			this.cyclicNodeCount = this.arrange(0, n, componentCount, queue);
+		} else {
+			this.cyclicNodeCount = this.split(0, n, queue);
+		}
+
+		while (!queue.isEmpty()) {
+			int[] component = (int[]) queue.poll();
+			if (component[0] >= toNode) {
+				break;
+			}
+			int from = component[1];
+			int to = component[2];
+
+			// least vertex to the front
+			for (int i = from; i < to; i++) {
+				if (this.nodes[i] == component[0]) {
+					this.nodes[i] = this.nodes[from];
+					this.nodes[from] = component[0];
+					break;
+				}
+			}
+			this.addStep(from, to);
+			this.split(from + 1, to, queue);
+		}
+
+		this.tarjan = null;
+		this.mark = null;
+		this.componentOf = null;
+
+		this.nanos = System.nanoTime() - start;
+		event.end();
+		if (event.shouldCommit()) {
+			event.nodeCount = n;
+			event.componentCount = this.stepCount;
+			event.cyclicNodeCount = this.cyclicNodeCount;
+			for (int step = 0; step < this.stepCount; step++) {
+				event.largestComponent = Math.max(event.largestComponent, this.getComponentSize(step));
+			}
+			event.commit();
+		}
+	}
+
+	private SCCDecomposition() {
+	}
+
+	/**
+	 * Returns the decomposition with a single step for the nodes 0, ..., n - 1
+	 * of a graph, which must form one strong connected component; node 0 is
+	 * the start node. A search of this step finds the cycles through node 0,
+	 * without computing the components of the other steps.
+	 *
+	 * @param n number of nodes of the component
+	 * @return the decomposition
+	 */
+	static SCCDecomposition ofComponent(int n) {
+		SCCDecomposition sccs = new SCCDecomposition();
+		sccs.nodes = new int[n];
+		for (int i = 0; i < n; i++) {
+			sccs.nodes[i] = i;
+		}
+		sccs.componentFrom = new int[] {0};
+		sccs.componentTo = new int[] {n};
+		sccs.stepCount = 1;
+		sccs.cyclicNodeCount = n;
+		return sccs;
+	}
+
+	/**
+	 * Computes the strong connected components of the subgraph induced by
+	 * the nodes in a range of the node array. The range is reordered, so
+	 * that every component with more than one node is a contiguous range;
+	 * these ranges are added to the queue.
+	 *
+	 * @return position behind the last of these ranges
+	 */
+	private int split(int from, int to, PriorityQueue queue) {
+		if (to - from < 2) {
+			return from;
+		}
+
+		this.currentMark++;
+		for (int i = from; i < to; i++) {
+			this.mark[this.nodes[i]] = this.currentMark;
+		}
+		int componentCount = this.tarjan.run(this.nodes, from, to, this.mark, this.currentMark, this.componentOf);
+		return this.arrange(from, to, componentCount, queue);
+	}
+
+	/**
+	 * Reorders a range of the node array by the components in componentOf,
+	 * so that every component with more than one node is a contiguous
+	 * range; these ranges are added to the queue.
+	 *
+	 * @return position behind the last of these ranges
+	 */
+	private int arrange(int from, int to, int componentCount, PriorityQueue queue) {
+		int[] size = new int[componentCount];
+		int[] least = new int[componentCount];
+		Arrays.fill(least, Integer.MAX_VALUE);
+		for (int i = from; i < to; i++) {
+			int v = this.nodes[i];
+			size[this.componentOf[v]]++;
+			least[this.componentOf[v]] = Math.min(least[this.componentOf[v]], v);
+		}
+
+		// ranges of the components, trivial components at the end
+		int[] position = new int[componentCount];
+		int next = from;
+		for (int c = 0; c < componentCount; c++) {
+			if (size[c] > 1) {
+				position[c] = next;
+				queue.add(new int[] {least[c], next, next + size[c]});
+				next += size[c];
+			}
+		}
+		int end = next;
+		for (int c = 0; c < componentCount; c++) {
+			if (size[c] == 1) {
+				position[c] = next++;
+			}
+		}
+
+		int[] range = Arrays.copyOfRange(this.nodes, from, to);
+		for (int i = 0; i < range.length; i++) {
+			this.nodes[position[this.componentOf[range[i]]]++] = range[i];
+		}
+		return end;
+	}
+
+	private void addStep(int from, int to) {
+		if (this.stepCount == this.componentFrom.length) {
+			this.componentFrom = Arrays.copyOf(this.componentFrom, 2 * this.stepCount);
+			this.componentTo = Arrays.copyOf(this.componentTo, 2 * this.stepCount);
+		}
+		this.componentFrom[this.stepCount] = from;
+		this.componentTo[this.stepCount] = to;
+		this.stepCount++;
+	}
+
+	/**
+	 * @return time of computing the components, in nanoseconds
+	 */
+	long getNanos() {
+		return this.nanos;
+	}
+
+	/**
+	 * @return number of components, one for each start node
+	 */
+	public int getStepCount() {
+		return this.stepCount;
+	}
+
+	/**
+	 * @param step number of the component
+	 * @return start node s, the least vertex of the component
+	 */
+	public int getStartNode(int step) {
+		return this.nodes[this.componentFrom[step]];
+	}
+
+	/**
+	 * @param step number of the component
+	 * @return position of the first node of the component
+	 * @see #getNode(int)
+	 */
+	public int getComponentFrom(int step) {
+		return this.componentFrom[step];
+	}
+
+	/**
+	 * @param step number of the component
+	 * @return position behind the last node of the component
+	 * @see #getNode(int)
+	 */
+	public int getComponentTo(int step) {
+		return this.componentTo[step];
+	}
+
+	/**
+	 * @param step number of the component
+	 * @return number of nodes of the component
+	 */
+	public int getComponentSize(int step) {
+		return this.componentTo[step] - this.componentFrom[step];
+	}
+
+	/**
+	 * @param position position in the node array
+	 * @return node at this position
+	 */
+	public int getNode(int position) {
+		return this.nodes[position];
+	}
+
+	/**
+	 * @param step number of the component
+	 * @return nodes of the component, starting with the least vertex
+	 */
+	public int[] getComponentNodes(int step) {
+		return Arrays.copyOfRange(this.nodes, this.componentFrom[step], this.componentTo[step]);
+	}
+
+	/**
+	 * @return number of nodes that are part of a component with more than
+	 * one node; these are the first nodes of the node array
+	 * @see #getNode(int)
+	 */
+	public int getCyclicNodeCount() {
+		return this.cyclicNodeCount;
+	}
+}
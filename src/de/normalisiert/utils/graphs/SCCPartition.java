@@ -0,0 +1,118 @@
+package de.normalisiert.utils.graphs;
+
+import java.util.Arrays;
+
+
+/**
+ * The strong connected components of a graph. Every node has the number of
+ * its component; the nodes of component c are the entries
+ * <code>getNode(getComponentFrom(c)) ... getNode(getComponentTo(c) - 1)</code>,
+ * in ascending order. Components are numbered in reverse topological order,
+ * so every edge between two components leads from a component with a
+ * higher number to one with a lower number. Components with just one node
+ * are included.
+ *
+ */
+public class SCCPartition {
+	/** Component of each node */
+	private int[] componentOf = null;
+
+	/** Start of the nodes of each component; length is componentcount + 1 */
+	private int[] offsets = null;
+
+	/** Nodes, ordered by component */
+	private int[] nodes = null;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param componentOf component of each node
+	 * @param componentCount number of components
+	 */
+	SCCPartition(int[] componentOf, int componentCount) {
+		this.componentOf = componentOf;
+		this.offsets = new int[componentCount + 1];
+		for (int i = 0; i < componentOf.length; i++) {
+			this.offsets[componentOf[i] + 1]++;
+		}
+		for (int c = 0; c < componentCount; c++) {
+			this.offsets[c + 1] += this.offsets[c];
+		}
+
+		int[] fill = Arrays.copyOf(this.offsets, componentCount);
+		this.nodes = new int[componentOf.length];
+		for (int i = 0; i < componentOf.length; i++) {
+			this.nodes[fill[componentOf[i]]++] = i;
+		}
+	}
+
+	/**
+	 * @return number of components
+	 */
+	public int getComponentCount() {
+		return this.offsets.length - 1;
+	}
+
+	/**
+	 * @param node a node
+	 * @return number of the component of the node
+	 */
+	public int getComponent(int node) {
+		return this.componentOf[node];
+	}
+
+	/**
+	 * @return component of each node; the array must not be changed
+	 */
+	public int[] getComponentIds() {
+		return this.componentOf;
+	}
+
+	/**
+	 * @return start of the nodes of each component, with one more entry
+	 * holding the number of nodes; the array must not be changed
+	 */
+	public int[] getComponentOffsets() {
+		return this.offsets;
+	}
+
+	/**
+	 * @param c number of the component
+	 * @return position of the first node of the component
+	 */
+	public int getComponentFrom(int c) {
+		return this.offsets[c];
+	}
+
+	/**
+	 * @param c number of the component
+	 * @return position behind the last node of the component
+	 */
+	public int getComponentTo(int c) {
+		return this.offsets[c + 1];
+	}
+
+	/**
+	 * @param c number of the component
+	 * @return number of nodes of the component
+	 */
+	public int getComponentSize(int c) {
+		return this.offsets[c + 1] - this.offsets[c];
+	}
+
+	/**
+	 * @param position position in the node array
+	 * @return node at this position
+	 */
+	public int getNode(int position) {
+		return this.nodes[position];
+	}
+
+	/**
+	 * @param c number of the component
+	 * @return nodes of the component in ascending order
+	 */
+	public int[] getComponentNodes(int c) {
+		return Arrays.copyOfRange(this.nodes, this.offsets[c], this.offsets[c + 1]);
+	}
+}
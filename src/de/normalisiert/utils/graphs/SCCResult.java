@@ -8,6 +8,7 @@ import java.util.Vector;
 public class SCCResult {
 	private Set nodeIDsOfSCC = null;
 	private ArrayList[] adjList = null;
+	private CompactGraph graph = null;
 	private int lowestNodeId = -1;
 	
 	public SCCResult(ArrayList[] adjList, int lowestNodeId) {
@@ -23,14 +24,57 @@ public class SCCResult {
 		}
 	}
 
+	/**
+	 * Constructor.
+	 *
+	 * @param graph graph over all nodes of the original graph, containing
+	 * just the edges inside the strong connected component
+	 * @param lowestNodeId lowest nodenumber of the component
+	 */
+	public SCCResult(CompactGraph graph, int lowestNodeId) {
+		this.graph = graph;
+		this.lowestNodeId = lowestNodeId;
+	}
+
+	/**
+	 * @return the adjacency-structure of the component; built on demand if
+	 * the result was created from a CompactGraph
+	 */
 	public ArrayList[] getAdjList() {
+		if (this.adjList == null && this.graph != null) {
+			this.adjList = new ArrayList[this.graph.getNodeCount()];
+			for (int i = 0; i < this.adjList.length; i++) {
+				this.adjList[i] = new ArrayList();
+				for (int e = this.graph.getEdgeStart(i); e < this.graph.getEdgeEnd(i); e++) {
+					this.adjList[i].add(Integer.valueOf(this.graph.getTarget(e)));
+				}
+			}
+		}
 		return adjList;
 	}
 
+	/**
+	 * @return the component as CompactGraph; built on demand if the result
+	 * was created from an adjacency-list
+	 */
+	public CompactGraph getGraph() {
+		if (this.graph == null && this.adjList != null) {
+			int[][] list = new int[this.adjList.length][];
+			for (int i = 0; i < list.length; i++) {
+				list[i] = new int[this.adjList[i].size()];
+				for (int j = 0; j < list[i].length; j++) {
+					list[i][j] = ((Integer) this.adjList[i].get(j)).intValue();
+				}
+			}
+			this.graph = CompactGraph.fromAdjacencyList(list);
+		}
+		return graph;
+	}
+
 	public int getLowestNodeId() {
 		return lowestNodeId;
 	}
-        
+
         public int getNodes() {
 		return lowestNodeId;
 	}
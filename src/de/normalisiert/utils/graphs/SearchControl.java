@@ -0,0 +1,129 @@
+package de.normalisiert.utils.graphs;
+
+import java.util.ArrayList;
+
+
+/**
+ * Applies the limits of {@link SearchOptions} to a search. It passes the
+ * found cycles on to a visitor as long as no limit is reached, and is asked
+ * by the engines at checkpoints given by the number of visited nodes and
+ * between the components. The time limit and the cancellation are also
+ * looked at for every found cycle.
+ *
+ */
+class SearchControl implements CycleVisitor {
+	/** Number of visited nodes between two looks at the clock */
+	private static final long CHECK_INTERVAL = 4096;
+
+	/** Options of the search */
+	private SearchOptions options = null;
+
+	/** Visitor receiving the cycles */
+	private CycleVisitor visitor = null;
+
+	/** The search has a time limit */
+	private boolean timed = false;
+
+	/** Value of System.nanoTime() at which the search stops, if it is timed */
+	private long deadline = 0;
+
+	/** Cycles found so far, if only distinct node sets are passed on; else null */
+	private CycleHashSet distinct = null;
+
+	/** Number of cycles passed to the visitor */
+	private long cycleCount = 0;
+
+	/** Reason of the stop, COMPLETED while the search goes on */
+	private SearchResult.StopReason stopReason = SearchResult.StopReason.COMPLETED;
+
+	SearchControl(SearchOptions options, CycleVisitor visitor) {
+		this.options = options;
+		this.visitor = visitor;
+		if (options.getTimeLimit() > 0) {
+			this.timed = true;
+			this.deadline = System.nanoTime() + options.getTimeLimit() * 1000000;
+		}
+		if (options.isDistinctNodeSets()) {
+			this.distinct = new CycleHashSet(null, true);
+		}
+	}
+
+	public boolean visitCycle(int[] path, int length) {
+		if (this.cycleCount >= this.options.getMaxCycles()) {
+			return this.stop(SearchResult.StopReason.CYCLE_LIMIT);
+		}
+		if (this.pastDeadline()) {
+			return this.stop(SearchResult.StopReason.TIME_LIMIT);
+		}
+		CancellationToken token = this.options.getCancellationToken();
+		if (token != null && token.isCancelled()) {
+			return this.stop(SearchResult.StopReason.CANCELLED);
+		}
+		if (this.distinct != null && !this.distinct.add(path, length)) {
+			return true;
+		}
+		this.cycleCount++;
+		return this.visitor.visitCycle(path, length);
+	}
+
+	/**
+	 * Looks at the limits of time, visited nodes and the cancellation.
+	 *
+	 * @param visitedNodes number of visited nodes so far
+	 * @return true to go on with the search, false to stop it
+	 */
+	boolean checkpoint(long visitedNodes) {
+		if (visitedNodes > this.options.getMaxVisitedNodes()) {
+			return this.stop(SearchResult.StopReason.VISIT_LIMIT);
+		}
+		if (this.pastDeadline()) {
+			return this.stop(SearchResult.StopReason.TIME_LIMIT);
+		}
+		CancellationToken token = this.options.getCancellationToken();
+		if (token != null && token.isCancelled()) {
+			return this.stop(SearchResult.StopReason.CANCELLED);
+		}
+		return true;
+	}
+
+	/**
+	 * @return true, if the search has a time limit and it has passed
+	 */
+	private boolean pastDeadline() {
+		return this.timed && System.nanoTime() - this.deadline >= 0;
+	}
+
+	/**
+	 * @param visitedNodes number of visited nodes so far
+	 * @return number of visited nodes at which the next checkpoint is due
+	 */
+	long getNextCheckpoint(long visitedNodes) {
+		long next = visitedNodes + CHECK_INTERVAL;
+		long limit = this.options.getMaxVisitedNodes();
+		return limit < next ? limit + 1 : next;
+	}
+
+	/**
+	 * Reports the progress after the search of a component.
+	 */
+	void componentDone(int startNode, int componentsDone, int componentCount) {
+		SearchProgressListener listener = this.options.getProgressListener();
+		if (listener != null) {
+			listener.progress(startNode, componentsDone, componentCount, this.cycleCount);
+		}
+	}
+
+	private boolean stop(SearchResult.StopReason stopReason) {
+		this.stopReason = stopReason;
+		return false;
+	}
+
+	/**
+	 * @param cycles the found cycles
+	 * @param stats counters of the search
+	 * @return result of the search
+	 */
+	SearchResult getResult(ArrayList cycles, SearchStats stats) {
+		return new SearchResult(cycles, this.stopReason, stats);
+	}
+}
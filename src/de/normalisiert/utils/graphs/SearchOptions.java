@@ -0,0 +1,133 @@
+package de.normalisiert.utils.graphs;
+
+
+/**
+ * Limits and callbacks of a search. A search that reaches a limit or is
+ * cancelled stops and returns the cycles found so far in a
+ * {@link SearchResult} marked as truncated. By default there are no
+ * limits.<br><br>
+ *
+ * The time limit and the cancellation are looked at for every found cycle
+ * and every few thousand visited nodes, so the search may run slightly
+ * longer than the limit.
+ *
+ */
+public class SearchOptions {
+	/** Cycles longer than this are not searched */
+	private int maxLength = Integer.MAX_VALUE;
+
+	/** Time limit in milliseconds, 0 for no limit */
+	private long timeLimit = 0;
+
+	/** Maximal number of cycles */
+	private long maxCycles = Long.MAX_VALUE;
+
+	/** Maximal number of nodes put on the path of the search */
+	private long maxVisitedNodes = Long.MAX_VALUE;
+
+	/** Token to cancel the search; null if it cannot be cancelled */
+	private CancellationToken cancellationToken = null;
+
+	/** Receiver of the progress; null for none */
+	private SearchProgressListener progressListener = null;
+
+	/** Return only one cycle of every set of nodes */
+	private boolean distinctNodeSets = false;
+
+	/**
+	 * @param maxLength cycles longer than this are not searched
+	 */
+	public void setMaxLength(int maxLength) {
+		this.maxLength = maxLength;
+	}
+
+	public int getMaxLength() {
+		return this.maxLength;
+	}
+
+	/**
+	 * @param timeLimit wall-clock time of the search in milliseconds, counted
+	 * from its start; 0 for no limit
+	 */
+	public void setTimeLimit(long timeLimit) {
+		if (timeLimit < 0) {
+			throw new IllegalArgumentException("negative time limit: " + timeLimit);
+		}
+		this.timeLimit = timeLimit;
+	}
+
+	public long getTimeLimit() {
+		return this.timeLimit;
+	}
+
+	/**
+	 * @param maxCycles maximal number of returned cycles
+	 */
+	public void setMaxCycles(long maxCycles) {
+		if (maxCycles < 0) {
+			throw new IllegalArgumentException("negative number of cycles: " + maxCycles);
+		}
+		this.maxCycles = maxCycles;
+	}
+
+	public long getMaxCycles() {
+		return this.maxCycles;
+	}
+
+	/**
+	 * Limits the work of the search: every time a node is put on the path
+	 * of the search, it counts as visited.
+	 *
+	 * @param maxVisitedNodes maximal number of visited nodes
+	 */
+	public void setMaxVisitedNodes(long maxVisitedNodes) {
+		if (maxVisitedNodes < 0) {
+			throw new IllegalArgumentException("negative number of nodes: " + maxVisitedNodes);
+		}
+		this.maxVisitedNodes = maxVisitedNodes;
+	}
+
+	public long getMaxVisitedNodes() {
+		return this.maxVisitedNodes;
+	}
+
+	/**
+	 * @param cancellationToken token to cancel the search; null if it cannot
+	 * be cancelled
+	 */
+	public void setCancellationToken(CancellationToken cancellationToken) {
+		this.cancellationToken = cancellationToken;
+	}
+
+	public CancellationToken getCancellationToken() {
+		return this.cancellationToken;
+	}
+
+	/**
+	 * @param progressListener receiver of the progress; null for none
+	 */
+	public void setProgressListener(SearchProgressListener progressListener) {
+		this.progressListener = progressListener;
+	}
+
+	public SearchProgressListener getProgressListener() {
+		return this.progressListener;
+	}
+
+	/**
+	 * Returns only the first found cycle of every set of nodes; the other
+	 * cycles through the same nodes are dropped and do not count for the
+	 * limit of cycles. The cycles are kept in a {@link CycleHashSet}, so
+	 * dropping a duplicate takes time linear in its length.
+	 *
+	 * @param distinctNodeSets true to drop cycles with the nodes of a cycle
+	 * found before
+	 */
+	public void setDistinctNodeSets(boolean distinctNodeSets) {
+		this.distinctNodeSets = distinctNodeSets;
+	}
+
+	public boolean isDistinctNodeSets() {
+		return this.distinctNodeSets;
+	}
+}
@@ -0,0 +1,22 @@
+package de.normalisiert.utils.graphs;
+
+
+/**
+ * Receives the progress of a search, after every component of the algorithm
+ * of Johnson. It is called in the thread running the search, so it should
+ * return quickly.
+ *
+ * @see SearchOptions#setProgressListener(SearchProgressListener)
+ */
+public interface SearchProgressListener {
+	/**
+	 * Called after the search of a component.
+	 *
+	 * @param startNode start node s of the component that has just been
+	 * searched
+	 * @param componentsDone number of searched components
+	 * @param componentCount number of all components
+	 * @param cycleCount number of cycles found so far
+	 */
+	public void progress(int startNode, int componentsDone, int componentCount, long cycleCount);
+}
@@ -0,0 +1,81 @@
+package de.normalisiert.utils.graphs;
+
+import java.util.ArrayList;
+
+
+/**
+ * Cycles returned by a search with {@link SearchOptions}, together with the
+ * reason why the search has ended. If the search has been stopped by a
+ * limit or cancelled, the cycles are the ones found up to then, in the order
+ * of the complete search.
+ *
+ */
+public class SearchResult {
+	/**
+	 * Reason why a search has ended.
+	 */
+	public static enum StopReason {
+		/** All cycles have been found */
+		COMPLETED,
+		/** The time limit has been reached */
+		TIME_LIMIT,
+		/** The maximal number of cycles has been reached */
+		CYCLE_LIMIT,
+		/** The maximal number of visited nodes has been reached */
+		VISIT_LIMIT,
+		/** The search has been cancelled */
+		CANCELLED
+	}
+
+	/** List of cycles */
+	private ArrayList cycles = null;
+
+	/** Reason why the search has ended */
+	private StopReason stopReason = null;
+
+	/** Counters of the search */
+	private SearchStats stats = null;
+
+	SearchResult(ArrayList cycles, StopReason stopReason, SearchStats stats) {
+		this.cycles = cycles;
+		this.stopReason = stopReason;
+		this.stats = stats;
+	}
+
+	/**
+	 * @return List::List::Object with the Lists of the found cycles
+	 */
+	public ArrayList getCycles() {
+		return this.cycles;
+	}
+
+	/**
+	 * @return true, if the search has been stopped before all cycles have
+	 * been found
+	 */
+	public boolean isTruncated() {
+		return this.stopReason != StopReason.COMPLETED;
+	}
+
+	/**
+	 * @return reason why the search has ended
+	 */
+	public StopReason getStopReason() {
+		return this.stopReason;
+	}
+
+	/**
+	 * @return number of nodes put on the path of the search
+	 */
+	public long getVisitedNodes() {
+		return this.stats.getVerticesPushed();
+	}
+
+	/**
+	 * @return counters of the search; apart from the visited nodes they are
+	 * only collected if {@link SearchStats#isEnabled()}
+	 */
+	public SearchStats getStats() {
+		return this.stats;
+	}
+}
@@ -0,0 +1,203 @@
+package de.normalisiert.utils.graphs;
+
+import java.util.Arrays;
+
+
+/**
+ * Counters of a search: the work of the algorithm of Johnson and where the
+ * time went, in total and for every component. The counters are only
+ * collected if the system property
+ * <code>de.normalisiert.utils.graphs.stats</code> is set to true when the
+ * classes are loaded; otherwise the search does not touch them at all, and
+ * all counters of a snapshot are 0.<br><br>
+ *
+ * The same numbers are reported as events of the JDK Flight Recorder,
+ * {@link ComponentSearchEvent} for every component and
+ * {@link DecompositionEvent} for the computation of the components. If the
+ * counters are not collected, the search reports a
+ * {@link ComponentTimingEvent} for every component instead, without the
+ * counters.
+ *
+ */
+public class SearchStats {
+	/** Counters are collected */
+	static final boolean ENABLED = Boolean.getBoolean("de.normalisiert.utils.graphs.stats");
+
+	/** Nodes put on the path */
+	long verticesPushed = 0;
+
+	/** Edges looked at by the search */
+	long edgesScanned = 0;
+
+	/** Nodes unblocked, or locks relaxed by the bounded search */
+	long unblockCalls = 0;
+
+	/** Entries put into the B-lists */
+	long bListInsertions = 0;
+
+	/** Found cycles */
+	long cycleCount = 0;
+
+	/** Time spent in the visitor of the cycles, in nanoseconds */
+	long visitorNanos = 0;
+
+	/** Time of computing the components, in nanoseconds */
+	long decompositionNanos = 0;
+
+	/** Number of searched components */
+	private int componentCount = 0;
+
+	/** Start node of each searched component */
+	private int[] startNodes = new int[16];
+
+	/** Number of nodes of each searched component */
+	private int[] componentSizes = new int[16];
+
+	/** Time of the search of each component, in nanoseconds */
+	private long[] componentNanos = new long[16];
+
+	/** Number of cycles of each component */
+	private long[] componentCycles = new long[16];
+
+	SearchStats() {
+	}
+
+	/**
+	 * @return true, if the counters are collected
+	 */
+	public static boolean isEnabled() {
+		return ENABLED;
+	}
+
+	/**
+	 * Records the search of a component.
+	 */
+	void addComponent(int startNode, int size, long nanos, long cycles) {
+		if (this.componentCount == this.startNodes.length) {
+			int length = 2 * this.componentCount;
+			this.startNodes = Arrays.copyOf(this.startNodes, length);
+			this.componentSizes = Arrays.copyOf(this.componentSizes, length);
+			this.componentNanos = Arrays.copyOf(this.componentNanos, length);
+			this.componentCycles = Arrays.copyOf(this.componentCycles, length);
+		}
+		this.startNodes[this.componentCount] = startNode;
+		this.componentSizes[this.componentCount] = size;
+		this.componentNanos[this.componentCount] = nanos;
+		this.componentCycles[this.componentCount] = cycles;
+		this.componentCount++;
+	}
+
+	/**
+	 * @return copy of the counters
+	 */
+	SearchStats snapshot() {
+		SearchStats copy = new SearchStats();
+		copy.verticesPushed = this.verticesPushed;
+		copy.edgesScanned = this.edgesScanned;
+		copy.unblockCalls = this.unblockCalls;
+		copy.bListInsertions = this.bListInsertions;
+		copy.cycleCount = this.cycleCount;
+		copy.visitorNanos = this.visitorNanos;
+		copy.decompositionNanos = this.decompositionNanos;
+		copy.componentCount = this.componentCount;
+		copy.startNodes = Arrays.copyOf(this.startNodes, this.componentCount);
+		copy.componentSizes = Arrays.copyOf(this.componentSizes, this.componentCount);
+		copy.componentNanos = Arrays.copyOf(this.componentNanos, this.componentCount);
+		copy.componentCycles = Arrays.copyOf(this.componentCycles, this.componentCount);
+		return copy;
+	}
+
+	/**
+	 * @return number of nodes put on the path of the search
+	 */
+	public long getVerticesPushed() {
+		return this.verticesPushed;
+	}
+
+	/**
+	 * @return number of edges looked at by the search
+	 */
+	public long getEdgesScanned() {
+		return this.edgesScanned;
+	}
+
+	/**
+	 * @return number of calls of UNBLOCK of the algorithm of Johnson, that
+	 * is of unblocked nodes; for the search with bounded length the number
+	 * of relaxed locks
+	 */
+	public long getUnblockCalls() {
+		return this.unblockCalls;
+	}
+
+	/**
+	 * @return number of entries put into the B-lists
+	 */
+	public long getBListInsertions() {
+		return this.bListInsertions;
+	}
+
+	/**
+	 * @return number of found cycles, without the cycles of length one
+	 * outside of the components
+	 */
+	public long getCycleCount() {
+		return this.cycleCount;
+	}
+
+	/**
+	 * @return time spent in the visitor of the cycles, for example building
+	 * the result lists, in nanoseconds
+	 */
+	public long getVisitorNanos() {
+		return this.visitorNanos;
+	}
+
+	/**
+	 * @return time of computing the components of the algorithm of Johnson,
+	 * in nanoseconds; the components are computed once for an instance of
+	 * the search classes and shared by its searches
+	 */
+	public long getDecompositionNanos() {
+		return this.decompositionNanos;
+	}
+
+	/**
+	 * @return number of searched components, one for each start node
+	 */
+	public int getComponentCount() {
+		return this.componentCount;
+	}
+
+	/**
+	 * @param i number of the searched component
+	 * @return start node s of the component
+	 */
+	public int getStartNode(int i) {
+		return this.startNodes[i];
+	}
+
+	/**
+	 * @param i number of the searched component
+	 * @return number of nodes of the component
+	 */
+	public int getComponentSize(int i) {
+		return this.componentSizes[i];
+	}
+
+	/**
+	 * @param i number of the searched component
+	 * @return time of the search of the component, in nanoseconds
+	 */
+	public long getComponentNanos(int i) {
+		return this.componentNanos[i];
+	}
+
+	/**
+	 * @param i number of the searched component
+	 * @return number of cycles found in the component
+	 */
+	public long getComponentCycles(int i) {
+		return this.componentCycles[i];
+	}
+}
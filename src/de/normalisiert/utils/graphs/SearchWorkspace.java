@@ -0,0 +1,172 @@
+package de.normalisiert.utils.graphs;
+
+import java.util.Arrays;
+
+
+/**
+ * Work arrays of a {@link CycleSearchEngine}, which can be used by the
+ * engines of several graphs one after the other, as long as the graphs fit
+ * into the capacity of the arrays. Binding the workspace to a graph only
+ * clears the used part of the B-lists, the path and the marks of the
+ * components, so searching many small graphs allocates no arrays per graph.
+ * <br><br>
+ *
+ * The arrays take about 22 bytes per node and one bit per edge. The entries
+ * of the B-lists, 12 bytes each, start with one per node and grow with the
+ * number of entries the search holds at the same time.
+ *
+ */
+class SearchWorkspace {
+	/** Number of nodes the arrays have room for */
+	private int nodeCapacity = 0;
+
+	/** Number of edges the arrays have room for */
+	private int edgeCapacity = 0;
+
+	/** Blocked nodes */
+	boolean[] blocked = null;
+
+	/** First entry of the B-List of each node, -1 for an empty list */
+	int[] BHead = null;
+
+	/** Next entry in the same B-List, or in the list of free entries */
+	int[] BNext = null;
+
+	/** Source of the edge of each entry */
+	int[] BSource = null;
+
+	/** Edge of each entry */
+	int[] BEdge = null;
+
+	/** Edges whose source is in the B-List of their target */
+	long[] inB = null;
+
+	/** Node of each frame */
+	int[] stack = null;
+
+	/** Position of the next successor to look at, for each frame */
+	int[] cursor = null;
+
+	/** Cycle found below the node of the frame, for each frame */
+	boolean[] found = null;
+
+	/** Worklist for unblocking */
+	int[] unblockStack = null;
+
+	/** Nodes of the current component are marked with the current step */
+	int[] component = null;
+
+	/** Lock of each node for the bounded search, allocated on first use */
+	int[] lock = null;
+
+	/** Nodes on the path, for the bounded search */
+	boolean[] onPath = null;
+
+	/** Worklist for relaxing locks */
+	int[] relaxStack = null;
+
+	/** Nodes on the worklist for relaxing locks */
+	boolean[] onList = null;
+
+	/** Free for the subclasses of the engine: one int per node, not cleared */
+	int[] position = null;
+
+	/** Free for the subclasses of the engine: one bit per node, cleared */
+	long[] nodeBits = null;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param nodeCapacity number of nodes the arrays have room for
+	 * @param edgeCapacity number of edges the arrays have room for
+	 */
+	SearchWorkspace(int nodeCapacity, int edgeCapacity) {
+		this.nodeCapacity = nodeCapacity;
+		this.edgeCapacity = edgeCapacity;
+		this.blocked = new boolean[nodeCapacity];
+		this.BHead = new int[nodeCapacity];
+		Arrays.fill(this.BHead, -1);
+		int entries = Math.max(1, Math.min(edgeCapacity, nodeCapacity));
+		this.BNext = new int[entries];
+		this.BSource = new int[entries];
+		this.BEdge = new int[entries];
+		this.inB = new long[(edgeCapacity + 63) >>> 6];
+		this.stack = new int[nodeCapacity];
+		this.cursor = new int[nodeCapacity];
+		this.found = new boolean[nodeCapacity];
+		this.unblockStack = new int[nodeCapacity];
+		this.component = new int[nodeCapacity];
+	}
+
+	/**
+	 * @return true, if a graph of this size fits into the arrays
+	 */
+	boolean fits(int nodeCount, int edgeCount) {
+		return nodeCount <= this.nodeCapacity && edgeCount <= this.edgeCapacity;
+	}
+
+	/**
+	 * @return number of nodes the arrays have room for
+	 */
+	int getNodeCapacity() {
+		return this.nodeCapacity;
+	}
+
+	/**
+	 * @return number of edges the arrays have room for
+	 */
+	int getEdgeCapacity() {
+		return this.edgeCapacity;
+	}
+
+	/**
+	 * Prepares the arrays for a graph that fits into them: the B-lists are
+	 * emptied and no node is marked as part of a component or as on the
+	 * path, even if the last search has been left by an exception.
+	 */
+	void bind(int nodeCount, int edgeCount) {
+		Arrays.fill(this.BHead, 0, nodeCount, -1);
+		Arrays.fill(this.inB, 0, (edgeCount + 63) >>> 6, 0L);
+		Arrays.fill(this.component, 0, nodeCount, 0);
+		if (this.onPath != null) {
+			Arrays.fill(this.onPath, 0, nodeCount, false);
+			Arrays.fill(this.onList, 0, nodeCount, false);
+		}
+		if (this.nodeBits != null) {
+			Arrays.fill(this.nodeBits, 0, (nodeCount + 63) >>> 6, 0L);
+		}
+	}
+
+	/**
+	 * Makes room for twice as many entries of the B-lists, but not for more
+	 * than one entry per edge.
+	 */
+	void growEntries() {
+		int length = (int) Math.min(this.edgeCapacity, 2L * this.BNext.length);
+		this.BNext = Arrays.copyOf(this.BNext, length);
+		this.BSource = Arrays.copyOf(this.BSource, length);
+		this.BEdge = Arrays.copyOf(this.BEdge, length);
+	}
+
+	/**
+	 * Allocates the arrays of the bounded search.
+	 */
+	void allocateLocks() {
+		if (this.lock == null) {
+			this.lock = new int[this.nodeCapacity];
+			this.onPath = new boolean[this.nodeCapacity];
+			this.relaxStack = new int[this.nodeCapacity];
+			this.onList = new boolean[this.nodeCapacity];
+		}
+	}
+
+	/**
+	 * Allocates the arrays for the subclasses of the engine.
+	 */
+	void allocateNodeArrays() {
+		if (this.position == null) {
+			this.position = new int[this.nodeCapacity];
+			this.nodeBits = new long[(this.nodeCapacity + 63) >>> 6];
+		}
+	}
+}
@@ -0,0 +1,270 @@
+package de.normalisiert.utils.graphs;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+
+/**
+ * Searches the cycles of {@link ElementaryCyclesSearchforStableSCC} in a
+ * long sequence of small networks, several networks at the same time. Each
+ * network is searched by a task on an executor, which may be a pool of
+ * platform threads or, on Java 21 and later, an executor starting a virtual
+ * thread per task.<br><br>
+ *
+ * The results are returned in the order of the networks. At most a window
+ * of networks is searched ahead of the result the caller is waiting for, so
+ * the networks are read and the results are held only as far as needed.
+ * <br><br>
+ *
+ * The work arrays of the search engine, the blocked nodes, the B-lists and
+ * the path, are kept in pools by the size of the networks and used again by
+ * the next network of about the same size. Only these are reused: the
+ * graph, the index of the names and the components of each network are
+ * built for the network, in time linear in its size.
+ *
+ * <pre>
+ * ExecutorService executor = Executors.newFixedThreadPool(8);
+ * StableCycleBatch batch = new StableCycleBatch(executor, 64, options, false);
+ * Iterator&lt;SearchResult&gt; results = batch.run(networks);
+ * while (results.hasNext()) {
+ *     SearchResult result = results.next();
+ *     ...
+ * }
+ * </pre>
+ *
+ */
+public class StableCycleBatch {
+	/** Executor running the searches */
+	private Executor executor = null;
+
+	/** Maximal number of networks searched ahead */
+	private int window = 0;
+
+	/** Options of every search */
+	private SearchOptions options = null;
+
+	/** Search the cycles of getElementaryCyclesNSL */
+	private boolean noSelfLoops = false;
+
+	/** Idle workspaces, by the size class of their number of nodes */
+	private ConcurrentLinkedQueue[] pools = new ConcurrentLinkedQueue[33];
+
+	/**
+	 * Constructor.
+	 *
+	 * @param executor runs the searches
+	 * @param window maximal number of networks searched ahead of the result
+	 * returned next, at least 1
+	 * @param options options of every search; a progress listener of the
+	 * options is called by several searches at the same time
+	 * @param noSelfLoops true for the cycles of
+	 * {@link ElementaryCyclesSearchforStableSCC#getElementaryCyclesNSL(SearchOptions)};
+	 * false for the cycles of
+	 * {@link ElementaryCyclesSearchforStableSCC#getElementaryCycles(SearchOptions)}
+	 */
+	public StableCycleBatch(Executor executor, int window, SearchOptions options, boolean noSelfLoops) {
+		if (window < 1) {
+			throw new IllegalArgumentException("window less than 1: " + window);
+		}
+		this.executor = executor;
+		this.window = window;
+		this.options = options;
+		this.noSelfLoops = noSelfLoops;
+		for (int i = 0; i < this.pools.length; i++) {
+			this.pools[i] = new ConcurrentLinkedQueue();
+		}
+	}
+
+	/**
+	 * Searches the cycles of a sequence of networks. The networks are read
+	 * and searched while the results are taken from the returned iterator;
+	 * both must be used by one thread only.<br><br>
+	 *
+	 * If the search of a network fails, next() throws its exception.
+	 *
+	 * @param networks the networks
+	 * @return the results of the networks, in the order of the networks
+	 */
+	public Iterator<SearchResult> run(Iterator<Network> networks) {
+		return new ResultIterator(networks);
+	}
+
+	/**
+	 * Searches the cycles of one network in the calling thread, with the
+	 * workspaces of the pools.
+	 *
+	 * @param network the network
+	 * @return the found cycles
+	 */
+	public SearchResult search(Network network) {
+		ElementaryCyclesSearchforStableSCC search = network.createSearch();
+		CompactGraph graph = search.getGraph();
+		int sizeClass = sizeClass(graph.getNodeCount());
+		SearchWorkspace workspace = this.borrow(sizeClass, graph.getEdgeCount());
+		try {
+			search.setWorkspace(workspace);
+			if (this.noSelfLoops) {
+				return search.getElementaryCyclesNSL(this.options);
+			}
+			return search.getElementaryCycles(this.options);
+		} finally {
+			this.pools[sizeClass].offer(workspace);
+		}
+	}
+
+	/**
+	 * @return number of idle workspaces in the pools
+	 */
+	public int getPooledWorkspaceCount() {
+		int count = 0;
+		for (int i = 0; i < this.pools.length; i++) {
+			count += this.pools[i].size();
+		}
+		return count;
+	}
+
+	/**
+	 * Takes a workspace from the pool of a size class, or a new one if the
+	 * pool is empty or its workspace has too little room for the edges.
+	 */
+	private SearchWorkspace borrow(int sizeClass, int edgeCount) {
+		int nodeCapacity = 1 << sizeClass;
+		SearchWorkspace workspace = (SearchWorkspace) this.pools[sizeClass].poll();
+		if (workspace == null || !workspace.fits(nodeCapacity, edgeCount)) {
+			int edgeCapacity = edgeCount <= 1 ? 1 : Integer.highestOneBit(edgeCount - 1) << 1;
+			workspace = new SearchWorkspace(nodeCapacity, edgeCapacity);
+		}
+		return workspace;
+	}
+
+	/**
+	 * @return least k with 2^k not less than the number of nodes
+	 */
+	private static int sizeClass(int nodeCount) {
+		return nodeCount <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(nodeCount - 1);
+	}
+
+	/**
+	 * Network of the sequence: a graph given by an adjacency-list, the names
+	 * of its nodes and optionally the source nodes, like the arguments of
+	 * the constructors of {@link ElementaryCyclesSearchforStableSCC}.
+	 */
+	public static class Network {
+		/** Adjacency-list of the graph */
+		private int[][] adjList = null;
+
+		/** Names of the nodes */
+		private String[] graphNodes = null;
+
+		/** Names of the source nodes; null for none */
+		private ArrayList<String> sources = null;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param adjList adjacency-list of the graph
+		 * @param graphNodes names of the nodes
+		 */
+		public Network(int[][] adjList, String[] graphNodes) {
+			this(adjList, graphNodes, null);
+		}
+
+		/**
+		 * Constructor.
+		 *
+		 * @param adjList adjacency-list of the graph
+		 * @param graphNodes names of the nodes
+		 * @param sources names of the source nodes, whose self-loops are left
+		 * out; null for none
+		 */
+		public Network(int[][] adjList, String[] graphNodes, ArrayList<String> sources) {
+			this.adjList = adjList;
+			this.graphNodes = graphNodes;
+			this.sources = sources;
+		}
+
+		/**
+		 * @return the search of the network, with its own graph, index of
+		 * the names and components; the rows of the adjacency-list are not
+		 * changed
+		 */
+		ElementaryCyclesSearchforStableSCC createSearch() {
+			if (this.sources != null) {
+				return new ElementaryCyclesSearchforStableSCC(this.adjList, this.graphNodes, this.sources);
+			}
+			return new ElementaryCyclesSearchforStableSCC(this.adjList, this.graphNodes);
+		}
+	}
+
+	/**
+	 * Iterator over the results, which submits the searches of the next
+	 * networks of the window.
+	 */
+	private class ResultIterator implements Iterator<SearchResult> {
+		/** Networks not yet submitted */
+		private Iterator<Network> networks = null;
+
+		/** Submitted searches, in the order of the networks */
+		private ArrayDeque<FutureTask<SearchResult>> pending = new ArrayDeque<FutureTask<SearchResult>>();
+
+		ResultIterator(Iterator<Network> networks) {
+			this.networks = networks;
+		}
+
+		public boolean hasNext() {
+			this.fill();
+			return !this.pending.isEmpty();
+		}
+
+		public SearchResult next() {
+			this.fill();
+			FutureTask<SearchResult> task = this.pending.poll();
+			if (task == null) {
+				throw new NoSuchElementException();
+			}
+			try {
+				return task.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CancellationException("interrupted while waiting for a result");
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Submits the searches of the next networks, until the window is
+		 * full.
+		 */
+		private void fill() {
+			while (this.pending.size() < window && this.networks.hasNext()) {
+				final Network network = this.networks.next();
+				FutureTask<SearchResult> task = new FutureTask<SearchResult>(new Callable<SearchResult>() {
+					public SearchResult call() {
+						return search(network);
+					}
+				});
+				executor.execute(task);
+				this.pending.add(task);
+			}
+		}
+	}
+}
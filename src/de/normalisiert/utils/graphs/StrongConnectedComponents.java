@@ -17,6 +17,9 @@ import java.util.Vector;
  * component of this subgraph which contains the lowest nodenumber of all
  * nodes in the subgraph.<br><br>
  *
+ * Independent from the algorithm of Johnson, {@link #getComponents()}
+ * returns all strong connected components of the graph in linear time.<br><br>
+ *
  * For a description of the algorithm for calculating the strong connected
  * components see:<br>
  * Robert Tarjan: Depth-first search and linear graph algorithms. In: SIAM
@@ -31,35 +34,16 @@ import java.util.Vector;
  *
  */
 public class StrongConnectedComponents {
-	/** Adjacency-list of original graph */
-	private int[][] adjListOriginal = null;
-
-	/** Adjacency-list of currently viewed subgraph */
-	private int[][] adjList = null;
-	
-	/** Helpattribute for finding scc's */
-	private boolean[] visited = null;
-        
-        private boolean[] component = null;
+	/** Original graph */
+	private CompactGraph graph = null;
 
-	/** Helpattribute for finding scc's */
-	private ArrayList stack = null;
-
-	/** Helpattribute for finding scc's */
-	private int[] lowlink = null;
+	/** Components of the algorithm of Johnson, computed on first use */
+	private SCCDecomposition decomposition = null;
         
         private ArrayList componentArray=new ArrayList();
-        
-        private ArrayList selfLoopsSCC=new ArrayList();
-        
-	/** Helpattribute for finding scc's */
-	private int[] number = null;
 
-	/** Helpattribute for finding scc's */
-	private int sccCounter = 0;
-
-	/** Helpattribute for finding scc's */
-	private ArrayList currentSCCs = null;
+	/** Nodes with self-loops */
+	private boolean[] selfLoops = null;
 
 	/**
 	 * Constructor.
@@ -67,11 +51,27 @@ public class StrongConnectedComponents {
 	 * @param adjList adjacency-list of the graph
 	 */
 	public StrongConnectedComponents(int[][] adjList) {
-		this.adjListOriginal = adjList;
+		this.selfLoops = new boolean[adjList.length];
                 for(int i=0;i<adjList.length;i++){
                     Arrays.sort(adjList[i]);
                     if(Arrays.binarySearch(adjList[i], i)>-1){
-                        selfLoopsSCC.add(i);
+                        this.selfLoops[i] = true;
+                    }
+                }
+		this.graph = CompactGraph.fromAdjacencyList(adjList);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param graph the graph
+	 */
+	public StrongConnectedComponents(CompactGraph graph) {
+		this.graph = graph;
+		this.selfLoops = new boolean[graph.getNodeCount()];
+                for(int i=0;i<graph.getNodeCount();i++){
+                    if(graph.hasEdge(i, i)){
+                        this.selfLoops[i] = true;
                     }
                 }
 	}
@@ -88,188 +88,130 @@ public class StrongConnectedComponents {
 	 * connected component; null, if no such component exists
 	 */
 	public SCCResult getAdjacencyList(int node) {
-		this.visited = new boolean[this.adjListOriginal.length];
-                this.component = new boolean[this.adjListOriginal.length];
-		this.lowlink = new int[this.adjListOriginal.length];
-		this.number = new int[this.adjListOriginal.length];
-		this.visited = new boolean[this.adjListOriginal.length];
-		this.stack = new ArrayList();
-		this.currentSCCs = new ArrayList();
-
-		this.makeAdjListSubgraph(node);
-
-		for (int i = node; i < this.adjListOriginal.length; i++) {
-			if (!this.visited[i]) {
-				this.getStrongConnectedComponents(i);
-				ArrayList nodes = this.getLowestIdComponent();
-				if (nodes != null && !nodes.contains(new Integer(node)) && !nodes.contains(new Integer(node + 1))) {
-					return this.getAdjacencyList(node + 1);
-				} else {
-					ArrayList[] adjacencyList = this.getAdjList(nodes);
-					if (adjacencyList != null) {
-						for (int j = 0; j < this.adjListOriginal.length; j++) {
-							if (adjacencyList[j].size() > 0) {
-								return new SCCResult(adjacencyList, j);
-							}
-						}
-					}
-				}
+		SCCDecomposition sccs = this.getDecomposition();
+
+		// the start nodes of the components are ascending
+		int low = 0;
+		int high = sccs.getStepCount();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sccs.getStartNode(mid) < node) {
+				low = mid + 1;
+			} else {
+				high = mid;
 			}
 		}
 
-		return null;
+		if (low == sccs.getStepCount()) {
+			return null;
+		}
+		return new SCCResult(this.getAdjList(sccs.getComponentNodes(low)), sccs.getStartNode(low));
 	}
 
 	/**
-	 * Builds the adjacency-list for a subgraph containing just nodes
-	 * >= a given index.
+	 * Returns the components of the algorithm of Johnson for the graph,
+	 * that is the strong connected component with least vertex in the
+	 * subgraph induced by {s, s + 1, ..., n} for every start node s. They
+	 * are computed on the first call.
 	 *
-	 * @param node Node with lowest index in the subgraph
+	 * @return the components
 	 */
-	private void makeAdjListSubgraph(int node) {
-		this.adjList = new int[this.adjListOriginal.length][0];
-
-		for (int i = node; i < this.adjList.length; i++) {
-			ArrayList successors = new ArrayList();
-			for (int j = 0; j < this.adjListOriginal[i].length; j++) {
-				if (this.adjListOriginal[i][j] >= node) {
-					successors.add(new Integer(this.adjListOriginal[i][j]));
-				}
-			}
-			if (successors.size() > 0) {
-				this.adjList[i] = new int[successors.size()];
-				for (int j = 0; j < successors.size(); j++) {
-					Integer succ = (Integer) successors.get(j);
-					this.adjList[i][j] = succ.intValue();
-				}
-			}
+	public SCCDecomposition getDecomposition() {
+		if (this.decomposition == null) {
+			this.decomposition = new SCCDecomposition(this.graph);
 		}
+		return this.decomposition;
 	}
 
 	/**
-	 * Calculates the strong connected component out of a set of scc's, that
-	 * contains the node with the lowest index.
+	 * Computes all strong connected components of the graph, including the
+	 * components with just one node, in O(n + m).
 	 *
-	 * @return Vector::Integer of the scc containing the lowest nodenumber
+	 * @return the components
 	 */
-	private ArrayList getLowestIdComponent() {
-		int min = this.adjList.length;
-		ArrayList currScc = null;
-
-		for (int i = 0; i < this.currentSCCs.size(); i++) {
-			ArrayList scc = (ArrayList) this.currentSCCs.get(i);
-			for (int j = 0; j < scc.size(); j++) {
-				Integer node = (Integer) scc.get(j);
-				if (node.intValue() < min) {
-					currScc = scc;
-					min = node.intValue();
-				}
-			}
+	public SCCPartition getComponents() {
+		int n = this.graph.getNodeCount();
+		int[] nodes = new int[n];
+		for (int i = 0; i < n; i++) {
+			nodes[i] = i;
 		}
 
-		return currScc;
+		int[] componentOf = new int[n];
+		int componentCount = new TarjanSearch(this.graph).run(nodes, 0, n, null, 0, componentOf);
+		return new SCCPartition(componentOf, componentCount);
 	}
 
 	/**
-	 * @return Vector[]::Integer representing the adjacency-structure of the
-	 * strong connected component with least vertex in the currently viewed
-	 * subgraph
+	 * @return CompactGraph representing the adjacency-structure of the
+	 * strong connected component with the given nodes
 	 */
-	private ArrayList[] getAdjList(ArrayList nodes) {
-		ArrayList[] lowestIdAdjacencyList = null;
+	private CompactGraph getAdjList(int[] nodes) {
+		int n = this.graph.getNodeCount();
+		boolean[] inComponent = new boolean[n];
+		for (int i = 0; i < nodes.length; i++) {
+			inComponent[nodes[i]] = true;
+		}
 
-		if (nodes != null) {
-			lowestIdAdjacencyList = new ArrayList[this.adjList.length];
-			for (int i = 0; i < lowestIdAdjacencyList.length; i++) {
-				lowestIdAdjacencyList[i] = new ArrayList();
-			}
-			for (int i = 0; i < nodes.size(); i++) {
-				int node = ((Integer) nodes.get(i)).intValue();
-				for (int j = 0; j < this.adjList[node].length; j++) {
-					int succ = this.adjList[node][j];
-					if (nodes.contains(new Integer(succ))) {
-						lowestIdAdjacencyList[node].add(new Integer(succ));
+		int[] offsets = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			offsets[i + 1] = offsets[i];
+			if (inComponent[i]) {
+				for (int e = this.graph.getEdgeStart(i); e < this.graph.getEdgeEnd(i); e++) {
+					if (inComponent[this.graph.getTarget(e)]) {
+						offsets[i + 1]++;
 					}
 				}
 			}
 		}
 
-		return lowestIdAdjacencyList;
-	}
-
-	/**
-	 * Searchs for strong connected components reachable from a given node.
-	 *
-	 * @param root node to start from.
-	 */
-	private void getStrongConnectedComponents(int root) {
-		this.sccCounter++;
-		this.lowlink[root] = this.sccCounter;
-		this.number[root] = this.sccCounter;
-		this.visited[root] = true;
-		this.stack.add(new Integer(root));
-
-		for (int i = 0; i < this.adjList[root].length; i++) {
-			int w = this.adjList[root][i];
-			if (!this.visited[w]) {
-				this.getStrongConnectedComponents(w);
-				this.lowlink[root] = Math.min(lowlink[root], lowlink[w]);
-			} else if (this.number[w] < this.number[root]) {
-				if (this.stack.contains(new Integer(w))) {
-					lowlink[root] = Math.min(this.lowlink[root], this.number[w]);
+		int[] targets = new int[offsets[n]];
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			if (inComponent[i]) {
+				for (int e = this.graph.getEdgeStart(i); e < this.graph.getEdgeEnd(i); e++) {
+					int succ = this.graph.getTarget(e);
+					if (inComponent[succ]) {
+						targets[k++] = succ;
+					}
 				}
 			}
 		}
 
-		// found scc
-		if ((lowlink[root] == number[root]) && (stack.size() > 0)) {
-			int next = -1;
-			ArrayList scc = new ArrayList();
-
-			do {
-				next = ((Integer) this.stack.get(stack.size() - 1)).intValue();
-				this.stack.remove(stack.size() - 1);
-				scc.add(new Integer(next));
-			} while (this.number[next] > this.number[root]);
-                        
-			// simple scc's with just one node will not be added
-			if (scc.size() > 1) {
-				this.currentSCCs.add(scc);
-			}
-
-		}
-
+		return new CompactGraph(offsets, targets);
 	}
 
         
+	/**
+	 * Collects the components of the algorithm of Johnson, each with its
+	 * graphnodes in ascending order, followed by a component of one
+	 * graphnode for every self-loop outside of them. The nodes are marked in
+	 * arrays, so this takes time linear in the size of the components.
+	 *
+	 * @param adjList not used
+	 * @param graphNodes array of the graphnodes of the graph
+	 * @see #outputStrongConnectedComponents()
+	 */
 	public void findStrongConnectedComponents(int[][] adjList,Object[] graphNodes) {
 
-            int s = 0;                
-            while (true) {
-            SCCResult sccResult = getAdjacencyList(s);
-            if (sccResult != null && sccResult.getAdjList() != null) {
-                            ArrayList[] scc = sccResult.getAdjList();
+            SCCDecomposition sccs = this.getDecomposition();
+            boolean[] inComponent = new boolean[this.graph.getNodeCount()];
+            for (int step = 0; step < sccs.getStepCount(); step++) {
+                            int[] nodes = sccs.getComponentNodes(step);
+                            Arrays.sort(nodes);
                             ArrayList scc1 = new ArrayList();
-                            s = sccResult.getLowestNodeId();
-                            for (int j = 0; j < scc.length; j++) {
-                                    if ((scc[j] != null) && (scc[j].size() > 0)) {
-                                        scc1.add(graphNodes[j]);
-                                        if(selfLoopsSCC.contains(j)){
-                                            selfLoopsSCC.remove(selfLoopsSCC.indexOf(j));
-                                        }
-                                    }
+                            for (int j = 0; j < nodes.length; j++) {
+                                        scc1.add(graphNodes[nodes[j]]);
+                                        inComponent[nodes[j]] = true;
                             }
                             componentArray.add(scc1);
-                            s++;
-                    } else {
-                            break;
-                    }
             }
             
-            for(int i=0;i<selfLoopsSCC.size();i++){
-                ArrayList scc1 = new ArrayList();
-                scc1.add(graphNodes[(Integer) selfLoopsSCC.get(i)]);
-                componentArray.add(scc1);
+            for(int i=0;i<this.selfLoops.length;i++){
+                if (this.selfLoops[i] && !inComponent[i]) {
+                    ArrayList scc1 = new ArrayList();
+                    scc1.add(graphNodes[i]);
+                    componentArray.add(scc1);
+                }
             }
         
 	}
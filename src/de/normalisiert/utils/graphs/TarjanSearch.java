@@ -0,0 +1,137 @@
+package de.normalisiert.utils.graphs;
+
+
+/**
+ * Non-recursive implementation of the algorithm of Tarjan for the strong
+ * connected components of a graph, or of the subgraph induced by a set of
+ * marked nodes. The work arrays are allocated once and can be reused for
+ * several searches on the same graph. Membership on the stack of the
+ * algorithm is kept in a bitset, so every edge is handled in constant time
+ * and a search takes O(n + m).<br><br>
+ *
+ * For a description of the algorithm see:<br>
+ * Robert Tarjan: Depth-first search and linear graph algorithms. In: SIAM
+ * Journal on Computing. Volume 1, Nr. 2 (1972), pp. 146-160.<br>
+ *
+ */
+class TarjanSearch {
+	/** Graph */
+	private CompactGraph graph = null;
+
+	/** Visiting number of each node, 0 for unvisited nodes */
+	private int[] number = null;
+
+	/** Lowlink of each node */
+	private int[] lowlink = null;
+
+	/** Stack of the algorithm of Tarjan */
+	private int[] stack = null;
+
+	/** Nodes on the stack of the algorithm of Tarjan */
+	private long[] onStack = null;
+
+	/** Nodes of the depth-first search path */
+	private int[] path = null;
+
+	/** Position of the next successor to look at, for each node on the path */
+	private int[] cursor = null;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param graph the graph
+	 */
+	public TarjanSearch(CompactGraph graph) {
+		int n = graph.getNodeCount();
+		this.graph = graph;
+		this.number = new int[n];
+		this.lowlink = new int[n];
+		this.stack = new int[n];
+		this.onStack = new long[(n + 63) >>> 6];
+		this.path = new int[n];
+		this.cursor = new int[n];
+	}
+
+	/**
+	 * Computes the strong connected components of the subgraph induced by
+	 * the nodes in a range of a node array. The components are numbered in
+	 * the order they are found, which is a reverse topological order.
+	 *
+	 * @param nodes node array
+	 * @param from start of the range
+	 * @param to end of the range
+	 * @param mark exactly the nodes of the range are marked with
+	 * currentMark; null, if the range holds all nodes of the graph
+	 * @param currentMark mark of the nodes in the range
+	 * @param componentOf receives the component of every node in the range
+	 * @return number of components
+	 */
+	public int run(int[] nodes, int from, int to, int[] mark, int currentMark, int[] componentOf) {
+		for (int i = from; i < to; i++) {
+			this.number[nodes[i]] = 0;
+		}
+
+		int counter = 0;
+		int stackSize = 0;
+		int componentCount = 0;
+
+		for (int i = from; i < to; i++) {
+			int root = nodes[i];
+			if (this.number[root] != 0) {
+				continue;
+			}
+
+			int depth = 0;
+			counter++;
+			this.number[root] = counter;
+			this.lowlink[root] = counter;
+			this.stack[stackSize++] = root;
+			this.onStack[root >>> 6] |= 1L << root;
+			this.path[depth] = root;
+			this.cursor[depth] = this.graph.getEdgeStart(root);
+			depth++;
+
+			while (depth > 0) {
+				int v = this.path[depth - 1];
+
+				if (this.cursor[depth - 1] < this.graph.getEdgeEnd(v)) {
+					int w = this.graph.getTarget(this.cursor[depth - 1]++);
+					if (mark != null && mark[w] != currentMark) {
+						continue;
+					}
+					if (this.number[w] == 0) {
+						counter++;
+						this.number[w] = counter;
+						this.lowlink[w] = counter;
+						this.stack[stackSize++] = w;
+						this.onStack[w >>> 6] |= 1L << w;
+						this.path[depth] = w;
+						this.cursor[depth] = this.graph.getEdgeStart(w);
+						depth++;
+					} else if ((this.onStack[w >>> 6] & (1L << w)) != 0) {
+						this.lowlink[v] = Math.min(this.lowlink[v], this.number[w]);
+					}
+				} else {
+					// found scc
+					if (this.lowlink[v] == this.number[v]) {
+						int next;
+						do {
+							next = this.stack[--stackSize];
+							this.onStack[next >>> 6] &= ~(1L << next);
+							componentOf[next] = componentCount;
+						} while (next != v);
+						componentCount++;
+					}
+
+					depth--;
+					if (depth > 0) {
+						int u = this.path[depth - 1];
+						this.lowlink[u] = Math.min(this.lowlink[u], this.lowlink[v]);
+					}
+				}
+			}
+		}
+
+		return componentCount;
+	}
+}
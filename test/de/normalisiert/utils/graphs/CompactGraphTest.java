@@ -0,0 +1,179 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+
+/**
+ * Tests of {@link CompactGraph}.
+ *
+ */
+public class CompactGraphTest {
+	@Test
+	public void holdsTheEdgesOfAnAdjacencyList() {
+		Random random = new Random(11);
+		for (int k = 0; k < 200; k++) {
+			int[][] adjList = ReferenceCycles.randomGraph(random, random.nextInt(30), random.nextDouble(), 0.3);
+			int[][] shuffled = shuffledRows(random, adjList);
+			int[][] given = ReferenceCycles.copy(shuffled);
+			CompactGraph graph = CompactGraph.fromAdjacencyList(shuffled);
+
+			assertEquals(adjList.length, graph.getNodeCount());
+			assertArrayEquals(adjList, graph.toAdjacencyList());
+			assertArrayEquals("the rows are not sorted in place", given, shuffled);
+			int edges = 0;
+			for (int v = 0; v < adjList.length; v++) {
+				edges += adjList[v].length;
+				assertEquals(adjList[v].length, graph.getOutDegree(v));
+				for (int w = 0; w < adjList.length; w++) {
+					assertEquals(Arrays.binarySearch(adjList[v], w) >= 0, graph.hasEdge(v, w));
+				}
+			}
+			assertEquals(edges, graph.getEdgeCount());
+		}
+	}
+
+	@Test
+	public void fromMatrixEqualsFromAdjacencyList() {
+		Random random = new Random(12);
+		for (int k = 0; k < 200; k++) {
+			int[][] adjList = ReferenceCycles.randomGraph(random, random.nextInt(30), random.nextDouble(), 0.3);
+			assertArrayEquals(adjList, CompactGraph.fromMatrix(ReferenceCycles.toMatrix(adjList)).toAdjacencyList());
+		}
+	}
+
+	@Test
+	public void reverseIndexHoldsThePredecessors() {
+		Random random = new Random(13);
+		for (int k = 0; k < 200; k++) {
+			int[][] adjList = ReferenceCycles.randomGraph(random, random.nextInt(30), random.nextDouble(), 0.3);
+			CompactGraph graph = CompactGraph.fromAdjacencyList(adjList);
+			assertFalse(graph.hasReverseIndex());
+			CompactGraph reverse = graph.withReverseIndex();
+			assertTrue(reverse.hasReverseIndex());
+			assertTrue(reverse == reverse.withReverseIndex());
+
+			for (int w = 0; w < adjList.length; w++) {
+				int previous = -1;
+				int degree = 0;
+				for (int e = reverse.getInEdgeStart(w); e < reverse.getInEdgeEnd(w); e++) {
+					int v = reverse.getSource(e);
+					assertTrue("predecessors are sorted", v > previous);
+					assertTrue(graph.hasEdge(v, w));
+					previous = v;
+					degree++;
+				}
+				for (int v = 0; v < adjList.length; v++) {
+					if (graph.hasEdge(v, w)) {
+						degree--;
+					}
+				}
+				assertEquals(0, degree);
+				assertEquals(reverse.getInEdgeEnd(w) - reverse.getInEdgeStart(w), reverse.getInDegree(w));
+			}
+		}
+	}
+
+	@Test
+	public void builderMergesParallelEdges() {
+		Random random = new Random(14);
+		for (int k = 0; k < 200; k++) {
+			int n = random.nextInt(30);
+			int[][] adjList = ReferenceCycles.randomGraph(random, n, random.nextDouble(), 0.3);
+			int[][] edges = randomEdges(random, adjList);
+
+			CompactGraph.Builder builder = new CompactGraph.Builder(n).addEdges(edges[0], edges[1]);
+			assertArrayEquals(adjList, builder.build().toAdjacencyList());
+			int[] selfLoops = new int[n];
+			int size = 0;
+			for (int v = 0; v < n; v++) {
+				if (Arrays.binarySearch(adjList[v], v) >= 0) {
+					selfLoops[size++] = v;
+				}
+			}
+			assertArrayEquals(Arrays.copyOf(selfLoops, size), builder.getSelfLoops());
+			assertArrayEquals(adjList, CompactGraph.fromEdges(n, edges[0], edges[1]).toAdjacencyList());
+		}
+	}
+
+	@Test
+	public void searchesOnEdgesFindTheCyclesOfTheAdjacencyList() {
+		Random random = new Random(15);
+		for (int k = 0; k < 200; k++) {
+			int[][] adjList = ElementaryCyclesSearchTest.randomGraph(random);
+			int[][] edges = randomEdges(random, adjList);
+			String[] names = ReferenceCycles.names(adjList.length);
+			assertEquals(new ElementaryCyclesSearch(adjList, names).getElementaryCycles(),
+					new ElementaryCyclesSearch(edges[0], edges[1], names).getElementaryCycles());
+
+			names = ElementaryCyclesSearchforStableSCCTest.randomNames(random);
+			adjList = ElementaryCyclesSearchforStableSCCTest.randomNetwork(random, names);
+			edges = randomEdges(random, adjList);
+			assertEquals(new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).getElementaryCycles(),
+					new ElementaryCyclesSearchforStableSCC(edges[0], edges[1], names).getElementaryCycles());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void builderRejectsEdgesOutsideOfTheNodes() {
+		new CompactGraph.Builder(3).addEdge(1, 3);
+	}
+
+	/**
+	 * @return sources and targets of the edges of an adjacency-list in random
+	 * order, some of them twice
+	 */
+	private static int[][] randomEdges(Random random, int[][] adjList) {
+		int m = 0;
+		for (int v = 0; v < adjList.length; v++) {
+			m += adjList[v].length;
+		}
+		int[] src = new int[2 * m];
+		int[] dst = new int[2 * m];
+		int size = 0;
+		for (int v = 0; v < adjList.length; v++) {
+			for (int i = 0; i < adjList[v].length; i++) {
+				for (int copies = random.nextInt(4) == 0 ? 2 : 1; copies > 0; copies--) {
+					src[size] = v;
+					dst[size++] = adjList[v][i];
+				}
+			}
+		}
+		src = Arrays.copyOf(src, size);
+		dst = Arrays.copyOf(dst, size);
+		for (int i = src.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int t = src[i];
+			src[i] = src[j];
+			src[j] = t;
+			t = dst[i];
+			dst[i] = dst[j];
+			dst[j] = t;
+		}
+		return new int[][] {src, dst};
+	}
+
+	/**
+	 * @return copy of an adjacency-list with the entries of every row in
+	 * random order
+	 */
+	private static int[][] shuffledRows(Random random, int[][] adjList) {
+		int[][] shuffled = ReferenceCycles.copy(adjList);
+		for (int v = 0; v < shuffled.length; v++) {
+			int[] row = shuffled[v];
+			for (int i = row.length - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int t = row[i];
+				row[i] = row[j];
+				row[j] = t;
+			}
+		}
+		return shuffled;
+	}
+}
@@ -0,0 +1,177 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Compares the searches with a {@link CycleCache} with the searches without
+ * it.
+ *
+ */
+public class CycleCacheTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void searchesFindTheCyclesOfTheSearchesWithoutCache() {
+		Random random = new Random(241);
+		for (int c = 0; c < 3; c++) {
+			// a small cache gives up recording the large components and drops many others
+			CycleCache cache = new CycleCache(c == 0 ? 0 : c == 1 ? 200 : Long.MAX_VALUE);
+			for (int k = 0; k < 300; k++) {
+				// graphs out of few shapes, so that the components come again
+				int[][] adjList = ReferenceCycles.randomGraph(new Random(random.nextInt(20)), 1 + random.nextInt(10), 0.3, 0.3);
+				String[] names = ReferenceCycles.names(adjList.length);
+				int maxLength = 1 + random.nextInt(adjList.length + 1);
+				ElementaryCyclesSearch search = new ElementaryCyclesSearch(adjList, names);
+				ElementaryCyclesSearch cached = new ElementaryCyclesSearch(adjList, names);
+				cached.setCycleCache(cache);
+
+				assertEquals(search.getElementaryCycles(), cached.getElementaryCycles());
+				assertEquals(search.getElementaryCycles(maxLength), cached.getElementaryCycles(maxLength));
+				assertEquals(search.getElementaryCyclesNSL(), cached.getElementaryCyclesNSL());
+				assertEquals(search.getElementaryCyclesNSL(maxLength), cached.getElementaryCyclesNSL(maxLength));
+
+				String[] stableNames = ElementaryCyclesSearchforStableSCCTest.randomNames(new Random(random.nextInt(20)));
+				int[][] network = ElementaryCyclesSearchforStableSCCTest.randomNetwork(new Random(random.nextInt(20)), stableNames);
+				ElementaryCyclesSearchforStableSCC stable = new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(network), stableNames);
+				stable.setCycleCache(cache);
+				assertEquals(ElementaryCyclesSearchforStableSCCTest.expected(network, stableNames, Integer.MAX_VALUE), stable.getElementaryCycles());
+			}
+			if (c == 0) {
+				assertEquals(0, cache.size());
+				assertEquals(0, cache.getHitCount());
+			} else {
+				assertTrue(cache.getHitCount() > 0);
+			}
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void visitorStopsTheSearchOfAComponent() {
+		// the complete graph of 14 nodes has far too many cycles to be recorded first
+		int n = 14;
+		boolean[][] matrix = new boolean[n][n];
+		for (int v = 0; v < n; v++) {
+			for (int w = 0; w < n; w++) {
+				matrix[v][w] = v != w;
+			}
+		}
+		CycleCache cache = new CycleCache(Long.MAX_VALUE);
+		ElementaryCyclesSearch search = new ElementaryCyclesSearch(matrix, ReferenceCycles.names(n));
+		search.setCycleCache(cache);
+
+		CycleVisitorTest.Recorder recorder = new CycleVisitorTest.Recorder(5);
+		assertFalse(search.visitElementaryCycles(recorder));
+		assertEquals(6, recorder.calls);
+		assertEquals(0, cache.size());
+		recorder = new CycleVisitorTest.Recorder(5);
+		assertFalse(search.visitElementaryCycles(recorder));
+		assertEquals(6, recorder.calls);
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void givesUpRecordingBeyondItsMemory() {
+		// two components: 0 and 1, and the complete graph of 2 to 7
+		int n = 8;
+		boolean[][] matrix = new boolean[n][n];
+		matrix[0][1] = true;
+		matrix[1][0] = true;
+		for (int v = 2; v < n; v++) {
+			for (int w = 2; w < n; w++) {
+				matrix[v][w] = v != w;
+			}
+		}
+		ElementaryCyclesSearch search = new ElementaryCyclesSearch(matrix, ReferenceCycles.names(n));
+		CycleCache cache = new CycleCache(100);
+		for (int i = 0; i < 2; i++) {
+			ElementaryCyclesSearch cached = new ElementaryCyclesSearch(matrix, ReferenceCycles.names(n));
+			cached.setCycleCache(cache);
+			assertEquals(search.getElementaryCycles(), cached.getElementaryCycles());
+		}
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+	}
+
+	@Test
+	public void readsTheComponentsOfAnotherRun() throws IOException {
+		Random random = new Random(244);
+		CycleCache cache = new CycleCache(Long.MAX_VALUE, this.folder.getRoot());
+		int[][][] graphs = new int[20][][];
+		for (int k = 0; k < graphs.length; k++) {
+			graphs[k] = ReferenceCycles.randomGraph(random, 1 + random.nextInt(10), 0.3, 0.3);
+			ElementaryCyclesSearch cached = new ElementaryCyclesSearch(graphs[k], ReferenceCycles.names(graphs[k].length));
+			cached.setCycleCache(cache);
+			cached.getElementaryCycles();
+		}
+		cache.flush();
+
+		CycleCache next = new CycleCache(Long.MAX_VALUE, this.folder.getRoot());
+		for (int k = 0; k < graphs.length; k++) {
+			String[] names = ReferenceCycles.names(graphs[k].length);
+			ElementaryCyclesSearch cached = new ElementaryCyclesSearch(graphs[k], names);
+			cached.setCycleCache(next);
+			assertEquals(new ElementaryCyclesSearch(graphs[k], names).getElementaryCycles(), cached.getElementaryCycles());
+		}
+		assertEquals(0, next.getMissCount());
+		assertTrue(next.getReadCount() > 0);
+	}
+
+	@Test
+	public void searchesTheComponentsOfBrokenFilesAgain() throws IOException {
+		int n = 4;
+		boolean[][] matrix = new boolean[n][n];
+		for (int v = 0; v < n; v++) {
+			for (int w = 0; w < n; w++) {
+				matrix[v][w] = v != w;
+			}
+		}
+		String[] names = ReferenceCycles.names(n);
+		ElementaryCyclesSearch search = new ElementaryCyclesSearch(matrix, names);
+		for (int k = 0; k < 4; k++) {
+			CycleCache cache = new CycleCache(Long.MAX_VALUE, this.folder.getRoot());
+			ElementaryCyclesSearch cached = new ElementaryCyclesSearch(matrix, names);
+			cached.setCycleCache(cache);
+			cached.getElementaryCycles();
+			cache.flush();
+
+			// a node outside of the component, a cut off file, a huge or a negative number of cycles
+			File[] files = this.folder.getRoot().listFiles();
+			assertEquals(1, files.length);
+			RandomAccessFile file = new RandomAccessFile(files[0], "rw");
+			try {
+				if (k == 0) {
+					file.seek(file.length() - 4);
+					file.writeInt(n);
+				} else if (k == 1) {
+					file.setLength(file.length() - 4);
+				} else {
+					file.seek(4);
+					file.writeInt(k == 2 ? Integer.MAX_VALUE : -2);
+				}
+			} finally {
+				file.close();
+			}
+
+			CycleCache next = new CycleCache(Long.MAX_VALUE, this.folder.getRoot());
+			cached = new ElementaryCyclesSearch(matrix, names);
+			cached.setCycleCache(next);
+			assertEquals(search.getElementaryCycles(), cached.getElementaryCycles());
+			assertEquals(1, next.getMissCount());
+			assertEquals(0, next.getReadCount());
+			assertFalse(files[0].exists());
+		}
+	}
+}
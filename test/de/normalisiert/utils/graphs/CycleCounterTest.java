@@ -0,0 +1,87 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+
+
+/**
+ * Compares the counts of {@link CycleCounter} with the lengths of the cycles
+ * of the reference search.
+ *
+ */
+public class CycleCounterTest {
+	/** Number of random graphs of each test */
+	private static final int GRAPHS = 300;
+
+	@Test
+	public void countsTheCyclesOfTheReference() {
+		Random random = new Random(131);
+		for (int k = 0; k < GRAPHS; k++) {
+			int[][] adjList = ElementaryCyclesSearchTest.randomGraph(random);
+			int maxLength = 1 + random.nextInt(adjList.length + 1);
+			ElementaryCyclesSearch search = new ElementaryCyclesSearch(adjList, ReferenceCycles.names(adjList.length));
+
+			checkCounts(ReferenceCycles.elementaryCycles(adjList, Integer.MAX_VALUE, false), search.countElementaryCycles());
+			checkCounts(ReferenceCycles.elementaryCycles(adjList, maxLength, false), search.countElementaryCycles(maxLength));
+			checkCounts(ReferenceCycles.elementaryCycles(adjList, Integer.MAX_VALUE, true), search.countElementaryCyclesNSL());
+			checkCounts(ReferenceCycles.elementaryCycles(adjList, maxLength, true), search.countElementaryCyclesNSL(maxLength));
+		}
+	}
+
+	@Test
+	public void countsTheCyclesOfTheStableSearch() {
+		Random random = new Random(132);
+		for (int k = 0; k < GRAPHS; k++) {
+			String[] names = ElementaryCyclesSearchforStableSCCTest.randomNames(random);
+			int[][] adjList = ElementaryCyclesSearchforStableSCCTest.randomNetwork(random, names);
+			int maxLength = 1 + random.nextInt(names.length + 1);
+
+			assertArrayEquals(countsOf(ElementaryCyclesSearchforStableSCCTest.expected(adjList, names, Integer.MAX_VALUE)),
+					new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).countElementaryCycles().getCountsByLength());
+			assertArrayEquals(countsOf(ElementaryCyclesSearchforStableSCCTest.expected(adjList, names, maxLength)),
+					new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).countElementaryCycles(maxLength).getCountsByLength());
+			assertArrayEquals(countsOf(ElementaryCyclesSearchforStableSCCTest.expectedNSL(adjList, names, Integer.MAX_VALUE, null)),
+					new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).countElementaryCyclesNSL().getCountsByLength());
+			assertArrayEquals(countsOf(ElementaryCyclesSearchforStableSCCTest.expectedNSL(adjList, names, maxLength, null)),
+					new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).countElementaryCyclesNSL(maxLength).getCountsByLength());
+		}
+	}
+
+	@Test
+	public void countsLongCycles() {
+		CycleCounter counter = new CycleCounter();
+		int[] path = new int[100];
+		counter.visitCycle(path, 100);
+		counter.visitCycle(path, 3);
+		counter.visitCycle(path, 100);
+		assertEquals(3, counter.getTotal());
+		assertEquals(2, counter.getCount(100));
+		assertEquals(1, counter.getCount(3));
+		assertEquals(0, counter.getCount(1000));
+		assertEquals(101, counter.getCountsByLength().length);
+	}
+
+	private static void checkCounts(ArrayList cycles, CycleCounter counter) {
+		long[] expected = ReferenceCycles.countsByLength(cycles);
+		assertArrayEquals(expected, counter.getCountsByLength());
+		assertEquals(cycles.size(), counter.getTotal());
+		for (int length = 0; length < expected.length + 2; length++) {
+			assertEquals(length < expected.length ? expected[length] : 0, counter.getCount(length));
+		}
+	}
+
+	/**
+	 * @return number of lists of each length
+	 */
+	private static long[] countsOf(ArrayList lists) {
+		ArrayList cycles = new ArrayList();
+		for (int i = 0; i < lists.size(); i++) {
+			cycles.add(new int[((ArrayList) lists.get(i)).size()]);
+		}
+		return ReferenceCycles.countsByLength(cycles);
+	}
+}
@@ -0,0 +1,149 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import org.junit.Test;
+
+
+/**
+ * Compares {@link CycleHashSet} with a HashSet of the canonical forms of the
+ * cycles as lists.
+ *
+ */
+public class CycleHashSetTest {
+	@Test
+	public void holdsEveryCycleOnce() {
+		Random random = new Random(191);
+		for (int k = 0; k < 50; k++) {
+			boolean nodeSets = random.nextBoolean();
+			CycleVisitorTest.Recorder passed = new CycleVisitorTest.Recorder(Integer.MAX_VALUE);
+			CycleHashSet set = new CycleHashSet(null, nodeSets, passed);
+			HashSet expected = new HashSet();
+			ArrayList order = new ArrayList();
+
+			// few nodes, so many cycles are added more than once, rotated or permuted
+			for (int i = 0; i < 2000; i++) {
+				int[] path = randomPath(random, 1 + random.nextInt(6), 1 + random.nextInt(40));
+				int[] key = canonical(path, nodeSets);
+				boolean added = expected.add(ReferenceCycles.toList(key));
+				assertEquals(!added, set.contains(path, path.length));
+				set.visitCycle(path, path.length);
+				if (added) {
+					order.add(key);
+				}
+			}
+
+			assertEquals(expected.size(), set.size());
+			assertEquals(order.size(), passed.cycles.size());
+			for (int i = 0; i < order.size(); i++) {
+				assertArrayEquals((int[]) order.get(i), set.getCycle(i));
+				assertEquals(ReferenceCycles.toList(canonical((int[]) order.get(i), nodeSets)),
+						ReferenceCycles.toList(canonical(toArray((ArrayList) passed.cycles.get(i)), nodeSets)));
+			}
+			assertEquals(ReferenceCycles.toLists(set.toCycleSet()), ReferenceCycles.toLists(setOf(order)));
+		}
+	}
+
+	@Test
+	public void addsTheCyclesOfOtherSets() {
+		Random random = new Random(192);
+		for (int k = 0; k < 50; k++) {
+			CycleSet cycles1 = new CycleSet(null);
+			CycleSet cycles2 = new CycleSet(null);
+			for (int i = 0; i < 500; i++) {
+				int[] path = randomPath(random, 1 + random.nextInt(5), 15);
+				(random.nextBoolean() ? cycles1 : cycles2).visitCycle(path, path.length);
+			}
+			boolean nodeSets = random.nextBoolean();
+			CycleHashSet all = new CycleHashSet(null, nodeSets);
+			all.addAll(cycles1);
+			all.addAll(cycles2);
+
+			CycleHashSet merged = new CycleHashSet(null, nodeSets);
+			merged.addAll(cycles1);
+			// a set comparing node sets cannot give back the orders of the nodes
+			CycleHashSet other = new CycleHashSet(null, nodeSets && random.nextBoolean());
+			other.addAll(cycles2);
+			int before = merged.size();
+			assertEquals(all.size() - before, merged.addAll(other));
+			assertEquals(all.size(), merged.size());
+			for (int i = 0; i < all.size(); i++) {
+				int[] cycle = all.getCycle(i);
+				assertEquals(true, merged.contains(cycle, cycle.length));
+				assertEquals(all.getHash(i), merged.getHash(i));
+			}
+		}
+	}
+
+	@Test
+	public void dropsTheCyclesOfTheSameNodesInASearch() {
+		Random random = new Random(193);
+		for (int k = 0; k < 300; k++) {
+			String[] names = ElementaryCyclesSearchforStableSCCTest.randomNames(random);
+			int[][] adjList = ElementaryCyclesSearchforStableSCCTest.randomNetwork(random, names);
+			ArrayList cycles = new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).getElementaryCycles();
+			ArrayList distinct = new ArrayList(new LinkedHashSet(cycles));
+
+			SearchOptions options = new SearchOptions();
+			options.setDistinctNodeSets(true);
+			assertEquals(distinct, new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).getElementaryCycles(options).getCycles());
+		}
+	}
+
+	/**
+	 * @return path of distinct nodes below n
+	 */
+	private static int[] randomPath(Random random, int length, int n) {
+		ArrayList nodes = new ArrayList();
+		for (int v = 0; v < Math.max(n, length); v++) {
+			nodes.add(v);
+		}
+		Collections.shuffle(nodes, random);
+		return toArray(new ArrayList(nodes.subList(0, length)));
+	}
+
+	/**
+	 * @return the rotation starting at the least node, or the sorted nodes
+	 */
+	private static int[] canonical(int[] path, boolean nodeSets) {
+		int[] key = path.clone();
+		if (nodeSets) {
+			Arrays.sort(key);
+			return key;
+		}
+		int least = 0;
+		for (int i = 1; i < path.length; i++) {
+			if (path[i] < path[least]) {
+				least = i;
+			}
+		}
+		for (int i = 0; i < path.length; i++) {
+			key[i] = path[(least + i) % path.length];
+		}
+		return key;
+	}
+
+	private static int[] toArray(ArrayList list) {
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = ((Integer) list.get(i)).intValue();
+		}
+		return array;
+	}
+
+	private static CycleSet setOf(ArrayList cycles) {
+		CycleSet cycleSet = new CycleSet(null);
+		for (int i = 0; i < cycles.size(); i++) {
+			int[] cycle = (int[]) cycles.get(i);
+			cycleSet.visitCycle(cycle, cycle.length);
+		}
+		return cycleSet;
+	}
+}
@@ -0,0 +1,110 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+
+/**
+ * Tests of {@link CycleSet}.
+ *
+ */
+public class CycleSetTest {
+	@Test
+	public void holdsTheCyclesOfTheSearch() {
+		Random random = new Random(71);
+		for (int k = 0; k < 300; k++) {
+			int[][] adjList = ElementaryCyclesSearchTest.randomGraph(random);
+			String[] names = ReferenceCycles.names(adjList.length);
+			int maxLength = 1 + random.nextInt(adjList.length + 1);
+			ElementaryCyclesSearch search = new ElementaryCyclesSearch(adjList, names);
+
+			ArrayList expected = ReferenceCycles.elementaryCycles(adjList, maxLength, false);
+			CycleSet cycleSet = search.getElementaryCycleSet(maxLength);
+			checkCycles(expected, names, cycleSet);
+			assertEquals(search.getElementaryCycles(maxLength), cycleSet.toList());
+			checkCycles(ReferenceCycles.elementaryCycles(adjList, Integer.MAX_VALUE, false), names, search.getElementaryCycleSet());
+		}
+	}
+
+	@Test
+	public void growsAndTrimsItsArrays() {
+		Random random = new Random(72);
+		ArrayList expected = new ArrayList();
+		CycleSet cycleSet = new CycleSet(null);
+		int[] path = new int[100];
+		for (int k = 0; k < 2000; k++) {
+			int length = 1 + random.nextInt(k % 50 == 0 ? 100 : 5);
+			for (int j = 0; j < length; j++) {
+				path[j] = random.nextInt(1000);
+			}
+			expected.add(Arrays.copyOf(path, length));
+			assertEquals(true, cycleSet.visitCycle(path, length));
+		}
+		cycleSet.trimToSize();
+		assertEquals(expected.size() + 1, cycleSet.getOffsets().length);
+		assertEquals(cycleSet.getOffsets()[expected.size()], cycleSet.getNodes().length);
+		checkCycles(expected, null, cycleSet);
+	}
+
+	@Test
+	public void growsUpToTheLargestArray() {
+		assertEquals(128, CycleSet.grownLength(64, 65));
+		assertEquals(300, CycleSet.grownLength(64, 300));
+		// doubling beyond 2^30 entries must neither overflow nor fall back to small steps
+		assertEquals(CycleSet.MAX_ARRAY_LENGTH, CycleSet.grownLength(1 << 30, (1 << 30) + 1L));
+		assertEquals(CycleSet.MAX_ARRAY_LENGTH, CycleSet.grownLength(CycleSet.MAX_ARRAY_LENGTH - 5, CycleSet.MAX_ARRAY_LENGTH));
+		try {
+			CycleSet.grownLength(CycleSet.MAX_ARRAY_LENGTH, CycleSet.MAX_ARRAY_LENGTH + 1L);
+			fail("the array grows beyond the largest length");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void visitsTheCyclesInOrder() {
+		Random random = new Random(73);
+		for (int k = 0; k < 100; k++) {
+			int[][] adjList = ElementaryCyclesSearchTest.randomGraph(random);
+			CycleSet cycleSet = new ElementaryCyclesSearch(adjList, ReferenceCycles.names(adjList.length)).getElementaryCycleSet();
+			int limit = random.nextInt(cycleSet.size() + 1);
+
+			CycleVisitorTest.Recorder recorder = new CycleVisitorTest.Recorder(limit);
+			assertEquals(limit >= cycleSet.size(), cycleSet.visit(recorder));
+			assertEquals(Math.min(limit, cycleSet.size()), recorder.cycles.size());
+			for (int i = 0; i < recorder.cycles.size(); i++) {
+				assertEquals(ReferenceCycles.toList(cycleSet.getCycle(i)), recorder.cycles.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Checks the cycles of a set against the expected node arrays.
+	 */
+	private static void checkCycles(ArrayList expected, Object[] names, CycleSet cycleSet) {
+		assertEquals(expected.size(), cycleSet.size());
+		ArrayList lists = names == null ? null : ReferenceCycles.toLists(expected, names);
+		for (int i = 0; i < expected.size(); i++) {
+			int[] cycle = (int[]) expected.get(i);
+			assertArrayEquals(cycle, cycleSet.getCycle(i));
+			assertEquals(cycle.length, cycleSet.getLength(i));
+			assertEquals(cycleSet.getOffsets()[i + 1] - cycleSet.getOffsets()[i], cycle.length);
+			for (int j = 0; j < cycle.length; j++) {
+				assertEquals(cycle[j], cycleSet.getNode(i, j));
+				assertEquals(cycle[j], cycleSet.getNodes()[cycleSet.getOffsets()[i] + j]);
+				if (names != null) {
+					assertEquals(names[cycle[j]], cycleSet.getGraphNode(i, j));
+				}
+			}
+			if (names != null) {
+				assertEquals(lists.get(i), cycleSet.getGraphNodes(i));
+			}
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Runs the work units of {@link CycleShards} and compares the merged shards
+ * with the cycles of the search of the whole graph.
+ *
+ */
+public class CycleShardsTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void mergedShardsHoldTheCyclesOfTheSearch() throws IOException {
+		Random random = new Random(251);
+		for (int k = 0; k < 100; k++) {
+			int[][] adjList = ReferenceCycles.randomGraph(random, 1 + random.nextInt(20), random.nextDouble() * 0.2, 0.3);
+			CompactGraph graph = CompactGraph.fromAdjacencyList(adjList);
+			int maxLength = random.nextBoolean() ? Integer.MAX_VALUE : 1 + random.nextInt(adjList.length + 1);
+			boolean noSelfLoops = random.nextBoolean();
+			File directory = this.folder.newFolder();
+			File graphFile = new File(directory, "graph.bin");
+			MappedGraph.write(graphFile, graph, null, null);
+
+			// the units run in this process, in any order
+			CycleWorkUnit[] units = CycleShards.plan(graphFile, 1 + random.nextInt(6), maxLength, noSelfLoops, directory);
+			MappedGraph planned = MappedGraph.open(graphFile);
+			assertArrayEquals(new StrongConnectedComponents(graph).getComponents().getComponentIds(), planned.getComponentIds());
+			assertArrayEquals(adjList, planned.toAdjacencyList());
+			long count = 0;
+			for (int i = units.length - 1; i >= 0; i--) {
+				count += units[i].run();
+			}
+			File merged = new File(directory, "cycles.bin");
+			CycleCounter counter = CycleShards.merge(units, merged);
+
+			ArrayList expected = expected(graph, maxLength, noSelfLoops);
+			assertEquals(expected, cyclesOf(merged));
+			assertEquals(expected.size(), count);
+			assertEquals(expected.size(), counter.getTotal());
+			assertArrayEquals(ReferenceCycles.countsByLength(arraysOf(expected)), counter.getCountsByLength());
+			for (int i = 0; i + 1 < units.length; i++) {
+				assertEquals(units[i].getToNode(), units[i + 1].getFromNode());
+			}
+		}
+	}
+
+	@Test(timeout = 120000)
+	public void runsTheUnitsInWorkerProcesses() throws IOException, InterruptedException {
+		Random random = new Random(252);
+		int[][] adjList = ReferenceCycles.randomGraph(random, 30, 0.08, 0.3);
+		CompactGraph graph = CompactGraph.fromAdjacencyList(adjList);
+		File directory = this.folder.newFolder();
+		File graphFile = new File(directory, "graph.bin");
+		MappedGraph.write(graphFile, graph, null, null);
+
+		CycleWorkUnit[] units = CycleShards.plan(graphFile, 4, Integer.MAX_VALUE, false, directory);
+		assertTrue(units.length > 1);
+		CycleShards.runProcesses(units, 2, directory);
+		File merged = new File(directory, "cycles.bin");
+		CycleShards.merge(units, merged);
+		assertEquals(expected(graph, Integer.MAX_VALUE, false), cyclesOf(merged));
+	}
+
+	@Test
+	public void rejectsShardsThatEndInsideACycle() throws IOException {
+		File directory = this.folder.newFolder();
+		File graphFile = new File(directory, "graph.bin");
+		MappedGraph.write(graphFile, CompactGraph.fromAdjacencyList(new int[][] {{1}, {2}, {0}}), null, null);
+		CycleWorkUnit[] units = CycleShards.plan(graphFile, 1, Integer.MAX_VALUE, false, directory);
+		assertEquals(1, units[0].run());
+
+		RandomAccessFile raf = new RandomAccessFile(units[0].getShardFile(), "rw");
+		raf.setLength(raf.length() - 2);
+		raf.close();
+		try {
+			cyclesOf(units[0].getShardFile());
+			fail("the shard is read");
+		} catch (EOFException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void stopsTheWriterIfTheSearchThrows() throws IOException, InterruptedException {
+		File directory = this.folder.newFolder();
+		File graphFile = new File(directory, "graph.bin");
+		MappedGraph.write(graphFile, CompactGraph.fromAdjacencyList(new int[][] {{1}, {0}}), null, null);
+		CycleWorkUnit[] units = CycleShards.plan(graphFile, 1, Integer.MAX_VALUE, false, directory);
+		// the unit then reads an edge to a node the graph does not have
+		MappedGraph.write(graphFile, new CompactGraph(new int[] {0, 1, 2}, new int[] {1, 5}), null, null);
+		try {
+			units[0].run();
+			fail("the search of the broken graph succeeds");
+		} catch (ArrayIndexOutOfBoundsException e) {
+			// expected
+		}
+		assertEquals(0, writerThreads());
+	}
+
+	/**
+	 * @return number of running writer threads, after waiting for them a while
+	 */
+	private static int writerThreads() throws InterruptedException {
+		int count = 0;
+		for (int k = 0; k < 100; k++) {
+			count = 0;
+			for (Thread thread : Thread.getAllStackTraces().keySet()) {
+				if (thread.getName().equals("CycleWriter") && thread.isAlive()) {
+					count++;
+				}
+			}
+			if (count == 0) {
+				break;
+			}
+			Thread.sleep(20);
+		}
+		return count;
+	}
+
+	/**
+	 * @return the cycles of the search of the whole graph as lists of nodes
+	 */
+	private static ArrayList expected(CompactGraph graph, int maxLength, boolean noSelfLoops) {
+		CycleVisitorTest.Recorder recorder = new CycleVisitorTest.Recorder(Integer.MAX_VALUE);
+		ElementaryCyclesSearch search = new ElementaryCyclesSearch(graph, null);
+		assertTrue(noSelfLoops ? search.visitElementaryCyclesNSL(recorder, maxLength) : search.visitElementaryCycles(recorder, maxLength));
+		return recorder.cycles;
+	}
+
+	/**
+	 * @return the cycles of a file as lists of nodes
+	 */
+	private static ArrayList cyclesOf(File file) throws IOException {
+		CycleVisitorTest.Recorder recorder = new CycleVisitorTest.Recorder(Integer.MAX_VALUE);
+		assertTrue(CycleShards.visit(file, recorder));
+		return recorder.cycles;
+	}
+
+	private static ArrayList arraysOf(ArrayList lists) {
+		ArrayList cycles = new ArrayList();
+		for (int i = 0; i < lists.size(); i++) {
+			cycles.add(new int[((ArrayList) lists.get(i)).size()]);
+		}
+		return cycles;
+	}
+}
@@ -0,0 +1,141 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import org.junit.Test;
+
+
+/**
+ * Compares the cycles passed to a {@link CycleVisitor} with the cycles of
+ * the reference search, for complete searches and for searches stopped by
+ * the visitor.
+ *
+ */
+public class CycleVisitorTest {
+	/** Number of random graphs of each test */
+	private static final int GRAPHS = 300;
+
+	@Test
+	public void visitsTheCyclesOfTheReference() {
+		Random random = new Random(61);
+		for (int k = 0; k < GRAPHS; k++) {
+			int[][] adjList = ElementaryCyclesSearchTest.randomGraph(random);
+			int maxLength = 1 + random.nextInt(adjList.length + 1);
+			ElementaryCyclesSearch search = new ElementaryCyclesSearch(adjList, ReferenceCycles.names(adjList.length));
+
+			Recorder recorder = new Recorder(Integer.MAX_VALUE);
+			assertEquals(true, search.visitElementaryCycles(recorder));
+			assertEquals(expected(adjList, Integer.MAX_VALUE, false), recorder.cycles);
+			recorder = new Recorder(Integer.MAX_VALUE);
+			assertEquals(true, search.visitElementaryCycles(recorder, maxLength));
+			assertEquals(expected(adjList, maxLength, false), recorder.cycles);
+			recorder = new Recorder(Integer.MAX_VALUE);
+			assertEquals(true, search.visitElementaryCyclesNSL(recorder));
+			assertEquals(expected(adjList, Integer.MAX_VALUE, true), recorder.cycles);
+			recorder = new Recorder(Integer.MAX_VALUE);
+			assertEquals(true, search.visitElementaryCyclesNSL(recorder, maxLength));
+			assertEquals(expected(adjList, maxLength, true), recorder.cycles);
+		}
+	}
+
+	@Test
+	public void stopsAfterTheCyclesTheVisitorWants() {
+		Random random = new Random(62);
+		for (int k = 0; k < GRAPHS; k++) {
+			int[][] adjList = ElementaryCyclesSearchTest.randomGraph(random);
+			ArrayList expected = expected(adjList, Integer.MAX_VALUE, false);
+			int limit = random.nextInt(expected.size() + 2);
+
+			Recorder recorder = new Recorder(limit);
+			boolean complete = new ElementaryCyclesSearch(adjList, ReferenceCycles.names(adjList.length)).visitElementaryCycles(recorder);
+			assertEquals(limit >= expected.size(), complete);
+			assertEquals("no cycles after the stop", Math.min(limit + 1, expected.size()), recorder.calls);
+			assertEquals(expected.subList(0, Math.min(limit, expected.size())), recorder.cycles);
+		}
+	}
+
+	@Test
+	public void visitsTheCyclesOfTheStableSearch() {
+		Random random = new Random(63);
+		for (int k = 0; k < GRAPHS; k++) {
+			String[] names = ElementaryCyclesSearchforStableSCCTest.randomNames(random);
+			int[][] adjList = ElementaryCyclesSearchforStableSCCTest.randomNetwork(random, names);
+			ArrayList expected = ElementaryCyclesSearchforStableSCCTest.expected(adjList, names, Integer.MAX_VALUE);
+			int limit = random.nextInt(expected.size() + 2);
+
+			Recorder recorder = new Recorder(Integer.MAX_VALUE);
+			new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).visitElementaryCycles(recorder);
+			assertEquals(expected, sortedNames(recorder.cycles, names));
+
+			recorder = new Recorder(limit);
+			boolean complete = new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).visitElementaryCycles(recorder);
+			assertEquals(limit >= expected.size(), complete);
+			assertEquals("no cycles after the stop", Math.min(limit + 1, expected.size()), recorder.calls);
+			assertEquals(expected.subList(0, Math.min(limit, expected.size())), sortedNames(recorder.cycles, names));
+		}
+	}
+
+	/**
+	 * @return the cycles of the reference as lists of nodes
+	 */
+	private static ArrayList expected(int[][] adjList, int maxLength, boolean noSelfLoops) {
+		ArrayList cycles = ReferenceCycles.elementaryCycles(adjList, maxLength, noSelfLoops);
+		ArrayList lists = new ArrayList();
+		for (int i = 0; i < cycles.size(); i++) {
+			lists.add(ReferenceCycles.toList((int[]) cycles.get(i)));
+		}
+		return lists;
+	}
+
+	/**
+	 * @return the cycles as lists of their sorted names
+	 */
+	private static ArrayList sortedNames(ArrayList cycles, String[] names) {
+		ArrayList lists = new ArrayList();
+		for (int i = 0; i < cycles.size(); i++) {
+			ArrayList cycle = (ArrayList) cycles.get(i);
+			ArrayList<String> list = new ArrayList<String>();
+			for (int j = 0; j < cycle.size(); j++) {
+				list.add(names[((Integer) cycle.get(j)).intValue()]);
+			}
+			Collections.sort(list);
+			lists.add(list);
+		}
+		return lists;
+	}
+
+	/**
+	 * Visitor keeping copies of the cycles, which stops the search after a
+	 * number of cycles.
+	 */
+	static class Recorder implements CycleVisitor {
+		/** Copies of the visited cycles */
+		ArrayList cycles = new ArrayList();
+
+		/** Number of calls */
+		int calls = 0;
+
+		/** Number of cycles after which the search is stopped */
+		private int limit = 0;
+
+		Recorder(int limit) {
+			this.limit = limit;
+		}
+
+		public boolean visitCycle(int[] path, int length) {
+			this.calls++;
+			if (this.cycles.size() == this.limit) {
+				return false;
+			}
+			ArrayList cycle = new ArrayList();
+			for (int j = 0; j < length; j++) {
+				cycle.add(path[j]);
+			}
+			this.cycles.add(cycle);
+			return true;
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Writes the cycles of searches with a {@link CycleWriter} and compares the
+ * files with the cycles of the searches.
+ *
+ */
+public class CycleWriterTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void writesTheCyclesAsText() throws IOException {
+		Random random = new Random(121);
+		for (int k = 0; k < 50; k++) {
+			int[][] adjList = ElementaryCyclesSearchTest.randomGraph(random);
+			String[] names = ReferenceCycles.names(adjList.length);
+			ElementaryCyclesSearch search = new ElementaryCyclesSearch(adjList, names);
+
+			// small buffers make the writer swap them many times
+			File file = this.folder.newFile();
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			CycleWriter writer = new CycleWriter(raf.getChannel(), names, 1 + random.nextInt(64));
+			search.visitElementaryCycles(writer);
+			writer.close();
+			raf.close();
+
+			ArrayList cycles = search.getElementaryCycles();
+			StringBuilder expected = new StringBuilder();
+			for (int i = 0; i < cycles.size(); i++) {
+				ArrayList cycle = (ArrayList) cycles.get(i);
+				for (int j = 0; j < cycle.size(); j++) {
+					expected.append(j > 0 ? " -> " : "").append(cycle.get(j));
+				}
+				expected.append('\n');
+			}
+			assertEquals(cycles.size(), writer.getCycleCount());
+			assertEquals(expected.toString(), new String(Files.readAllBytes(file.toPath()), "UTF-8"));
+		}
+	}
+
+	@Test
+	public void writesTheCyclesBinary() throws IOException {
+		Random random = new Random(122);
+		for (int k = 0; k < 50; k++) {
+			int[][] adjList = ElementaryCyclesSearchTest.randomGraph(random);
+			ElementaryCyclesSearch search = new ElementaryCyclesSearch(adjList, ReferenceCycles.names(adjList.length));
+
+			File file = this.folder.newFile();
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			CycleWriter writer = new CycleWriter(raf.getChannel(), null, 1 + random.nextInt(64));
+			search.visitElementaryCycles(writer);
+			writer.close();
+			raf.close();
+
+			ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+			CycleSet written = new CycleSet(null);
+			int[] path = new int[adjList.length];
+			while (bytes.hasRemaining()) {
+				int length = bytes.getInt();
+				for (int j = 0; j < length; j++) {
+					path[j] = bytes.getInt();
+				}
+				written.visitCycle(path, length);
+			}
+			assertEquals(ReferenceCycles.toLists(search.getElementaryCycleSet()), ReferenceCycles.toLists(written));
+		}
+	}
+
+	@Test
+	public void stopsTheSearchIfWritingFails() throws IOException {
+		boolean[][] matrix = new boolean[8][8];
+		for (int v = 0; v < 8; v++) {
+			for (int w = 0; w < 8; w++) {
+				matrix[v][w] = v != w;
+			}
+		}
+		ElementaryCyclesSearch search = new ElementaryCyclesSearch(matrix, ReferenceCycles.names(8));
+
+		RandomAccessFile raf = new RandomAccessFile(this.folder.newFile(), "rw");
+		FileChannel channel = raf.getChannel();
+		channel.close();
+		CycleWriter writer = new CycleWriter(channel, null, 16);
+		assertFalse(search.visitElementaryCycles(writer));
+		try {
+			writer.close();
+			fail("the error of writing is not thrown");
+		} catch (IOException e) {
+			// expected
+		}
+		raf.close();
+	}
+
+	@Test(timeout = 30000)
+	public void rejectsCyclesAfterClose() throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(this.folder.newFile(), "rw");
+		CycleWriter writer = new CycleWriter(raf.getChannel(), null, 16);
+		int[] path = {0, 1, 2};
+		assertTrue(writer.visitCycle(path, 3));
+		writer.close();
+		writer.close();
+		assertEquals(16, raf.length());
+		// enough cycles to fill the buffer, which no thread would take
+		for (int i = 0; i < 10; i++) {
+			try {
+				writer.visitCycle(path, 3);
+				fail("the closed writer takes a cycle");
+			} catch (IllegalStateException e) {
+				// expected
+			}
+		}
+		assertEquals(1, writer.getCycleCount());
+		raf.close();
+	}
+}
@@ -0,0 +1,158 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import org.junit.Test;
+
+
+/**
+ * Edits the graphs of {@link DynamicCycleSet}s at random and compares their
+ * cycles after every edit with the reference search on the edited graph.
+ *
+ */
+public class DynamicCycleSetTest {
+	@Test
+	public void keepsTheCyclesOfTheEditedGraph() {
+		Random random = new Random(231);
+		for (int k = 0; k < 100; k++) {
+			// up to 8 nodes, so that the edits cannot make too many cycles
+			int[][] adjList = ReferenceCycles.randomGraph(random, 1 + random.nextInt(8), random.nextDouble() * 0.4, 0.3);
+			int n = adjList.length;
+			int maxLength = random.nextBoolean() ? Integer.MAX_VALUE : random.nextInt(n + 1);
+			boolean[][] matrix = ReferenceCycles.toMatrix(adjList);
+			DynamicCycleSet cycles = new DynamicCycleSet(CompactGraph.fromAdjacencyList(adjList), ReferenceCycles.names(n), maxLength);
+			HashSet expected = cyclesOf(matrix, maxLength);
+			checkCycles(expected, cycles);
+
+			for (int edit = 0; edit < 60; edit++) {
+				int v = random.nextInt(n);
+				int w = random.nextInt(n);
+				boolean add = random.nextBoolean();
+				CycleVisitorTest.Recorder passed = new CycleVisitorTest.Recorder(Integer.MAX_VALUE);
+				int count = add ? cycles.addEdge(v, w, passed) : cycles.removeEdge(v, w, passed);
+				matrix[v][w] = add;
+
+				// the passed cycles are the ones the edit has added or removed
+				HashSet edited = cyclesOf(matrix, maxLength);
+				HashSet changed = new HashSet(add ? edited : expected);
+				changed.removeAll(add ? expected : edited);
+				assertEquals(changed.size(), count);
+				assertEquals(changed, new HashSet(passed.cycles));
+				expected = edited;
+				checkCycles(expected, cycles);
+				assertArrayEquals(CompactGraph.fromMatrix(matrix).toAdjacencyList(), cycles.getGraph().toAdjacencyList());
+			}
+		}
+	}
+
+	@Test
+	public void addsTheCyclesAfterAStoppedVisitor() {
+		Random random = new Random(232);
+		for (int k = 0; k < 100; k++) {
+			int n = 2 + random.nextInt(8);
+			boolean[][] matrix = new boolean[n][n];
+			DynamicCycleSet cycles = new DynamicCycleSet(CompactGraph.fromMatrix(matrix), ReferenceCycles.names(n));
+			for (int edit = 0; edit < 30; edit++) {
+				int v = random.nextInt(n);
+				int w = random.nextInt(n);
+				matrix[v][w] = true;
+				int limit = random.nextInt(3);
+				CycleVisitorTest.Recorder passed = new CycleVisitorTest.Recorder(limit);
+				int count = cycles.addEdge(v, w, passed);
+				assertEquals(Math.min(count, limit), passed.cycles.size());
+				checkCycles(cyclesOf(matrix, Integer.MAX_VALUE), cycles);
+			}
+		}
+	}
+
+	@Test
+	public void addsTheCyclesBetweenLargeAcyclicParts() {
+		Random random = new Random(233);
+		for (int k = 0; k < 20; k++) {
+			// nodes 0..5 are edited, the chains before and after them reach
+			// into the edited part or out of it, but close no cycle
+			int n = 200;
+			boolean[][] matrix = new boolean[n][n];
+			for (int v = 6; v < n - 1; v++) {
+				if (v < n / 2) {
+					matrix[v][v + 1 < n / 2 ? v + 1 : random.nextInt(6)] = true;
+				} else {
+					matrix[v][v + 1] = true;
+				}
+			}
+			for (int v = 0; v < 6; v++) {
+				matrix[v][n / 2 + random.nextInt(n / 2)] = true;
+			}
+			DynamicCycleSet cycles = new DynamicCycleSet(CompactGraph.fromMatrix(matrix), ReferenceCycles.names(n));
+			HashSet expected = cyclesOf(matrix, Integer.MAX_VALUE);
+			for (int edit = 0; edit < 20; edit++) {
+				int v = random.nextInt(6);
+				int w = random.nextInt(6);
+				boolean add = random.nextBoolean();
+				CycleVisitorTest.Recorder passed = new CycleVisitorTest.Recorder(Integer.MAX_VALUE);
+				int count = add ? cycles.addEdge(v, w, passed) : cycles.removeEdge(v, w, passed);
+				matrix[v][w] = add;
+
+				HashSet edited = cyclesOf(matrix, Integer.MAX_VALUE);
+				HashSet changed = new HashSet(add ? edited : expected);
+				changed.removeAll(add ? expected : edited);
+				assertEquals(changed.size(), count);
+				assertEquals(changed, new HashSet(passed.cycles));
+				expected = edited;
+				checkCycles(expected, cycles);
+			}
+		}
+	}
+
+	@Test
+	public void rejectsEdgesOutsideOfTheNodes() {
+		DynamicCycleSet cycles = new DynamicCycleSet(CompactGraph.fromAdjacencyList(new int[][] {{1}, {0}}), ReferenceCycles.names(2));
+		try {
+			cycles.addEdge(0, 2);
+			fail("edge to 2 is added");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(0, cycles.addEdge(0, 1));
+		assertEquals(0, cycles.removeEdge(1, 1));
+		assertEquals(1, cycles.removeEdge(1, 0));
+		assertEquals(0, cycles.getCycleCount());
+	}
+
+	/**
+	 * Checks that the set holds the expected cycles, each once.
+	 */
+	private static void checkCycles(HashSet expected, DynamicCycleSet cycles) {
+		CycleVisitorTest.Recorder recorder = new CycleVisitorTest.Recorder(Integer.MAX_VALUE);
+		assertTrue(cycles.visitElementaryCycles(recorder));
+		assertEquals(expected.size(), recorder.cycles.size());
+		assertEquals(expected, new HashSet(recorder.cycles));
+		assertEquals(expected.size(), cycles.getCycleCount());
+		assertEquals(expected.size(), cycles.getElementaryCycles().size());
+	}
+
+	/**
+	 * @return the cycles of the reference as lists of nodes, with a cycle of
+	 * length one for every self-loop
+	 */
+	private static HashSet cyclesOf(boolean[][] matrix, int maxLength) {
+		int[][] adjList = CompactGraph.fromMatrix(matrix).toAdjacencyList();
+		HashSet cycles = new HashSet();
+		ArrayList found = ReferenceCycles.search(adjList, maxLength, null, null);
+		for (int i = 0; i < found.size(); i++) {
+			cycles.add(ReferenceCycles.toList((int[]) found.get(i)));
+		}
+		for (int v = 0; v < adjList.length && maxLength > 0; v++) {
+			if (matrix[v][v]) {
+				cycles.add(ReferenceCycles.toList(new int[] {v}));
+			}
+		}
+		return cycles;
+	}
+}
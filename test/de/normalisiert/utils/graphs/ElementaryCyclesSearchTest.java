@@ -0,0 +1,181 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+
+
+/**
+ * Compares the searches of {@link ElementaryCyclesSearch} with the
+ * straightforward search of {@link ReferenceCycles} on random graphs.
+ *
+ */
+public class ElementaryCyclesSearchTest {
+	/** Number of random graphs of each test */
+	private static final int GRAPHS = 300;
+
+	@Test
+	public void findsTheCyclesOfTheReference() {
+		Random random = new Random(1);
+		for (int k = 0; k < GRAPHS; k++) {
+			int[][] adjList = randomGraph(random);
+			String[] names = ReferenceCycles.names(adjList.length);
+			int maxLength = 1 + random.nextInt(adjList.length + 1);
+
+			ElementaryCyclesSearch search = new ElementaryCyclesSearch(ReferenceCycles.copy(adjList), names);
+			assertEquals(expected(adjList, Integer.MAX_VALUE, false, names), search.getElementaryCycles());
+			assertEquals(expected(adjList, maxLength, false, names), search.getElementaryCycles(maxLength));
+			assertEquals(expected(adjList, Integer.MAX_VALUE, true, names), search.getElementaryCyclesNSL());
+			assertEquals(expected(adjList, maxLength, true, names), search.getElementaryCyclesNSL(maxLength));
+		}
+	}
+
+	@Test
+	public void allConstructorsFindTheSameCycles() {
+		Random random = new Random(2);
+		for (int k = 0; k < GRAPHS; k++) {
+			int[][] adjList = randomGraph(random);
+			String[] names = ReferenceCycles.names(adjList.length);
+			ArrayList expected = expected(adjList, Integer.MAX_VALUE, false, names);
+
+			assertEquals(expected, new ElementaryCyclesSearch(CompactGraph.fromAdjacencyList(adjList), names).getElementaryCycles());
+			// like the original, the constructor for a matrix adds no self-loops outside of the components
+			assertEquals(ReferenceCycles.toLists(ReferenceCycles.search(adjList, Integer.MAX_VALUE, null, null), names),
+					new ElementaryCyclesSearch(ReferenceCycles.toMatrix(adjList), names).getElementaryCycles());
+		}
+	}
+
+	@Test
+	public void parallelSearchFindsTheSameCycles() {
+		Random random = new Random(6);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int k = 0; k < GRAPHS; k++) {
+				int[][] adjList = randomGraph(random);
+				String[] names = ReferenceCycles.names(adjList.length);
+				int maxLength = 1 + random.nextInt(adjList.length + 1);
+
+				ElementaryCyclesSearch search = new ElementaryCyclesSearch(adjList, names);
+				assertEquals(expected(adjList, Integer.MAX_VALUE, false, names), search.getElementaryCyclesParallel(pool));
+				assertEquals(expected(adjList, maxLength, false, names), search.getElementaryCyclesParallel(pool, maxLength));
+				assertEquals(expected(adjList, Integer.MAX_VALUE, true, names), search.getElementaryCyclesNSLParallel(pool));
+				assertEquals(expected(adjList, maxLength, true, names), search.getElementaryCyclesNSLParallel(pool, maxLength));
+				assertEquals(search.getElementaryCycles(), search.getElementaryCyclesParallel(pool));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void bitRowEngineFindsTheSameCycles() {
+		Random random = new Random(7);
+		for (int k = 0; k < GRAPHS; k++) {
+			// graphs of more than 64 nodes need rows of several words
+			int[][] adjList = k % 3 == 0
+					? ReferenceCycles.randomGraph(random, 65 + random.nextInt(100), random.nextDouble() * 0.04, 0.3)
+					: randomGraph(random);
+			String[] names = ReferenceCycles.names(adjList.length);
+			int maxLength = 1 + random.nextInt(Math.min(adjList.length, 8) + 1);
+
+			ElementaryCyclesSearch search = new ElementaryCyclesSearch(adjList, names);
+			search.setBitMatrixEngine(true);
+			assertEquals(expected(adjList, maxLength, false, names), search.getElementaryCycles(maxLength));
+			assertEquals(expected(adjList, maxLength, true, names), search.getElementaryCyclesNSL(maxLength));
+			if (adjList.length <= 12) {
+				assertEquals(expected(adjList, Integer.MAX_VALUE, false, names), search.getElementaryCycles());
+				assertEquals(expected(adjList, Integer.MAX_VALUE, true, names), search.getElementaryCyclesNSL());
+			}
+		}
+	}
+
+	@Test
+	public void boundedSearchFindsTheShortCyclesOfDenseGraphs() {
+		Random random = new Random(8);
+		for (int k = 0; k < 100; k++) {
+			// the locks of the bounded search matter on dense graphs with short limits
+			int[][] adjList = k % 4 == 0
+					? ReferenceCycles.randomGraph(random, 65 + random.nextInt(30), 0.05 + random.nextDouble() * 0.1, 0.3)
+					: ReferenceCycles.randomGraph(random, 10 + random.nextInt(12), 0.2 + random.nextDouble() * 0.4, 0.3);
+			String[] names = ReferenceCycles.names(adjList.length);
+			int maxLength = 2 + random.nextInt(3);
+			SearchOptions options = new SearchOptions();
+			options.setMaxLength(maxLength);
+
+			ElementaryCyclesSearch search = new ElementaryCyclesSearch(adjList, names);
+			assertEquals(expected(adjList, maxLength, false, names), search.getElementaryCycles(maxLength));
+			assertEquals(expected(adjList, maxLength, true, names), search.getElementaryCyclesNSL(maxLength));
+
+			// the engine on rows of bits locks the same nodes, so it visits as many
+			ElementaryCyclesSearch bits = new ElementaryCyclesSearch(adjList, names);
+			bits.setBitMatrixEngine(true);
+			SearchResult expected = search.getElementaryCycles(options);
+			SearchResult result = bits.getElementaryCycles(options);
+			assertEquals(expected.getCycles(), result.getCycles());
+			assertEquals(expected.getVisitedNodes(), result.getVisitedNodes());
+			expected = search.getElementaryCyclesNSL(options);
+			result = bits.getElementaryCyclesNSL(options);
+			assertEquals(expected.getCycles(), result.getCycles());
+			assertEquals(expected.getVisitedNodes(), result.getVisitedNodes());
+		}
+	}
+
+	@Test
+	public void leavesTheAdjacencyListUnchanged() {
+		int[][] adjList = {{2, 1}, {0}, {1, 0}};
+		new ElementaryCyclesSearch(adjList, ReferenceCycles.names(3)).getElementaryCycles();
+		assertTrue(Arrays.deepEquals(new int[][] {{2, 1}, {0}, {1, 0}}, adjList));
+	}
+
+	@Test
+	public void searchesLongPathsWithoutRecursion() {
+		// one cycle through 200000 nodes would overflow the stack of a recursive search
+		int n = 200000;
+		int[][] adjList = new int[n][];
+		for (int v = 0; v < n; v++) {
+			adjList[v] = new int[] {(v + 1) % n};
+		}
+		ArrayList cycles = new ElementaryCyclesSearch(adjList, new Object[n]).getElementaryCycles();
+		assertEquals(1, cycles.size());
+		assertEquals(n, ((ArrayList) cycles.get(0)).size());
+	}
+
+	@Test(timeout = 60000)
+	public void handlesManySelfLoopsInLinearTime() {
+		// a cycle and a chain of 100000 nodes each, all with self-loops
+		int n = 200000;
+		int[][] adjList = new int[n][];
+		for (int v = 0; v < n / 2; v++) {
+			adjList[v] = new int[] {v, (v + 1) % (n / 2)};
+		}
+		for (int v = n / 2; v < n; v++) {
+			adjList[v] = v + 1 < n ? new int[] {v, v + 1} : new int[] {v};
+		}
+		ElementaryCyclesSearch search = new ElementaryCyclesSearch(adjList, new Object[n]);
+		ArrayList cycles = search.getElementaryCycles();
+		// the self-loop and the cycle of the start node 0, then the self-loops of the chain
+		assertEquals(2 + n / 2, cycles.size());
+		assertEquals(n / 2, ((ArrayList) cycles.get(1)).size());
+		assertEquals(0, search.getElementaryCyclesNSL().size());
+	}
+
+	/**
+	 * @return random graph with up to 12 nodes and some self-loops
+	 */
+	static int[][] randomGraph(Random random) {
+		int n = 1 + random.nextInt(12);
+		return ReferenceCycles.randomGraph(random, n, random.nextDouble() * 0.4, 0.3);
+	}
+
+	/**
+	 * @return the cycles of the reference as lists of graphnodes
+	 */
+	static ArrayList expected(int[][] adjList, int maxLength, boolean noSelfLoops, Object[] names) {
+		return ReferenceCycles.toLists(ReferenceCycles.elementaryCycles(adjList, maxLength, noSelfLoops), names);
+	}
+}
@@ -0,0 +1,279 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import org.junit.Test;
+
+
+/**
+ * Compares the searches of {@link ElementaryCyclesSearchforStableSCC} with
+ * the straightforward search of {@link ReferenceCycles} on random expanded
+ * networks: nodes named by an integer, by the negated integer, and composite
+ * nodes named by other numbers.
+ *
+ */
+public class ElementaryCyclesSearchforStableSCCTest {
+	/** Number of random networks of each test */
+	private static final int NETWORKS = 300;
+
+	@Test
+	public void findsTheCyclesOfTheReference() {
+		Random random = new Random(3);
+		for (int k = 0; k < NETWORKS; k++) {
+			String[] names = randomNames(random);
+			int[][] adjList = randomNetwork(random, names);
+			int maxLength = 1 + random.nextInt(names.length + 1);
+
+			assertEquals(expected(adjList, names, Integer.MAX_VALUE),
+					new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).getElementaryCycles());
+			assertEquals(expected(adjList, names, maxLength),
+					new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).getElementaryCycles(maxLength));
+			assertEquals(expectedNSL(adjList, names, Integer.MAX_VALUE, null),
+					new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).getElementaryCyclesNSL());
+			assertEquals(expectedNSL(adjList, names, maxLength, null),
+					new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).getElementaryCyclesNSL(maxLength));
+		}
+	}
+
+	@Test
+	public void leavesOutTheSelfLoopsOfSources() {
+		Random random = new Random(4);
+		for (int k = 0; k < NETWORKS; k++) {
+			String[] names = randomNames(random);
+			int[][] adjList = randomNetwork(random, names);
+			ArrayList<String> sources = new ArrayList<String>();
+			for (int i = 0; i < names.length; i++) {
+				if (!names[i].startsWith("-") && !names[i].contains(".") && random.nextBoolean()) {
+					sources.add(names[i]);
+				}
+			}
+			int maxLength = 1 + random.nextInt(names.length + 1);
+
+			assertEquals(expectedNSL(adjList, names, Integer.MAX_VALUE, sources),
+					new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names, sources).getElementaryCyclesNSL());
+			assertEquals(expectedNSL(adjList, names, maxLength, sources),
+					new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names, sources).getElementaryCyclesNSL(maxLength));
+		}
+	}
+
+	@Test
+	public void boundedSearchFindsTheShortCyclesOfDenseNetworks() {
+		Random random = new Random(6);
+		for (int k = 0; k < 100; k++) {
+			String[] names = randomNames(random, 10, 6);
+			int[][] adjList = randomNetwork(random, names, 0.2 + random.nextDouble() * 0.3);
+			int maxLength = 2 + random.nextInt(3);
+
+			assertEquals(expected(adjList, names, maxLength),
+					new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).getElementaryCycles(maxLength));
+			assertEquals(expectedNSL(adjList, names, maxLength, null),
+					new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).getElementaryCyclesNSL(maxLength));
+		}
+	}
+
+	@Test
+	public void handlesMissingComplementsAndRepeatedNames() {
+		Random random = new Random(7);
+		for (int k = 0; k < NETWORKS; k++) {
+			// some complements are left out, some names repeated; the complement is the first node of its name
+			ArrayList<String> list = new ArrayList<String>(Arrays.asList(randomNames(random)));
+			for (int i = list.size() - 1; i >= 0; i--) {
+				if (random.nextInt(5) == 0) {
+					list.remove(i);
+				} else if (random.nextInt(8) == 0) {
+					list.add(list.get(i));
+				}
+			}
+			if (list.isEmpty()) {
+				continue;
+			}
+			Collections.shuffle(list, random);
+			String[] names = list.toArray(new String[list.size()]);
+			int[][] adjList = ReferenceCycles.randomGraph(random, names.length, random.nextDouble() * 0.45, 0);
+			int maxLength = 1 + random.nextInt(names.length + 1);
+
+			assertEquals(expected(adjList, names, Integer.MAX_VALUE),
+					new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).getElementaryCycles());
+			assertEquals(expected(adjList, names, maxLength),
+					new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).getElementaryCycles(maxLength));
+		}
+	}
+
+	@Test
+	public void failsOnlyWhenTheSearchGetsToAnUnreadableName() {
+		String[] names = {"1", "-1", "x", "1.0"};
+		// the unreadable nodes lie on no cycle
+		int[][] adjList = {{1}, {0, 2}, {3}, {}};
+		assertEquals(expected(adjList, names, Integer.MAX_VALUE),
+				new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).getElementaryCycles());
+
+		for (int v = 2; v < 4; v++) {
+			adjList = new int[][] {{1}, {0, v}, {}, {}};
+			adjList[v] = new int[] {1};
+			try {
+				new ElementaryCyclesSearchforStableSCC(adjList, names).getElementaryCycles();
+				fail("the search visits " + names[v]);
+			} catch (NumberFormatException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void allConstructorsFindTheSameCycles() {
+		Random random = new Random(5);
+		for (int k = 0; k < NETWORKS; k++) {
+			String[] names = randomNames(random);
+			int[][] adjList = randomNetwork(random, names);
+
+			assertEquals(expected(adjList, names, Integer.MAX_VALUE),
+					new ElementaryCyclesSearchforStableSCC(CompactGraph.fromAdjacencyList(adjList), names).getElementaryCycles());
+			// like the original, the constructor for a matrix adds no self-loops that the search does not find
+			assertEquals(expected(adjList, names, Integer.MAX_VALUE, false),
+					new ElementaryCyclesSearchforStableSCC(ReferenceCycles.toMatrix(adjList), names).getElementaryCycles());
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void handlesManySelfLoopsInLinearTime() {
+		// 50000 variables and their negations in a chain, all with self-loops
+		int n = 100000;
+		String[] names = new String[n];
+		int[][] adjList = new int[n][];
+		for (int v = 0; v < n; v++) {
+			names[v] = v % 2 == 0 ? String.valueOf(v / 2 + 1) : "-" + (v / 2 + 1);
+			adjList[v] = v + 1 < n ? new int[] {v, v + 1} : new int[] {v};
+		}
+		assertEquals(n, new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).getElementaryCycles().size());
+		assertEquals(0, new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names).getElementaryCyclesNSL().size());
+		assertEquals(0, new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names,
+				new ArrayList<String>()).getElementaryCyclesNSL(3).size());
+	}
+
+	/**
+	 * @return names of up to 5 variables, their negations and up to 3
+	 * composite nodes, in random order
+	 */
+	static String[] randomNames(Random random) {
+		return randomNames(random, 5, 3);
+	}
+
+	/**
+	 * @return names of up to maxVariables variables, their negations and up
+	 * to maxComposites composite nodes, in random order
+	 */
+	static String[] randomNames(Random random, int maxVariables, int maxComposites) {
+		ArrayList<String> names = new ArrayList<String>();
+		int variables = 1 + random.nextInt(maxVariables);
+		for (int i = 1; i <= variables; i++) {
+			names.add(String.valueOf(i));
+			names.add("-" + i);
+		}
+		int composites = random.nextInt(maxComposites + 1);
+		for (int i = 1; i <= composites; i++) {
+			names.add(i + ".5");
+		}
+		Collections.shuffle(names, random);
+		return names.toArray(new String[names.size()]);
+	}
+
+	/**
+	 * @return random network on the names; only nodes of variables have
+	 * self-loops
+	 */
+	static int[][] randomNetwork(Random random, String[] names) {
+		return randomNetwork(random, names, random.nextDouble() * 0.45);
+	}
+
+	/**
+	 * @return random network on the names with edges of probability p
+	 */
+	static int[][] randomNetwork(Random random, String[] names, double p) {
+		int[][] adjList = ReferenceCycles.randomGraph(random, names.length, p, 0);
+		for (int v = 0; v < names.length; v++) {
+			if (!names[v].contains(".") && random.nextDouble() < 0.3) {
+				int[] row = Arrays.copyOf(adjList[v], adjList[v].length + 1);
+				row[row.length - 1] = v;
+				Arrays.sort(row);
+				adjList[v] = row;
+			}
+		}
+		return adjList;
+	}
+
+	/**
+	 * @return index of the complement of each node, -1 for none
+	 */
+	static int[] complements(String[] names) {
+		ArrayList<String> list = new ArrayList<String>(Arrays.asList(names));
+		int[] complement = new int[names.length];
+		for (int v = 0; v < names.length; v++) {
+			if (names[v].startsWith("-")) {
+				complement[v] = list.indexOf(names[v].substring(1));
+			} else if (!names[v].contains(".")) {
+				complement[v] = list.indexOf("-" + names[v]);
+			} else {
+				complement[v] = -1;
+			}
+		}
+		return complement;
+	}
+
+	/**
+	 * Cycles of getElementaryCycles: no cycle holds a node and its
+	 * complement, the names of each cycle are sorted, and the self-loops
+	 * that the search does not find follow.
+	 */
+	static ArrayList expected(int[][] adjList, String[] names, int maxLength) {
+		return expected(adjList, names, maxLength, true);
+	}
+
+	static ArrayList expected(int[][] adjList, String[] names, int maxLength, boolean selfLoops) {
+		ArrayList cycles = ReferenceCycles.search(adjList, maxLength, null, complements(names));
+		for (int v = 0; v < adjList.length && selfLoops; v++) {
+			boolean found = maxLength > 0 && ReferenceCycles.isStartNode(adjList, v);
+			if (Arrays.binarySearch(adjList[v], v) >= 0 && !found) {
+				cycles.add(new int[] {v});
+			}
+		}
+		ArrayList lists = ReferenceCycles.toLists(cycles, names);
+		for (int i = 0; i < lists.size(); i++) {
+			Collections.sort((ArrayList) lists.get(i));
+		}
+		return lists;
+	}
+
+	/**
+	 * Cycles of getElementaryCyclesNSL: without a length limit the search
+	 * leaves out the complements of the nodes with self-loops and the
+	 * composite nodes they lead to, with a limit it leaves out the nodes
+	 * with self-loops; the self-loops of sources do not count.
+	 */
+	static ArrayList expectedNSL(int[][] adjList, String[] names, int maxLength, ArrayList sources) {
+		int[] complement = complements(names);
+		boolean[] excluded = new boolean[names.length];
+		for (int v = 0; v < names.length; v++) {
+			String name = names[v].startsWith("-") ? names[v].substring(1) : names[v];
+			if (Arrays.binarySearch(adjList[v], v) < 0 || (sources != null && sources.contains(name))) {
+				continue;
+			}
+			if (maxLength < Integer.MAX_VALUE) {
+				excluded[v] = true;
+				continue;
+			}
+			int c = complement[v];
+			excluded[c] = true;
+			for (int i = 0; i < adjList[c].length; i++) {
+				if (names[adjList[c][i]].contains(".")) {
+					excluded[adjList[c][i]] = true;
+				}
+			}
+		}
+		return ReferenceCycles.toLists(ReferenceCycles.search(adjList, maxLength, excluded, complement), names);
+	}
+}
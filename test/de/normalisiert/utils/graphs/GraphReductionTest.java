@@ -0,0 +1,170 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import org.junit.Test;
+
+
+/**
+ * Compares the searches on graphs reduced by {@link GraphReduction} with the
+ * reference search on the graphs.
+ *
+ */
+public class GraphReductionTest {
+	/** Number of random graphs of each test */
+	private static final int GRAPHS = 300;
+
+	@Test
+	public void searchFindsTheSameCycles() {
+		Random random = new Random(201);
+		for (int k = 0; k < GRAPHS; k++) {
+			int[][] adjList = randomGraph(random);
+			String[] names = ReferenceCycles.names(adjList.length);
+			int maxLength = 1 + random.nextInt(adjList.length + 1);
+			ElementaryCyclesSearch search = new ElementaryCyclesSearch(adjList, names);
+			search.setGraphReduction(true);
+
+			// the reduced searches find the cycles in another order, and maybe other self-loops
+			checkSameCycles(ElementaryCyclesSearchTest.expected(adjList, Integer.MAX_VALUE, false, names), search.getElementaryCycles(), false);
+			checkSameCycles(ElementaryCyclesSearchTest.expected(adjList, maxLength, false, names), search.getElementaryCycles(maxLength), false);
+			checkSameCycles(ElementaryCyclesSearchTest.expected(adjList, Integer.MAX_VALUE, true, names), search.getElementaryCyclesNSL(), true);
+			checkSameCycles(ElementaryCyclesSearchTest.expected(adjList, maxLength, true, names), search.getElementaryCyclesNSL(maxLength), true);
+		}
+	}
+
+	@Test
+	public void removesTheNodesOnNoCycle() {
+		Random random = new Random(202);
+		for (int k = 0; k < GRAPHS; k++) {
+			int[][] adjList = randomGraph(random);
+			int n = adjList.length;
+			boolean[] onCycle = new boolean[n];
+			for (int v = 0; v < n; v++) {
+				onCycle[v] = Arrays.binarySearch(adjList[v], v) >= 0 || ReferenceCycles.inComponent(adjList, v);
+			}
+
+			for (int c = 0; c < 2; c++) {
+				GraphReduction reduction = new GraphReduction(CompactGraph.fromAdjacencyList(adjList), c == 1);
+				CompactGraph reduced = reduction.getReducedGraph();
+				assertEquals(n, reduction.getOriginalNodeCount());
+				assertEquals(n, reduction.getRemovedNodeCount() + reduced.getNodeCount() + reduction.getContractedNodeCount());
+				if (c == 0) {
+					assertEquals(0, reduction.getContractedNodeCount());
+					for (int v = 0; v < n; v++) {
+						assertTrue(!onCycle[v] || reduction.getReducedNode(v) >= 0);
+					}
+				}
+
+				// the remaining nodes keep their order
+				for (int v = 0; v < reduced.getNodeCount(); v++) {
+					int original = reduction.getOriginalNode(v);
+					assertEquals(v, reduction.getReducedNode(original));
+					assertTrue(v == 0 || reduction.getOriginalNode(v - 1) < original);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void expandsTheCyclesOfTheReducedGraph() {
+		Random random = new Random(203);
+		for (int k = 0; k < GRAPHS; k++) {
+			int[][] adjList = randomGraph(random);
+			GraphReduction reduction = new GraphReduction(CompactGraph.fromAdjacencyList(adjList), true);
+			int[][] reduced = reduction.getReducedGraph().toAdjacencyList();
+
+			// the self-loops of the reduced graph are found at other start nodes
+			HashSet expected = new HashSet();
+			ArrayList cycles = ReferenceCycles.elementaryCycles(adjList, Integer.MAX_VALUE, false);
+			for (int i = 0; i < cycles.size(); i++) {
+				if (((int[]) cycles.get(i)).length > 1) {
+					expected.add(ReferenceCycles.toList((int[]) cycles.get(i)));
+				}
+			}
+			HashSet expanded = new HashSet();
+			int[] cycle = new int[adjList.length];
+			cycles = ReferenceCycles.elementaryCycles(reduced, Integer.MAX_VALUE, false);
+			for (int i = 0; i < cycles.size(); i++) {
+				int[] path = (int[]) cycles.get(i);
+				int length = reduction.expand(path, path.length, cycle);
+				if (length == 1) {
+					assertTrue(Arrays.binarySearch(adjList[cycle[0]], cycle[0]) >= 0);
+				} else {
+					assertTrue(expanded.add(ReferenceCycles.toList(Arrays.copyOf(cycle, length))));
+				}
+			}
+			assertEquals(expected, expanded);
+		}
+	}
+
+	/**
+	 * Checks that the cycles are the expected ones, each once, in any order;
+	 * self-loops are not compared, if they may be others.
+	 */
+	private static void checkSameCycles(ArrayList expected, ArrayList cycles, boolean withSelfLoops) {
+		HashSet expectedSet = new HashSet();
+		for (int i = 0; i < expected.size(); i++) {
+			if (withSelfLoops || ((ArrayList) expected.get(i)).size() > 1) {
+				expectedSet.add(expected.get(i));
+			}
+		}
+		HashSet found = new HashSet();
+		for (int i = 0; i < cycles.size(); i++) {
+			if (withSelfLoops || ((ArrayList) cycles.get(i)).size() > 1) {
+				assertTrue(found.add(cycles.get(i)));
+			}
+		}
+		assertEquals(expectedSet, found);
+	}
+
+	/**
+	 * @return random graph with chains in place of some edges and trees
+	 * hanging off its nodes, with shuffled nodes and sorted rows
+	 */
+	static int[][] randomGraph(Random random) {
+		int[][] graph = ElementaryCyclesSearchTest.randomGraph(random);
+		ArrayList src = new ArrayList();
+		ArrayList dst = new ArrayList();
+		int n = graph.length;
+		for (int v = 0; v < graph.length; v++) {
+			for (int i = 0; i < graph[v].length; i++) {
+				int from = v;
+				for (int j = random.nextInt(2) == 0 ? 0 : 1 + random.nextInt(3); j > 0; j--) {
+					src.add(from);
+					dst.add(n);
+					from = n++;
+				}
+				src.add(from);
+				dst.add(graph[v][i]);
+			}
+		}
+		for (int t = random.nextInt(graph.length + 1); t > 0; t--) {
+			int v = random.nextInt(n);
+			if (random.nextBoolean()) {
+				src.add(v);
+				dst.add(n++);
+			} else {
+				src.add(n++);
+				dst.add(v);
+			}
+		}
+
+		ArrayList order = new ArrayList();
+		for (int v = 0; v < n; v++) {
+			order.add(v);
+		}
+		Collections.shuffle(order, random);
+		boolean[][] matrix = new boolean[n][n];
+		for (int e = 0; e < src.size(); e++) {
+			matrix[((Integer) order.get(((Integer) src.get(e)).intValue())).intValue()]
+					[((Integer) order.get(((Integer) dst.get(e)).intValue())).intValue()] = true;
+		}
+		return CompactGraph.fromMatrix(matrix).toAdjacencyList();
+	}
+}
@@ -0,0 +1,117 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Writes graphs to files and compares the {@link MappedGraph} read from them
+ * with the written graphs.
+ *
+ */
+public class MappedGraphTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void readsTheWrittenGraph() throws IOException {
+		Random random = new Random(111);
+		for (int k = 0; k < 50; k++) {
+			int n = random.nextInt(40);
+			int[][] adjList = ReferenceCycles.randomGraph(random, n, random.nextDouble() * 0.3, 0.3);
+			CompactGraph graph = CompactGraph.fromAdjacencyList(adjList);
+			String[] labels = new String[n];
+			for (int v = 0; v < n; v++) {
+				labels[v] = v % 3 == 0 ? "" : "n\u00e4de-" + v;
+			}
+			int[] componentIds = new StrongConnectedComponents(graph).getComponents().getComponentIds();
+
+			File file = this.folder.newFile();
+			MappedGraph.write(file, graph, labels, componentIds);
+			MappedGraph mapped = MappedGraph.open(file);
+
+			assertEquals(n, mapped.getNodeCount());
+			assertEquals(graph.getEdgeCount(), mapped.getEdgeCount());
+			assertArrayEquals(adjList, mapped.toAdjacencyList());
+			assertArrayEquals(adjList, mapped.toCompactGraph().toAdjacencyList());
+			for (int v = 0; v < n; v++) {
+				assertEquals(graph.getEdgeStart(v), mapped.getEdgeStart(v));
+				assertEquals(graph.getEdgeEnd(v), mapped.getEdgeEnd(v));
+				assertEquals(graph.getOutDegree(v), mapped.getOutDegree(v));
+				for (int w = 0; w < n; w++) {
+					assertEquals(graph.hasEdge(v, w), mapped.hasEdge(v, w));
+				}
+			}
+			assertTrue(mapped.hasLabels());
+			assertArrayEquals(labels, mapped.getLabels());
+			assertArrayEquals(componentIds, mapped.getComponentIds());
+		}
+	}
+
+	@Test
+	public void searchesTheMappedGraphLikeTheGraph() throws IOException {
+		Random random = new Random(112);
+		for (int k = 0; k < 50; k++) {
+			int[][] adjList = ElementaryCyclesSearchTest.randomGraph(random);
+			CompactGraph graph = CompactGraph.fromAdjacencyList(adjList);
+			String[] names = ReferenceCycles.names(adjList.length);
+			File file = this.folder.newFile();
+			boolean components = random.nextBoolean();
+			MappedGraph.write(file, graph, names, components ? new StrongConnectedComponents(graph).getComponents().getComponentIds() : null);
+			MappedGraph mapped = MappedGraph.open(file);
+
+			assertEquals(new ElementaryCyclesSearch(graph, names).getElementaryCycles(),
+					new ElementaryCyclesSearch(mapped, mapped.getLabels()).getElementaryCycles());
+			assertEquals(new ElementaryCyclesSearch(graph, names).getElementaryCyclesNSL(3),
+					new ElementaryCyclesSearch(mapped, mapped.getLabels()).getElementaryCyclesNSL(3));
+			// the decomposition starts from the stored components, if there are any
+			SCCDecompositionTest.checkDecomposition(adjList, new SCCDecomposition(mapped));
+		}
+	}
+
+	@Test
+	public void writesTheOptionalPartsOnlyIfGiven() throws IOException {
+		File file = this.folder.newFile();
+		MappedGraph.write(file, CompactGraph.fromAdjacencyList(new int[][] {{1}, {0}}), null, null);
+		MappedGraph mapped = MappedGraph.open(file);
+		assertFalse(mapped.hasLabels());
+		assertNull(mapped.getComponentIds());
+		assertArrayEquals(new int[][] {{1}, {0}}, mapped.toAdjacencyList());
+	}
+
+	@Test
+	public void rejectsFilesThatAreNoGraphs() throws IOException {
+		File file = this.folder.newFile();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.write(new byte[64]);
+		raf.close();
+		checkRejected(file);
+
+		MappedGraph.write(file, CompactGraph.fromAdjacencyList(new int[][] {{1}, {0}}), new String[] {"a", "b"}, null);
+		raf = new RandomAccessFile(file, "rw");
+		raf.setLength(raf.length() - 12);
+		raf.close();
+		checkRejected(file);
+	}
+
+	private static void checkRejected(File file) {
+		try {
+			MappedGraph.open(file);
+			fail(file + " is opened");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+}
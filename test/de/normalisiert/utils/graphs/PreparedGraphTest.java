@@ -0,0 +1,130 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+
+
+/**
+ * Compares the searches of {@link PreparedGraph} with the reference search,
+ * also for searches after others on the same workspaces.
+ *
+ */
+public class PreparedGraphTest {
+	/** Number of random graphs of each test */
+	private static final int GRAPHS = 300;
+
+	@Test
+	public void findsTheCyclesOfTheReference() {
+		Random random = new Random(211);
+		for (int k = 0; k < GRAPHS; k++) {
+			int[][] adjList = ElementaryCyclesSearchTest.randomGraph(random);
+			String[] names = ReferenceCycles.names(adjList.length);
+			int maxLength = 1 + random.nextInt(adjList.length + 1);
+			PreparedGraph graph = random.nextBoolean() ? PreparedGraph.fromAdjacencyList(adjList, names)
+					: PreparedGraph.fromMatrix(ReferenceCycles.toMatrix(adjList), names);
+
+			// the searches take turns on the same workspace
+			assertEquals(ElementaryCyclesSearchTest.expected(adjList, Integer.MAX_VALUE, false, names), graph.getElementaryCycles());
+			assertEquals(ElementaryCyclesSearchTest.expected(adjList, maxLength, false, names), graph.getElementaryCycles(maxLength));
+			assertEquals(ElementaryCyclesSearchTest.expected(adjList, Integer.MAX_VALUE, true, names), graph.getElementaryCyclesNSL());
+			assertEquals(ElementaryCyclesSearchTest.expected(adjList, maxLength, true, names), graph.getElementaryCyclesNSL(maxLength));
+
+			SearchOptions options = new SearchOptions();
+			options.setMaxLength(maxLength);
+			assertEquals(ElementaryCyclesSearchTest.expected(adjList, maxLength, false, names), graph.getElementaryCycles(options).getCycles());
+			assertEquals(ElementaryCyclesSearchTest.expected(adjList, maxLength, true, names), graph.getElementaryCyclesNSL(options).getCycles());
+
+			CycleVisitorTest.Recorder recorder = new CycleVisitorTest.Recorder(Integer.MAX_VALUE);
+			assertTrue(graph.visitElementaryCycles(recorder, maxLength));
+			assertEquals(ReferenceCycles.toLists(ReferenceCycles.elementaryCycles(adjList, maxLength, false), toIntegers(adjList.length)),
+					recorder.cycles);
+			assertArrayEquals(ReferenceCycles.countsByLength(ReferenceCycles.elementaryCycles(adjList, maxLength, false)),
+					graph.countElementaryCycles(maxLength).getCountsByLength());
+			assertEquals(1, graph.getPooledWorkspaceCount());
+		}
+	}
+
+	@Test
+	public void searchesAgainAfterAVisitorHasThrown() {
+		Random random = new Random(212);
+		for (int k = 0; k < GRAPHS; k++) {
+			int[][] adjList = ReferenceCycles.randomGraph(random, 4 + random.nextInt(7), 0.3 + random.nextDouble() * 0.4, 0.3);
+			String[] names = ReferenceCycles.names(adjList.length);
+			int maxLength = 2 + random.nextInt(adjList.length - 2);
+			ArrayList expected = ElementaryCyclesSearchTest.expected(adjList, maxLength, false, names);
+			PreparedGraph graph = PreparedGraph.fromAdjacencyList(adjList, names);
+
+			// the visitor throws in the middle of a bounded search, with nodes on the path
+			final int limit = random.nextInt(expected.size() + 1);
+			try {
+				graph.visitElementaryCycles(new CycleVisitor() {
+					private int count = 0;
+
+					public boolean visitCycle(int[] path, int length) {
+						if (this.count++ == limit) {
+							throw new IllegalStateException("visitor failed");
+						}
+						return true;
+					}
+				}, maxLength);
+				assertEquals(expected.size(), limit);
+			} catch (IllegalStateException e) {
+				assertTrue(limit < expected.size());
+			}
+
+			assertEquals(1, graph.getPooledWorkspaceCount());
+			assertEquals(expected, graph.getElementaryCycles(maxLength));
+			assertEquals(ElementaryCyclesSearchTest.expected(adjList, maxLength, true, names), graph.getElementaryCyclesNSL(maxLength));
+		}
+	}
+
+	@Test
+	public void concurrentSearchesFindTheSameCycles() throws InterruptedException {
+		Random random = new Random(213);
+		for (int k = 0; k < 20; k++) {
+			final int[][] adjList = ReferenceCycles.randomGraph(random, 12, 0.3, 0.3);
+			final String[] names = ReferenceCycles.names(adjList.length);
+			final PreparedGraph graph = PreparedGraph.fromAdjacencyList(adjList, names);
+			final ArrayList errors = new ArrayList();
+
+			Thread[] threads = new Thread[4];
+			for (int t = 0; t < threads.length; t++) {
+				final int maxLength = 2 + t;
+				threads[t] = new Thread() {
+					public void run() {
+						for (int i = 0; i < 20; i++) {
+							if (!ElementaryCyclesSearchTest.expected(adjList, maxLength, i % 2 == 0, names)
+									.equals(i % 2 == 0 ? graph.getElementaryCyclesNSL(maxLength) : graph.getElementaryCycles(maxLength))) {
+								synchronized (errors) {
+									errors.add("length " + maxLength);
+								}
+							}
+						}
+					}
+				};
+				threads[t].start();
+			}
+			for (int t = 0; t < threads.length; t++) {
+				threads[t].join();
+			}
+			if (!errors.isEmpty()) {
+				fail("other cycles than the reference: " + errors);
+			}
+			assertTrue(graph.getPooledWorkspaceCount() <= threads.length);
+		}
+	}
+
+	private static Integer[] toIntegers(int n) {
+		Integer[] nodes = new Integer[n];
+		for (int v = 0; v < n; v++) {
+			nodes[v] = v;
+		}
+		return nodes;
+	}
+}
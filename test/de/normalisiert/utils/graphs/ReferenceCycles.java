@@ -0,0 +1,255 @@
+package de.normalisiert.utils.graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * Straightforward search of elementary cycles for the tests: a plain
+ * depth-first search from every start node over the nodes above it, without
+ * blocking. It finds the cycles in the order of the algorithm of Johnson,
+ * whose blocking only leaves out paths that cannot lead to a cycle.<br><br>
+ *
+ * The searched graphs are given by adjacency-lists with sorted rows and
+ * without parallel edges.
+ *
+ */
+class ReferenceCycles {
+	private ReferenceCycles() {
+	}
+
+	/**
+	 * Builds a random graph.
+	 *
+	 * @param random source of the edges
+	 * @param n number of nodes
+	 * @param p probability of an edge between two different nodes
+	 * @param selfLoops probability of a self-loop at a node
+	 * @return adjacency-list with sorted rows
+	 */
+	static int[][] randomGraph(Random random, int n, double p, double selfLoops) {
+		int[][] adjList = new int[n][];
+		for (int v = 0; v < n; v++) {
+			int[] row = new int[n];
+			int size = 0;
+			for (int w = 0; w < n; w++) {
+				if (v == w ? random.nextDouble() < selfLoops : random.nextDouble() < p) {
+					row[size++] = w;
+				}
+			}
+			adjList[v] = Arrays.copyOf(row, size);
+		}
+		return adjList;
+	}
+
+	/**
+	 * @return adjacency-matrix of an adjacency-list
+	 */
+	static boolean[][] toMatrix(int[][] adjList) {
+		boolean[][] matrix = new boolean[adjList.length][adjList.length];
+		for (int v = 0; v < adjList.length; v++) {
+			for (int i = 0; i < adjList[v].length; i++) {
+				matrix[v][adjList[v][i]] = true;
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * @return copy of an adjacency-list, which may be changed by the search
+	 */
+	static int[][] copy(int[][] adjList) {
+		int[][] copy = new int[adjList.length][];
+		for (int v = 0; v < adjList.length; v++) {
+			copy[v] = adjList[v].clone();
+		}
+		return copy;
+	}
+
+	/**
+	 * @return names "0", "1", ... of n nodes
+	 */
+	static String[] names(int n) {
+		String[] names = new String[n];
+		for (int v = 0; v < n; v++) {
+			names[v] = String.valueOf(v);
+		}
+		return names;
+	}
+
+	/**
+	 * @return true, if there is a path of at least one edge from v to w
+	 * over nodes not less than from, other than a self-loop of v
+	 */
+	static boolean reaches(int[][] adjList, int v, int w, int from) {
+		boolean[] seen = new boolean[adjList.length];
+		int[] queue = new int[adjList.length];
+		int size = 0;
+		for (int i = 0; i < adjList[v].length; i++) {
+			int u = adjList[v][i];
+			if (u >= from && u != v && !seen[u]) {
+				seen[u] = true;
+				queue[size++] = u;
+			}
+		}
+		for (int k = 0; k < size; k++) {
+			int u = queue[k];
+			if (u == w) {
+				return true;
+			}
+			for (int i = 0; i < adjList[u].length; i++) {
+				int x = adjList[u][i];
+				if (x >= from && !seen[x]) {
+					seen[x] = true;
+					queue[size++] = x;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true, if s is the start node of a step of the algorithm of
+	 * Johnson: it lies on a cycle of at least two nodes not less than s
+	 */
+	static boolean isStartNode(int[][] adjList, int s) {
+		return reaches(adjList, s, s, s);
+	}
+
+	/**
+	 * @return true, if v lies in a strong connected component with more
+	 * than one node
+	 */
+	static boolean inComponent(int[][] adjList, int v) {
+		return reaches(adjList, v, v, 0);
+	}
+
+	/**
+	 * Searches the cycles through the start nodes of the algorithm of
+	 * Johnson, in its order. A self-loop is found only at a start node.
+	 *
+	 * @param adjList adjacency-list with sorted rows
+	 * @param maxLength cycles longer than this are not searched
+	 * @param excluded nodes left out of the search; null for none
+	 * @param complement complement of each node, -1 for none: the search is
+	 * cut off at a node whose complement is on the path; null for none
+	 * @return the cycles as arrays of nodes
+	 */
+	static ArrayList search(int[][] adjList, int maxLength, boolean[] excluded, int[] complement) {
+		ArrayList cycles = new ArrayList();
+		int n = adjList.length;
+		for (int s = 0; s < n; s++) {
+			if (maxLength < 1 || (excluded != null && excluded[s]) || !isStartNode(adjList, s)) {
+				continue;
+			}
+			int[] path = new int[n];
+			path[0] = s;
+			boolean[] onPath = new boolean[n];
+			onPath[s] = true;
+			extend(adjList, path, 1, onPath, maxLength, excluded, complement, cycles);
+		}
+		return cycles;
+	}
+
+	private static void extend(int[][] adjList, int[] path, int length, boolean[] onPath, int maxLength,
+			boolean[] excluded, int[] complement, ArrayList cycles) {
+		int s = path[0];
+		int v = path[length - 1];
+		if (complement != null && complement[v] >= 0 && onPath[complement[v]]) {
+			return;
+		}
+		for (int i = 0; i < adjList[v].length; i++) {
+			int w = adjList[v][i];
+			if (w == s) {
+				cycles.add(Arrays.copyOf(path, length));
+			} else if (w > s && !onPath[w] && (excluded == null || !excluded[w]) && length < maxLength) {
+				path[length] = w;
+				onPath[w] = true;
+				extend(adjList, path, length + 1, onPath, maxLength, excluded, complement, cycles);
+				onPath[w] = false;
+			}
+		}
+	}
+
+	/**
+	 * Returns the cycles of {@link ElementaryCyclesSearch#getElementaryCycles(int)}
+	 * or of getElementaryCyclesNSL: the cycles of the search followed by the
+	 * self-loops outside of the components; without self-loops the nodes with
+	 * self-loops are left out.
+	 *
+	 * @return the cycles as arrays of nodes
+	 */
+	static ArrayList elementaryCycles(int[][] adjList, int maxLength, boolean noSelfLoops) {
+		int n = adjList.length;
+		boolean[] selfLoops = new boolean[n];
+		for (int v = 0; v < n; v++) {
+			selfLoops[v] = Arrays.binarySearch(adjList[v], v) >= 0;
+		}
+		if (noSelfLoops) {
+			return search(adjList, maxLength, selfLoops, null);
+		}
+		ArrayList cycles = search(adjList, maxLength, null, null);
+		for (int v = 0; v < n; v++) {
+			if (selfLoops[v] && !inComponent(adjList, v)) {
+				cycles.add(new int[] {v});
+			}
+		}
+		return cycles;
+	}
+
+	/**
+	 * @return the cycles as lists of graphnodes, like the searches return
+	 * them
+	 */
+	static ArrayList toLists(ArrayList cycles, Object[] graphNodes) {
+		ArrayList lists = new ArrayList();
+		for (int i = 0; i < cycles.size(); i++) {
+			int[] cycle = (int[]) cycles.get(i);
+			ArrayList list = new ArrayList();
+			for (int j = 0; j < cycle.length; j++) {
+				list.add(graphNodes[cycle[j]]);
+			}
+			lists.add(list);
+		}
+		return lists;
+	}
+
+	/**
+	 * @return the cycles of a visitor as lists of nodes
+	 */
+	static ArrayList toLists(CycleSet cycleSet) {
+		ArrayList lists = new ArrayList();
+		for (int i = 0; i < cycleSet.size(); i++) {
+			lists.add(toList(cycleSet.getCycle(i)));
+		}
+		return lists;
+	}
+
+	/**
+	 * @return the nodes of a cycle as a list
+	 */
+	static ArrayList toList(int[] cycle) {
+		ArrayList list = new ArrayList();
+		for (int j = 0; j < cycle.length; j++) {
+			list.add(cycle[j]);
+		}
+		return list;
+	}
+
+	/**
+	 * @return number of cycles of each length, like
+	 * {@link CycleCounter#getCountsByLength()}
+	 */
+	static long[] countsByLength(ArrayList cycles) {
+		int max = 0;
+		for (int i = 0; i < cycles.size(); i++) {
+			max = Math.max(max, ((int[]) cycles.get(i)).length);
+		}
+		long[] counts = new long[max + 1];
+		for (int i = 0; i < cycles.size(); i++) {
+			counts[((int[]) cycles.get(i)).length]++;
+		}
+		return counts;
+	}
+}
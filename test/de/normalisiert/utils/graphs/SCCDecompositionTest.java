@@ -0,0 +1,101 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+
+/**
+ * Compares {@link SCCDecomposition} with the components of the subgraphs
+ * {s, s + 1, ..., n}, computed by reachability.
+ *
+ */
+public class SCCDecompositionTest {
+	@Test
+	public void holdsTheComponentsOfJohnson() {
+		Random random = new Random(21);
+		for (int k = 0; k < 300; k++) {
+			int n = 1 + random.nextInt(25);
+			int[][] adjList = ReferenceCycles.randomGraph(random, n, random.nextDouble() * 0.3, 0.3);
+			checkDecomposition(adjList, new SCCDecomposition(CompactGraph.fromAdjacencyList(adjList)));
+		}
+	}
+
+	@Test
+	public void holdsTheComponentsOfTheStartNodesBelowTheBound() {
+		Random random = new Random(22);
+		for (int k = 0; k < 300; k++) {
+			int n = 1 + random.nextInt(25);
+			CompactGraph graph = CompactGraph.fromAdjacencyList(ReferenceCycles.randomGraph(random, n, random.nextDouble() * 0.3, 0.3));
+			int toNode = random.nextInt(n + 1);
+			SCCDecomposition all = new SCCDecomposition(graph);
+			SCCDecomposition sccs = new SCCDecomposition(graph, toNode);
+			int steps = 0;
+			while (steps < all.getStepCount() && all.getStartNode(steps) < toNode) {
+				steps++;
+			}
+			assertEquals(steps, sccs.getStepCount());
+			for (int step = 0; step < steps; step++) {
+				int[] expected = all.getComponentNodes(step);
+				int[] nodes = sccs.getComponentNodes(step);
+				Arrays.sort(expected);
+				Arrays.sort(nodes);
+				assertArrayEquals(expected, nodes);
+			}
+			assertEquals(all.getCyclicNodeCount(), sccs.getCyclicNodeCount());
+		}
+	}
+
+	@Test
+	public void isComputedOnceBySearch() {
+		int[][] adjList = {{1}, {0, 2}, {1}};
+		ElementaryCyclesSearch search = new ElementaryCyclesSearch(adjList, ReferenceCycles.names(3));
+		SCCDecomposition sccs = search.getDecomposition();
+		search.getElementaryCycles();
+		search.getElementaryCyclesNSL(2);
+		assertSame(sccs, search.getDecomposition());
+	}
+
+	/**
+	 * Checks the steps of a decomposition: one for every start node in
+	 * ascending order, each with the nodes of the component of its start
+	 * node in the subgraph of the nodes not less than the start node.
+	 */
+	static void checkDecomposition(int[][] adjList, SCCDecomposition sccs) {
+		int n = adjList.length;
+		int step = 0;
+		for (int s = 0; s < n; s++) {
+			if (!ReferenceCycles.isStartNode(adjList, s)) {
+				continue;
+			}
+			assertEquals(s, sccs.getStartNode(step));
+			int[] expected = new int[n];
+			int size = 0;
+			expected[size++] = s;
+			for (int v = s + 1; v < n; v++) {
+				if (ReferenceCycles.reaches(adjList, s, v, s) && ReferenceCycles.reaches(adjList, v, s, s)) {
+					expected[size++] = v;
+				}
+			}
+			int[] nodes = sccs.getComponentNodes(step);
+			assertEquals(s, nodes[0]);
+			Arrays.sort(nodes, 1, nodes.length);
+			assertArrayEquals(Arrays.copyOf(expected, size), nodes);
+			assertEquals(size, sccs.getComponentSize(step));
+			step++;
+		}
+		assertEquals(step, sccs.getStepCount());
+
+		boolean[] cyclic = new boolean[n];
+		for (int i = 0; i < sccs.getCyclicNodeCount(); i++) {
+			cyclic[sccs.getNode(i)] = true;
+		}
+		for (int v = 0; v < n; v++) {
+			assertEquals(ReferenceCycles.inComponent(adjList, v), cyclic[v]);
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+
+/**
+ * Tests of the searches with the limits of {@link SearchOptions}: a search
+ * stopped by a limit returns the first cycles of the complete search.
+ *
+ */
+public class SearchOptionsTest {
+	@Test
+	public void findsAllCyclesWithoutLimits() {
+		Random random = new Random(151);
+		for (int k = 0; k < 300; k++) {
+			int[][] adjList = ElementaryCyclesSearchTest.randomGraph(random);
+			String[] names = ReferenceCycles.names(adjList.length);
+			int maxLength = 1 + random.nextInt(adjList.length + 1);
+			ElementaryCyclesSearch search = new ElementaryCyclesSearch(adjList, names);
+
+			SearchOptions options = new SearchOptions();
+			options.setMaxLength(maxLength);
+			SearchResult result = search.getElementaryCycles(options);
+			assertFalse(result.isTruncated());
+			assertEquals(SearchResult.StopReason.COMPLETED, result.getStopReason());
+			assertEquals(ElementaryCyclesSearchTest.expected(adjList, maxLength, false, names), result.getCycles());
+			assertEquals(ElementaryCyclesSearchTest.expected(adjList, maxLength, true, names),
+					search.getElementaryCyclesNSL(options).getCycles());
+
+			String[] stableNames = ElementaryCyclesSearchforStableSCCTest.randomNames(random);
+			int[][] network = ElementaryCyclesSearchforStableSCCTest.randomNetwork(random, stableNames);
+			result = new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(network), stableNames).getElementaryCycles(options);
+			assertEquals(SearchResult.StopReason.COMPLETED, result.getStopReason());
+			assertEquals(ElementaryCyclesSearchforStableSCCTest.expected(network, stableNames, maxLength), result.getCycles());
+		}
+	}
+
+	@Test
+	public void stopsAtTheLimitOfCycles() {
+		Random random = new Random(152);
+		for (int k = 0; k < 300; k++) {
+			int[][] adjList = ElementaryCyclesSearchTest.randomGraph(random);
+			ElementaryCyclesSearch search = new ElementaryCyclesSearch(adjList, ReferenceCycles.names(adjList.length));
+			ArrayList cycles = search.getElementaryCycles();
+			int maxCycles = random.nextInt(cycles.size() + 2);
+
+			SearchOptions options = new SearchOptions();
+			options.setMaxCycles(maxCycles);
+			SearchResult result = search.getElementaryCycles(options);
+			assertEquals(cycles.subList(0, Math.min(maxCycles, cycles.size())), result.getCycles());
+			assertEquals(maxCycles < cycles.size() ? SearchResult.StopReason.CYCLE_LIMIT : SearchResult.StopReason.COMPLETED,
+					result.getStopReason());
+		}
+	}
+
+	@Test
+	public void stopsAtTheLimitOfVisitedNodes() {
+		Random random = new Random(153);
+		for (int k = 0; k < 300; k++) {
+			int[][] adjList = ElementaryCyclesSearchTest.randomGraph(random);
+			ElementaryCyclesSearch search = new ElementaryCyclesSearch(adjList, ReferenceCycles.names(adjList.length));
+			ArrayList cycles = search.getElementaryCycles();
+			long visited = search.getElementaryCycles(new SearchOptions()).getVisitedNodes();
+			long maxVisitedNodes = random.nextInt((int) visited + 2);
+
+			SearchOptions options = new SearchOptions();
+			options.setMaxVisitedNodes(maxVisitedNodes);
+			SearchResult result = search.getElementaryCycles(options);
+			assertEquals(cycles.subList(0, result.getCycles().size()), result.getCycles());
+			if (maxVisitedNodes < visited) {
+				assertEquals(SearchResult.StopReason.VISIT_LIMIT, result.getStopReason());
+			} else {
+				assertEquals(cycles, result.getCycles());
+			}
+		}
+	}
+
+	@Test
+	public void stopsWhenCancelled() {
+		// two components, the search is cancelled after the first one
+		int[][] adjList = {{1}, {0}, {3}, {2}};
+		final CancellationToken token = new CancellationToken();
+		SearchOptions options = new SearchOptions();
+		options.setCancellationToken(token);
+		options.setProgressListener(new SearchProgressListener() {
+			public void progress(int startNode, int componentsDone, int componentCount, long cycleCount) {
+				token.cancel();
+			}
+		});
+		SearchResult result = new ElementaryCyclesSearch(adjList, ReferenceCycles.names(4)).getElementaryCycles(options);
+		assertEquals(SearchResult.StopReason.CANCELLED, result.getStopReason());
+		assertEquals(Arrays.asList(Arrays.asList("0", "1")), result.getCycles());
+	}
+
+	@Test
+	public void looksAtTheTimeForEveryCycle() {
+		// the time limit passes after the first component, long before the next checkpoint
+		int[][] adjList = {{1}, {0}, {3}, {2}};
+		SearchOptions options = new SearchOptions();
+		options.setTimeLimit(10);
+		options.setProgressListener(new SearchProgressListener() {
+			public void progress(int startNode, int componentsDone, int componentCount, long cycleCount) {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		SearchResult result = new ElementaryCyclesSearch(adjList, ReferenceCycles.names(4)).getElementaryCycles(options);
+		assertEquals(SearchResult.StopReason.TIME_LIMIT, result.getStopReason());
+		assertEquals(Arrays.asList(Arrays.asList("0", "1")), result.getCycles());
+	}
+
+	@Test(timeout = 30000)
+	public void stopsAtTheTimeLimit() {
+		// the complete graph of 14 nodes has far too many cycles to be searched in time
+		int n = 14;
+		boolean[][] matrix = new boolean[n][n];
+		for (int v = 0; v < n; v++) {
+			for (int w = 0; w < n; w++) {
+				matrix[v][w] = v != w;
+			}
+		}
+		SearchOptions options = new SearchOptions();
+		options.setTimeLimit(200);
+		options.setMaxLength(4);
+		SearchResult result = new ElementaryCyclesSearch(matrix, ReferenceCycles.names(n)).getElementaryCycles(options);
+		assertEquals(SearchResult.StopReason.COMPLETED, result.getStopReason());
+
+		options.setMaxLength(Integer.MAX_VALUE);
+		result = new ElementaryCyclesSearch(matrix, ReferenceCycles.names(n)).getElementaryCycles(options);
+		assertEquals(SearchResult.StopReason.TIME_LIMIT, result.getStopReason());
+		assertTrue(result.isTruncated());
+	}
+}
@@ -0,0 +1,115 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Compares the counters of {@link SearchStats} with the cycles and the
+ * components of the searches. The counters are only checked, if the tests
+ * run with -Dtest-sys-prop.de.normalisiert.utils.graphs.stats=true; without
+ * it they must stay 0 and the searches find the same cycles.
+ *
+ */
+public class SearchStatsTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void countsTheCyclesAndComponentsOfTheSearch() {
+		Random random = new Random(171);
+		for (int k = 0; k < 300; k++) {
+			int[][] adjList = ElementaryCyclesSearchTest.randomGraph(random);
+			String[] names = ReferenceCycles.names(adjList.length);
+			int maxLength = 1 + random.nextInt(adjList.length + 1);
+			boolean noSelfLoops = random.nextBoolean();
+			ElementaryCyclesSearch search = new ElementaryCyclesSearch(adjList, names);
+			SearchOptions options = new SearchOptions();
+			options.setMaxLength(maxLength);
+			SearchResult result = noSelfLoops ? search.getElementaryCyclesNSL(options) : search.getElementaryCycles(options);
+			assertEquals(ElementaryCyclesSearchTest.expected(adjList, maxLength, noSelfLoops, names), result.getCycles());
+
+			SearchStats stats = result.getStats();
+			assertEquals(result.getVisitedNodes(), stats.getVerticesPushed());
+			if (!SearchStats.isEnabled()) {
+				assertEquals(0, stats.getEdgesScanned());
+				assertEquals(0, stats.getCycleCount());
+				assertEquals(0, stats.getComponentCount());
+				continue;
+			}
+
+			// the cycles of length one outside of the components are not counted
+			long outside = 0;
+			ArrayList cycles = result.getCycles();
+			for (int i = 0; i < cycles.size(); i++) {
+				if (((ArrayList) cycles.get(i)).size() == 1 && !ReferenceCycles.inComponent(adjList, Integer.parseInt((String) ((ArrayList) cycles.get(i)).get(0)))) {
+					outside++;
+				}
+			}
+			assertEquals(cycles.size() - outside, stats.getCycleCount());
+
+			SCCDecomposition sccs = search.getDecomposition();
+			assertEquals(sccs.getStepCount(), stats.getComponentCount());
+			long componentCycles = 0;
+			for (int i = 0; i < stats.getComponentCount(); i++) {
+				assertEquals(sccs.getStartNode(i), stats.getStartNode(i));
+				assertEquals(sccs.getComponentSize(i), stats.getComponentSize(i));
+				assertTrue(stats.getComponentNanos(i) >= 0);
+				componentCycles += stats.getComponentCycles(i);
+			}
+			assertEquals(stats.getCycleCount(), componentCycles);
+			assertTrue(stats.getEdgesScanned() >= stats.getCycleCount());
+		}
+	}
+
+	@Test
+	public void recordsTheCountersOnlyIfTheyAreCollected() throws IOException {
+		int[][] adjList = ReferenceCycles.randomGraph(new Random(172), 12, 0.3, 0.3);
+		ElementaryCyclesSearch search = new ElementaryCyclesSearch(adjList, ReferenceCycles.names(adjList.length));
+		Recording recording = new Recording();
+		recording.enable("de.normalisiert.utils.graphs.ComponentSearch");
+		recording.enable("de.normalisiert.utils.graphs.ComponentTiming");
+		recording.start();
+		SearchResult result = search.getElementaryCycles(new SearchOptions());
+		recording.stop();
+		File file = this.folder.newFile("search.jfr");
+		recording.dump(file.toPath());
+		recording.close();
+
+		int searchEvents = 0;
+		int timingEvents = 0;
+		long cycles = 0;
+		long verticesPushed = 0;
+		for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+			String name = event.getEventType().getName();
+			if (name.equals("de.normalisiert.utils.graphs.ComponentSearch")) {
+				searchEvents++;
+				cycles += event.getLong("cycles");
+			} else if (name.equals("de.normalisiert.utils.graphs.ComponentTiming")) {
+				timingEvents++;
+			} else {
+				continue;
+			}
+			verticesPushed += event.getLong("verticesPushed");
+		}
+		int steps = search.getDecomposition().getStepCount();
+		assertTrue(steps > 0);
+		assertEquals(SearchStats.isEnabled() ? steps : 0, searchEvents);
+		assertEquals(SearchStats.isEnabled() ? 0 : steps, timingEvents);
+		assertEquals(result.getVisitedNodes(), verticesPushed);
+		if (SearchStats.isEnabled()) {
+			assertEquals(result.getStats().getCycleCount(), cycles);
+		}
+	}
+}
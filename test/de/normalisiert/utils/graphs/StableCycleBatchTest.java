@@ -0,0 +1,130 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+
+
+/**
+ * Compares the results of {@link StableCycleBatch} with the searches of
+ * {@link ElementaryCyclesSearchforStableSCC} on the single networks.
+ *
+ */
+public class StableCycleBatchTest {
+	@Test
+	public void findsTheCyclesOfTheSingleSearches() {
+		Random random = new Random(221);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int k = 0; k < 20; k++) {
+				SearchOptions options = new SearchOptions();
+				options.setMaxLength(random.nextBoolean() ? Integer.MAX_VALUE : 1 + random.nextInt(8));
+				boolean noSelfLoops = random.nextBoolean();
+				StableCycleBatch batch = new StableCycleBatch(executor, 1 + random.nextInt(16), options, noSelfLoops);
+
+				// rows in random order, which the searches must not sort
+				ArrayList networks = new ArrayList();
+				ArrayList passed = new ArrayList();
+				ArrayList given = new ArrayList();
+				ArrayList expected = new ArrayList();
+				for (int i = 0; i < 50; i++) {
+					String[] names = ElementaryCyclesSearchforStableSCCTest.randomNames(random);
+					int[][] adjList = shuffledRows(random, ElementaryCyclesSearchforStableSCCTest.randomNetwork(random, names));
+					ArrayList<String> sources = random.nextBoolean() ? null : randomSources(random, names);
+					networks.add(new StableCycleBatch.Network(adjList, names, sources));
+					passed.add(adjList);
+					given.add(ReferenceCycles.copy(adjList));
+
+					ElementaryCyclesSearchforStableSCC search = sources == null
+							? new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names)
+							: new ElementaryCyclesSearchforStableSCC(ReferenceCycles.copy(adjList), names, sources);
+					expected.add((noSelfLoops ? search.getElementaryCyclesNSL(options) : search.getElementaryCycles(options)).getCycles());
+				}
+
+				Iterator<SearchResult> results = batch.run(networks.iterator());
+				for (int i = 0; i < networks.size(); i++) {
+					assertEquals(expected.get(i), results.next().getCycles());
+				}
+				assertFalse(results.hasNext());
+				for (int i = 0; i < networks.size(); i++) {
+					assertArrayEquals("the rows are not sorted in place", (int[][]) given.get(i), (int[][]) passed.get(i));
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void searchesAgainAfterASearchHasThrown() {
+		Random random = new Random(222);
+		SearchOptions options = new SearchOptions();
+		options.setMaxLength(5);
+		// one thread and networks of the same size with up to 32 edges, so all searches take the same workspace
+		StableCycleBatch batch = new StableCycleBatch(new Executor() {
+			public void execute(Runnable command) {
+				command.run();
+			}
+		}, 1, options, false);
+
+		// the bounded search reads "x" with 0 to 3 on the path
+		String[] failingNames = {"1", "2", "3", "4", "x", "5", "6.5", "7.5"};
+		int[][] failing = {{1}, {2}, {3}, {4, 5}, {0}, {0}, {0, 1, 2, 3, 4, 5, 7}, {0, 1, 2, 3, 4, 5}};
+		String[] names = {"1", "-1", "2", "-2", "3", "-3", "4", "-4"};
+		for (int k = 0; k < 100; k++) {
+			ArrayList networks = new ArrayList();
+			networks.add(new StableCycleBatch.Network(failing, failingNames));
+			int[][] adjList = ElementaryCyclesSearchforStableSCCTest.randomNetwork(random, names, 0.3 + random.nextDouble() * 0.1);
+			networks.add(new StableCycleBatch.Network(ReferenceCycles.copy(adjList), names));
+
+			Iterator<SearchResult> results = batch.run(networks.iterator());
+			try {
+				results.next();
+				fail("the search visits x");
+			} catch (NumberFormatException e) {
+				// expected
+			}
+			assertEquals(ElementaryCyclesSearchforStableSCCTest.expected(adjList, names, 5), results.next().getCycles());
+			assertEquals(1, batch.getPooledWorkspaceCount());
+		}
+	}
+
+	/**
+	 * @return some of the variables of the names
+	 */
+	private static ArrayList<String> randomSources(Random random, String[] names) {
+		ArrayList<String> sources = new ArrayList<String>();
+		for (int v = 0; v < names.length; v++) {
+			if (!names[v].startsWith("-") && !names[v].contains(".") && random.nextBoolean()) {
+				sources.add(names[v]);
+			}
+		}
+		return sources;
+	}
+
+	private static int[][] shuffledRows(Random random, int[][] adjList) {
+		int[][] shuffled = new int[adjList.length][];
+		for (int v = 0; v < adjList.length; v++) {
+			ArrayList row = new ArrayList();
+			for (int i = 0; i < adjList[v].length; i++) {
+				row.add(adjList[v][i]);
+			}
+			Collections.shuffle(row, random);
+			shuffled[v] = new int[row.size()];
+			for (int i = 0; i < row.size(); i++) {
+				shuffled[v][i] = ((Integer) row.get(i)).intValue();
+			}
+		}
+		return shuffled;
+	}
+}
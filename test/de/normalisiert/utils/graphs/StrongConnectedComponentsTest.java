@@ -0,0 +1,128 @@
+package de.normalisiert.utils.graphs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+
+/**
+ * Compares {@link StrongConnectedComponents} with the components computed
+ * by reachability.
+ *
+ */
+public class StrongConnectedComponentsTest {
+	@Test
+	public void partitionHoldsTheComponentsOfReachability() {
+		Random random = new Random(41);
+		for (int k = 0; k < 300; k++) {
+			int n = random.nextInt(25);
+			int[][] adjList = ReferenceCycles.randomGraph(random, n, random.nextDouble() * 0.3, 0.3);
+			SCCPartition components = new StrongConnectedComponents(CompactGraph.fromAdjacencyList(adjList)).getComponents();
+
+			for (int v = 0; v < n; v++) {
+				for (int w = 0; w < n; w++) {
+					boolean same = v == w || (ReferenceCycles.reaches(adjList, v, w, 0) && ReferenceCycles.reaches(adjList, w, v, 0));
+					assertEquals(same, components.getComponent(v) == components.getComponent(w));
+					if (Arrays.binarySearch(adjList[v], w) >= 0) {
+						assertTrue("reverse topological order", components.getComponent(v) >= components.getComponent(w));
+					}
+				}
+			}
+			int size = 0;
+			for (int c = 0; c < components.getComponentCount(); c++) {
+				int[] nodes = components.getComponentNodes(c);
+				for (int i = 0; i < nodes.length; i++) {
+					assertEquals(c, components.getComponent(nodes[i]));
+					assertTrue("nodes are ascending", i == 0 || nodes[i - 1] < nodes[i]);
+				}
+				size += nodes.length;
+			}
+			assertEquals(n, size);
+		}
+	}
+
+	@Test
+	public void adjacencyListHoldsTheComponentOfTheNextStartNode() {
+		Random random = new Random(42);
+		for (int k = 0; k < 300; k++) {
+			int n = 1 + random.nextInt(25);
+			int[][] adjList = ReferenceCycles.randomGraph(random, n, random.nextDouble() * 0.3, 0.3);
+			StrongConnectedComponents sccs = new StrongConnectedComponents(ReferenceCycles.copy(adjList));
+
+			for (int node = 0; node < n; node++) {
+				int s = node;
+				while (s < n && !ReferenceCycles.isStartNode(adjList, s)) {
+					s++;
+				}
+				SCCResult result = sccs.getAdjacencyList(node);
+				if (s == n) {
+					assertNull(result);
+					continue;
+				}
+				assertEquals(s, result.getLowestNodeId());
+				boolean[] inComponent = new boolean[n];
+				for (int v = s; v < n; v++) {
+					inComponent[v] = v == s || (ReferenceCycles.reaches(adjList, s, v, s) && ReferenceCycles.reaches(adjList, v, s, s));
+				}
+				CompactGraph graph = result.getGraph();
+				for (int v = 0; v < n; v++) {
+					for (int w = 0; w < n; w++) {
+						boolean edge = inComponent[v] && inComponent[w] && Arrays.binarySearch(adjList[v], w) >= 0;
+						assertEquals(edge, graph.hasEdge(v, w));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void outputsTheComponentsFollowedByTheSelfLoops() {
+		Random random = new Random(43);
+		for (int k = 0; k < 300; k++) {
+			int n = random.nextInt(25);
+			int[][] adjList = ReferenceCycles.randomGraph(random, n, random.nextDouble() * 0.3, 0.3);
+			String[] names = ReferenceCycles.names(n);
+			StrongConnectedComponents sccs = new StrongConnectedComponents(ReferenceCycles.copy(adjList));
+			sccs.findStrongConnectedComponents(adjList, names);
+
+			ArrayList expected = new ArrayList();
+			for (int s = 0; s < n; s++) {
+				if (!ReferenceCycles.isStartNode(adjList, s)) {
+					continue;
+				}
+				ArrayList component = new ArrayList();
+				for (int v = s; v < n; v++) {
+					if (v == s || (ReferenceCycles.reaches(adjList, s, v, s) && ReferenceCycles.reaches(adjList, v, s, s))) {
+						component.add(names[v]);
+					}
+				}
+				expected.add(component);
+			}
+			for (int v = 0; v < n; v++) {
+				if (Arrays.binarySearch(adjList[v], v) >= 0 && !ReferenceCycles.inComponent(adjList, v)) {
+					expected.add(new ArrayList(Arrays.asList(names[v])));
+				}
+			}
+			assertEquals(expected, sccs.outputStrongConnectedComponents());
+		}
+	}
+
+	@Test
+	public void handlesManySelfLoopsInLinearTime() {
+		// a chain of 200000 nodes with self-loops, one component for each
+		int n = 200000;
+		int[][] adjList = new int[n][];
+		for (int v = 0; v < n; v++) {
+			adjList[v] = v + 1 < n ? new int[] {v, v + 1} : new int[] {v};
+		}
+		StrongConnectedComponents sccs = new StrongConnectedComponents(adjList);
+		sccs.findStrongConnectedComponents(adjList, new Object[n]);
+		assertEquals(n, sccs.outputStrongConnectedComponents().size());
+		assertEquals(n, sccs.getComponents().getComponentCount());
+	}
+}